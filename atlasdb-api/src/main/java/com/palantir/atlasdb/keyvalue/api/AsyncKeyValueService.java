@@ -0,0 +1,74 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.api;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterparts of the point read and write methods of {@link KeyValueService}.
+ * <p>
+ * Each method has the same semantics as the {@link KeyValueService} method of the same name without the
+ * {@code Async} suffix, but returns as soon as the request has been issued. The returned future completes with the
+ * result, or exceptionally with the exception the blocking method would have thrown. Implementations backed by a
+ * store with a non-blocking client should not tie up a thread per outstanding request.
+ */
+public interface AsyncKeyValueService {
+    /**
+     * Asynchronously gets values from the key-value store.
+     *
+     * @see KeyValueService#get(TableReference, Map)
+     */
+    CompletableFuture<Map<Cell, Value>> getAsync(TableReference tableRef, Map<Cell, Long> timestampByCell);
+
+    /**
+     * Asynchronously gets values from the key-value store for the specified rows.
+     *
+     * @see KeyValueService#getRows(TableReference, Iterable, ColumnSelection, long)
+     */
+    CompletableFuture<Map<Cell, Value>> getRowsAsync(
+            TableReference tableRef,
+            Iterable<byte[]> rows,
+            ColumnSelection columnSelection,
+            long timestamp);
+
+    /**
+     * Asynchronously gets values from the key-value store for the specified rows and column range.
+     *
+     * @see KeyValueService#getRowsColumnRange(TableReference, Iterable, BatchColumnRangeSelection, long)
+     */
+    CompletableFuture<Map<byte[], RowColumnRangeIterator>> getRowsColumnRangeAsync(
+            TableReference tableRef,
+            Iterable<byte[]> rows,
+            BatchColumnRangeSelection batchColumnRangeSelection,
+            long timestamp);
+
+    /**
+     * Asynchronously puts values into the key-value store.
+     *
+     * @see KeyValueService#put(TableReference, Map, long)
+     */
+    CompletableFuture<Void> putAsync(TableReference tableRef, Map<Cell, byte[]> values, long timestamp);
+
+    /**
+     * Asynchronously puts values into the key-value store, possibly across several tables.
+     *
+     * @see KeyValueService#multiPut(Map, long)
+     */
+    CompletableFuture<Void> multiPutAsync(
+            Map<TableReference, ? extends Map<Cell, byte[]>> valuesByTable,
+            long timestamp);
+}
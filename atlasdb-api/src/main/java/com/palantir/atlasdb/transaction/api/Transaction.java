@@ -19,6 +19,7 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiFunction;
 import java.util.stream.Stream;
 
@@ -62,6 +63,35 @@ public interface Transaction {
     @Idempotent
     Map<Cell, byte[]> get(TableReference tableRef, Set<Cell> cells);
 
+    /**
+     * Asynchronous version of {@link #getRows(TableReference, Iterable, ColumnSelection)}.
+     * <p>
+     * The rows are read as they stood when this method was called, including this transaction's own writes.
+     * Errors found before the read is issued, such as the transaction no longer being open, may be thrown directly
+     * rather than through the returned future. The transaction must not be committed before the future has
+     * completed; implementations that track reads wait for outstanding asynchronous reads on commit.
+     * <p>
+     * The default implementation performs the read synchronously.
+     */
+    @Idempotent
+    default CompletableFuture<SortedMap<byte[], RowResult<byte[]>>> getRowsAsync(
+            TableReference tableRef,
+            Iterable<byte[]> rows,
+            ColumnSelection columnSelection) {
+        return CompletableFuture.completedFuture(getRows(tableRef, rows, columnSelection));
+    }
+
+    /**
+     * Asynchronous version of {@link #get(TableReference, Set)}, with the same guarantees as
+     * {@link #getRowsAsync(TableReference, Iterable, ColumnSelection)}.
+     * <p>
+     * The default implementation performs the read synchronously.
+     */
+    @Idempotent
+    default CompletableFuture<Map<Cell, byte[]>> getAsync(TableReference tableRef, Set<Cell> cells) {
+        return CompletableFuture.completedFuture(get(tableRef, cells));
+    }
+
     /**
      * Creates a visitable that scans the provided range.
      *
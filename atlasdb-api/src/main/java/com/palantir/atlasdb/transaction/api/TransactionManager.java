@@ -96,6 +96,10 @@ public interface TransactionManager extends AutoCloseable {
      * This will open and run a read-only transaction. Read-only transactions are similar to other
      * transactions, but will throw if any write operations are called. Furthermore, they often
      * make fewer network calls than their read/write counterparts so should be used where possible.
+     * <p>
+     * Read-only transactions do not lock the immutable timestamp, so they cannot read from tables
+     * with a thorough sweep strategy, and will fail with a {@link TransactionFailedRetriableException}
+     * if they are open for longer than the transaction read timeout.
      *
      * @param task task to run
      *
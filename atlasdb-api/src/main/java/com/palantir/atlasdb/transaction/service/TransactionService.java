@@ -15,7 +15,9 @@
  */
 package com.palantir.atlasdb.transaction.service;
 
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.CheckForNull;
 
@@ -48,4 +50,24 @@ public interface TransactionService {
      */
     void putUnlessExists(long startTimestamp, long commitTimestamp)
             throws KeyAlreadyExistsException;
+
+    /**
+     * Batch version of {@link #putUnlessExists(long, long)}. Each start timestamp is set atomically and only if it
+     * hasn't already been set, but the batch as a whole is not atomic.
+     * @return the start timestamps that were not set because they already had a value. {@link #get(long)} should be
+     * called to check what each of them was set to. As with the single value version, a start timestamp may be
+     * reported spuriously due to retry.
+     * @throws RuntimeException If a runtime exception is thrown, any part of this operation may or may not have ran.
+     */
+    default Set<Long> putUnlessExists(Map<Long, Long> startTimestampToCommitTimestamp) {
+        Set<Long> alreadyExisting = new HashSet<>();
+        for (Map.Entry<Long, Long> entry : startTimestampToCommitTimestamp.entrySet()) {
+            try {
+                putUnlessExists(entry.getKey(), entry.getValue());
+            } catch (KeyAlreadyExistsException e) {
+                alreadyExisting.add(entry.getKey());
+            }
+        }
+        return alreadyExisting;
+    }
 }
@@ -231,6 +231,105 @@ public abstract class CassandraKeyValueServiceConfig implements KeyValueServiceC
         return 32;
     }
 
+    /**
+     * The number of token ranges of the ring that a single range scan reads from concurrently. Range scans are split
+     * along the token ranges of the ring and read from a replica of each range, and the rows are still returned in
+     * order. The default of 1 reads one range after another.
+     */
+    @Value.Default
+    public int rangeScanConcurrency() {
+        return 1;
+    }
+
+    /**
+     * The number of pages of rows that each token range read by a concurrent range scan fetches ahead of the caller.
+     */
+    @Value.Default
+    public int rangeScanPrefetchPages() {
+        return 2;
+    }
+
+    /**
+     * The maximum number of threads that read token ranges of concurrent range scans in the background. Token ranges
+     * that find every thread busy are read on the thread of the caller of the range scan instead.
+     */
+    @Value.Default
+    public int rangeScanMaxThreads() {
+        return 32;
+    }
+
+    /**
+     * Whether requests are sent to the hosts with the lowest latency and the fewest outstanding requests, rather than
+     * to the hosts with the fewest outstanding requests alone. Each host is scored by a moving average of the latency
+     * of its requests that weighs a request slower than the average more heavily than a faster one, and that decays
+     * while the host is idle.
+     */
+    @Value.Default
+    public boolean latencyAwareHostSelection() {
+        return false;
+    }
+
+    /**
+     * Whether point and row reads that have not returned after {@link #hedgedReadPercentile()} of the recent read
+     * latencies of their table are also sent to a second host, returning whichever answer arrives first.
+     */
+    @Value.Default
+    public boolean hedgedReads() {
+        return false;
+    }
+
+    /**
+     * The percentile of the recent read latencies of a table after which a hedged read is sent to a second host.
+     */
+    @Value.Default
+    public double hedgedReadPercentile() {
+        return 0.99;
+    }
+
+    /**
+     * The minimum time to wait for a read before sending a hedged read to a second host.
+     */
+    @Value.Default
+    public int hedgedReadMinimumDelayMillis() {
+        return 5;
+    }
+
+    /**
+     * The largest proportion of reads that are hedged. Slow reads beyond this budget wait for their first host.
+     */
+    @Value.Default
+    public double hedgedReadMaxProportion() {
+        return 0.05;
+    }
+
+    /**
+     * The maximum number of threads that run reads that may be hedged. Reads that find every thread busy are run on
+     * the caller's thread and are not hedged.
+     */
+    @Value.Default
+    public int hedgedReadMaxThreads() {
+        return 64;
+    }
+
+    /**
+     * Whether the batches of mutations and row reads sent to each host for each table are resized from how recent
+     * batches fared, rather than always using {@link #mutationBatchCount()}, {@link #mutationBatchSizeBytes()} and
+     * {@link #fetchBatchCount()}. Batches grow to up to four times the configured number of cells while they return
+     * quickly, and shrink when they are slow or time out, but never grow beyond the configured number of bytes.
+     */
+    @Value.Default
+    public boolean adaptiveBatching() {
+        return false;
+    }
+
+    /**
+     * The latency above which a batch is considered slow, and the batches to its host and table are made smaller.
+     */
+    @Value.Default
+    public int adaptiveBatchTargetLatencyMillis() {
+        return 250;
+    }
+
     @Value.Default
     public boolean scyllaDb() {
         return false;
@@ -269,5 +368,17 @@ public abstract class CassandraKeyValueServiceConfig implements KeyValueServiceC
         double evictionCheckProportion = proportionConnectionsToCheckPerEvictionRun();
         Preconditions.checkArgument(evictionCheckProportion > 0.01 && evictionCheckProportion <= 1,
                 "'proportionConnectionsToCheckPerEvictionRun' must be between 0.01 and 1");
+        Preconditions.checkArgument(rangeScanConcurrency() > 0, "'rangeScanConcurrency' must be positive");
+        Preconditions.checkArgument(rangeScanPrefetchPages() > 0, "'rangeScanPrefetchPages' must be positive");
+        Preconditions.checkArgument(rangeScanMaxThreads() > 0, "'rangeScanMaxThreads' must be positive");
+        Preconditions.checkArgument(hedgedReadPercentile() > 0 && hedgedReadPercentile() < 1,
+                "'hedgedReadPercentile' must be between 0 and 1");
+        Preconditions.checkArgument(hedgedReadMinimumDelayMillis() >= 0,
+                "'hedgedReadMinimumDelayMillis' must be non-negative");
+        Preconditions.checkArgument(hedgedReadMaxProportion() > 0 && hedgedReadMaxProportion() <= 1,
+                "'hedgedReadMaxProportion' must be between 0 and 1");
+        Preconditions.checkArgument(hedgedReadMaxThreads() > 0, "'hedgedReadMaxThreads' must be positive");
+        Preconditions.checkArgument(adaptiveBatchTargetLatencyMillis() > 0,
+                "'adaptiveBatchTargetLatencyMillis' must be positive");
     }
 }
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cassandra.thrift.TimedOutException;
+import org.apache.thrift.TException;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Ints;
+import com.palantir.atlasdb.cassandra.CassandraKeyValueServiceConfig;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+
+/**
+ * Sizes the batches of cells that we send to each host for each table from how recent batches to that host and table
+ * fared, if {@link CassandraKeyValueServiceConfig#adaptiveBatching()} is set.
+ * <p>
+ * Each host and table has a scale, by which the configured number of cells and bytes per batch are multiplied. The
+ * scale grows by a small step whenever a batch that was at least half full returns within the target latency, and
+ * shrinks by a quarter when a batch is slower than that, or by half when it times out. A batch to several tables is
+ * limited by the smallest of their scales, and its outcome is recorded against each of them.
+ * <p>
+ * The number of cells may grow to up to four times the configured number, so that tables with small values are not
+ * under-batched, but the number of bytes only ever shrinks from the configured number, which keeps batches of large
+ * values well within the Thrift frame size.
+ */
+class AdaptiveBatchSizer {
+    private static final double MAX_SCALE = 4.0;
+    private static final double MIN_SCALE = 1.0 / 1024;
+    private static final double INCREASE_STEP = 0.1;
+    private static final double SLOW_DECREASE_FACTOR = 0.75;
+    private static final double TIMEOUT_DECREASE_FACTOR = 0.5;
+
+    private final boolean enabled;
+    private final long targetLatencyNanos;
+    private final ConcurrentMap<HostAndTable, Double> scales = Maps.newConcurrentMap();
+
+    @VisibleForTesting
+    AdaptiveBatchSizer(boolean enabled, long targetLatencyMillis) {
+        this.enabled = enabled;
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis);
+    }
+
+    static AdaptiveBatchSizer create(CassandraKeyValueServiceConfig config) {
+        return new AdaptiveBatchSizer(config.adaptiveBatching(), config.adaptiveBatchTargetLatencyMillis());
+    }
+
+    BatchLimits getLimits(InetSocketAddress host,
+                          Set<TableReference> tableRefs,
+                          int configuredCells,
+                          long configuredBytes) {
+        if (!enabled) {
+            return new BatchLimits(configuredCells, configuredBytes);
+        }
+        double scale = MAX_SCALE;
+        for (TableReference tableRef : tableRefs) {
+            scale = Math.min(scale, scales.getOrDefault(new HostAndTable(host, tableRef), 1.0));
+        }
+        int cells = Math.max(Ints.saturatedCast(Math.round(configuredCells * scale)), 1);
+        long bytes = Math.max(Math.round(configuredBytes * Math.min(scale, 1.0)), 1L);
+        return new BatchLimits(cells, bytes);
+    }
+
+    /**
+     * Runs the given batch of the given number of cells and bytes, which was sized by the given limits, and records
+     * how long it took, or whether it timed out.
+     */
+    <V> V runBatch(InetSocketAddress host,
+                   Set<TableReference> tableRefs,
+                   BatchLimits limits,
+                   int cells,
+                   long bytes,
+                   TracingQueryRunner.Action<V> batch) throws TException {
+        if (!enabled) {
+            return batch.run();
+        }
+        long startNanos = System.nanoTime();
+        try {
+            V result = batch.run();
+            recordBatch(host, tableRefs, limits, cells, bytes, System.nanoTime() - startNanos);
+            return result;
+        } catch (TException e) {
+            if (isTimeout(e)) {
+                recordTimeout(host, tableRefs);
+            }
+            throw e;
+        }
+    }
+
+    @VisibleForTesting
+    void recordBatch(InetSocketAddress host,
+                     Set<TableReference> tableRefs,
+                     BatchLimits limits,
+                     int cells,
+                     long bytes,
+                     long latencyNanos) {
+        if (latencyNanos > targetLatencyNanos) {
+            updateScales(host, tableRefs, SLOW_DECREASE_FACTOR, 0);
+        } else if (2L * cells >= limits.getCells() || 2 * bytes >= limits.getBytes()) {
+            updateScales(host, tableRefs, 1.0, INCREASE_STEP);
+        }
+    }
+
+    @VisibleForTesting
+    void recordTimeout(InetSocketAddress host, Set<TableReference> tableRefs) {
+        updateScales(host, tableRefs, TIMEOUT_DECREASE_FACTOR, 0);
+    }
+
+    private void updateScales(InetSocketAddress host, Set<TableReference> tableRefs, double factor, double step) {
+        for (TableReference tableRef : tableRefs) {
+            scales.compute(new HostAndTable(host, tableRef), (key, scale) -> {
+                double current = scale == null ? 1.0 : scale;
+                return Math.min(Math.max(current * factor + step, MIN_SCALE), MAX_SCALE);
+            });
+        }
+    }
+
+    @VisibleForTesting
+    static boolean isTimeout(Throwable ex) {
+        return ex != null
+                && (ex instanceof TimedOutException
+                || ex instanceof SocketTimeoutException
+                || isTimeout(ex.getCause()));
+    }
+
+    static final class BatchLimits {
+        private final int cells;
+        private final long bytes;
+
+        BatchLimits(int cells, long bytes) {
+            this.cells = cells;
+            this.bytes = bytes;
+        }
+
+        int getCells() {
+            return cells;
+        }
+
+        long getBytes() {
+            return bytes;
+        }
+    }
+
+    private static final class HostAndTable {
+        private final InetSocketAddress host;
+        private final TableReference tableRef;
+
+        HostAndTable(InetSocketAddress host, TableReference tableRef) {
+            this.host = host;
+            this.tableRef = tableRef;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (other == null || getClass() != other.getClass()) {
+                return false;
+            }
+            HostAndTable that = (HostAndTable) other;
+            return host.equals(that.host) && tableRef.equals(that.tableRef);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(host, tableRef);
+        }
+    }
+}
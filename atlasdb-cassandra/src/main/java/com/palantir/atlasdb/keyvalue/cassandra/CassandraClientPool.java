@@ -18,10 +18,15 @@ package com.palantir.atlasdb.keyvalue.cassandra;
 
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.cassandra.thrift.Cassandra;
 
+import com.google.common.collect.RangeMap;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.cassandra.CassandraClientPoolImpl.LightweightOppToken;
 import com.palantir.common.base.FunctionCheckedException;
 
 public interface CassandraClientPool {
@@ -33,8 +38,19 @@ public interface CassandraClientPool {
             InetSocketAddress specifiedHost,
             FunctionCheckedException<Cassandra.Client, V, K> fn) throws K;
     <V, K extends Exception> V runWithRetry(FunctionCheckedException<Cassandra.Client, V, K> fn) throws K;
+    /**
+     * Runs an idempotent read of the given rows of a table as {@link #runWithRetryOnHost} does. If hedged reads are
+     * enabled and the host is slower to answer than the table's reads usually are, the read is also sent to another
+     * live host that owns all of the rows, if there is one, and the first answer is returned.
+     */
+    <V, K extends Exception> V runReadWithRetryOnHost(
+            TableReference tableRef,
+            InetSocketAddress specifiedHost,
+            Collection<byte[]> rows,
+            FunctionCheckedException<Cassandra.Client, V, K> fn) throws K;
     InetSocketAddress getAddressForHost(String host) throws UnknownHostException;
     InetSocketAddress getRandomHostForKey(byte[] key);
+    RangeMap<LightweightOppToken, List<InetSocketAddress>> getTokenMap();
     Map<InetSocketAddress, CassandraClientPoolingContainer> getCurrentPools();
     void shutdown();
 }
@@ -21,6 +21,7 @@ import java.net.SocketException;
 import java.net.SocketTimeoutException;
 import java.net.UnknownHostException;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
@@ -31,10 +32,17 @@ import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -50,9 +58,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.helpers.MessageFormatter;
 
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableRangeMap;
@@ -75,6 +87,7 @@ import com.palantir.atlasdb.keyvalue.cassandra.CassandraClientFactory.ClientCrea
 import com.palantir.atlasdb.util.MetricsManager;
 import com.palantir.common.base.FunctionCheckedException;
 import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.NamedThreadFactory;
 import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.logsafe.SafeArg;
 import com.palantir.logsafe.UnsafeArg;
@@ -142,6 +155,11 @@ public final class CassandraClientPoolImpl implements CassandraClientPool {
 
     @VisibleForTesting
     static final int MAX_TRIES_TOTAL = 6;
+    /**
+     * The number of reads of a table we need to have seen before we know its latencies well enough to hedge reads.
+     */
+    @VisibleForTesting
+    static final int MIN_READS_BEFORE_HEDGING = 100;
     @VisibleForTesting
     volatile RangeMap<LightweightOppToken, List<InetSocketAddress>> tokenMap = ImmutableRangeMap.of();
     @VisibleForTesting
@@ -153,7 +171,13 @@ public final class CassandraClientPoolImpl implements CassandraClientPool {
     private final ScheduledExecutorService refreshDaemon;
     private final MetricsManager metricsManager = new MetricsManager();
     private final RequestMetrics aggregateMetrics = new RequestMetrics(null);
-    private final Map<InetSocketAddress, RequestMetrics> metricsByHost = new HashMap<>();
+    private final Map<InetSocketAddress, RequestMetrics> metricsByHost = Maps.newConcurrentMap();
+    private final Map<TableReference, ReadLatencies> readLatenciesByTable = Maps.newConcurrentMap();
+    private final Meter hedgedReads = metricsManager.registerMeter(CassandraClientPool.class, null, "hedgedReads");
+    private final Meter hedgedReadsWon = metricsManager.registerMeter(
+            CassandraClientPool.class, null, "hedgedReadsWon");
+    private final ExecutorService hedgedReadExecutor;
+    private final HedgedReadBudget hedgedReadBudget;
     private final InitializingWrapper wrapper = new InitializingWrapper();
 
     private List<InetSocketAddress> cassandraHosts;
@@ -189,6 +213,14 @@ public final class CassandraClientPoolImpl implements CassandraClientPool {
                 .setDaemon(true)
                 .setNameFormat("CassandraClientPoolRefresh-%d")
                 .build()));
+        this.hedgedReadExecutor = Tracers.wrap(PTExecutors.newThreadPoolExecutor(
+                0,
+                config.hedgedReadMaxThreads(),
+                1,
+                TimeUnit.MINUTES,
+                new SynchronousQueue<>(),
+                new NamedThreadFactory("Atlas Cassandra hedged reads", true)));
+        this.hedgedReadBudget = new HedgedReadBudget(config.hedgedReadMaxProportion());
     }
 
     private void tryInitialize() {
@@ -217,6 +249,7 @@ public final class CassandraClientPoolImpl implements CassandraClientPool {
     private void cleanUpOnInitFailure() {
         metricsManager.deregisterMetrics();
         refreshPoolFuture.cancel(true);
+        hedgedReadExecutor.shutdownNow();
         currentPools.forEach((address, cassandraClientPoolingContainer) ->
                 cassandraClientPoolingContainer.shutdownPooling());
         currentPools.clear();
@@ -225,6 +258,7 @@ public final class CassandraClientPoolImpl implements CassandraClientPool {
     @Override
     public void shutdown() {
         refreshDaemon.shutdown();
+        hedgedReadExecutor.shutdownNow();
         currentPools.forEach((address, cassandraClientPoolingContainer) ->
                 cassandraClientPoolingContainer.shutdownPooling());
         metricsManager.deregisterMetrics();
@@ -292,6 +326,7 @@ public final class CassandraClientPoolImpl implements CassandraClientPool {
 
     @VisibleForTesting
     void addPool(InetSocketAddress server, CassandraClientPoolingContainer container) {
+        metricsByHost.put(server, new RequestMetrics(getHostMetricPrefix(server)));
         currentPools.put(server, container);
     }
 
@@ -306,6 +341,13 @@ public final class CassandraClientPoolImpl implements CassandraClientPool {
                     e);
         }
         currentPools.remove(removedServerAddress);
+        metricsByHost.remove(removedServerAddress);
+        metricsManager.deregisterMetricsWithPrefix(
+                CassandraClientPool.class, getHostMetricPrefix(removedServerAddress));
+    }
+
+    private static String getHostMetricPrefix(InetSocketAddress host) {
+        return CassandraLogHelper.host(host) + ":" + host.getPort();
     }
 
     private void debugLogStateOfPool() {
@@ -389,7 +431,7 @@ public final class CassandraClientPoolImpl implements CassandraClientPool {
             livingHosts = filteredHosts;
         }
 
-        InetSocketAddress randomLivingHost = getRandomHostByActiveConnections(
+        InetSocketAddress randomLivingHost = getPreferredHost(
                 Maps.filterKeys(currentPools, livingHosts::contains));
         return Optional.ofNullable(pools.get(randomLivingHost));
     }
@@ -419,8 +461,20 @@ public final class CassandraClientPoolImpl implements CassandraClientPool {
                     SafeArg.of("tokenMap", CassandraLogHelper.tokenMap(tokenMap)));
             return getRandomGoodHost().getHost();
         } else {
-            return getRandomHostByActiveConnections(Maps.filterKeys(currentPools, liveOwnerHosts::contains));
+            return getPreferredHost(Maps.filterKeys(currentPools, liveOwnerHosts::contains));
+        }
+    }
+
+    @Override
+    public RangeMap<LightweightOppToken, List<InetSocketAddress>> getTokenMap() {
+        return tokenMap;
+    }
+
+    private InetSocketAddress getPreferredHost(Map<InetSocketAddress, CassandraClientPoolingContainer> pools) {
+        if (config.latencyAwareHostSelection()) {
+            return getHostByLatencyScore(pools.keySet());
         }
+        return getRandomHostByActiveConnections(pools);
     }
 
     private static InetSocketAddress getRandomHostByActiveConnections(
@@ -428,6 +482,33 @@ public final class CassandraClientPoolImpl implements CassandraClientPool {
         return WeightedHosts.create(pools).getRandomHost();
     }
 
+    /**
+     * Picks two of the given hosts at random and returns the one with the better {@link HostLatencyScore}. Comparing
+     * two random hosts rather than taking the best of all of them keeps every client from rushing to the same host
+     * as soon as it looks fast.
+     */
+    @VisibleForTesting
+    InetSocketAddress getHostByLatencyScore(Collection<InetSocketAddress> hosts) {
+        List<InetSocketAddress> candidates = ImmutableList.copyOf(hosts);
+        Preconditions.checkArgument(!candidates.isEmpty(), "hosts should be non-empty");
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        int firstIndex = ThreadLocalRandom.current().nextInt(candidates.size());
+        int secondIndex = ThreadLocalRandom.current().nextInt(candidates.size() - 1);
+        if (secondIndex >= firstIndex) {
+            secondIndex++;
+        }
+        InetSocketAddress first = candidates.get(firstIndex);
+        InetSocketAddress second = candidates.get(secondIndex);
+        return getLatencyScore(second) < getLatencyScore(first) ? second : first;
+    }
+
+    private double getLatencyScore(InetSocketAddress host) {
+        RequestMetrics requestMetricsForHost = metricsByHost.get(host);
+        return requestMetricsForHost == null ? 0 : requestMetricsForHost.getLatencyScore();
+    }
+
     @VisibleForTesting
     void runOneTimeStartupChecks() {
         try {
@@ -641,11 +722,168 @@ public final class CassandraClientPoolImpl implements CassandraClientPool {
         return runWithPooledResourceRecordingMetrics(hostPool, fn);
     }
 
+    @Override
+    public <V, K extends Exception> V runReadWithRetryOnHost(
+            TableReference tableRef,
+            InetSocketAddress specifiedHost,
+            Collection<byte[]> rows,
+            FunctionCheckedException<Cassandra.Client, V, K> fn) throws K {
+        if (!config.hedgedReads()) {
+            return runWithRetryOnHost(specifiedHost, fn);
+        }
+        ReadLatencies readLatencies = readLatenciesByTable.computeIfAbsent(tableRef, unused -> new ReadLatencies());
+        hedgedReadBudget.recordRead();
+        Optional<Long> hedgeDelayNanos = readLatencies.getHedgeDelayNanos();
+        long startNanos = System.nanoTime();
+        V result = hedgeDelayNanos.isPresent()
+                ? runHedgedReadWithRetryOnHost(specifiedHost, rows, fn, hedgeDelayNanos.get())
+                : runWithRetryOnHost(specifiedHost, fn);
+        readLatencies.update(System.nanoTime() - startNanos);
+        return result;
+    }
+
+    /**
+     * Runs the read on the specified host, and if it has not returned after the given delay, on another live host that
+     * owns all of the rows as well. Returns the result of whichever read succeeds first, or fails if both reads fail.
+     * The read that loses keeps running in the background, since interrupting a Thrift call would break its
+     * connection.
+     * <p>
+     * The read is not hedged if no other live host owns the rows, if the hedged read budget has been spent, or if
+     * every hedged read thread is busy, in which case the read runs on the caller's thread.
+     */
+    private <V, K extends Exception> V runHedgedReadWithRetryOnHost(
+            InetSocketAddress specifiedHost,
+            Collection<byte[]> rows,
+            FunctionCheckedException<Cassandra.Client, V, K> fn,
+            long hedgeDelayNanos) throws K {
+        CompletableFuture<V> primaryRead;
+        try {
+            primaryRead = submitReadWithRetryOnHost(specifiedHost, fn);
+        } catch (RejectedExecutionException e) {
+            return runWithRetryOnHost(specifiedHost, fn);
+        }
+        try {
+            return primaryRead.get(hedgeDelayNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // The host is slower than usual, so we ask another one as well
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        } catch (ExecutionException e) {
+            throw CassandraClientPoolImpl.<K>getReadFailure(e);
+        }
+
+        Optional<InetSocketAddress> hedgeHost = getHedgeHost(specifiedHost, rows);
+        if (!hedgeHost.isPresent() || !hedgedReadBudget.tryAcquireHedge()) {
+            return awaitRead(primaryRead);
+        }
+
+        CompletableFuture<V> hedgedRead;
+        try {
+            hedgedRead = submitReadWithRetryOnHost(hedgeHost.get(), fn);
+        } catch (RejectedExecutionException e) {
+            hedgedReadBudget.releaseHedge();
+            return awaitRead(primaryRead);
+        }
+        hedgedReads.mark();
+        CompletableFuture<V> firstRead = new CompletableFuture<>();
+        primaryRead.whenComplete((value, error) -> completeWithFirstRead(firstRead, value, error, hedgedRead));
+        hedgedRead.whenComplete((value, error) -> {
+            if (completeWithFirstRead(firstRead, value, error, primaryRead) && error == null) {
+                hedgedReadsWon.mark();
+            }
+        });
+        return awaitRead(firstRead);
+    }
+
+    /**
+     * Picks a live host other than the specified host that owns every one of the rows, since a hedged read sent to a
+     * host that does not own the data would only add a network hop in front of the same replicas.
+     */
+    private Optional<InetSocketAddress> getHedgeHost(InetSocketAddress specifiedHost, Collection<byte[]> rows) {
+        RangeMap<LightweightOppToken, List<InetSocketAddress>> currentTokenMap = tokenMap;
+        Set<InetSocketAddress> candidates = null;
+        for (byte[] row : rows) {
+            List<InetSocketAddress> owners = currentTokenMap.get(new LightweightOppToken(row));
+            if (owners == null) {
+                return Optional.empty();
+            }
+            if (candidates == null) {
+                candidates = Sets.newHashSet(owners);
+            } else {
+                candidates.retainAll(owners);
+            }
+            if (candidates.isEmpty()) {
+                return Optional.empty();
+            }
+        }
+        if (candidates == null) {
+            return Optional.empty();
+        }
+        Set<InetSocketAddress> liveOwners = ImmutableSet.copyOf(Sets.difference(candidates, blacklistedHosts.keySet()));
+        Map<InetSocketAddress, CassandraClientPoolingContainer> candidatePools = Maps.filterKeys(currentPools,
+                address -> !address.equals(specifiedHost) && liveOwners.contains(address));
+        if (candidatePools.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(getPreferredHost(candidatePools));
+    }
+
+    private <V, K extends Exception> CompletableFuture<V> submitReadWithRetryOnHost(
+            InetSocketAddress host,
+            FunctionCheckedException<Cassandra.Client, V, K> fn) {
+        CompletableFuture<V> read = new CompletableFuture<>();
+        hedgedReadExecutor.execute(() -> {
+            try {
+                read.complete(runWithRetryOnHost(host, fn));
+            } catch (Throwable t) {
+                read.completeExceptionally(t);
+            }
+        });
+        return read;
+    }
+
+    /**
+     * Completes the first read with the value of a read that succeeded, or with the failure of a read that failed
+     * once the other read has failed too. Returns whether the first read was completed by this call.
+     */
+    private static <V> boolean completeWithFirstRead(
+            CompletableFuture<V> firstRead,
+            V value,
+            Throwable error,
+            CompletableFuture<V> otherRead) {
+        if (error == null) {
+            return firstRead.complete(value);
+        }
+        return otherRead.isCompletedExceptionally() && firstRead.completeExceptionally(error);
+    }
+
+    private static <V, K extends Exception> V awaitRead(Future<V> read) throws K {
+        try {
+            return read.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        } catch (ExecutionException e) {
+            throw CassandraClientPoolImpl.<K>getReadFailure(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K extends Exception> K getReadFailure(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return (K) cause;
+    }
+
     private <V, K extends Exception> V runWithPooledResourceRecordingMetrics(
             CassandraClientPoolingContainer hostPool,
             FunctionCheckedException<Cassandra.Client, V, K> fn) throws K {
 
         recordRequestOnHost(hostPool);
+        long startNanos = System.nanoTime();
         try {
             return hostPool.runWithPooledResource(fn);
         } catch (Exception e) {
@@ -654,6 +892,9 @@ public final class CassandraClientPoolImpl implements CassandraClientPool {
                 recordConnectionExceptionOnHost(hostPool);
             }
             throw e;
+        } finally {
+            long latencyNanos = System.nanoTime() - startNanos;
+            updateMetricOnAggregateAndHost(hostPool, metrics -> metrics.markRequestFinished(latencyNanos));
         }
     }
 
@@ -934,10 +1175,33 @@ public final class CassandraClientPoolImpl implements CassandraClientPool {
 
     }
 
+    private final class ReadLatencies {
+        private final Histogram latencies = new Histogram(new ExponentiallyDecayingReservoir());
+        private final Supplier<Long> hedgeDelayNanos =
+                Suppliers.memoizeWithExpiration(this::computeHedgeDelayNanos, 1, TimeUnit.SECONDS);
+
+        void update(long latencyNanos) {
+            latencies.update(latencyNanos);
+        }
+
+        Optional<Long> getHedgeDelayNanos() {
+            if (latencies.getCount() < MIN_READS_BEFORE_HEDGING) {
+                return Optional.empty();
+            }
+            return Optional.of(hedgeDelayNanos.get());
+        }
+
+        private long computeHedgeDelayNanos() {
+            long percentileNanos = (long) latencies.getSnapshot().getValue(config.hedgedReadPercentile());
+            return Math.max(percentileNanos, TimeUnit.MILLISECONDS.toNanos(config.hedgedReadMinimumDelayMillis()));
+        }
+    }
+
     private class RequestMetrics {
         private final Meter totalRequests;
         private final Meter totalRequestExceptions;
         private final Meter totalRequestConnectionExceptions;
+        private final HostLatencyScore latencyScore = new HostLatencyScore();
 
         RequestMetrics(String metricPrefix) {
             totalRequests = metricsManager.registerMeter(
@@ -950,6 +1214,11 @@ public final class CassandraClientPoolImpl implements CassandraClientPool {
 
         void markRequest() {
             totalRequests.mark();
+            latencyScore.requestStarted();
+        }
+
+        void markRequestFinished(long latencyNanos) {
+            latencyScore.requestFinished(latencyNanos);
         }
 
         void markRequestException() {
@@ -960,6 +1229,10 @@ public final class CassandraClientPoolImpl implements CassandraClientPool {
             totalRequestConnectionExceptions.mark();
         }
 
+        double getLatencyScore() {
+            return latencyScore.getScore();
+        }
+
         // Approximate
         double getExceptionProportion() {
             return ((double) totalRequestExceptions.getCount()) / ((double) totalRequests.getCount());
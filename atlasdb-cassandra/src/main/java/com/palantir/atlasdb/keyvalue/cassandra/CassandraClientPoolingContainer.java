@@ -20,14 +20,11 @@ import java.net.InetSocketAddress;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
 import java.util.NoSuchElementException;
-import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.cassandra.thrift.Cassandra.Client;
-import org.apache.commons.pool2.impl.GenericObjectPool;
-import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import org.apache.thrift.protocol.TProtocolException;
 import org.apache.thrift.transport.TFramedTransport;
 import org.apache.thrift.transport.TMemoryInputTransport;
@@ -40,6 +37,7 @@ import com.codahale.metrics.Gauge;
 import com.google.common.base.Function;
 import com.google.common.base.MoreObjects;
 import com.palantir.atlasdb.cassandra.CassandraKeyValueServiceConfig;
+import com.palantir.atlasdb.keyvalue.cassandra.StripedClientPool.PooledClient;
 import com.palantir.atlasdb.util.MetricsManager;
 import com.palantir.common.base.FunctionCheckedException;
 import com.palantir.common.pooling.PoolingContainer;
@@ -54,7 +52,7 @@ public class CassandraClientPoolingContainer implements PoolingContainer<Client>
     private final MetricsManager metricsManager = new MetricsManager();
     private final AtomicLong count = new AtomicLong();
     private final AtomicInteger openRequests = new AtomicInteger();
-    private final GenericObjectPool<Client> clientPool;
+    private final StripedClientPool<Client> clientPool;
 
     public CassandraClientPoolingContainer(
             InetSocketAddress host,
@@ -120,10 +118,10 @@ public class CassandraClientPoolingContainer implements PoolingContainer<Client>
     private <V, K extends Exception> V runWithGoodResource(FunctionCheckedException<Client, V, K> fn)
             throws K {
         boolean shouldReuse = true;
-        Client resource = null;
+        PooledClient<Client> resource = null;
         try {
-            resource = clientPool.borrowObject();
-            return fn.apply(resource);
+            resource = clientPool.borrow();
+            return fn.apply(resource.get());
         } catch (Exception e) {
             if (isInvalidClientConnection(e)) {
                 log.warn("Not reusing resource {} due to {} of host {}",
@@ -144,8 +142,8 @@ public class CassandraClientPoolingContainer implements PoolingContainer<Client>
                     log.debug("Returning {} to pool of host {}",
                             UnsafeArg.of("resource", resource),
                             SafeArg.of("host", CassandraLogHelper.host(host)));
-                    eagerlyCleanupReadBuffersFromIdleConnection(resource, host);
-                    clientPool.returnObject(resource);
+                    eagerlyCleanupReadBuffersFromIdleConnection(resource.get(), host);
+                    clientPool.returnClient(resource);
                 } else {
                     invalidateQuietly(resource);
                 }
@@ -181,12 +179,12 @@ public class CassandraClientPoolingContainer implements PoolingContainer<Client>
                 || ex instanceof NoSuchElementException;
     }
 
-    private void invalidateQuietly(Client resource) {
+    private void invalidateQuietly(PooledClient<Client> resource) {
         try {
             log.debug("Discarding {} of host {}",
                     UnsafeArg.of("pool", resource),
                     SafeArg.of("host", CassandraLogHelper.host(host)));
-            clientPool.invalidateObject(resource);
+            clientPool.invalidate(resource);
         } catch (Exception e) {
             // Ignore
         }
@@ -224,49 +222,33 @@ public class CassandraClientPoolingContainer implements PoolingContainer<Client>
      *       {@code CassandraClientPool} when it sees this will:
      *          Follow an exponential backoff as a method of back pressure.
      *          Try 3 times against this host, and then give up and try against different hosts 3 additional times.
+     *    Borrows and returns do not take locks; see {@link StripedClientPool}.
      *
      *
      * In an asynchronous thread (using default values):
-     *    Every 20-30 seconds, examine approximately a tenth of the connections in pool.
+     *    Right away, open {@link CassandraKeyValueServiceConfig#poolSize()} connections so that the first requests
+     *       do not have to.
+     *    Every 20-30 seconds, examine approximately a tenth of the connections in pool, those idle the longest first.
      *    Discard any connections in this tenth of the pool whose TCP connections are closed.
      *    Discard any connections in this tenth of the pool that have been idle for more than 10 minutes,
-     *       while still keeping a minimum number of idle connections around for fast borrows.
+     *       while still keeping a minimum number of connections around for fast borrows.
      *
      * @param poolNumber number of the pool for metric registration.
      */
-    private GenericObjectPool<Client> createClientPool(int poolNumber) {
+    private StripedClientPool<Client> createClientPool(int poolNumber) {
         CassandraClientFactory cassandraClientFactory = new CassandraClientFactory(host, config);
-        GenericObjectPoolConfig poolConfig = new GenericObjectPoolConfig();
-
-        poolConfig.setMinIdle(config.poolSize());
-        poolConfig.setMaxIdle(config.maxConnectionBurstSize());
-        poolConfig.setMaxTotal(config.maxConnectionBurstSize());
-
-        // immediately throw when we try and borrow from a full pool; dealt with at higher level
-        poolConfig.setBlockWhenExhausted(false);
-        poolConfig.setMaxWaitMillis(config.socketTimeoutMillis());
-
-        // this test is free/just checks a boolean and does not block; borrow is still fast
-        poolConfig.setTestOnBorrow(true);
-
-        poolConfig.setMinEvictableIdleTimeMillis(
-                TimeUnit.MILLISECONDS.convert(config.idleConnectionTimeoutSeconds(), TimeUnit.SECONDS));
-        // the randomness here is to prevent all of the pools for all of the hosts
-        // evicting all at at once, which isn't great for C*.
-        int timeBetweenEvictionsSeconds = config.timeBetweenConnectionEvictionRunsSeconds();
-        int delta = ThreadLocalRandom.current().nextInt(Math.min(timeBetweenEvictionsSeconds / 2, 10));
-        poolConfig.setTimeBetweenEvictionRunsMillis(
-                TimeUnit.MILLISECONDS.convert(timeBetweenEvictionsSeconds + delta, TimeUnit.SECONDS));
-        poolConfig.setNumTestsPerEvictionRun(-(int) (1.0 / config.proportionConnectionsToCheckPerEvictionRun()));
-        poolConfig.setTestWhileIdle(true);
-
-        poolConfig.setJmxNamePrefix(CassandraLogHelper.host(host));
-        GenericObjectPool<Client> pool = new GenericObjectPool<>(cassandraClientFactory, poolConfig);
+        StripedClientPool<Client> pool = StripedClientPool.create(
+                cassandraClientFactory,
+                config.poolSize(),
+                config.maxConnectionBurstSize(),
+                TimeUnit.SECONDS.toMillis(config.idleConnectionTimeoutSeconds()),
+                config.proportionConnectionsToCheckPerEvictionRun(),
+                config.timeBetweenConnectionEvictionRunsSeconds());
         registerMetrics(pool, poolNumber);
         return pool;
     }
 
-    private void registerMetrics(GenericObjectPool<Client> pool, int poolNumber) {
+    private void registerMetrics(StripedClientPool<Client> pool, int poolNumber) {
         registerMetric(getMetricName("meanActiveTimeMillis", poolNumber), pool::getMeanActiveTimeMillis);
         registerMetric(getMetricName("meanIdleTimeMillis", poolNumber), pool::getMeanIdleTimeMillis);
         registerMetric(getMetricName("meanBorrowWaitTimeMillis", poolNumber), pool::getMeanBorrowWaitTimeMillis);
@@ -274,7 +256,7 @@ public class CassandraClientPoolingContainer implements PoolingContainer<Client>
         registerMetric(getMetricName("numActive", poolNumber), pool::getNumActive);
         registerMetric(getMetricName("approximatePoolSize", poolNumber), () -> pool.getNumIdle() + pool.getNumActive());
         registerMetric(getMetricName("proportionDestroyedByEvictor", poolNumber),
-                () -> ((double) pool.getDestroyedByEvictorCount()) / ((double) pool.getCreatedCount()));
+                () -> ((double) pool.getDestroyedByMaintenanceCount()) / ((double) pool.getCreatedCount()));
         registerMetric(getMetricName("proportionDestroyedByBorrower", poolNumber),
                 () -> ((double) pool.getDestroyedByBorrowValidationCount()) / ((double) pool.getCreatedCount()));
     }
@@ -16,6 +16,11 @@
 package com.palantir.atlasdb.keyvalue.cassandra;
 
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.common.base.ClosableIterator;
 
 public interface CassandraKeyValueService extends KeyValueService {
     /**
@@ -25,5 +30,15 @@ public interface CassandraKeyValueService extends KeyValueService {
     CassandraTables getCassandraTables();
     TracingQueryRunner getTracingQueryRunner();
     CassandraClientPool getClientPool();
+
+    /**
+     * Like {@link #getRange(TableReference, RangeRequest, long)}, but returns the rows in no particular order, which
+     * lets the token ranges of the ring be read concurrently without waiting on each other.
+     */
+    ClosableIterator<RowResult<Value>> getRangeUnordered(
+            TableReference tableRef,
+            RangeRequest rangeRequest,
+            long timestamp);
+
     boolean isInitialized();
 }
@@ -34,6 +34,7 @@ import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -112,7 +113,9 @@ import com.palantir.atlasdb.keyvalue.cassandra.jmx.CassandraJmxCompaction;
 import com.palantir.atlasdb.keyvalue.cassandra.jmx.CassandraJmxCompactionManager;
 import com.palantir.atlasdb.keyvalue.cassandra.paging.CassandraRangePagingIterable;
 import com.palantir.atlasdb.keyvalue.cassandra.paging.ColumnGetter;
+import com.palantir.atlasdb.keyvalue.cassandra.paging.ColumnMergingRangeIterator;
 import com.palantir.atlasdb.keyvalue.cassandra.paging.CqlColumnGetter;
+import com.palantir.atlasdb.keyvalue.cassandra.paging.ParallelRangeIterator;
 import com.palantir.atlasdb.keyvalue.cassandra.paging.RowGetter;
 import com.palantir.atlasdb.keyvalue.cassandra.paging.ThriftColumnGetter;
 import com.palantir.atlasdb.keyvalue.cassandra.thrift.SlicePredicates;
@@ -138,6 +141,7 @@ import com.palantir.common.exception.PalantirRuntimeException;
 import com.palantir.logsafe.SafeArg;
 import com.palantir.logsafe.UnsafeArg;
 import com.palantir.processors.AutoDelegate;
+import com.palantir.remoting3.tracing.Tracers;
 import com.palantir.util.paging.AbstractPagingIterable;
 import com.palantir.util.paging.SimpleTokenBackedResultsPage;
 import com.palantir.util.paging.TokenBackedBasicResultsPage;
@@ -214,7 +218,9 @@ public class CassandraKeyValueServiceImpl extends AbstractKeyValueService implem
     private final ConsistencyLevel deleteConsistency = ConsistencyLevel.ALL;
 
     private final TracingQueryRunner queryRunner;
+    private final AdaptiveBatchSizer batchSizer;
     private final CassandraTables cassandraTables;
+    private final ExecutorService rangeScanExecutor;
 
     private final InitializingWrapper wrapper = new InitializingWrapper();
 
@@ -270,7 +276,23 @@ public class CassandraKeyValueServiceImpl extends AbstractKeyValueService implem
         this.schemaMutationLockTable = new UniqueSchemaMutationLockTable(lockTables, whoIsTheLockCreator());
 
         this.queryRunner = new TracingQueryRunner(log, tracingPrefs);
+        this.batchSizer = AdaptiveBatchSizer.create(configManager.getConfig());
         this.cassandraTables = new CassandraTables(clientPool, configManager);
+        this.rangeScanExecutor = createRangeScanExecutor(configManager.getConfig());
+    }
+
+    /**
+     * Creates a thread pool of up to {@link CassandraKeyValueServiceConfig#rangeScanMaxThreads()} threads. When every
+     * thread is busy, new token ranges are rejected rather than queued, and are read on the caller's thread instead.
+     */
+    private static ExecutorService createRangeScanExecutor(CassandraKeyValueServiceConfig config) {
+        return Tracers.wrap(PTExecutors.newThreadPoolExecutor(
+                0,
+                config.rangeScanMaxThreads(),
+                1,
+                TimeUnit.MINUTES,
+                new SynchronousQueue<>(),
+                new NamedThreadFactory("Atlas Cassandra KVS range scans", true)));
     }
 
     /**
@@ -450,11 +472,24 @@ public class CassandraKeyValueServiceImpl extends AbstractKeyValueService implem
 
         Set<Entry<InetSocketAddress, List<byte[]>>> rowsByHost = partitionByHost(rows, Functions.identity()).entrySet();
         List<Callable<Map<Cell, Value>>> tasks = Lists.newArrayListWithCapacity(rowsByHost.size());
+        int fetchBatchCount = configManager.getConfig().fetchBatchCount();
         for (final Map.Entry<InetSocketAddress, List<byte[]>> hostAndRows : rowsByHost) {
-            tasks.add(AnnotatedCallable.wrapWithThreadName(AnnotationType.PREPEND,
-                    "Atlas getRows " + hostAndRows.getValue().size()
-                            + " rows from " + tableRef + " on " + hostAndRows.getKey(),
-                    () -> getRowsForSingleHost(hostAndRows.getKey(), tableRef, hostAndRows.getValue(), startTs)));
+            final InetSocketAddress host = hostAndRows.getKey();
+            final List<byte[]> hostRows = hostAndRows.getValue();
+            if (hostRows.size() > fetchBatchCount) {
+                log.warn("Rebatched in getRows a call to {} that attempted to multiget {} rows; "
+                        + "this may indicate overly-large batching on a higher level.\n{}",
+                        LoggingArgs.tableRef(tableRef),
+                        SafeArg.of("rowCount", hostRows.size()),
+                        SafeArg.of("stacktrace", CassandraKeyValueServices.getFilteredStackTrace("com.palantir")));
+            }
+            AdaptiveBatchSizer.BatchLimits limits =
+                    batchSizer.getLimits(host, ImmutableSet.of(tableRef), fetchBatchCount, Long.MAX_VALUE);
+            for (final List<byte[]> batch : Lists.partition(hostRows, limits.getCells())) {
+                tasks.add(AnnotatedCallable.wrapWithThreadName(AnnotationType.PREPEND,
+                        "Atlas getRows " + batch.size() + " rows from " + tableRef + " on " + host,
+                        () -> getRowsForSingleHost(host, tableRef, batch, limits, startTs)));
+            }
         }
         List<Map<Cell, Value>> perHostResults = runAllTasksCancelOnFailure(tasks);
         Map<Cell, Value> result = Maps.newHashMapWithExpectedSize(Iterables.size(rows));
@@ -466,51 +501,34 @@ public class CassandraKeyValueServiceImpl extends AbstractKeyValueService implem
 
     private Map<Cell, Value> getRowsForSingleHost(final InetSocketAddress host,
                                                   final TableReference tableRef,
-                                                  final List<byte[]> rows,
+                                                  final List<byte[]> batch,
+                                                  final AdaptiveBatchSizer.BatchLimits limits,
                                                   final long startTs) {
         try {
-            int rowCount = 0;
-            final Map<Cell, Value> result = Maps.newHashMap();
-            int fetchBatchCount = configManager.getConfig().fetchBatchCount();
-            for (final List<byte[]> batch : Lists.partition(rows, fetchBatchCount)) {
-                rowCount += batch.size();
-                result.putAll(clientPool.runWithRetryOnHost(host,
-                        new FunctionCheckedException<Client, Map<Cell, Value>, Exception>() {
-                            @Override
-                            public Map<Cell, Value> apply(Client client) throws Exception {
-                                // We want to get all the columns in the row so set start and end to empty.
-                                SlicePredicate pred = SlicePredicates.create(Range.ALL, Limit.NO_LIMIT);
-
-                                List<ByteBuffer> rowNames = wrap(batch);
-
-                                ColumnParent colFam = new ColumnParent(internalTableName(tableRef));
-                                Map<ByteBuffer, List<ColumnOrSuperColumn>> results = multigetInternal(
-                                        client,
-                                        tableRef,
-                                        rowNames,
-                                        colFam,
-                                        pred,
-                                        readConsistency);
-                                Map<Cell, Value> ret = Maps.newHashMapWithExpectedSize(batch.size());
-                                new ValueExtractor(ret).extractResults(results, startTs, ColumnSelection.all());
-                                return ret;
-                            }
+            return clientPool.runReadWithRetryOnHost(tableRef, host, batch,
+                    new FunctionCheckedException<Client, Map<Cell, Value>, Exception>() {
+                        @Override
+                        public Map<Cell, Value> apply(Client client) throws Exception {
+                            // We want to get all the columns in the row so set start and end to empty.
+                            SlicePredicate pred = SlicePredicates.create(Range.ALL, Limit.NO_LIMIT);
 
-                            @Override
-                            public String toString() {
-                                return "multiget_slice(" + tableRef.getQualifiedName() + ", "
-                                        + batch.size() + " rows" + ")";
-                            }
-                        }));
-            }
-            if (rowCount > fetchBatchCount) {
-                log.warn("Rebatched in getRows a call to {} that attempted to multiget {} rows; "
-                        + "this may indicate overly-large batching on a higher level.\n{}",
-                        LoggingArgs.tableRef(tableRef),
-                        SafeArg.of("rowCount", rowCount),
-                        SafeArg.of("stacktrace", CassandraKeyValueServices.getFilteredStackTrace("com.palantir")));
-            }
-            return ImmutableMap.copyOf(result);
+                            List<ByteBuffer> rowNames = wrap(batch);
+
+                            ColumnParent colFam = new ColumnParent(internalTableName(tableRef));
+                            Map<ByteBuffer, List<ColumnOrSuperColumn>> results = batchSizer.runBatch(
+                                    host, ImmutableSet.of(tableRef), limits, batch.size(), 0L,
+                                    () -> multigetInternal(client, tableRef, rowNames, colFam, pred, readConsistency));
+                            Map<Cell, Value> ret = Maps.newHashMapWithExpectedSize(batch.size());
+                            new ValueExtractor(ret).extractResults(results, startTs, ColumnSelection.all());
+                            return ret;
+                        }
+
+                        @Override
+                        public String toString() {
+                            return "multiget_slice(" + tableRef.getQualifiedName() + ", "
+                                    + batch.size() + " rows" + ")";
+                        }
+                    });
         } catch (Exception e) {
             throw Throwables.unwrapAndThrowUncheckedException(e);
         }
@@ -644,6 +662,8 @@ public class CassandraKeyValueServiceImpl extends AbstractKeyValueService implem
         }
         List<Callable<Void>> tasks = Lists.newArrayList();
         int fetchBatchCount = configManager.getConfig().fetchBatchCount();
+        AdaptiveBatchSizer.BatchLimits limits =
+                batchSizer.getLimits(host, ImmutableSet.of(tableRef), fetchBatchCount, Long.MAX_VALUE);
         for (Entry<byte[], Collection<Cell>> entry : Multimaps.asMap(cellsByCol).entrySet()) {
             final byte[] col = entry.getKey();
             Collection<Cell> columnCells = entry.getValue();
@@ -655,11 +675,14 @@ public class CassandraKeyValueServiceImpl extends AbstractKeyValueService implem
                         SafeArg.of("rows", columnCells.size()),
                         SafeArg.of("stacktrace", CassandraKeyValueServices.getFilteredStackTrace("com.palantir")));
             }
-            for (final List<Cell> partition : Lists.partition(ImmutableList.copyOf(columnCells), fetchBatchCount)) {
-                Callable<Void> multiGetCallable = () -> clientPool.runWithRetryOnHost(host,
-                        new FunctionCheckedException<Client, Void, Exception>() {
+            for (final List<Cell> partition : Lists.partition(ImmutableList.copyOf(columnCells), limits.getCells())) {
+                List<byte[]> partitionRows = Lists.transform(partition, Cell::getRowName);
+                Callable<Void> multiGetCallable = () -> {
+                    // Visited outside of the read, since a hedged read may run twice
+                    visitor.visit(clientPool.runReadWithRetryOnHost(tableRef, host, partitionRows,
+                        new FunctionCheckedException<Client, Map<ByteBuffer, List<ColumnOrSuperColumn>>, Exception>() {
                             @Override
-                            public Void apply(Client client) throws Exception {
+                            public Map<ByteBuffer, List<ColumnOrSuperColumn>> apply(Client client) throws Exception {
                                 Range range = Range.singleColumn(col, startTs);
                                 Limit limit = loadAllTs ? Limit.NO_LIMIT : Limit.ONE;
                                 SlicePredicate predicate = SlicePredicates.create(range, limit);
@@ -678,10 +701,10 @@ public class CassandraKeyValueServiceImpl extends AbstractKeyValueService implem
                                             SafeArg.of("host", CassandraLogHelper.host(host)));
                                 }
 
-                                Map<ByteBuffer, List<ColumnOrSuperColumn>> results =
-                                        multigetInternal(client, tableRef, rowNames, colFam, predicate, consistency);
-                                visitor.visit(results);
-                                return null;
+                                return batchSizer.runBatch(host, ImmutableSet.of(tableRef), limits,
+                                        partition.size(), 0L,
+                                        () -> multigetInternal(
+                                                client, tableRef, rowNames, colFam, predicate, consistency));
                             }
 
                             @Override
@@ -690,7 +713,9 @@ public class CassandraKeyValueServiceImpl extends AbstractKeyValueService implem
                                         + partition.size() + " cells" + ")";
                             }
 
-                        });
+                        }));
+                    return null;
+                };
                 tasks.add(AnnotatedCallable.wrapWithThreadName(AnnotationType.PREPEND,
                         "Atlas loadWithTs " + partition.size() + " cells from " + tableRef + " on " + host,
                         multiGetCallable));
@@ -811,7 +836,7 @@ public class CassandraKeyValueServiceImpl extends AbstractKeyValueService implem
                                                              BatchColumnRangeSelection batchColumnRangeSelection,
                                                              long startTs) {
         try {
-            return clientPool.runWithRetryOnHost(host,
+            return clientPool.runReadWithRetryOnHost(tableRef, host, rows,
                     new FunctionCheckedException<Client, RowColumnRangeExtractor.RowColumnRangeResult, Exception>() {
                         @Override
                         public RowColumnRangeExtractor.RowColumnRangeResult apply(Client client) throws Exception {
@@ -865,7 +890,8 @@ public class CassandraKeyValueServiceImpl extends AbstractKeyValueService implem
             }
 
             TokenBackedBasicResultsPage<Entry<Cell, Value>, byte[]> page(final byte[] startCol) throws Exception {
-                return clientPool.runWithRetryOnHost(host, new FunctionCheckedException<
+                return clientPool.runReadWithRetryOnHost(tableRef, host, ImmutableList.of(row),
+                        new FunctionCheckedException<
                         Client,
                         TokenBackedBasicResultsPage<Entry<Cell, Value>, byte[]>,
                         Exception>() {
@@ -1019,31 +1045,40 @@ public class CassandraKeyValueServiceImpl extends AbstractKeyValueService implem
                                final int ttl) throws Exception {
         Map<InetSocketAddress, Map<Cell, Value>> cellsByHost = partitionMapByHost(values);
         List<Callable<Void>> tasks = Lists.newArrayListWithCapacity(cellsByHost.size());
+        CassandraKeyValueServiceConfig config = configManager.getConfig();
         for (final Map.Entry<InetSocketAddress, Map<Cell, Value>> entry : cellsByHost.entrySet()) {
-            tasks.add(AnnotatedCallable.wrapWithThreadName(AnnotationType.PREPEND,
-                    "Atlas putInternal " + entry.getValue().size()
-                            + " cell values to " + tableRef + " on " + entry.getKey(),
-                    () -> {
-                        putForSingleHostInternal(entry.getKey(), tableRef, entry.getValue().entrySet(), ttl);
-                        return null;
-                    }));
+            final InetSocketAddress host = entry.getKey();
+            AdaptiveBatchSizer.BatchLimits limits = batchSizer.getLimits(host, ImmutableSet.of(tableRef),
+                    config.mutationBatchCount(), config.mutationBatchSizeBytes());
+            for (final List<Entry<Cell, Value>> batch : partitionByCountAndBytes(entry.getValue().entrySet(),
+                    limits.getCells(), limits.getBytes(), tableRef, ENTRY_SIZING_FUNCTION)) {
+                tasks.add(AnnotatedCallable.wrapWithThreadName(AnnotationType.PREPEND,
+                        "Atlas putInternal " + batch.size()
+                                + " cell values to " + tableRef + " on " + host,
+                        () -> {
+                            putForSingleHostInternal(host, tableRef, batch, ttl);
+                            return null;
+                        }));
+            }
         }
         runAllTasksCancelOnFailure(tasks);
     }
 
     private void putForSingleHostInternal(final InetSocketAddress host,
                                           final TableReference tableRef,
-                                          final Iterable<Map.Entry<Cell, Value>> values,
+                                          final List<Map.Entry<Cell, Value>> values,
                                           final int ttl) throws Exception {
         clientPool.runWithRetryOnHost(host, new FunctionCheckedException<Client, Void, Exception>() {
             @Override
             public Void apply(Client client) throws Exception {
                 final CassandraKeyValueServiceConfig config = configManager.getConfig();
-                int mutationBatchCount = config.mutationBatchCount();
-                int mutationBatchSizeBytes = config.mutationBatchSizeBytes();
-                for (List<Entry<Cell, Value>> partition : partitionByCountAndBytes(values, mutationBatchCount,
-                        mutationBatchSizeBytes, tableRef, ENTRY_SIZING_FUNCTION)) {
+                // Re-partitioned on each attempt, so that a retry after a timeout sends smaller batches
+                AdaptiveBatchSizer.BatchLimits limits = batchSizer.getLimits(host, ImmutableSet.of(tableRef),
+                        config.mutationBatchCount(), config.mutationBatchSizeBytes());
+                for (List<Entry<Cell, Value>> partition : partitionByCountAndBytes(values, limits.getCells(),
+                        limits.getBytes(), tableRef, ENTRY_SIZING_FUNCTION)) {
                     Map<ByteBuffer, Map<String, List<Mutation>>> map = Maps.newHashMap();
+                    long bytes = 0;
                     for (Map.Entry<Cell, Value> e : partition) {
                         Cell cell = e.getKey();
                         Column col = createColumn(cell, e.getValue(), ttl);
@@ -1062,8 +1097,10 @@ public class CassandraKeyValueServiceImpl extends AbstractKeyValueService implem
                                 k -> Lists.newArrayList());
 
                         tableMutations.add(mutation);
+                        bytes += ENTRY_SIZING_FUNCTION.apply(e);
                     }
-                    batchMutateInternal(client, tableRef, map, writeConsistency);
+                    batchSizer.runBatch(host, ImmutableSet.of(tableRef), limits, partition.size(), bytes,
+                            () -> batchMutateInternal(client, ImmutableSet.of(tableRef), map, writeConsistency));
                 }
                 return null;
             }
@@ -1071,7 +1108,7 @@ public class CassandraKeyValueServiceImpl extends AbstractKeyValueService implem
             @Override
             public String toString() {
                 return "batch_mutate(" + host + ", " + tableRef.getQualifiedName() + ", "
-                        + Iterables.size(values) + " values, " + ttl + " ttl sec)";
+                        + values.size() + " values, " + ttl + " ttl sec)";
             }
         });
     }
@@ -1110,11 +1147,14 @@ public class CassandraKeyValueServiceImpl extends AbstractKeyValueService implem
     private List<Callable<Void>> getMultiPutTasksForSingleHost(final InetSocketAddress host,
                                                                Collection<TableCellAndValue> values,
                                                                final long timestamp) {
+        Set<TableReference> tablesOnHost = extractTableNames(values);
+        AdaptiveBatchSizer.BatchLimits limits = batchSizer.getLimits(host, tablesOnHost,
+                getMultiPutBatchCount(), getMultiPutBatchSizeBytes());
         Iterable<List<TableCellAndValue>> partitioned =
                 partitionByCountAndBytes(values,
-                        getMultiPutBatchCount(),
-                        getMultiPutBatchSizeBytes(),
-                        extractTableNames(values).toString(),
+                        limits.getCells(),
+                        limits.getBytes(),
+                        tablesOnHost.toString(),
                         TableCellAndValue.SIZING_FUNCTION);
         List<Callable<Void>> tasks = Lists.newArrayList();
         for (final List<TableCellAndValue> batch : partitioned) {
@@ -1139,11 +1179,23 @@ public class CassandraKeyValueServiceImpl extends AbstractKeyValueService implem
                                                final Set<TableReference> tableRefs,
                                                final List<TableCellAndValue> batch,
                                                long timestamp) throws Exception {
-        final Map<ByteBuffer, Map<String, List<Mutation>>> map = convertToMutations(batch, timestamp);
         return clientPool.runWithRetryOnHost(host, new FunctionCheckedException<Client, Void, Exception>() {
             @Override
             public Void apply(Client client) throws Exception {
-                return batchMutateInternal(client, tableRefs, map, writeConsistency);
+                // Re-partitioned on each attempt, so that a retry after a timeout sends smaller batches
+                AdaptiveBatchSizer.BatchLimits limits = batchSizer.getLimits(host, tableRefs,
+                        getMultiPutBatchCount(), getMultiPutBatchSizeBytes());
+                for (List<TableCellAndValue> partition : partitionByCountAndBytes(batch, limits.getCells(),
+                        limits.getBytes(), tableRefs.toString(), TableCellAndValue.SIZING_FUNCTION)) {
+                    Map<ByteBuffer, Map<String, List<Mutation>>> map = convertToMutations(partition, timestamp);
+                    long bytes = 0;
+                    for (TableCellAndValue tableCellAndValue : partition) {
+                        bytes += TableCellAndValue.SIZING_FUNCTION.apply(tableCellAndValue);
+                    }
+                    batchSizer.runBatch(host, tableRefs, limits, partition.size(), bytes,
+                            () -> batchMutateInternal(client, tableRefs, map, writeConsistency));
+                }
+                return null;
             }
 
             @Override
@@ -1443,6 +1495,21 @@ public class CassandraKeyValueServiceImpl extends AbstractKeyValueService implem
         return getRangeWithPageCreator(tableRef, rangeRequest, timestamp, readConsistency, ValueExtractor::create);
     }
 
+    /**
+     * Like {@link #getRange(TableReference, RangeRequest, long)}, but returns the rows in no particular order. The
+     * range is split along the token ranges of the ring, which are read concurrently, and rows are returned as soon as
+     * any token range has read them.
+     */
+    @Override
+    @Idempotent
+    public ClosableIterator<RowResult<Value>> getRangeUnordered(
+            TableReference tableRef,
+            RangeRequest rangeRequest,
+            long timestamp) {
+        return getRangeWithPageCreator(tableRef, rangeRequest, timestamp, readConsistency, ValueExtractor::create,
+                false);
+    }
+
     /**
      * Gets timestamp values from the key-value store. For each row, this returns all associated
      * timestamps &lt; given_ts.
@@ -1491,7 +1558,7 @@ public class CassandraKeyValueServiceImpl extends AbstractKeyValueService implem
         ColumnGetter columnGetter = new CqlColumnGetter(cqlExecutor, tableRef, columnBatchSize);
 
         return getRangeWithPageCreator(rowGetter, predicate, columnGetter, rangeRequest, TimestampExtractor::new,
-                timestamp);
+                timestamp, true);
     }
 
     private <T> ClosableIterator<RowResult<T>> getRangeWithPageCreator(
@@ -1500,19 +1567,75 @@ public class CassandraKeyValueServiceImpl extends AbstractKeyValueService implem
             long startTs,
             ConsistencyLevel consistency,
             Supplier<ResultsExtractor<T>> resultsExtractor) {
+        return getRangeWithPageCreator(tableRef, rangeRequest, startTs, consistency, resultsExtractor, true);
+    }
+
+    private <T> ClosableIterator<RowResult<T>> getRangeWithPageCreator(
+            TableReference tableRef,
+            RangeRequest rangeRequest,
+            long startTs,
+            ConsistencyLevel consistency,
+            Supplier<ResultsExtractor<T>> resultsExtractor,
+            boolean ordered) {
+        RowGetter rowGetter = new RowGetter(clientPool, queryRunner, consistency, tableRef);
+        ColumnGetter columnGetter = new ThriftColumnGetter();
+        if (rangeRequest.getColumnNames().size() > 1) {
+            return getRangeOfColumnsWithPageCreator(rowGetter, columnGetter, rangeRequest, resultsExtractor, startTs);
+        }
+
         SlicePredicate predicate;
         if (rangeRequest.getColumnNames().size() == 1) {
             byte[] colName = rangeRequest.getColumnNames().iterator().next();
             predicate = SlicePredicates.latestVersionForColumn(colName, startTs);
         } else {
-            // TODO(nziebart): optimize fetching multiple columns by performing a parallel range request for
-            // each column. note that if no columns are specified, it's a special case that means all columns
+            // if no columns are specified, it's a special case that means all columns
             predicate = SlicePredicates.create(Range.ALL, Limit.NO_LIMIT);
         }
-        RowGetter rowGetter = new RowGetter(clientPool, queryRunner, consistency, tableRef);
-        ColumnGetter columnGetter = new ThriftColumnGetter();
+        return getRangeWithPageCreator(rowGetter, predicate, columnGetter, rangeRequest, resultsExtractor, startTs,
+                ordered);
+    }
+
+    /**
+     * Reads each of the requested columns with its own range scan for the latest version of just that column, rather
+     * than reading every column and version of the rows, and merges the rows of the scans. When range scans are read
+     * concurrently, the scans of up to {@link CassandraKeyValueServiceConfig#rangeScanConcurrency()} columns run in
+     * the background and share that many token ranges being read between them. The scans of the remaining columns
+     * are read page by page on the caller's thread.
+     */
+    private <T> ClosableIterator<RowResult<T>> getRangeOfColumnsWithPageCreator(
+            RowGetter rowGetter,
+            ColumnGetter columnGetter,
+            RangeRequest rangeRequest,
+            Supplier<ResultsExtractor<T>> resultsExtractor,
+            long startTs) {
+        if (rangeRequest.isReverse()) {
+            throw new UnsupportedOperationException();
+        }
+        if (rangeRequest.isEmptyRange()) {
+            return ClosableIterators.wrap(ImmutableList.<RowResult<T>>of().iterator());
+        }
 
-        return getRangeWithPageCreator(rowGetter, predicate, columnGetter, rangeRequest, resultsExtractor, startTs);
+        int concurrency = configManager.getConfig().rangeScanConcurrency();
+        int backgroundColumns = concurrency > 1 ? concurrency : 0;
+        int columnConcurrency = Math.max(1, concurrency / rangeRequest.getColumnNames().size());
+        List<ClosableIterator<RowResult<T>>> columnRanges = Lists.newArrayList();
+        for (byte[] column : rangeRequest.getColumnNames()) {
+            RangeRequest columnRangeRequest = RangeRequest.builder()
+                    .startRowInclusive(rangeRequest.getStartInclusive())
+                    .endRowExclusive(rangeRequest.getEndExclusive())
+                    .retainColumns(ImmutableList.of(column))
+                    .batchHint(rangeRequest.getBatchHint())
+                    .build();
+            SlicePredicate predicate = SlicePredicates.latestVersionForColumn(column, startTs);
+            List<CassandraRangePagingIterable<T>> pagingIterables = getPagingIterables(
+                    rowGetter, predicate, columnGetter, columnRangeRequest, resultsExtractor, startTs);
+            if (columnRanges.size() < backgroundColumns) {
+                columnRanges.add(readConcurrently(pagingIterables, columnRangeRequest, true, columnConcurrency));
+            } else {
+                columnRanges.add(ClosableIterators.wrap(Iterables.concat(pagingIterables).iterator()));
+            }
+        }
+        return new ColumnMergingRangeIterator<>(columnRanges);
     }
 
     private <T> ClosableIterator<RowResult<T>> getRangeWithPageCreator(
@@ -1521,7 +1644,8 @@ public class CassandraKeyValueServiceImpl extends AbstractKeyValueService implem
             ColumnGetter columnGetter,
             RangeRequest rangeRequest,
             Supplier<ResultsExtractor<T>> resultsExtractor,
-            long startTs) {
+            long startTs,
+            boolean ordered) {
         if (rangeRequest.isReverse()) {
             throw new UnsupportedOperationException();
         }
@@ -1529,16 +1653,54 @@ public class CassandraKeyValueServiceImpl extends AbstractKeyValueService implem
             return ClosableIterators.wrap(ImmutableList.<RowResult<T>>of().iterator());
         }
 
-        CassandraRangePagingIterable<T> rowResults = new CassandraRangePagingIterable<>(
+        List<CassandraRangePagingIterable<T>> rowResults = getPagingIterables(
                 rowGetter,
                 slicePredicate,
                 columnGetter,
                 rangeRequest,
                 resultsExtractor,
-                startTs
-        );
+                startTs);
+        if (rowResults.size() == 1) {
+            return ClosableIterators.wrap(rowResults.get(0).iterator());
+        }
+        return readConcurrently(
+                rowResults, rangeRequest, ordered, configManager.getConfig().rangeScanConcurrency());
+    }
 
-        return ClosableIterators.wrap(rowResults.iterator());
+    /**
+     * Splits the range request along the token ranges of the ring if range scans are read concurrently.
+     */
+    private <T> List<CassandraRangePagingIterable<T>> getPagingIterables(
+            RowGetter rowGetter,
+            SlicePredicate slicePredicate,
+            ColumnGetter columnGetter,
+            RangeRequest rangeRequest,
+            Supplier<ResultsExtractor<T>> resultsExtractor,
+            long startTs) {
+        List<RangeRequest> parts = configManager.getConfig().rangeScanConcurrency() > 1
+                ? TokenRangeSplitter.split(rangeRequest, clientPool.getTokenMap().asMapOfRanges().keySet())
+                : ImmutableList.of(rangeRequest);
+        return parts.stream()
+                .map(part -> new CassandraRangePagingIterable<>(
+                        rowGetter,
+                        slicePredicate,
+                        columnGetter,
+                        part,
+                        resultsExtractor,
+                        startTs))
+                .collect(Collectors.toList());
+    }
+
+    private <T> ClosableIterator<RowResult<T>> readConcurrently(
+            List<CassandraRangePagingIterable<T>> rowResults,
+            RangeRequest rangeRequest,
+            boolean ordered,
+            int concurrency) {
+        int batchSize = rangeRequest.getBatchHint() == null ? 100 : rangeRequest.getBatchHint();
+        int prefetchPages = configManager.getConfig().rangeScanPrefetchPages();
+        return ordered
+                ? ParallelRangeIterator.ordered(rangeScanExecutor, rowResults, concurrency, batchSize, prefetchPages)
+                : ParallelRangeIterator.unordered(rangeScanExecutor, rowResults, concurrency, batchSize, prefetchPages);
     }
 
     /**
@@ -2039,6 +2201,7 @@ public class CassandraKeyValueServiceImpl extends AbstractKeyValueService implem
      */
     @Override
     public void close() {
+        rangeScanExecutor.shutdownNow();
         clientPool.shutdown();
         if (compactionManager.isPresent()) {
             compactionManager.get().close();
@@ -2094,6 +2257,10 @@ public class CassandraKeyValueServiceImpl extends AbstractKeyValueService implem
      * interleave.  However, concurrent writes to the same Cell will not both report success.
      * One of them will throw {@link KeyAlreadyExistsException}.
      * <p>
+     * Every cell is attempted even if an earlier one already exists; the thrown exception lists all of the
+     * cells that already existed. Cassandra has no multi-cell check-and-set, so the check-and-sets of the
+     * individual cells are issued concurrently.
+     * <p>
      * Does not require all Cassandra nodes to be up and available, works as long as quorum is achieved.
      *
      * @param tableRef the name of the table to put values into.
@@ -2104,21 +2271,23 @@ public class CassandraKeyValueServiceImpl extends AbstractKeyValueService implem
     @Override
     public void putUnlessExists(final TableReference tableRef, final Map<Cell, byte[]> values)
             throws KeyAlreadyExistsException {
-        try {
-            clientPool.runWithRetry(client -> {
-                for (Entry<Cell, byte[]> e : values.entrySet()) {
-                    CheckAndSetRequest request = CheckAndSetRequest.newCell(tableRef, e.getKey(), e.getValue());
-                    CASResult casResult = executeCheckAndSet(client, request);
-                    if (!casResult.isSuccess()) {
-                        throw new KeyAlreadyExistsException(
-                                String.format("The row in table %s already exists.", tableRef.getQualifiedName()),
-                                ImmutableList.of(e.getKey()));
-                    }
-                }
-                return null;
-            });
-        } catch (Exception e) {
-            throw Throwables.unwrapAndThrowUncheckedException(e);
+        List<Callable<Optional<Cell>>> tasks = Lists.newArrayListWithCapacity(values.size());
+        for (Entry<Cell, byte[]> e : values.entrySet()) {
+            CheckAndSetRequest request = CheckAndSetRequest.newCell(tableRef, e.getKey(), e.getValue());
+            tasks.add(AnnotatedCallable.wrapWithThreadName(AnnotationType.PREPEND,
+                    "Atlas putUnlessExists to " + tableRef,
+                    () -> clientPool.runWithRetry(client -> executeCheckAndSet(client, request).isSuccess()
+                            ? Optional.<Cell>empty()
+                            : Optional.of(request.cell()))));
+        }
+        List<Cell> existingKeys = runAllTasksCancelOnFailure(tasks).stream()
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .collect(Collectors.toList());
+        if (!existingKeys.isEmpty()) {
+            throw new KeyAlreadyExistsException(
+                    String.format("The row in table %s already exists.", tableRef.getQualifiedName()),
+                    existingKeys);
         }
     }
 
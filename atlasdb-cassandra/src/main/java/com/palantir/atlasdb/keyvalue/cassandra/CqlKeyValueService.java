@@ -27,6 +27,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeoutException;
@@ -89,6 +90,8 @@ import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.cassandra.CassandraKeyValueServiceConfig;
 import com.palantir.atlasdb.cassandra.CassandraKeyValueServiceConfigManager;
 import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.AsyncKeyValueService;
+import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweeping;
 import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweepingRequest;
 import com.palantir.atlasdb.keyvalue.api.Cell;
@@ -98,6 +101,7 @@ import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
 import com.palantir.atlasdb.keyvalue.api.InsufficientConsistencyException;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
@@ -125,7 +129,7 @@ import com.palantir.util.paging.SimpleTokenBackedResultsPage;
 import com.palantir.util.paging.TokenBackedBasicResultsPage;
 
 @SuppressWarnings("VisibilityModifier")
-public class CqlKeyValueService extends AbstractKeyValueService {
+public class CqlKeyValueService extends AbstractKeyValueService implements AsyncKeyValueService {
     private static final Logger log = LoggerFactory.getLogger(CqlKeyValueService.class);
 
     private Cluster cluster;
@@ -321,13 +325,7 @@ public class CqlKeyValueService extends AbstractKeyValueService {
                                     ColumnSelection selection,
                                     final long startTs) {
         if (!selection.allColumnsSelected()) {
-            Collection<byte[]> selectedColumns = selection.getSelectedColumns();
-            Set<Cell> cells = Sets.newHashSetWithExpectedSize(selectedColumns.size() * Iterables.size(rows));
-            for (byte[] row : rows) {
-                for (byte[] col : selectedColumns) {
-                    cells.add(Cell.create(row, col));
-                }
-            }
+            Set<Cell> cells = getSelectedCells(rows, selection);
             try {
                 StartTsResultsCollector collector = new StartTsResultsCollector(startTs);
                 loadWithTs(tableRef, cells, startTs, false, collector, readConsistency);
@@ -344,6 +342,17 @@ public class CqlKeyValueService extends AbstractKeyValueService {
         }
     }
 
+    private static Set<Cell> getSelectedCells(Iterable<byte[]> rows, ColumnSelection selection) {
+        Collection<byte[]> selectedColumns = selection.getSelectedColumns();
+        Set<Cell> cells = Sets.newHashSetWithExpectedSize(selectedColumns.size() * Iterables.size(rows));
+        for (byte[] row : rows) {
+            for (byte[] col : selectedColumns) {
+                cells.add(Cell.create(row, col));
+            }
+        }
+        return cells;
+    }
+
     private Map<Cell, Value> getRowsAllColsInternal(final TableReference tableRef,
                                                     final Iterable<byte[]> rows,
                                                     final long startTs) throws Exception {
@@ -355,13 +364,8 @@ public class CqlKeyValueService extends AbstractKeyValueService {
 
         for (final List<byte[]> batch : Iterables.partition(rows, fetchBatchCount)) {
             rowCount += batch.size();
-            String getRowsQuery = String.format("SELECT * FROM %s WHERE %s IN (%s)",
-                    getFullTableName(tableRef),
-                    fieldNameProvider.row(),
-                    Joiner.on(",").join(Iterables.limit(Iterables.cycle("?"), batch.size())));
-            PreparedStatement preparedStatement = getPreparedStatement(tableRef, getRowsQuery, session);
-            Object[] args = batch.stream().map(ByteBuffer::wrap).toArray();
-            resultSetFutures.add(session.executeAsync(preparedStatement.bind(args)));
+            String getRowsQuery = getRowsAllColsQuery(tableRef, batch.size());
+            resultSetFutures.add(session.executeAsync(getRowsAllColsStatement(tableRef, getRowsQuery, batch)));
 
             for (ResultSetFuture resultSetFuture : resultSetFutures) {
                 ResultSet resultSet;
@@ -370,15 +374,7 @@ public class CqlKeyValueService extends AbstractKeyValueService {
                 } catch (Throwable t) {
                     throw Throwables.throwUncheckedException(t);
                 }
-                for (Row row : resultSet.all()) {
-                    Cell cell = Cell.create(getRowName(row), getColName(row));
-                    if ((getTs(row) < startTs)
-                            && (!result.containsKey(cell) || (result.get(cell).getTimestamp() < getTs(row)))) {
-                        result.put(
-                                Cell.create(getRowName(row), getColName(row)),
-                                Value.create(getValue(row), getTs(row)));
-                    }
-                }
+                putLatestValuesBefore(result, resultSet.all(), startTs);
                 cqlKeyValueServices.logTracedQuery(getRowsQuery, resultSet, session, cqlStatementCache.normalQuery);
             }
         }
@@ -392,6 +388,31 @@ public class CqlKeyValueService extends AbstractKeyValueService {
         return result;
     }
 
+    private String getRowsAllColsQuery(TableReference tableRef, int batchSize) {
+        return String.format("SELECT * FROM %s WHERE %s IN (%s)",
+                getFullTableName(tableRef),
+                fieldNameProvider.row(),
+                Joiner.on(",").join(Iterables.limit(Iterables.cycle("?"), batchSize)));
+    }
+
+    private BoundStatement getRowsAllColsStatement(TableReference tableRef, String getRowsQuery, List<byte[]> batch) {
+        PreparedStatement preparedStatement = getPreparedStatement(tableRef, getRowsQuery, session);
+        Object[] args = batch.stream().map(ByteBuffer::wrap).toArray();
+        return preparedStatement.bind(args);
+    }
+
+    private void putLatestValuesBefore(Map<Cell, Value> result, Iterable<Row> rows, long startTs) {
+        for (Row row : rows) {
+            Cell cell = Cell.create(getRowName(row), getColName(row));
+            if ((getTs(row) < startTs)
+                    && (!result.containsKey(cell) || (result.get(cell).getTimestamp() < getTs(row)))) {
+                result.put(
+                        Cell.create(getRowName(row), getColName(row)),
+                        Value.create(getValue(row), getTs(row)));
+            }
+        }
+    }
+
     @Override
     public Map<Cell, Value> get(TableReference tableRef, Map<Cell, Long> timestampByCell) {
         if (timestampByCell.isEmpty()) {
@@ -427,6 +448,23 @@ public class CqlKeyValueService extends AbstractKeyValueService {
                             boolean loadAllTs,
                             final Visitor<Multimap<Cell, Value>> visitor,
                             final ConsistencyLevel consistency) throws Exception {
+        List<ResultSetFuture> resultSetFutures = executeLoadWithTs(tableRef, cells, startTs, loadAllTs, consistency);
+
+        String loggedLoadWithTsQuery = "SELECT * FROM " + getFullTableName(tableRef) + " "
+                + "WHERE " + fieldNameProvider.row()
+                + " IN (?, ...) AND " + fieldNameProvider.column()
+                + " = ? AND " + fieldNameProvider.timestamp()
+                + " > ?" + (!loadAllTs ? " LIMIT 1" : "");
+        for (ResultSetFuture rsf : resultSetFutures) {
+            visitResults(rsf.getUninterruptibly(), visitor, loggedLoadWithTsQuery, loadAllTs);
+        }
+    }
+
+    private List<ResultSetFuture> executeLoadWithTs(TableReference tableRef,
+                                                    Set<Cell> cells,
+                                                    long startTs,
+                                                    boolean loadAllTs,
+                                                    ConsistencyLevel consistency) {
         final CassandraKeyValueServiceConfig config = configManager.getConfig();
 
         List<ResultSetFuture> resultSetFutures = Lists.newArrayListWithCapacity(cells.size());
@@ -465,15 +503,7 @@ public class CqlKeyValueService extends AbstractKeyValueService {
                 resultSetFutures.add(resultSetFuture);
             }
         }
-
-        String loggedLoadWithTsQuery = "SELECT * FROM " + getFullTableName(tableRef) + " "
-                + "WHERE " + fieldNameProvider.row()
-                + " IN (?, ...) AND " + fieldNameProvider.column()
-                + " = ? AND " + fieldNameProvider.timestamp()
-                + " > ?" + (!loadAllTs ? " LIMIT 1" : "");
-        for (ResultSetFuture rsf : resultSetFutures) {
-            visitResults(rsf.getUninterruptibly(), visitor, loggedLoadWithTsQuery, loadAllTs);
-        }
+        return resultSetFutures;
     }
 
     // TODO(unknown): use this for insert and delete batch-to-owner-coordinator mapping
@@ -486,7 +516,12 @@ public class CqlKeyValueService extends AbstractKeyValueService {
             Visitor<Multimap<Cell, Value>> visitor,
             String query,
             boolean loadAllTs) {
-        List<Row> rows = resultSet.all();
+        Multimap<Cell, Value> res = toCellValues(resultSet.all(), loadAllTs);
+        cqlKeyValueServices.logTracedQuery(query, resultSet, session, cqlStatementCache.normalQuery);
+        visitor.visit(res);
+    }
+
+    private Multimap<Cell, Value> toCellValues(List<Row> rows, boolean loadAllTs) {
         Multimap<Cell, Value> res;
         if (loadAllTs) {
             res = HashMultimap.create();
@@ -497,8 +532,93 @@ public class CqlKeyValueService extends AbstractKeyValueService {
             res.put(Cell.create(getRowName(row), getColName(row)),
                     Value.create(getValue(row), getTs(row)));
         }
-        cqlKeyValueServices.logTracedQuery(query, resultSet, session, cqlStatementCache.normalQuery);
-        visitor.visit(res);
+        return res;
+    }
+
+    /**
+     * Issues the same queries as {@link #get(TableReference, Map)}, and collects their results on the driver's
+     * threads as they arrive. Traced queries are not logged, as retrieving their traces blocks.
+     */
+    @Override
+    public CompletableFuture<Map<Cell, Value>> getAsync(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+        if (timestampByCell.isEmpty()) {
+            return CompletableFuture.completedFuture(ImmutableMap.of());
+        }
+        try {
+            SetMultimap<Long, Cell> cellsByTs = HashMultimap.create();
+            Multimaps.invertFrom(Multimaps.forMap(timestampByCell), cellsByTs);
+            List<CompletableFuture<Map<Cell, Value>>> reads = Lists.newArrayListWithCapacity(cellsByTs.keySet().size());
+            for (long ts : cellsByTs.keySet()) {
+                reads.add(loadWithTsAsync(tableRef, cellsByTs.get(ts), ts));
+            }
+            return CompletableFuture.allOf(reads.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+                Map<Cell, Value> result = Maps.newHashMapWithExpectedSize(timestampByCell.size());
+                reads.forEach(read -> result.putAll(read.join()));
+                return result;
+            });
+        } catch (Throwable t) {
+            return failedFuture(t);
+        }
+    }
+
+    private CompletableFuture<Map<Cell, Value>> loadWithTsAsync(TableReference tableRef,
+                                                                Set<Cell> cells,
+                                                                long startTs) {
+        StartTsResultsCollector collector = new StartTsResultsCollector(startTs);
+        CompletableFuture<?>[] reads = executeLoadWithTs(tableRef, cells, startTs, false, readConsistency).stream()
+                .map(resultSetFuture -> CqlKeyValueServices.getAllRowsAsync(resultSetFuture)
+                        .thenAccept(rows -> collector.visit(toCellValues(rows, false))))
+                .toArray(CompletableFuture<?>[]::new);
+        return CompletableFuture.allOf(reads).thenApply(ignored -> collector.getCollectedResults());
+    }
+
+    @Override
+    public CompletableFuture<Map<Cell, Value>> getRowsAsync(TableReference tableRef,
+                                                            Iterable<byte[]> rows,
+                                                            ColumnSelection selection,
+                                                            long startTs) {
+        try {
+            if (!selection.allColumnsSelected()) {
+                Set<Cell> cells = getSelectedCells(rows, selection);
+                if (cells.isEmpty()) {
+                    return CompletableFuture.completedFuture(ImmutableMap.of());
+                }
+                return loadWithTsAsync(tableRef, cells, startTs);
+            }
+
+            List<CompletableFuture<List<Row>>> reads = Lists.newArrayList();
+            for (List<byte[]> batch : Iterables.partition(rows, configManager.getConfig().fetchBatchCount())) {
+                String getRowsQuery = getRowsAllColsQuery(tableRef, batch.size());
+                reads.add(CqlKeyValueServices.getAllRowsAsync(
+                        session.executeAsync(getRowsAllColsStatement(tableRef, getRowsQuery, batch))));
+            }
+            return CompletableFuture.allOf(reads.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+                Map<Cell, Value> result = Maps.newHashMap();
+                reads.forEach(read -> putLatestValuesBefore(result, read.join(), startTs));
+                return result;
+            });
+        } catch (Throwable t) {
+            return failedFuture(t);
+        }
+    }
+
+    /**
+     * Reads whole rows and filters them to the column range, as {@link #getRowsColumnRange} does.
+     */
+    @Override
+    public CompletableFuture<Map<byte[], RowColumnRangeIterator>> getRowsColumnRangeAsync(
+            TableReference tableRef,
+            Iterable<byte[]> rows,
+            BatchColumnRangeSelection batchColumnRangeSelection,
+            long timestamp) {
+        return getRowsAsync(tableRef, rows, ColumnSelection.all(), timestamp)
+                .thenApply(values -> KeyValueServices.filterRowsToColumnRange(rows, values, batchColumnRangeSelection));
+    }
+
+    private static <T> CompletableFuture<T> failedFuture(Throwable throwable) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(throwable);
+        return future;
     }
 
     @Override
@@ -610,6 +730,49 @@ public class CqlKeyValueService extends AbstractKeyValueService {
     @Override
     public void multiPut(Map<TableReference, ? extends Map<Cell, byte[]>> valuesByTable, long timestamp)
             throws KeyAlreadyExistsException {
+        Map<ResultSetFuture, TableReference> resultSetFutures = executeMultiPut(valuesByTable, timestamp);
+        for (Entry<ResultSetFuture, TableReference> result : resultSetFutures.entrySet()) {
+            ResultSet resultSet;
+            try {
+                resultSet = result.getKey().getUninterruptibly();
+                resultSet.all();
+            } catch (Throwable t) {
+                throw Throwables.throwUncheckedException(t);
+            }
+            cqlKeyValueServices.logTracedQuery(
+                    getPutQuery(result.getValue(), CassandraConstants.NO_TTL),
+                    resultSet,
+                    session,
+                    cqlStatementCache.normalQuery);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> putAsync(TableReference tableRef, Map<Cell, byte[]> values, long timestamp) {
+        return multiPutAsync(ImmutableMap.of(tableRef, values), timestamp);
+    }
+
+    /**
+     * Issues the same batches as {@link #multiPut(Map, long)}. Traced queries are not logged, as retrieving their
+     * traces blocks.
+     */
+    @Override
+    public CompletableFuture<Void> multiPutAsync(
+            Map<TableReference, ? extends Map<Cell, byte[]>> valuesByTable,
+            long timestamp) {
+        try {
+            CompletableFuture<?>[] writes = executeMultiPut(valuesByTable, timestamp).keySet().stream()
+                    .map(CqlKeyValueServices::toCompletableFuture)
+                    .toArray(CompletableFuture<?>[]::new);
+            return CompletableFuture.allOf(writes);
+        } catch (Throwable t) {
+            return failedFuture(t);
+        }
+    }
+
+    private Map<ResultSetFuture, TableReference> executeMultiPut(
+            Map<TableReference, ? extends Map<Cell, byte[]>> valuesByTable,
+            long timestamp) {
         Map<ResultSetFuture, TableReference> resultSetFutures = Maps.newHashMap();
         for (Entry<TableReference, ? extends Map<Cell, byte[]>> e : valuesByTable.entrySet()) {
             final TableReference table = e.getKey();
@@ -631,21 +794,7 @@ public class CqlKeyValueService extends AbstractKeyValueService {
                 resultSetFutures.put(getPutPartitionResultSetFuture(table, partition, TransactionType.NONE), table);
             }
         }
-
-        for (Entry<ResultSetFuture, TableReference> result : resultSetFutures.entrySet()) {
-            ResultSet resultSet;
-            try {
-                resultSet = result.getKey().getUninterruptibly();
-                resultSet.all();
-            } catch (Throwable t) {
-                throw Throwables.throwUncheckedException(t);
-            }
-            cqlKeyValueServices.logTracedQuery(
-                    getPutQuery(result.getValue(), CassandraConstants.NO_TTL),
-                    resultSet,
-                    session,
-                    cqlStatementCache.normalQuery);
-        }
+        return resultSetFutures;
     }
 
     private void putInternal(
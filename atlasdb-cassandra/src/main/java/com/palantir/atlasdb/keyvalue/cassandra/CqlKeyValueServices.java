@@ -26,6 +26,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 
 import org.slf4j.Logger;
@@ -47,6 +48,9 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
@@ -361,6 +365,49 @@ public final class CqlKeyValueServices {
         }
     }
 
+    /**
+     * Adapts a future of the driver to a {@link CompletableFuture}, which is completed on the thread completing the
+     * driver's future. Cancelling the returned future cancels the driver's future.
+     */
+    static <T> CompletableFuture<T> toCompletableFuture(ListenableFuture<T> future) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Futures.addCallback(future, new FutureCallback<T>() {
+            @Override
+            public void onSuccess(T value) {
+                result.complete(value);
+            }
+
+            @Override
+            public void onFailure(Throwable throwable) {
+                result.completeExceptionally(throwable);
+            }
+        });
+        result.whenComplete((ignored, error) -> {
+            if (result.isCancelled()) {
+                future.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Reads every row of the result of a query, fetching any further pages of the result without blocking.
+     */
+    static CompletableFuture<List<Row>> getAllRowsAsync(ResultSetFuture resultSetFuture) {
+        return toCompletableFuture(resultSetFuture)
+                .thenCompose(resultSet -> fetchRemainingRows(resultSet, Lists.newArrayList()));
+    }
+
+    private static CompletableFuture<List<Row>> fetchRemainingRows(ResultSet resultSet, List<Row> rows) {
+        while (resultSet.getAvailableWithoutFetching() > 0) {
+            rows.add(resultSet.one());
+        }
+        if (resultSet.isFullyFetched()) {
+            return CompletableFuture.completedFuture(rows);
+        }
+        return toCompletableFuture(resultSet.fetchMoreResults())
+                .thenCompose(ignored -> fetchRemainingRows(resultSet, rows));
+    }
 
     interface ThreadSafeCqlResultVisitor extends Visitor<Multimap<Cell, Value>> {
         // marker
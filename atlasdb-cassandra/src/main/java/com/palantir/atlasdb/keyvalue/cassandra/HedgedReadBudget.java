@@ -0,0 +1,70 @@
+/*
+ * Copyright 2018 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Limits hedged reads to a given proportion of all reads. Every read earns that proportion of a hedged read, and every
+ * hedged read spends a whole one. Up to {@link #MAX_SAVED_HEDGES} hedged reads can be saved up while reads are fast,
+ * so that a short burst of slow reads can still be hedged, but a host that slows down every read cannot double the
+ * load on the cluster.
+ */
+class HedgedReadBudget {
+    @VisibleForTesting
+    static final int MAX_SAVED_HEDGES = 10;
+    private static final long UNITS_PER_HEDGE = 1_000_000;
+    private static final long MAX_UNITS = MAX_SAVED_HEDGES * UNITS_PER_HEDGE;
+
+    private final long unitsPerRead;
+    private final AtomicLong units = new AtomicLong(0);
+
+    HedgedReadBudget(double maxHedgedProportion) {
+        this.unitsPerRead = (long) (maxHedgedProportion * UNITS_PER_HEDGE);
+    }
+
+    void recordRead() {
+        add(unitsPerRead);
+    }
+
+    /**
+     * Spends a hedged read if the budget allows one, and returns whether it did.
+     */
+    boolean tryAcquireHedge() {
+        while (true) {
+            long current = units.get();
+            if (current < UNITS_PER_HEDGE) {
+                return false;
+            }
+            if (units.compareAndSet(current, current - UNITS_PER_HEDGE)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns a hedged read that was acquired but not sent.
+     */
+    void releaseHedge() {
+        add(UNITS_PER_HEDGE);
+    }
+
+    private void add(long unitsToAdd) {
+        units.accumulateAndGet(unitsToAdd, (current, added) -> Math.min(current + added, MAX_UNITS));
+    }
+}
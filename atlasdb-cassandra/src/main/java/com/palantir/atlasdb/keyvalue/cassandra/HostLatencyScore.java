@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Scores a host by an exponentially weighted moving average of the latency of its requests, multiplied by the number
+ * of requests that are outstanding on it. Lower scores are better.
+ * <p>
+ * A request that is slower than the average is blended in with a weight of {@link #SLOWER_SAMPLE_WEIGHT}, and one
+ * that is faster with a weight of {@link #FASTER_SAMPLE_WEIGHT}, so that a host that stalls is avoided after a few
+ * slow requests but a single slow request does not outweigh the host's history. The average also decays towards zero
+ * while the host is not sent any requests, so that a host that was slow for a while, for example during a garbage
+ * collection pause, is eventually tried again.
+ */
+class HostLatencyScore {
+    private static final long DECAY_TIME_NANOS = TimeUnit.SECONDS.toNanos(10);
+    @VisibleForTesting
+    static final double SLOWER_SAMPLE_WEIGHT = 0.5;
+    @VisibleForTesting
+    static final double FASTER_SAMPLE_WEIGHT = 0.1;
+
+    private final LongSupplier nanoClock;
+
+    private boolean hasLatencies = false;
+    private double averageLatencyNanos = 0;
+    private long lastUpdateNanos;
+    private int outstandingRequests = 0;
+
+    HostLatencyScore() {
+        this(System::nanoTime);
+    }
+
+    @VisibleForTesting
+    HostLatencyScore(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        this.lastUpdateNanos = nanoClock.getAsLong();
+    }
+
+    synchronized void requestStarted() {
+        outstandingRequests++;
+    }
+
+    synchronized void requestFinished(long latencyNanos) {
+        outstandingRequests = Math.max(outstandingRequests - 1, 0);
+        long now = nanoClock.getAsLong();
+        if (hasLatencies) {
+            double decayedLatencyNanos = decayWeight(now) * averageLatencyNanos;
+            double sampleWeight = latencyNanos > decayedLatencyNanos ? SLOWER_SAMPLE_WEIGHT : FASTER_SAMPLE_WEIGHT;
+            averageLatencyNanos = (1 - sampleWeight) * decayedLatencyNanos + sampleWeight * latencyNanos;
+        } else {
+            averageLatencyNanos = latencyNanos;
+            hasLatencies = true;
+        }
+        lastUpdateNanos = now;
+    }
+
+    synchronized double getScore() {
+        double decayedLatencyNanos = decayWeight(nanoClock.getAsLong()) * averageLatencyNanos;
+        return (decayedLatencyNanos + 1) * (outstandingRequests + 1);
+    }
+
+    synchronized int getOutstandingRequests() {
+        return outstandingRequests;
+    }
+
+    private double decayWeight(long now) {
+        long elapsedNanos = Math.max(now - lastUpdateNanos, 0);
+        return Math.exp(-((double) elapsedNanos) / DECAY_TIME_NANOS);
+    }
+}
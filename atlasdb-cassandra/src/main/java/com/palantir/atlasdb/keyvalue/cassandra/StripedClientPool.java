@@ -0,0 +1,435 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import java.util.Deque;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.PooledObjectFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.logsafe.SafeArg;
+
+/**
+ * A bounded pool of clients whose borrows and returns do not take any locks.
+ * <p>
+ * Idle clients are kept on a few stripes, each a stack, and a thread borrows from and returns to the stripe picked by
+ * its id before taking clients from the other stripes. Since the stripes are stacks, recently used clients are reused
+ * first and clients that are not needed grow idle at the bottom, where they are evicted. A borrow that finds no idle
+ * client opens a new one if the pool holds fewer than its maximum number of clients, and fails fast with a
+ * {@link NoSuchElementException} otherwise, leaving the caller to back off or try another host.
+ * <p>
+ * In the background, the pool opens clients until it holds its minimum number of clients, and closes clients that have
+ * been idle for longer than the idle timeout, or whose connection has closed, as long as it holds more than its
+ * minimum number of clients. The evictions of every pool run on a single shared thread, while the clients are opened on
+ * a small shared pool of threads, so that a host that is slow to accept connections does not hold up the maintenance
+ * of the pools for other hosts.
+ */
+final class StripedClientPool<T> {
+    private static final Logger log = LoggerFactory.getLogger(StripedClientPool.class);
+    private static final int MAX_STRIPES = 16;
+    private static final int MAX_PRE_WARM_THREADS = 4;
+    private static final ScheduledExecutorService maintenanceExecutor = PTExecutors.newSingleThreadScheduledExecutor(
+            new NamedThreadFactory("Atlas Cassandra client pool maintenance", true));
+    private static final ExecutorService preWarmExecutor = createPreWarmExecutor();
+
+    private final PooledObjectFactory<T> factory;
+    private final int minClients;
+    private final int maxClients;
+    private final long idleTimeoutNanos;
+    private final double proportionToCheckPerMaintenanceRun;
+    private final LongSupplier nanoClock;
+    private final List<Deque<PooledClient<T>>> stripes;
+    private final int stripeMask;
+
+    private final AtomicInteger totalClients = new AtomicInteger();
+    private final AtomicInteger idleClients = new AtomicInteger();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong destroyedByMaintenanceCount = new AtomicLong();
+    private final AtomicLong destroyedByBorrowValidationCount = new AtomicLong();
+    private final RecentMean activeTimeMillis = new RecentMean();
+    private final RecentMean idleTimeMillis = new RecentMean();
+    private final RecentMean borrowWaitTimeMillis = new RecentMean();
+    private final AtomicBoolean preWarming = new AtomicBoolean(false);
+
+    private volatile boolean closed = false;
+    private volatile ScheduledFuture<?> maintenanceFuture;
+    private int nextStripeToMaintain = 0;
+
+    @VisibleForTesting
+    StripedClientPool(
+            PooledObjectFactory<T> factory,
+            int minClients,
+            int maxClients,
+            long idleTimeoutMillis,
+            double proportionToCheckPerMaintenanceRun,
+            LongSupplier nanoClock) {
+        Preconditions.checkArgument(minClients >= 0 && minClients <= maxClients,
+                "minClients must be between 0 and maxClients");
+        this.factory = factory;
+        this.minClients = minClients;
+        this.maxClients = maxClients;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.proportionToCheckPerMaintenanceRun = proportionToCheckPerMaintenanceRun;
+        this.nanoClock = nanoClock;
+
+        int stripeCount = Integer.highestOneBit(Math.max(
+                Math.min(Math.min(Runtime.getRuntime().availableProcessors(), maxClients), MAX_STRIPES), 1));
+        ImmutableList.Builder<Deque<PooledClient<T>>> stripesBuilder = ImmutableList.builder();
+        for (int i = 0; i < stripeCount; i++) {
+            stripesBuilder.add(new ConcurrentLinkedDeque<>());
+        }
+        this.stripes = stripesBuilder.build();
+        this.stripeMask = stripeCount - 1;
+    }
+
+    /**
+     * Creates a pool that pre-warms itself and then runs its maintenance about every given number of seconds. The
+     * interval is jittered, so that the pools for different hosts do not all evict their clients at once.
+     */
+    static <T> StripedClientPool<T> create(
+            PooledObjectFactory<T> factory,
+            int minClients,
+            int maxClients,
+            long idleTimeoutMillis,
+            double proportionToCheckPerMaintenanceRun,
+            int timeBetweenMaintenanceRunsSeconds) {
+        StripedClientPool<T> pool = new StripedClientPool<>(factory, Math.min(minClients, maxClients), maxClients,
+                idleTimeoutMillis, proportionToCheckPerMaintenanceRun, System::nanoTime);
+        int jitterSeconds = ThreadLocalRandom.current().nextInt(
+                Math.max(Math.min(timeBetweenMaintenanceRunsSeconds / 2, 10), 1));
+        pool.maintenanceFuture = maintenanceExecutor.scheduleWithFixedDelay(
+                pool::runScheduledMaintenance,
+                0,
+                TimeUnit.SECONDS.toMillis(timeBetweenMaintenanceRunsSeconds + jitterSeconds),
+                TimeUnit.MILLISECONDS);
+        return pool;
+    }
+
+    /**
+     * Borrows an idle client, or opens a new one if there is none and the pool is not full.
+     *
+     * @throws NoSuchElementException if every client of a full pool is borrowed
+     */
+    PooledClient<T> borrow() throws Exception {
+        Preconditions.checkState(!closed, "Pool not open");
+        long startNanos = nanoClock.getAsLong();
+        PooledClient<T> client = pollIdleClient();
+        while (client != null && !factory.validateObject(client.pooledObject)) {
+            destroyedByBorrowValidationCount.incrementAndGet();
+            destroy(client);
+            client = pollIdleClient();
+        }
+        if (client == null) {
+            client = createClient();
+        } else {
+            idleTimeMillis.add(TimeUnit.NANOSECONDS.toMillis(startNanos - client.returnedAtNanos));
+        }
+        client.borrowedAtNanos = nanoClock.getAsLong();
+        borrowWaitTimeMillis.add(TimeUnit.NANOSECONDS.toMillis(client.borrowedAtNanos - startNanos));
+        return client;
+    }
+
+    void returnClient(PooledClient<T> client) {
+        long now = nanoClock.getAsLong();
+        activeTimeMillis.add(TimeUnit.NANOSECONDS.toMillis(now - client.borrowedAtNanos));
+        if (closed) {
+            destroy(client);
+            return;
+        }
+        client.returnedAtNanos = now;
+        pushIdleClient(client, homeStripe());
+        if (closed) {
+            // we raced with close, which may not have seen this client
+            clear();
+        }
+    }
+
+    void invalidate(PooledClient<T> client) {
+        destroy(client);
+    }
+
+    /**
+     * Closes every idle client.
+     */
+    void clear() {
+        for (Deque<PooledClient<T>> stripe : stripes) {
+            PooledClient<T> client;
+            while ((client = stripe.pollFirst()) != null) {
+                idleClients.decrementAndGet();
+                destroy(client);
+            }
+        }
+    }
+
+    void close() {
+        closed = true;
+        ScheduledFuture<?> future = maintenanceFuture;
+        if (future != null) {
+            future.cancel(false);
+        }
+        clear();
+    }
+
+    @VisibleForTesting
+    void runMaintenance() {
+        if (closed) {
+            return;
+        }
+        evictIdleClients();
+        ensureMinClients();
+    }
+
+    int getNumIdle() {
+        return idleClients.get();
+    }
+
+    int getNumActive() {
+        return Math.max(totalClients.get() - idleClients.get(), 0);
+    }
+
+    int getMaxTotal() {
+        return maxClients;
+    }
+
+    long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    long getDestroyedByMaintenanceCount() {
+        return destroyedByMaintenanceCount.get();
+    }
+
+    long getDestroyedByBorrowValidationCount() {
+        return destroyedByBorrowValidationCount.get();
+    }
+
+    double getMeanActiveTimeMillis() {
+        return activeTimeMillis.get();
+    }
+
+    double getMeanIdleTimeMillis() {
+        return idleTimeMillis.get();
+    }
+
+    double getMeanBorrowWaitTimeMillis() {
+        return borrowWaitTimeMillis.get();
+    }
+
+    private PooledClient<T> pollIdleClient() {
+        int home = homeStripe();
+        for (int i = 0; i < stripes.size(); i++) {
+            PooledClient<T> client = stripes.get((home + i) & stripeMask).pollFirst();
+            if (client != null) {
+                idleClients.decrementAndGet();
+                return client;
+            }
+        }
+        return null;
+    }
+
+    private void pushIdleClient(PooledClient<T> client, int stripe) {
+        idleClients.incrementAndGet();
+        stripes.get(stripe & stripeMask).offerFirst(client);
+    }
+
+    private int homeStripe() {
+        return (int) Thread.currentThread().getId() & stripeMask;
+    }
+
+    private PooledClient<T> createClient() throws Exception {
+        int total;
+        do {
+            total = totalClients.get();
+            if (total >= maxClients) {
+                throw new NoSuchElementException("Pool exhausted");
+            }
+        } while (!totalClients.compareAndSet(total, total + 1));
+
+        try {
+            PooledClient<T> client = new PooledClient<>(factory.makeObject());
+            createdCount.incrementAndGet();
+            return client;
+        } catch (Throwable t) {
+            totalClients.decrementAndGet();
+            throw t;
+        }
+    }
+
+    private void destroy(PooledClient<T> client) {
+        totalClients.decrementAndGet();
+        try {
+            factory.destroyObject(client.pooledObject);
+        } catch (Exception e) {
+            log.debug("Failed to close a pooled client.", e);
+        }
+    }
+
+    /**
+     * Checks the clients that have been idle the longest, from the bottom of each stripe in turn, and closes those that
+     * have been idle for longer than the idle timeout or whose connection has closed.
+     */
+    private void evictIdleClients() {
+        int clientsToCheck = (int) Math.ceil(idleClients.get() * proportionToCheckPerMaintenanceRun);
+        int emptyStripesInARow = 0;
+        while (clientsToCheck > 0 && emptyStripesInARow < stripes.size()) {
+            int stripe = nextStripeToMaintain++ & stripeMask;
+            PooledClient<T> client = stripes.get(stripe).pollLast();
+            if (client == null) {
+                emptyStripesInARow++;
+                continue;
+            }
+            emptyStripesInARow = 0;
+            clientsToCheck--;
+            idleClients.decrementAndGet();
+
+            boolean idleTooLong = nanoClock.getAsLong() - client.returnedAtNanos > idleTimeoutNanos;
+            if ((idleTooLong && totalClients.get() > minClients) || !factory.validateObject(client.pooledObject)) {
+                destroyedByMaintenanceCount.incrementAndGet();
+                destroy(client);
+            } else {
+                idleClients.incrementAndGet();
+                stripes.get(stripe).offerLast(client);
+            }
+        }
+    }
+
+    private void ensureMinClients() {
+        while (!closed && totalClients.get() < minClients) {
+            PooledClient<T> client;
+            try {
+                client = createClient();
+            } catch (Exception e) {
+                log.debug("Failed to pre-warm a pool of {} clients.", SafeArg.of("minClients", minClients), e);
+                return;
+            }
+            client.returnedAtNanos = nanoClock.getAsLong();
+            pushIdleClient(client, ThreadLocalRandom.current().nextInt(stripes.size()));
+        }
+    }
+
+    /**
+     * Evicts idle clients on the maintenance thread, and hands opening clients up to the minimum over to the pre-warm
+     * threads, unless they are already opening clients for this pool.
+     */
+    private void runScheduledMaintenance() {
+        if (closed) {
+            return;
+        }
+        try {
+            evictIdleClients();
+        } catch (Throwable t) {
+            log.warn("Failed to evict idle clients from a pool of clients.", t);
+        }
+        if (totalClients.get() < minClients && preWarming.compareAndSet(false, true)) {
+            try {
+                preWarmExecutor.execute(this::preWarm);
+            } catch (RejectedExecutionException e) {
+                preWarming.set(false);
+            }
+        }
+    }
+
+    private void preWarm() {
+        try {
+            ensureMinClients();
+        } catch (Throwable t) {
+            log.warn("Failed to pre-warm a pool of clients.", t);
+        } finally {
+            preWarming.set(false);
+        }
+    }
+
+    private static ExecutorService createPreWarmExecutor() {
+        // every pool has at most one pre-warm task queued or running, so the queue is bounded by the number of hosts
+        ThreadPoolExecutor executor = PTExecutors.newThreadPoolExecutor(
+                MAX_PRE_WARM_THREADS,
+                MAX_PRE_WARM_THREADS,
+                1,
+                TimeUnit.MINUTES,
+                new LinkedBlockingQueue<>(),
+                new NamedThreadFactory("Atlas Cassandra client pool pre-warm", true));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    static final class PooledClient<T> {
+        private final PooledObject<T> pooledObject;
+        private long borrowedAtNanos;
+        private long returnedAtNanos;
+
+        private PooledClient(PooledObject<T> pooledObject) {
+            this.pooledObject = pooledObject;
+        }
+
+        T get() {
+            return pooledObject.getObject();
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(get());
+        }
+    }
+
+    /**
+     * The mean of the last hundred values added, in the manner of the statistics of commons-pool2's pools.
+     */
+    private static final class RecentMean {
+        private static final int SIZE = 100;
+
+        private final AtomicLongArray values = new AtomicLongArray(SIZE);
+        private final AtomicLong count = new AtomicLong();
+
+        void add(long value) {
+            values.set((int) (count.getAndIncrement() % SIZE), value);
+        }
+
+        double get() {
+            int size = (int) Math.min(count.get(), SIZE);
+            if (size == 0) {
+                return 0;
+            }
+            long sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += values.get(i);
+            }
+            return ((double) sum) / size;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+
+import com.google.common.collect.BoundType;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Range;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.UnsignedBytes;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RangeRequests;
+import com.palantir.atlasdb.keyvalue.cassandra.CassandraClientPoolImpl.LightweightOppToken;
+
+/**
+ * Splits range requests along the token ranges of the ring. Rows are partitioned by their ordered row names, so every
+ * part of a split range request lies within a single token range and can be read from one of its replicas.
+ */
+final class TokenRangeSplitter {
+    private TokenRangeSplitter() {
+        // utility
+    }
+
+    /**
+     * Returns the parts of the given (forward) range request, in row order.
+     */
+    static List<RangeRequest> split(RangeRequest rangeRequest, Set<Range<LightweightOppToken>> tokenRanges) {
+        byte[] startInclusive = rangeRequest.getStartInclusive();
+        byte[] endExclusive = rangeRequest.getEndExclusive();
+        SortedSet<byte[]> splitPoints = Sets.newTreeSet(UnsignedBytes.lexicographicalComparator());
+        for (Range<LightweightOppToken> tokenRange : tokenRanges) {
+            if (!tokenRange.hasUpperBound()) {
+                continue;
+            }
+            byte[] endToken = tokenRange.upperEndpoint().bytes;
+            byte[] splitPoint = tokenRange.upperBoundType() == BoundType.CLOSED
+                    ? RangeRequests.nextLexicographicName(endToken)
+                    : endToken;
+            if (isAfter(splitPoint, startInclusive) && isBefore(splitPoint, endExclusive)) {
+                splitPoints.add(splitPoint);
+            }
+        }
+
+        ImmutableList.Builder<RangeRequest> parts = ImmutableList.builder();
+        byte[] partStart = startInclusive;
+        for (byte[] splitPoint : splitPoints) {
+            parts.add(rangeRequest.getBuilder().startRowInclusive(partStart).endRowExclusive(splitPoint).build());
+            partStart = splitPoint;
+        }
+        parts.add(rangeRequest.getBuilder().startRowInclusive(partStart).endRowExclusive(endExclusive).build());
+        return parts.build();
+    }
+
+    private static boolean isAfter(byte[] row, byte[] startInclusive) {
+        return UnsignedBytes.lexicographicalComparator().compare(row, startInclusive) > 0;
+    }
+
+    private static boolean isBefore(byte[] row, byte[] endExclusive) {
+        return endExclusive.length == 0 || UnsignedBytes.lexicographicalComparator().compare(row, endExclusive) < 0;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra.paging;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
+import com.google.common.collect.PeekingIterator;
+import com.google.common.primitives.UnsignedBytes;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.common.base.ClosableIterator;
+
+/**
+ * Merges the rows of range scans over the same range, each of which reads different columns, into rows with the
+ * columns of every scan.
+ */
+public final class ColumnMergingRangeIterator<T> extends AbstractIterator<RowResult<T>>
+        implements ClosableIterator<RowResult<T>> {
+    private final List<ClosableIterator<RowResult<T>>> columnRanges;
+    private final PeekingIterator<RowResult<T>> rows;
+
+    public ColumnMergingRangeIterator(List<ClosableIterator<RowResult<T>>> columnRanges) {
+        this.columnRanges = ImmutableList.copyOf(columnRanges);
+        this.rows = Iterators.peekingIterator(
+                Iterators.mergeSorted(this.columnRanges, RowResult.<T>getOrderingByRowName()));
+    }
+
+    @Override
+    protected RowResult<T> computeNext() {
+        if (!rows.hasNext()) {
+            return endOfData();
+        }
+        RowResult<T> first = rows.next();
+        if (!hasMoreColumnsOf(first)) {
+            return first;
+        }
+        SortedMap<byte[], T> columns = Maps.newTreeMap(UnsignedBytes.lexicographicalComparator());
+        columns.putAll(first.getColumns());
+        while (hasMoreColumnsOf(first)) {
+            columns.putAll(rows.next().getColumns());
+        }
+        return RowResult.create(first.getRowName(), columns);
+    }
+
+    @Override
+    public void close() {
+        columnRanges.forEach(ClosableIterator::close);
+    }
+
+    private boolean hasMoreColumnsOf(RowResult<T> row) {
+        return rows.hasNext() && Arrays.equals(rows.peek().getRowName(), row.getRowName());
+    }
+}
@@ -0,0 +1,363 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra.paging;
+
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Queues;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.Throwables;
+import com.palantir.logsafe.SafeArg;
+
+/**
+ * Reads a list of ranges concurrently, with at most a given number of ranges being read at any time. Each range is
+ * read ahead of the caller by up to a given number of batches.
+ * <p>
+ * An ordered iterator returns the elements of every range in the order the ranges were given, and starts reading a
+ * new range whenever the caller has finished with the first of the ranges being read. An unordered iterator returns
+ * batches in whatever order they are read, and starts reading a new range as soon as any range has been read.
+ * <p>
+ * A range that the executor rejects is read on the caller's thread when its elements are needed, so a saturated
+ * executor slows range scans down rather than failing them. Closing the iterator stops the background reads after
+ * the page they are reading, without interrupting them. Background reads of an iterator that is dropped without
+ * being closed give up once the caller has not asked for a batch for {@link #DEFAULT_ABANDONED_TIMEOUT_MILLIS}.
+ */
+public final class ParallelRangeIterator<T> extends AbstractIterator<T> implements ClosableIterator<T> {
+    private static final Logger log = LoggerFactory.getLogger(ParallelRangeIterator.class);
+
+    @VisibleForTesting
+    static final long DEFAULT_ABANDONED_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    private final ExecutorService executor;
+    private final List<? extends Iterable<T>> ranges;
+    private final boolean ordered;
+    private final int batchSize;
+    private final int prefetchBatches;
+    private final long abandonedTimeoutNanos;
+    // the source of each range in order when the iterator is ordered, and the sources of the ranges read on the
+    // caller's thread otherwise
+    private final Deque<Source<T>> sources = Queues.newArrayDeque();
+    // shared by every range read in the background when the iterator is unordered
+    private final BlockingQueue<Batch<T>> sharedQueue;
+    private final List<Future<?>> futures = Lists.newArrayList();
+
+    private int startedRanges = 0;
+    private int finishedRanges = 0;
+    private int runningBackgroundRanges = 0;
+    private Iterator<T> currentBatch = Collections.emptyIterator();
+    private volatile boolean closed = false;
+    private volatile boolean abandoned = false;
+    private volatile long lastRequestNanos = System.nanoTime();
+
+    private ParallelRangeIterator(
+            ExecutorService executor,
+            List<? extends Iterable<T>> ranges,
+            boolean ordered,
+            int concurrency,
+            int batchSize,
+            int prefetchBatches,
+            long abandonedTimeoutMillis) {
+        this.executor = executor;
+        this.ranges = ImmutableList.copyOf(ranges);
+        this.ordered = ordered;
+        this.batchSize = batchSize;
+        this.prefetchBatches = prefetchBatches;
+        this.abandonedTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(abandonedTimeoutMillis);
+        this.sharedQueue = ordered ? null : new ArrayBlockingQueue<>(concurrency * prefetchBatches + 1);
+        for (int i = 0; i < concurrency && i < ranges.size(); i++) {
+            startNextRange();
+        }
+    }
+
+    public static <T> ParallelRangeIterator<T> ordered(
+            ExecutorService executor,
+            List<? extends Iterable<T>> ranges,
+            int concurrency,
+            int batchSize,
+            int prefetchBatches) {
+        return create(executor, ranges, true, concurrency, batchSize, prefetchBatches,
+                DEFAULT_ABANDONED_TIMEOUT_MILLIS);
+    }
+
+    public static <T> ParallelRangeIterator<T> unordered(
+            ExecutorService executor,
+            List<? extends Iterable<T>> ranges,
+            int concurrency,
+            int batchSize,
+            int prefetchBatches) {
+        return create(executor, ranges, false, concurrency, batchSize, prefetchBatches,
+                DEFAULT_ABANDONED_TIMEOUT_MILLIS);
+    }
+
+    @VisibleForTesting
+    static <T> ParallelRangeIterator<T> create(
+            ExecutorService executor,
+            List<? extends Iterable<T>> ranges,
+            boolean ordered,
+            int concurrency,
+            int batchSize,
+            int prefetchBatches,
+            long abandonedTimeoutMillis) {
+        Preconditions.checkArgument(concurrency > 0, "concurrency must be positive");
+        Preconditions.checkArgument(batchSize > 0, "batchSize must be positive");
+        Preconditions.checkArgument(prefetchBatches > 0, "prefetchBatches must be positive");
+        Preconditions.checkArgument(abandonedTimeoutMillis > 0, "abandonedTimeoutMillis must be positive");
+        return new ParallelRangeIterator<>(
+                executor, ranges, ordered, concurrency, batchSize, prefetchBatches, abandonedTimeoutMillis);
+    }
+
+    @Override
+    protected T computeNext() {
+        while (!currentBatch.hasNext()) {
+            if (finishedRanges == ranges.size()) {
+                return endOfData();
+            }
+            Batch<T> batch = nextBatch();
+            if (batch.failure != null) {
+                close();
+                throw Throwables.rewrapAndThrowUncheckedException(batch.failure);
+            }
+            if (batch.isLast) {
+                finishedRanges++;
+                if (startedRanges < ranges.size()) {
+                    startNextRange();
+                }
+            }
+            currentBatch = batch.elements.iterator();
+        }
+        return currentBatch.next();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // Background reads notice that the iterator is closed after the page they are reading. Interrupting them
+        // would abort their Thrift calls and could leave their connections unusable.
+        for (Future<?> future : futures) {
+            future.cancel(false);
+        }
+        for (Source<T> source : sources) {
+            source.clear();
+        }
+        if (sharedQueue != null) {
+            sharedQueue.clear();
+        }
+    }
+
+    private Batch<T> nextBatch() {
+        lastRequestNanos = System.nanoTime();
+        if (ordered) {
+            // ranges finish in order when the iterator is ordered, so the first unfinished range is next
+            Batch<T> batch = sources.peekFirst().nextBatch();
+            if (batch.isLast) {
+                sources.removeFirst();
+            }
+            return batch;
+        }
+        if (runningBackgroundRanges > 0) {
+            Batch<T> batch = take(sharedQueue);
+            if (batch.isLast) {
+                runningBackgroundRanges--;
+            }
+            return batch;
+        }
+        Batch<T> batch = sources.peekFirst().nextBatch();
+        if (batch.isLast) {
+            sources.removeFirst();
+        }
+        return batch;
+    }
+
+    private void startNextRange() {
+        Iterable<T> range = ranges.get(startedRanges++);
+        BlockingQueue<Batch<T>> queue = ordered ? new ArrayBlockingQueue<>(prefetchBatches) : sharedQueue;
+        Future<?> future;
+        try {
+            future = executor.submit(() -> readRange(range, queue));
+        } catch (RejectedExecutionException e) {
+            sources.addLast(new CallerThreadSource(range));
+            return;
+        }
+        futures.add(future);
+        if (ordered) {
+            sources.addLast(new BackgroundSource(queue));
+        } else {
+            runningBackgroundRanges++;
+        }
+    }
+
+    private void readRange(Iterable<T> range, BlockingQueue<Batch<T>> queue) {
+        try {
+            List<T> elements = Lists.newArrayListWithCapacity(batchSize);
+            for (T element : range) {
+                if (closed) {
+                    return;
+                }
+                elements.add(element);
+                if (elements.size() == batchSize) {
+                    if (!offer(queue, new Batch<>(elements, false, null))) {
+                        return;
+                    }
+                    elements = Lists.newArrayListWithCapacity(batchSize);
+                }
+            }
+            offer(queue, new Batch<>(elements, true, null));
+        } catch (InterruptedException e) {
+            // the executor is being shut down
+            Thread.currentThread().interrupt();
+        } catch (Throwable t) {
+            if (!closed) {
+                offerFailure(queue, t);
+            }
+        }
+    }
+
+    /**
+     * Hands a batch to the caller, waiting while the queue is full. Returns false if the iterator has been closed or
+     * abandoned in the meantime.
+     */
+    private boolean offer(BlockingQueue<Batch<T>> queue, Batch<T> batch) throws InterruptedException {
+        while (!closed && !abandoned) {
+            if (queue.offer(batch, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+            if (System.nanoTime() - lastRequestNanos > abandonedTimeoutNanos) {
+                log.warn("Stopped reading a range scan ahead of its caller, since it has not asked for rows for {} ms."
+                        + " Range scans should be closed once they are no longer needed.",
+                        SafeArg.of("abandonedTimeoutMillis", TimeUnit.NANOSECONDS.toMillis(abandonedTimeoutNanos)));
+                abandoned = true;
+            }
+        }
+        return false;
+    }
+
+    private void offerFailure(BlockingQueue<Batch<T>> queue, Throwable failure) {
+        try {
+            offer(queue, new Batch<>(ImmutableList.of(), true, failure));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Batch<T> take(BlockingQueue<Batch<T>> queue) {
+        try {
+            while (true) {
+                // the caller is still waiting for this range, however long it takes to read
+                lastRequestNanos = System.nanoTime();
+                Batch<T> batch = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (batch != null) {
+                    return batch;
+                }
+                if (abandoned) {
+                    close();
+                    throw new IllegalStateException("The range scan was not read for too long, and its background"
+                            + " reads have stopped");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        }
+    }
+
+    private interface Source<T> {
+        Batch<T> nextBatch();
+
+        void clear();
+    }
+
+    private final class BackgroundSource implements Source<T> {
+        private final BlockingQueue<Batch<T>> queue;
+
+        BackgroundSource(BlockingQueue<Batch<T>> queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public Batch<T> nextBatch() {
+            return take(queue);
+        }
+
+        @Override
+        public void clear() {
+            queue.clear();
+        }
+    }
+
+    private final class CallerThreadSource implements Source<T> {
+        private final Iterable<T> range;
+        private Iterator<T> iterator;
+
+        CallerThreadSource(Iterable<T> range) {
+            this.range = range;
+        }
+
+        @Override
+        public Batch<T> nextBatch() {
+            try {
+                if (iterator == null) {
+                    iterator = range.iterator();
+                }
+                List<T> elements = Lists.newArrayListWithCapacity(batchSize);
+                while (elements.size() < batchSize && iterator.hasNext()) {
+                    elements.add(iterator.next());
+                }
+                return new Batch<>(elements, !iterator.hasNext(), null);
+            } catch (Throwable t) {
+                return new Batch<>(ImmutableList.of(), true, t);
+            }
+        }
+
+        @Override
+        public void clear() {
+            iterator = null;
+        }
+    }
+
+    private static final class Batch<T> {
+        private final List<T> elements;
+        private final boolean isLast;
+        private final Throwable failure;
+
+        Batch(List<T> elements, boolean isLast, Throwable failure) {
+            this.elements = elements;
+            this.isLast = isLast;
+            this.failure = failure;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cassandra.thrift.TimedOutException;
+import org.apache.cassandra.thrift.UnavailableException;
+import org.apache.thrift.transport.TTransportException;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+
+public class AdaptiveBatchSizerTest {
+    private static final InetSocketAddress HOST = new InetSocketAddress("localhost", 9160);
+    private static final InetSocketAddress OTHER_HOST = new InetSocketAddress("localhost", 9161);
+    private static final TableReference TABLE = TableReference.createFromFullyQualifiedName("test.table");
+    private static final TableReference OTHER_TABLE = TableReference.createFromFullyQualifiedName("test.other");
+    private static final Set<TableReference> TABLES = ImmutableSet.of(TABLE);
+    private static final int CELLS = 100;
+    private static final long BYTES = 10_000;
+    private static final long TARGET_LATENCY_MILLIS = 100;
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(1000);
+
+    private final AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(true, TARGET_LATENCY_MILLIS);
+
+    @Test
+    public void usesTheConfiguredLimitsWhenDisabled() throws Exception {
+        AdaptiveBatchSizer disabled = new AdaptiveBatchSizer(false, TARGET_LATENCY_MILLIS);
+        assertThatThrownBy(() -> disabled.runBatch(HOST, TABLES, limits(disabled), CELLS, BYTES, () -> {
+            throw new TimedOutException();
+        })).isInstanceOf(TimedOutException.class);
+
+        assertLimits(disabled, CELLS, BYTES);
+    }
+
+    @Test
+    public void growsTheCellLimitOfFullBatchesThatAreFast() {
+        for (int i = 0; i < 100; i++) {
+            AdaptiveBatchSizer.BatchLimits limits = limits(sizer);
+            sizer.recordBatch(HOST, TABLES, limits, limits.getCells(), 0L, FAST);
+        }
+
+        assertLimits(sizer, 4 * CELLS, BYTES);
+    }
+
+    @Test
+    public void doesNotGrowTheLimitsOfBatchesThatAreMostlyEmpty() {
+        sizer.recordBatch(HOST, TABLES, limits(sizer), 1, 1L, FAST);
+
+        assertLimits(sizer, CELLS, BYTES);
+    }
+
+    @Test
+    public void shrinksTheLimitsOfSlowBatches() {
+        sizer.recordBatch(HOST, TABLES, limits(sizer), CELLS, BYTES, SLOW);
+
+        assertLimits(sizer, 75, 7_500);
+    }
+
+    @Test
+    public void halvesTheLimitsOnTimeouts() {
+        assertThatThrownBy(() -> sizer.runBatch(HOST, TABLES, limits(sizer), CELLS, BYTES, () -> {
+            throw new TimedOutException();
+        })).isInstanceOf(TimedOutException.class);
+
+        assertLimits(sizer, 50, 5_000);
+    }
+
+    @Test
+    public void doesNotShrinkTheLimitsOnOtherFailures() {
+        assertThatThrownBy(() -> sizer.runBatch(HOST, TABLES, limits(sizer), CELLS, BYTES, () -> {
+            throw new UnavailableException();
+        })).isInstanceOf(UnavailableException.class);
+
+        assertLimits(sizer, CELLS, BYTES);
+    }
+
+    @Test
+    public void neverShrinksTheLimitsBelowOneCell() {
+        for (int i = 0; i < 100; i++) {
+            sizer.recordTimeout(HOST, TABLES);
+        }
+
+        assertThat(limits(sizer).getCells()).isEqualTo(1);
+        assertThat(limits(sizer).getBytes()).isPositive();
+    }
+
+    @Test
+    public void limitsBatchesToSeveralTablesByTheSmallestOfTheirLimits() {
+        sizer.recordTimeout(HOST, ImmutableSet.of(OTHER_TABLE));
+
+        AdaptiveBatchSizer.BatchLimits limits =
+                sizer.getLimits(HOST, ImmutableSet.of(TABLE, OTHER_TABLE), CELLS, BYTES);
+        assertThat(limits.getCells()).isEqualTo(50);
+        assertLimits(sizer, CELLS, BYTES);
+    }
+
+    @Test
+    public void keepsTheLimitsOfEachHostSeparately() {
+        sizer.recordTimeout(OTHER_HOST, TABLES);
+
+        assertLimits(sizer, CELLS, BYTES);
+    }
+
+    @Test
+    public void recognisesClientSideTimeouts() {
+        assertThat(AdaptiveBatchSizer.isTimeout(new TTransportException(new SocketTimeoutException()))).isTrue();
+        assertThat(AdaptiveBatchSizer.isTimeout(new TTransportException("connection reset"))).isFalse();
+    }
+
+    private static AdaptiveBatchSizer.BatchLimits limits(AdaptiveBatchSizer batchSizer) {
+        return batchSizer.getLimits(HOST, TABLES, CELLS, BYTES);
+    }
+
+    private static void assertLimits(AdaptiveBatchSizer batchSizer, int cells, long bytes) {
+        AdaptiveBatchSizer.BatchLimits limits = limits(batchSizer);
+        assertThat(limits.getCells()).isEqualTo(cells);
+        assertThat(limits.getBytes()).isEqualTo(bytes);
+    }
+}
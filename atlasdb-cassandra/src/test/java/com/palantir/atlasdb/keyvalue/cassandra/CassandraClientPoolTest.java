@@ -43,9 +43,14 @@ import org.mockito.Mockito;
 
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableRangeMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Range;
 import com.palantir.atlasdb.cassandra.CassandraKeyValueServiceConfig;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.util.AtlasDbMetrics;
 import com.palantir.common.base.FunctionCheckedException;
 
@@ -60,6 +65,10 @@ public class CassandraClientPoolTest {
     private static final InetSocketAddress HOST_1 = new InetSocketAddress(HOSTNAME_1, DEFAULT_PORT);
     private static final InetSocketAddress HOST_2 = new InetSocketAddress(HOSTNAME_2, DEFAULT_PORT);
     private static final InetSocketAddress HOST_3 = new InetSocketAddress(HOSTNAME_3, DEFAULT_PORT);
+    private static final TableReference TABLE = TableReference.createFromFullyQualifiedName("test.table");
+    private static final List<byte[]> ROWS = ImmutableList.of(PtBytes.toBytes("row"));
+    private static final long SLOW_READ_MILLIS = 200;
+    private static final long HUNG_READ_MILLIS = 10_000;
     private MetricRegistry metricRegistry;
 
     @Before
@@ -253,6 +262,124 @@ public class CassandraClientPoolTest {
         verifyBlacklistMetric(1);
     }
 
+    @Test
+    public void latencyAwareHostSelectionAvoidsSlowHosts() {
+        CassandraKeyValueServiceConfig config = configWithServers(ImmutableSet.of());
+        when(config.latencyAwareHostSelection()).thenReturn(true);
+        CassandraClientPoolImpl cassandraClientPool = clientPoolWith(
+                config, ImmutableSet.of(HOST_1, HOST_2), Optional.empty());
+        setResultForHost(cassandraClientPool.getCurrentPools().get(HOST_1), null, SLOW_READ_MILLIS);
+        runNoopOnHost(HOST_1, cassandraClientPool);
+
+        for (int i = 0; i < 50; i++) {
+            assertThat(cassandraClientPool.getHostByLatencyScore(ImmutableSet.of(HOST_1, HOST_2)), equalTo(HOST_2));
+        }
+    }
+
+    @Test
+    public void hedgedReadReturnsTheFirstAnswer() {
+        CassandraClientPoolImpl cassandraClientPool = clientPoolWithHedgedReadsAfterWarmUp();
+        setResultForHost(cassandraClientPool.getCurrentPools().get(HOST_1), HOSTNAME_1, HUNG_READ_MILLIS);
+        setResultForHost(cassandraClientPool.getCurrentPools().get(HOST_2), HOSTNAME_2, 0);
+
+        assertThat(cassandraClientPool.runReadWithRetryOnHost(TABLE, HOST_1, ROWS, read()), equalTo(HOSTNAME_2));
+        assertThat(getMeterCount("hedgedReads"), equalTo(1L));
+        assertThat(getMeterCount("hedgedReadsWon"), equalTo(1L));
+        cassandraClientPool.shutdown();
+    }
+
+    @Test
+    public void hedgedReadWaitsForTheOriginalReadIfTheHedgeFails() {
+        CassandraClientPoolImpl cassandraClientPool = clientPoolWithHedgedReadsAfterWarmUp();
+        setResultForHost(cassandraClientPool.getCurrentPools().get(HOST_1), HOSTNAME_1, SLOW_READ_MILLIS);
+        setFailureModeForHost(cassandraClientPool.getCurrentPools().get(HOST_2),
+                new IllegalStateException("hedge failed"));
+
+        assertThat(cassandraClientPool.runReadWithRetryOnHost(TABLE, HOST_1, ROWS, read()), equalTo(HOSTNAME_1));
+        assertThat(getMeterCount("hedgedReads"), equalTo(1L));
+        assertThat(getMeterCount("hedgedReadsWon"), equalTo(0L));
+        cassandraClientPool.shutdown();
+    }
+
+    @Test
+    public void hedgesReadsOnlyToHostsThatOwnTheRows() {
+        CassandraClientPoolImpl cassandraClientPool = clientPoolWithHedgedReadsAfterWarmUp(
+                ImmutableSet.of(HOST_1, HOST_2, HOST_3), ImmutableList.of(HOST_1, HOST_3));
+        setResultForHost(cassandraClientPool.getCurrentPools().get(HOST_1), HOSTNAME_1, HUNG_READ_MILLIS);
+        setResultForHost(cassandraClientPool.getCurrentPools().get(HOST_2), HOSTNAME_2, 0);
+        setResultForHost(cassandraClientPool.getCurrentPools().get(HOST_3), HOSTNAME_3, 0);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(cassandraClientPool.runReadWithRetryOnHost(TABLE, HOST_1, ROWS, read()), equalTo(HOSTNAME_3));
+        }
+        verifyNumberOfAttemptsOnHost(HOST_2, cassandraClientPool, 0);
+        cassandraClientPool.shutdown();
+    }
+
+    @Test
+    public void doesNotHedgeReadsWhenNoOtherHostOwnsTheRows() {
+        CassandraClientPoolImpl cassandraClientPool = clientPoolWithHedgedReadsAfterWarmUp(
+                ImmutableSet.of(HOST_1, HOST_2), ImmutableList.of(HOST_1));
+        setResultForHost(cassandraClientPool.getCurrentPools().get(HOST_1), HOSTNAME_1, SLOW_READ_MILLIS);
+        setResultForHost(cassandraClientPool.getCurrentPools().get(HOST_2), HOSTNAME_2, 0);
+
+        assertThat(cassandraClientPool.runReadWithRetryOnHost(TABLE, HOST_1, ROWS, read()), equalTo(HOSTNAME_1));
+        assertThat(getMeterCount("hedgedReads"), equalTo(0L));
+        verifyNumberOfAttemptsOnHost(HOST_2, cassandraClientPool, 0);
+        cassandraClientPool.shutdown();
+    }
+
+    @Test
+    public void doesNotHedgeReadsBeforeTheTableLatenciesAreKnown() {
+        CassandraKeyValueServiceConfig config = configWithServers(ImmutableSet.of());
+        when(config.hedgedReads()).thenReturn(true);
+        when(config.hedgedReadPercentile()).thenReturn(0.5);
+        CassandraClientPoolImpl cassandraClientPool = clientPoolWith(
+                config, ImmutableSet.of(HOST_1, HOST_2), Optional.empty());
+        setResultForHost(cassandraClientPool.getCurrentPools().get(HOST_1), HOSTNAME_1, SLOW_READ_MILLIS);
+
+        assertThat(cassandraClientPool.runReadWithRetryOnHost(TABLE, HOST_1, ROWS, read()), equalTo(HOSTNAME_1));
+        assertThat(getMeterCount("hedgedReads"), equalTo(0L));
+        cassandraClientPool.shutdown();
+    }
+
+    @Test
+    public void doesNotHedgeMoreReadsThanTheBudgetAllows() {
+        CassandraClientPoolImpl cassandraClientPool = clientPoolWithHedgedReadsAfterWarmUp();
+        setResultForHost(cassandraClientPool.getCurrentPools().get(HOST_1), HOSTNAME_1, SLOW_READ_MILLIS);
+        setResultForHost(cassandraClientPool.getCurrentPools().get(HOST_2), HOSTNAME_2, 0);
+
+        for (int i = 0; i < 10; i++) {
+            cassandraClientPool.runReadWithRetryOnHost(TABLE, HOST_1, ROWS, read());
+        }
+        // 5% of the 110 reads so far
+        assertThat(getMeterCount("hedgedReads"), equalTo(5L));
+        cassandraClientPool.shutdown();
+    }
+
+    private CassandraClientPoolImpl clientPoolWithHedgedReadsAfterWarmUp() {
+        return clientPoolWithHedgedReadsAfterWarmUp(ImmutableSet.of(HOST_1, HOST_2), ImmutableList.of(HOST_1, HOST_2));
+    }
+
+    private CassandraClientPoolImpl clientPoolWithHedgedReadsAfterWarmUp(
+            ImmutableSet<InetSocketAddress> serversInPool,
+            List<InetSocketAddress> rowOwners) {
+        CassandraKeyValueServiceConfig config = configWithServers(ImmutableSet.of());
+        when(config.hedgedReads()).thenReturn(true);
+        when(config.hedgedReadPercentile()).thenReturn(0.5);
+        when(config.hedgedReadMinimumDelayMillis()).thenReturn(0);
+        CassandraClientPoolImpl cassandraClientPool = clientPoolWith(config, serversInPool, Optional.empty());
+        cassandraClientPool.tokenMap = ImmutableRangeMap.of(Range.all(), rowOwners);
+        for (int i = 0; i < CassandraClientPoolImpl.MIN_READS_BEFORE_HEDGING; i++) {
+            cassandraClientPool.runReadWithRetryOnHost(TABLE, HOST_1, ROWS, read());
+        }
+        return cassandraClientPool;
+    }
+
+    private long getMeterCount(String meterName) {
+        return metricRegistry.meter(MetricRegistry.name(CassandraClientPool.class, meterName)).getCount();
+    }
+
     private void verifyNumberOfAttemptsOnHost(InetSocketAddress host,
             CassandraClientPool cassandraClientPool,
             int numAttempts) {
@@ -312,11 +439,24 @@ public class CassandraClientPoolTest {
             ImmutableSet<InetSocketAddress> servers,
             ImmutableSet<InetSocketAddress> serversInPool,
             Optional<Exception> failureMode) {
+        return clientPoolWith(configWithServers(servers), serversInPool, failureMode);
+    }
+
+    private CassandraKeyValueServiceConfig configWithServers(ImmutableSet<InetSocketAddress> servers) {
         CassandraKeyValueServiceConfig config = mock(CassandraKeyValueServiceConfig.class);
         when(config.poolRefreshIntervalSeconds()).thenReturn(POOL_REFRESH_INTERVAL_SECONDS);
         when(config.timeBetweenConnectionEvictionRunsSeconds()).thenReturn(TIME_BETWEEN_EVICTION_RUNS_SECONDS);
         when(config.servers()).thenReturn(servers);
+        when(config.hedgedReadMaxProportion()).thenReturn(0.05);
+        when(config.hedgedReadMaxThreads()).thenReturn(16);
+        return config;
+    }
 
+    @SuppressWarnings("OptionalUsedAsFieldOrParameterType") // Unpacking it seems less readable
+    private CassandraClientPoolImpl clientPoolWith(
+            CassandraKeyValueServiceConfig config,
+            ImmutableSet<InetSocketAddress> serversInPool,
+            Optional<Exception> failureMode) {
         CassandraClientPoolImpl cassandraClientPool =
                 CassandraClientPoolImpl.createImplForTest(config, CassandraClientPoolImpl.StartupChecks.DO_NOT_RUN);
 
@@ -345,6 +485,19 @@ public class CassandraClientPoolTest {
         }
     }
 
+    private void setResultForHost(CassandraClientPoolingContainer poolingContainer, Object result, long delayMillis) {
+        try {
+            when(poolingContainer.runWithPooledResource(
+                    Mockito.<FunctionCheckedException<Cassandra.Client, Object, Exception>>any()))
+                    .thenAnswer(invocation -> {
+                        Thread.sleep(delayMillis);
+                        return result;
+                    });
+        } catch (Exception e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
     private void runNoopOnHost(InetSocketAddress host, CassandraClientPool pool) {
         pool.runOnHost(host, noOp());
     }
@@ -371,6 +524,20 @@ public class CassandraClientPoolTest {
         }
     }
 
+    private FunctionCheckedException<Cassandra.Client, String, RuntimeException> read() {
+        return new FunctionCheckedException<Cassandra.Client, String, RuntimeException>() {
+            @Override
+            public String apply(Cassandra.Client input) throws RuntimeException {
+                return null;
+            }
+
+            @Override
+            public String toString() {
+                return "read";
+            }
+        };
+    }
+
     private FunctionCheckedException<Cassandra.Client, Void, RuntimeException> noOp() {
         return new FunctionCheckedException<Cassandra.Client, Void, RuntimeException>() {
             @Override
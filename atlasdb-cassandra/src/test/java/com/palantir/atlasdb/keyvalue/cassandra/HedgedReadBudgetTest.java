@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class HedgedReadBudgetTest {
+    private final HedgedReadBudget budget = new HedgedReadBudget(0.1);
+
+    @Test
+    public void hedgesAtMostTheGivenProportionOfReads() {
+        int hedges = 0;
+        for (int i = 0; i < 1000; i++) {
+            budget.recordRead();
+            if (budget.tryAcquireHedge()) {
+                hedges++;
+            }
+        }
+
+        assertThat(hedges).isEqualTo(100);
+    }
+
+    @Test
+    public void doesNotHedgeBeforeAnyReads() {
+        assertThat(budget.tryAcquireHedge()).isFalse();
+    }
+
+    @Test
+    public void savesUpALimitedNumberOfHedges() {
+        for (int i = 0; i < 1000; i++) {
+            budget.recordRead();
+        }
+
+        for (int i = 0; i < HedgedReadBudget.MAX_SAVED_HEDGES; i++) {
+            assertThat(budget.tryAcquireHedge()).isTrue();
+        }
+        assertThat(budget.tryAcquireHedge()).isFalse();
+    }
+
+    @Test
+    public void releasedHedgesCanBeAcquiredAgain() {
+        for (int i = 0; i < 10; i++) {
+            budget.recordRead();
+        }
+        assertThat(budget.tryAcquireHedge()).isTrue();
+
+        budget.releaseHedge();
+
+        assertThat(budget.tryAcquireHedge()).isTrue();
+        assertThat(budget.tryAcquireHedge()).isFalse();
+    }
+}
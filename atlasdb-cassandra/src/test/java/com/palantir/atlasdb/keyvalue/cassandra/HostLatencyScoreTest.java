@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class HostLatencyScoreTest {
+    private static final long FAST_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final AtomicLong clock = new AtomicLong();
+    private final HostLatencyScore fastHost = new HostLatencyScore(clock::get);
+    private final HostLatencyScore slowHost = new HostLatencyScore(clock::get);
+
+    @Test
+    public void slowerHostsScoreWorse() {
+        runRequest(fastHost, FAST_NANOS);
+        runRequest(slowHost, SLOW_NANOS);
+
+        assertThat(slowHost.getScore()).isGreaterThan(fastHost.getScore());
+    }
+
+    @Test
+    public void hostsWithMoreOutstandingRequestsScoreWorse() {
+        runRequest(fastHost, FAST_NANOS);
+        runRequest(slowHost, FAST_NANOS);
+        slowHost.requestStarted();
+
+        assertThat(slowHost.getOutstandingRequests()).isEqualTo(1);
+        assertThat(slowHost.getScore()).isGreaterThan(fastHost.getScore());
+    }
+
+    @Test
+    public void aSingleSlowRequestIsBlendedIntoTheAverage() {
+        for (int i = 0; i < 10; i++) {
+            runRequest(slowHost, FAST_NANOS);
+        }
+        runRequest(slowHost, SLOW_NANOS);
+
+        assertThat(slowHost.getScore())
+                .isGreaterThan(HostLatencyScore.SLOWER_SAMPLE_WEIGHT * SLOW_NANOS * 0.9)
+                .isLessThan(SLOW_NANOS * 0.9);
+    }
+
+    @Test
+    public void repeatedSlowRequestsRaiseTheScoreToTheirLatency() {
+        for (int i = 0; i < 10; i++) {
+            runRequest(slowHost, FAST_NANOS);
+        }
+        for (int i = 0; i < 10; i++) {
+            runRequest(slowHost, SLOW_NANOS);
+        }
+
+        assertThat(slowHost.getScore()).isGreaterThan(SLOW_NANOS * 0.9);
+    }
+
+    @Test
+    public void aSingleFastRequestDoesNotResetTheScore() {
+        runRequest(slowHost, SLOW_NANOS);
+        runRequest(slowHost, FAST_NANOS);
+
+        assertThat(slowHost.getScore()).isGreaterThan(SLOW_NANOS * 0.8);
+    }
+
+    @Test
+    public void scoreOfAnIdleHostDecays() {
+        runRequest(slowHost, SLOW_NANOS);
+        double scoreAfterRequest = slowHost.getScore();
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+        assertThat(slowHost.getScore()).isLessThan(scoreAfterRequest / 10);
+    }
+
+    private void runRequest(HostLatencyScore score, long latencyNanos) {
+        score.requestStarted();
+        clock.addAndGet(latencyNanos);
+        score.requestFinished(latencyNanos);
+    }
+}
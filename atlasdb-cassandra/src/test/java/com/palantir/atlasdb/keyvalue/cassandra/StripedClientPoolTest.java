@@ -0,0 +1,249 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.pool2.BasePooledObjectFactory;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.palantir.atlasdb.keyvalue.cassandra.StripedClientPool.PooledClient;
+
+public class StripedClientPoolTest {
+    private static final long IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final AtomicLong clock = new AtomicLong();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void reusesReturnedClients() throws Exception {
+        StripedClientPool<TestClient> pool = createPool(0, 2);
+
+        PooledClient<TestClient> client = pool.borrow();
+        pool.returnClient(client);
+
+        assertThat(pool.borrow().get()).isSameAs(client.get());
+        assertThat(pool.getCreatedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void failsFastWhenAllClientsAreBorrowed() throws Exception {
+        StripedClientPool<TestClient> pool = createPool(0, 2);
+        PooledClient<TestClient> client = pool.borrow();
+        pool.borrow();
+
+        assertThatThrownBy(pool::borrow).isInstanceOf(NoSuchElementException.class);
+
+        pool.returnClient(client);
+        assertThat(pool.borrow().get()).isSameAs(client.get());
+    }
+
+    @Test
+    public void invalidatedClientsMakeRoomForNewOnes() throws Exception {
+        StripedClientPool<TestClient> pool = createPool(0, 1);
+        PooledClient<TestClient> client = pool.borrow();
+
+        pool.invalidate(client);
+
+        assertThat(client.get().destroyed).isTrue();
+        assertThat(pool.borrow().get()).isNotSameAs(client.get());
+    }
+
+    @Test
+    public void replacesClientsWhoseConnectionClosedWhileIdle() throws Exception {
+        StripedClientPool<TestClient> pool = createPool(0, 2);
+        PooledClient<TestClient> client = pool.borrow();
+        pool.returnClient(client);
+
+        client.get().open = false;
+
+        assertThat(pool.borrow().get()).isNotSameAs(client.get());
+        assertThat(client.get().destroyed).isTrue();
+        assertThat(pool.getDestroyedByBorrowValidationCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void maintenancePreWarmsTheMinimumNumberOfClients() {
+        StripedClientPool<TestClient> pool = createPool(3, 5);
+
+        pool.runMaintenance();
+
+        assertThat(pool.getNumIdle()).isEqualTo(3);
+        assertThat(pool.getCreatedCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void maintenanceEvictsClientsIdleForTooLongDownToTheMinimum() throws Exception {
+        StripedClientPool<TestClient> pool = createPool(1, 4);
+        List<PooledClient<TestClient>> clients = Lists.newArrayList(pool.borrow(), pool.borrow(), pool.borrow());
+        clients.forEach(pool::returnClient);
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(IDLE_TIMEOUT_MILLIS) + 1);
+        pool.runMaintenance();
+
+        assertThat(pool.getNumIdle()).isEqualTo(1);
+        assertThat(pool.getDestroyedByMaintenanceCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void maintenanceKeepsRecentlyUsedClients() throws Exception {
+        StripedClientPool<TestClient> pool = createPool(0, 4);
+        pool.returnClient(pool.borrow());
+
+        pool.runMaintenance();
+
+        assertThat(pool.getNumIdle()).isEqualTo(1);
+        assertThat(pool.getDestroyedByMaintenanceCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void closeDestroysIdleClientsAndClientsReturnedLater() throws Exception {
+        StripedClientPool<TestClient> pool = createPool(0, 2);
+        PooledClient<TestClient> idleClient = pool.borrow();
+        PooledClient<TestClient> borrowedClient = pool.borrow();
+        pool.returnClient(idleClient);
+
+        pool.close();
+        assertThat(idleClient.get().destroyed).isTrue();
+
+        pool.returnClient(borrowedClient);
+        assertThat(borrowedClient.get().destroyed).isTrue();
+        assertThatThrownBy(pool::borrow).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void neverLendsAClientTwiceOrExceedsTheMaximumUnderContention() throws Exception {
+        int maxClients = 4;
+        StripedClientPool<TestClient> pool = createPool(0, maxClients);
+        AtomicBoolean failed = new AtomicBoolean(false);
+
+        List<Future<?>> futures = Lists.newArrayList();
+        for (int thread = 0; thread < 8; thread++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    PooledClient<TestClient> client;
+                    try {
+                        client = pool.borrow();
+                    } catch (NoSuchElementException e) {
+                        continue;
+                    } catch (Exception e) {
+                        failed.set(true);
+                        return;
+                    }
+                    if (!client.get().inUse.compareAndSet(false, true)) {
+                        failed.set(true);
+                    }
+                    client.get().inUse.set(false);
+                    pool.returnClient(client);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        assertThat(failed.get()).isFalse();
+        assertThat(pool.getCreatedCount()).isLessThanOrEqualTo(maxClients);
+        assertThat(pool.getNumIdle()).isEqualTo((int) pool.getCreatedCount());
+        assertThat(pool.getNumActive()).isEqualTo(0);
+    }
+
+    @Test
+    public void slowConnectsToOneHostDoNotHoldUpPreWarmingOtherPools() throws Exception {
+        CountDownLatch connectsAllowed = new CountDownLatch(1);
+        StripedClientPool<TestClient> slowPool = StripedClientPool.create(
+                new TestClientFactory(connectsAllowed), 1, 1, IDLE_TIMEOUT_MILLIS, 1.0, 1);
+        StripedClientPool<TestClient> pool = StripedClientPool.create(
+                new TestClientFactory(), 2, 2, IDLE_TIMEOUT_MILLIS, 1.0, 1);
+        try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (pool.getNumIdle() < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertThat(pool.getNumIdle()).isEqualTo(2);
+            assertThat(slowPool.getNumIdle()).isEqualTo(0);
+        } finally {
+            connectsAllowed.countDown();
+            slowPool.close();
+            pool.close();
+        }
+    }
+
+    private StripedClientPool<TestClient> createPool(int minClients, int maxClients) {
+        return new StripedClientPool<>(new TestClientFactory(), minClients, maxClients, IDLE_TIMEOUT_MILLIS, 1.0,
+                clock::get);
+    }
+
+    private static final class TestClient {
+        private final AtomicBoolean inUse = new AtomicBoolean(false);
+        private volatile boolean open = true;
+        private volatile boolean destroyed = false;
+    }
+
+    private static final class TestClientFactory extends BasePooledObjectFactory<TestClient> {
+        private final CountDownLatch connectsAllowed;
+
+        TestClientFactory() {
+            this(new CountDownLatch(0));
+        }
+
+        TestClientFactory(CountDownLatch connectsAllowed) {
+            this.connectsAllowed = connectsAllowed;
+        }
+
+        @Override
+        public TestClient create() throws InterruptedException {
+            connectsAllowed.await();
+            return new TestClient();
+        }
+
+        @Override
+        public PooledObject<TestClient> wrap(TestClient client) {
+            return new DefaultPooledObject<>(client);
+        }
+
+        @Override
+        public boolean validateObject(PooledObject<TestClient> client) {
+            return client.getObject().open;
+        }
+
+        @Override
+        public void destroyObject(PooledObject<TestClient> client) {
+            client.getObject().destroyed = true;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Range;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.cassandra.CassandraClientPoolImpl.LightweightOppToken;
+
+public class TokenRangeSplitterTest {
+    private static final byte[] TOKEN_B = PtBytes.toBytes("b");
+    private static final byte[] TOKEN_D = PtBytes.toBytes("d");
+    private static final byte[] AFTER_B = PtBytes.toBytes("b\0");
+    private static final byte[] AFTER_D = PtBytes.toBytes("d\0");
+
+    private static final Set<Range<LightweightOppToken>> RING = ImmutableSet.of(
+            Range.atMost(token(TOKEN_B)),
+            Range.openClosed(token(TOKEN_B), token(TOKEN_D)),
+            Range.greaterThan(token(TOKEN_D)));
+
+    @Test
+    public void splitsTheFullRangeAtEveryTokenRange() {
+        List<RangeRequest> parts = TokenRangeSplitter.split(RangeRequest.all(), RING);
+
+        assertThat(parts).hasSize(3);
+        assertRange(parts.get(0), PtBytes.EMPTY_BYTE_ARRAY, AFTER_B);
+        assertRange(parts.get(1), AFTER_B, AFTER_D);
+        assertRange(parts.get(2), AFTER_D, PtBytes.EMPTY_BYTE_ARRAY);
+    }
+
+    @Test
+    public void onlySplitsAtTokensWithinTheRange() {
+        RangeRequest range = RangeRequest.builder()
+                .startRowInclusive(PtBytes.toBytes("c"))
+                .endRowExclusive(PtBytes.toBytes("e"))
+                .batchHint(10)
+                .build();
+
+        List<RangeRequest> parts = TokenRangeSplitter.split(range, RING);
+
+        assertThat(parts).hasSize(2);
+        assertRange(parts.get(0), PtBytes.toBytes("c"), AFTER_D);
+        assertRange(parts.get(1), AFTER_D, PtBytes.toBytes("e"));
+        assertThat(parts.get(1).getBatchHint()).isEqualTo(10);
+    }
+
+    @Test
+    public void doesNotSplitWithoutTokenRanges() {
+        assertThat(TokenRangeSplitter.split(RangeRequest.all(), ImmutableSet.<Range<LightweightOppToken>>of()))
+                .containsExactly(RangeRequest.all());
+        assertThat(TokenRangeSplitter.split(RangeRequest.all(), ImmutableSet.of(Range.<LightweightOppToken>all())))
+                .containsExactly(RangeRequest.all());
+    }
+
+    private static void assertRange(RangeRequest range, byte[] startInclusive, byte[] endExclusive) {
+        assertThat(range.getStartInclusive()).isEqualTo(startInclusive);
+        assertThat(range.getEndExclusive()).isEqualTo(endExclusive);
+    }
+
+    private static LightweightOppToken token(byte[] bytes) {
+        return new LightweightOppToken(bytes);
+    }
+}
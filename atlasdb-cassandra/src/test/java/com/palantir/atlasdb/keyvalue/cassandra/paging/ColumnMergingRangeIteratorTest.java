@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra.paging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.ClosableIterators;
+
+public class ColumnMergingRangeIteratorTest {
+    private static final byte[] ROW_1 = PtBytes.toBytes("row1");
+    private static final byte[] ROW_2 = PtBytes.toBytes("row2");
+    private static final byte[] ROW_3 = PtBytes.toBytes("row3");
+    private static final byte[] COLUMN_A = PtBytes.toBytes("a");
+    private static final byte[] COLUMN_B = PtBytes.toBytes("b");
+
+    @Test
+    public void mergesTheColumnsOfEachRowInRowOrder() {
+        ClosableIterator<RowResult<String>> columnA = range(
+                RowResult.of(Cell.create(ROW_1, COLUMN_A), "1a"),
+                RowResult.of(Cell.create(ROW_3, COLUMN_A), "3a"));
+        ClosableIterator<RowResult<String>> columnB = range(
+                RowResult.of(Cell.create(ROW_1, COLUMN_B), "1b"),
+                RowResult.of(Cell.create(ROW_2, COLUMN_B), "2b"));
+
+        List<RowResult<String>> rows = Lists.newArrayList(
+                new ColumnMergingRangeIterator<>(ImmutableList.of(columnA, columnB)));
+
+        assertThat(rows).hasSize(3);
+        assertThat(rows.get(0).getRowName()).isEqualTo(ROW_1);
+        assertThat(rows.get(0).getColumns().values()).containsExactly("1a", "1b");
+        assertThat(rows.get(1).getRowName()).isEqualTo(ROW_2);
+        assertThat(rows.get(1).getColumns().values()).containsExactly("2b");
+        assertThat(rows.get(2).getRowName()).isEqualTo(ROW_3);
+        assertThat(rows.get(2).getColumns().values()).containsExactly("3a");
+    }
+
+    @SafeVarargs
+    private static ClosableIterator<RowResult<String>> range(RowResult<String>... rows) {
+        return ClosableIterators.wrap(ImmutableList.copyOf(rows).iterator());
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra.paging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
+public class ParallelRangeIteratorTest {
+    private static final List<List<Integer>> RANGES = ImmutableList.of(
+            ImmutableList.of(1, 2, 3, 4, 5),
+            ImmutableList.of(),
+            ImmutableList.of(6, 7),
+            ImmutableList.of(8, 9, 10));
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void orderedIteratorReturnsTheRangesInOrder() {
+        try (ParallelRangeIterator<Integer> iterator = ParallelRangeIterator.ordered(executor, RANGES, 2, 2, 1)) {
+            assertThat(Lists.newArrayList(iterator)).containsExactly(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+        }
+    }
+
+    @Test
+    public void unorderedIteratorReturnsEveryElement() {
+        try (ParallelRangeIterator<Integer> iterator = ParallelRangeIterator.unordered(executor, RANGES, 3, 2, 1)) {
+            assertThat(Lists.newArrayList(iterator)).containsExactlyInAnyOrder(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+        }
+    }
+
+    @Test
+    public void rethrowsFailuresOfAnyRange() {
+        Iterable<Integer> failingRange = () -> {
+            throw new IllegalStateException("failed");
+        };
+        List<Iterable<Integer>> ranges = ImmutableList.of(ImmutableList.of(1), failingRange);
+
+        try (ParallelRangeIterator<Integer> iterator = ParallelRangeIterator.ordered(executor, ranges, 2, 1, 1)) {
+            assertThat(iterator.next()).isEqualTo(1);
+            assertThatThrownBy(iterator::next).isInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    public void readsRangesOnTheCallerThreadWhenTheExecutorIsSaturated() throws InterruptedException {
+        ExecutorService singleThread = new ThreadPoolExecutor(
+                0, 1, 1, TimeUnit.MINUTES, new SynchronousQueue<>(), Executors.defaultThreadFactory());
+        try {
+            for (boolean ordered : new boolean[] {true, false}) {
+                try (ParallelRangeIterator<Integer> iterator = ParallelRangeIterator.create(
+                        singleThread, RANGES, ordered, 4, 2, 1, TimeUnit.MINUTES.toMillis(1))) {
+                    assertThat(Lists.newArrayList(iterator)).containsExactlyInAnyOrder(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+                }
+            }
+        } finally {
+            singleThread.shutdownNow();
+            singleThread.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    @Test
+    public void backgroundReadsStopWithoutBeingInterruptedWhenClosed() throws InterruptedException {
+        CountDownLatch finished = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean(false);
+        Iterable<Integer> range = () -> new Iterator<Integer>() {
+            @Override
+            public boolean hasNext() {
+                if (Thread.currentThread().isInterrupted()) {
+                    interrupted.set(true);
+                }
+                return true;
+            }
+
+            @Override
+            public Integer next() {
+                return 1;
+            }
+        };
+        executor.submit(() -> {
+            try (ParallelRangeIterator<Integer> iterator = ParallelRangeIterator.ordered(
+                    executor, ImmutableList.of(range), 1, 1, 1)) {
+                assertThat(iterator.next()).isEqualTo(1);
+            }
+            finished.countDown();
+        });
+
+        assertThat(finished.await(1, TimeUnit.MINUTES)).isTrue();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+        assertThat(interrupted.get()).isFalse();
+    }
+
+    @Test
+    public void backgroundReadsOfAnAbandonedIteratorStop() throws InterruptedException {
+        ParallelRangeIterator<Integer> iterator = ParallelRangeIterator.create(
+                executor, ImmutableList.of(Iterables.cycle(1)), true, 1, 1, 1, 100);
+        assertThat(iterator.next()).isEqualTo(1);
+
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+    }
+}
@@ -27,6 +27,7 @@ import com.palantir.atlasdb.cli.command.SweepCommand;
 import com.palantir.atlasdb.cli.command.timestamp.CleanTransactionRange;
 import com.palantir.atlasdb.cli.command.timestamp.FastForwardTimestamp;
 import com.palantir.atlasdb.cli.command.timestamp.FetchTimestamp;
+import com.palantir.atlasdb.cli.command.timestamp.InstallTransactionsCutover;
 
 import io.airlift.airline.Cli;
 import io.airlift.airline.Help;
@@ -52,7 +53,8 @@ public final class AtlasCli {
                 .withDefaultCommand(Help.class)
                 .withCommand(FetchTimestamp.class)
                 .withCommand(CleanTransactionRange.class)
-                .withCommand(FastForwardTimestamp.class);
+                .withCommand(FastForwardTimestamp.class)
+                .withCommand(InstallTransactionsCutover.class);
 
         return builder.build();
     }
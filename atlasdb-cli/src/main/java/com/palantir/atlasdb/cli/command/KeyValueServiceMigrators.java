@@ -15,6 +15,9 @@
  */
 package com.palantir.atlasdb.cli.command;
 
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.immutables.value.Value;
 import org.slf4j.LoggerFactory;
 
@@ -23,11 +26,14 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.RateLimiter;
 import com.palantir.atlasdb.cli.output.OutputPrinter;
 import com.palantir.atlasdb.keyvalue.api.Namespace;
 import com.palantir.atlasdb.schema.KeyValueServiceMigrator;
+import com.palantir.atlasdb.schema.MigrationThroughput;
 import com.palantir.atlasdb.schema.TaskProgress;
 import com.palantir.atlasdb.services.AtlasDbServices;
+import com.palantir.logsafe.SafeArg;
 import com.palantir.timestamp.TimestampManagementService;
 import com.palantir.timestamp.TimestampService;
 
@@ -52,6 +58,10 @@ public final class KeyValueServiceMigrators {
         toServices.getTransactionService().putUnlessExists(migrationStartTimestamp, migrationCommitTimestamp);
         toTimestampManagementService.fastForwardTimestamp(migrationCommitTimestamp + 1);
 
+        MigrationThroughput throughput = migratorSpec.maxBytesPerSecond()
+                .map(MigrationThroughput::limitedTo)
+                .orElseGet(MigrationThroughput::unlimited);
+
         return new KeyValueServiceMigrator(
                 CHECKPOINT_NAMESPACE,
                 fromServices.getTransactionManager(),
@@ -60,27 +70,14 @@ public final class KeyValueServiceMigrators {
                 toServices.getKeyValueService(),
                 Suppliers.ofInstance(migrationStartTimestamp),
                 migratorSpec.threads(),
+                migratorSpec.partitions(),
                 migratorSpec.batchSize(),
                 ImmutableMap.of(),
                 (String message, KeyValueServiceMigrator.KvsMigrationMessageLevel level) ->
                         printer.info(level.toString() + ": " + message),
-                new TaskProgress() {
-                    @Override
-                    public void beginTask(String message, int tasks) {
-                        printer.info(message);
-                    }
-
-                    @Override
-                    public void subTaskComplete() {
-                        //
-                    }
-
-                    @Override
-                    public void taskComplete() {
-                        //
-                    }
-                },
-                ImmutableSet.of());
+                new PrintingTaskProgress(throughput),
+                ImmutableSet.of(),
+                throughput);
     }
 
     @VisibleForTesting
@@ -111,10 +108,62 @@ public final class KeyValueServiceMigrators {
             return 100;
         }
 
+        @Value.Default
+        public int partitions() {
+            return KeyValueServiceMigrator.DEFAULT_PARTITIONS;
+        }
+
+        public abstract Optional<Long> maxBytesPerSecond();
+
         @Value.Check
         void check() {
             Preconditions.checkArgument(threads() > 0, "Threads used for migration should be positive.");
             Preconditions.checkArgument(batchSize() > 0, "Batch size used for migration should be positive.");
+            Preconditions.checkArgument(partitions() > 0, "Partitions used for migration should be positive.");
+            Preconditions.checkArgument(maxBytesPerSecond().map(rate -> rate > 0).orElse(true),
+                    "Maximum bytes per second used for migration should be positive.");
+        }
+    }
+
+    /**
+     * Prints how many of the ranges of the tables being migrated have been copied, and how fast, at most once
+     * every {@link #SECONDS_BETWEEN_REPORTS} seconds. Tables are migrated concurrently, so this reports on all of
+     * them together.
+     */
+    private static final class PrintingTaskProgress implements TaskProgress {
+        private static final double SECONDS_BETWEEN_REPORTS = 10.0;
+
+        private final MigrationThroughput throughput;
+        private final RateLimiter reportRateLimiter = RateLimiter.create(1.0 / SECONDS_BETWEEN_REPORTS);
+        private final AtomicInteger totalRanges = new AtomicInteger();
+        private final AtomicInteger completedRanges = new AtomicInteger();
+
+        PrintingTaskProgress(MigrationThroughput throughput) {
+            this.throughput = throughput;
+        }
+
+        @Override
+        public void beginTask(String message, int tasks) {
+            totalRanges.addAndGet(tasks);
+            printer.info(message);
+        }
+
+        @Override
+        public void subTaskComplete() {
+            int completed = completedRanges.incrementAndGet();
+            if (reportRateLimiter.tryAcquire()) {
+                printer.info("Copied {} of {} ranges: {} cells, {} bytes, at {} bytes per second.",
+                        SafeArg.of("completedRanges", completed),
+                        SafeArg.of("totalRanges", totalRanges.get()),
+                        SafeArg.of("cellsWritten", throughput.getCellsWritten()),
+                        SafeArg.of("bytesWritten", throughput.getBytesWritten()),
+                        SafeArg.of("bytesPerSecond", Math.round(throughput.getBytesPerSecond())));
+            }
+        }
+
+        @Override
+        public void taskComplete() {
+            //
         }
     }
 }
@@ -17,6 +17,7 @@ package com.palantir.atlasdb.cli.command;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Optional;
 import java.util.concurrent.Callable;
 
 import org.slf4j.LoggerFactory;
@@ -27,6 +28,7 @@ import com.palantir.atlasdb.cli.output.OutputPrinter;
 import com.palantir.atlasdb.config.AtlasDbConfig;
 import com.palantir.atlasdb.config.AtlasDbConfigs;
 import com.palantir.atlasdb.config.AtlasDbRuntimeConfig;
+import com.palantir.atlasdb.schema.HashTreeKeyValueServiceValidator;
 import com.palantir.atlasdb.schema.KeyValueServiceMigrator;
 import com.palantir.atlasdb.schema.KeyValueServiceValidator;
 import com.palantir.atlasdb.services.AtlasDbServices;
@@ -74,6 +76,20 @@ public class KvsMigrationCommand implements Callable<Integer> {
             arity = 1)
     private int batchSize = 100;
 
+    @Option(name = {"-p", "--partitions"},
+            title = "PARTITIONS",
+            description = "minimum number of ranges to split each table into, which are copied concurrently",
+            required = false,
+            arity = 1)
+    private int partitions = KeyValueServiceMigrator.DEFAULT_PARTITIONS;
+
+    @Option(name = {"-r", "--maxBytesPerSecond"},
+            title = "MAX BYTES PER SECOND",
+            description = "maximum rate at which to write to the KVS you're migrating to; unlimited if not set",
+            required = false,
+            arity = 1)
+    private Long maxBytesPerSecond;
+
     @Option(name = {"-s", "--setup"},
             description = "Setup migration by dropping and creating tables.")
     private boolean setup = false;
@@ -86,6 +102,10 @@ public class KvsMigrationCommand implements Callable<Integer> {
             description = "Validate migration.")
     private boolean validate = false;
 
+    @Option(name = {"--compareRows"},
+            description = "Validate by comparing every row, rather than hash trees of ranges of rows.")
+    private boolean compareRows = false;
+
     @Option(name = {"--offline"},
             title = "OFFLINE",
             type = OptionType.GLOBAL,
@@ -131,18 +151,38 @@ public class KvsMigrationCommand implements Callable<Integer> {
             migrator.cleanup();
         }
         if (validate) {
+            validate(fromServices, toServices);
+        }
+        return 0;
+    }
+
+    private void validate(AtlasDbServices fromServices, AtlasDbServices toServices) {
+        KeyValueServiceMigrator.KvsMigrationMessageProcessor messageProcessor =
+                (String message, KeyValueServiceMigrator.KvsMigrationMessageLevel level) ->
+                        printer.info(level.toString() + ": " + message);
+        if (compareRows) {
             KeyValueServiceValidator validator = new KeyValueServiceValidator(fromServices.getTransactionManager(),
                     toServices.getTransactionManager(),
                     fromServices.getKeyValueService(),
                     threads,
                     batchSize,
                     ImmutableMap.of(),
-                    (String message, KeyValueServiceMigrator.KvsMigrationMessageLevel level) ->
-                            printer.info(level.toString() + ": " + message),
+                    messageProcessor,
+                    ImmutableSet.of());
+            validator.validate(true);
+        } else {
+            HashTreeKeyValueServiceValidator validator = new HashTreeKeyValueServiceValidator(
+                    fromServices.getTransactionManager(),
+                    toServices.getTransactionManager(),
+                    fromServices.getKeyValueService(),
+                    threads,
+                    partitions,
+                    batchSize,
+                    ImmutableMap.of(),
+                    messageProcessor,
                     ImmutableSet.of());
             validator.validate(true);
         }
-        return 0;
     }
 
     private AtlasDbConfig makeOfflineIfNecessary(AtlasDbConfig atlasDbConfig) {
@@ -176,6 +216,8 @@ public class KvsMigrationCommand implements Callable<Integer> {
                 .toServices(toServices)
                 .threads(threads)
                 .batchSize(batchSize)
+                .partitions(partitions)
+                .maxBytesPerSecond(Optional.ofNullable(maxBytesPerSecond))
                 .build());
     }
 }
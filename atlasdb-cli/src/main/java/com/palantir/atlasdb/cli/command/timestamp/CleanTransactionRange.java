@@ -15,6 +15,8 @@
  */
 package com.palantir.atlasdb.cli.command.timestamp;
 
+import java.util.Map;
+
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.HashMultimap;
@@ -27,14 +29,15 @@ import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.services.AtlasDbServices;
 import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.atlasdb.transaction.service.BucketedTransactionService;
 import com.palantir.common.base.ClosableIterator;
 import com.palantir.logsafe.SafeArg;
 
 import io.airlift.airline.Command;
 
-@Command(name = "clean-transactions", description = "Clean out the entries in a _transactions table for the "
-        + "purpose of deleting potentially inconsistent transactions from an underlying database that lacks "
-        + "PITR backup semantics.  Deletes all transactions with a commit timestamp greater than the timestamp "
+@Command(name = "clean-transactions", description = "Clean out the entries in the _transactions and _transactions2 "
+        + "tables for the purpose of deleting potentially inconsistent transactions from an underlying database that "
+        + "lacks PITR backup semantics.  Deletes all transactions with a commit timestamp greater than the timestamp "
         + "provided.")
 public class CleanTransactionRange extends AbstractTimestampCommand {
 
@@ -95,6 +98,42 @@ public class CleanTransactionRange extends AbstractTimestampCommand {
             printer.info("Found no transactions after the given timestamp to delete.");
         }
 
+        if (kvs.getAllTableNames().contains(TransactionConstants.TRANSACTIONS2_TABLE)) {
+            cleanBucketedTransactions(kvs);
+        }
+
         return 0;
     }
+
+    private void cleanBucketedTransactions(KeyValueService kvs) {
+        ClosableIterator<RowResult<Value>> range = kvs.getRange(
+                TransactionConstants.TRANSACTIONS2_TABLE,
+                RangeRequest.all(),
+                Long.MAX_VALUE);
+
+        Multimap<Cell, Long> toDelete = HashMultimap.create();
+        while (range.hasNext()) {
+            RowResult<Value> row = range.next();
+            for (Map.Entry<Cell, Value> entry : row.getCells()) {
+                long startTs = BucketedTransactionService.getStartTimestamp(entry.getKey());
+                long commitTs = BucketedTransactionService.decodeCommitTimestamp(
+                        startTs, entry.getValue().getContents());
+                if (commitTs <= timestamp) {
+                    continue; // this is a valid transaction
+                }
+
+                printer.info("Found and cleaning possibly inconsistent transaction in _transactions2: "
+                        + "[start={}, commit={}]", SafeArg.of("startTs", startTs), SafeArg.of("commitTs", commitTs));
+                toDelete.put(entry.getKey(), entry.getValue().getTimestamp());
+            }
+        }
+        range.close();
+
+        if (!toDelete.isEmpty()) {
+            kvs.delete(TransactionConstants.TRANSACTIONS2_TABLE, toDelete);
+            printer.info("Delete from _transactions2 completed.");
+        } else {
+            printer.info("Found no transactions in _transactions2 after the given timestamp to delete.");
+        }
+    }
 }
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.cli.command.timestamp;
+
+import org.slf4j.LoggerFactory;
+
+import com.palantir.atlasdb.cli.output.OutputPrinter;
+import com.palantir.atlasdb.services.AtlasDbServices;
+import com.palantir.atlasdb.transaction.service.VersionedTransactionService;
+import com.palantir.logsafe.SafeArg;
+
+import io.airlift.airline.Command;
+
+@Command(name = "install-transactions-cutover", description = "Sets the start timestamp from which clients with "
+        + "useVersionedTransactionsTable enabled store transactions in the _transactions2 table. The cutover can "
+        + "only be set once, and is refused unless it is far enough ahead of the fresh timestamp that every client "
+        + "will have seen it before it is reached.")
+public class InstallTransactionsCutover extends AbstractTimestampCommand {
+    private static final OutputPrinter printer = new OutputPrinter(
+            LoggerFactory.getLogger(InstallTransactionsCutover.class));
+
+    @Override
+    public boolean isOnlineRunSupported() {
+        return true;
+    }
+
+    @Override
+    protected boolean requireTimestamp() {
+        return true;
+    }
+
+    @Override
+    protected int executeTimestampCommand(AtlasDbServices services) {
+        long cutover;
+        try {
+            cutover = VersionedTransactionService.installCutover(
+                    services.getKeyValueService(),
+                    services.getTimestampService(),
+                    timestamp);
+        } catch (IllegalArgumentException e) {
+            printer.error("Could not install the transactions table cutover: {}",
+                    SafeArg.of("reason", e.getMessage()));
+            return 1;
+        }
+
+        if (cutover == timestamp) {
+            printer.info("Transactions with start timestamps from {} onwards will be stored in _transactions2.",
+                    SafeArg.of("cutover", cutover));
+        } else {
+            printer.warn("A transactions table cutover had already been set at {}; it was left unchanged.",
+                    SafeArg.of("cutover", cutover));
+        }
+        return 0;
+    }
+}
@@ -76,6 +76,28 @@ public class KeyValueServiceMigratorsTest {
                 .build()).isInstanceOf(IllegalArgumentException.class);
     }
 
+    @Test
+    public void throwsIfSpecifyingNonPositivePartitions() throws Exception {
+        assertThatThrownBy(() -> migratorSpecBuilder
+                .partitions(0)
+                .build()).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void throwsIfSpecifyingNonPositiveMaxBytesPerSecond() throws Exception {
+        assertThatThrownBy(() -> migratorSpecBuilder
+                .maxBytesPerSecond(0L)
+                .build()).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void setupMigratorAcceptsAThroughputLimit() throws Exception {
+        assertThat(KeyValueServiceMigrators.setupMigrator(migratorSpecBuilder
+                .partitions(1024)
+                .maxBytesPerSecond(1024L * 1024L)
+                .build())).isNotNull();
+    }
+
     private static AtlasDbServices createMockAtlasDbServices() {
         TimestampService timestampService = new InMemoryTimestampService();
 
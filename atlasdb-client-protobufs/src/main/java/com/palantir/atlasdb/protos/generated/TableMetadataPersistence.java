@@ -184,6 +184,10 @@ public final class TableMetadataPersistence {
      * <code>SNAPPY = 2;</code>
      */
     SNAPPY(1, 2),
+    /**
+     * <code>LZ4 = 3;</code>
+     */
+    LZ4(2, 3),
     ;
 
     /**
@@ -194,6 +198,10 @@ public final class TableMetadataPersistence {
      * <code>SNAPPY = 2;</code>
      */
     public static final int SNAPPY_VALUE = 2;
+    /**
+     * <code>LZ4 = 3;</code>
+     */
+    public static final int LZ4_VALUE = 3;
 
 
     public final int getNumber() { return value; }
@@ -202,6 +210,7 @@ public final class TableMetadataPersistence {
       switch (value) {
         case 1: return NONE;
         case 2: return SNAPPY;
+        case 3: return LZ4;
         default: return null;
       }
     }
@@ -1109,6 +1118,24 @@ public final class TableMetadataPersistence {
      * <code>optional .com.palantir.atlasdb.protos.generated.LogSafety nameLogSafety = 12 [default = UNSAFE];</code>
      */
     com.palantir.atlasdb.protos.generated.TableMetadataPersistence.LogSafety getNameLogSafety();
+
+    /**
+     * <code>optional bool cacheImmutableValues = 13;</code>
+     */
+    boolean hasCacheImmutableValues();
+    /**
+     * <code>optional bool cacheImmutableValues = 13;</code>
+     */
+    boolean getCacheImmutableValues();
+
+    /**
+     * <code>optional .com.palantir.atlasdb.protos.generated.Compression valueCompression = 14 [default = NONE];</code>
+     */
+    boolean hasValueCompression();
+    /**
+     * <code>optional .com.palantir.atlasdb.protos.generated.Compression valueCompression = 14 [default = NONE];</code>
+     */
+    com.palantir.atlasdb.protos.generated.TableMetadataPersistence.Compression getValueCompression();
   }
   /**
    * Protobuf type {@code com.palantir.atlasdb.protos.generated.TableMetadata}
@@ -1268,6 +1295,22 @@ public final class TableMetadataPersistence {
               }
               break;
             }
+            case 104: {
+              bitField0_ |= 0x00001000;
+              cacheImmutableValues_ = input.readBool();
+              break;
+            }
+            case 112: {
+              int rawValue = input.readEnum();
+              com.palantir.atlasdb.protos.generated.TableMetadataPersistence.Compression value = com.palantir.atlasdb.protos.generated.TableMetadataPersistence.Compression.valueOf(rawValue);
+              if (value == null) {
+                unknownFields.mergeVarintField(14, rawValue);
+              } else {
+                bitField0_ |= 0x00002000;
+                valueCompression_ = value;
+              }
+              break;
+            }
           }
         }
       } catch (com.google.protobuf.InvalidProtocolBufferException e) {
@@ -1500,6 +1543,36 @@ public final class TableMetadataPersistence {
       return nameLogSafety_;
     }
 
+    public static final int CACHEIMMUTABLEVALUES_FIELD_NUMBER = 13;
+    private boolean cacheImmutableValues_;
+    /**
+     * <code>optional bool cacheImmutableValues = 13;</code>
+     */
+    public boolean hasCacheImmutableValues() {
+      return ((bitField0_ & 0x00001000) == 0x00001000);
+    }
+    /**
+     * <code>optional bool cacheImmutableValues = 13;</code>
+     */
+    public boolean getCacheImmutableValues() {
+      return cacheImmutableValues_;
+    }
+
+    public static final int VALUECOMPRESSION_FIELD_NUMBER = 14;
+    private com.palantir.atlasdb.protos.generated.TableMetadataPersistence.Compression valueCompression_;
+    /**
+     * <code>optional .com.palantir.atlasdb.protos.generated.Compression valueCompression = 14 [default = NONE];</code>
+     */
+    public boolean hasValueCompression() {
+      return ((bitField0_ & 0x00002000) == 0x00002000);
+    }
+    /**
+     * <code>optional .com.palantir.atlasdb.protos.generated.Compression valueCompression = 14 [default = NONE];</code>
+     */
+    public com.palantir.atlasdb.protos.generated.TableMetadataPersistence.Compression getValueCompression() {
+      return valueCompression_;
+    }
+
     private void initFields() {
       rowName_ = com.palantir.atlasdb.protos.generated.TableMetadataPersistence.NameMetadataDescription.getDefaultInstance();
       columns_ = com.palantir.atlasdb.protos.generated.TableMetadataPersistence.ColumnMetadataDescription.getDefaultInstance();
@@ -1513,6 +1586,8 @@ public final class TableMetadataPersistence {
       explicitCompressionBlockSizeKiloBytes_ = 0;
       appendHeavyAndReadLight_ = false;
       nameLogSafety_ = com.palantir.atlasdb.protos.generated.TableMetadataPersistence.LogSafety.UNSAFE;
+      cacheImmutableValues_ = false;
+      valueCompression_ = com.palantir.atlasdb.protos.generated.TableMetadataPersistence.Compression.NONE;
     }
     private byte memoizedIsInitialized = -1;
     public final boolean isInitialized() {
@@ -1583,6 +1658,12 @@ public final class TableMetadataPersistence {
       if (((bitField0_ & 0x00000800) == 0x00000800)) {
         output.writeEnum(12, nameLogSafety_.getNumber());
       }
+      if (((bitField0_ & 0x00001000) == 0x00001000)) {
+        output.writeBool(13, cacheImmutableValues_);
+      }
+      if (((bitField0_ & 0x00002000) == 0x00002000)) {
+        output.writeEnum(14, valueCompression_.getNumber());
+      }
       getUnknownFields().writeTo(output);
     }
 
@@ -1640,6 +1721,14 @@ public final class TableMetadataPersistence {
         size += com.google.protobuf.CodedOutputStream
           .computeEnumSize(12, nameLogSafety_.getNumber());
       }
+      if (((bitField0_ & 0x00001000) == 0x00001000)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBoolSize(13, cacheImmutableValues_);
+      }
+      if (((bitField0_ & 0x00002000) == 0x00002000)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeEnumSize(14, valueCompression_.getNumber());
+      }
       size += getUnknownFields().getSerializedSize();
       memoizedSerializedSize = size;
       return size;
@@ -1791,6 +1880,10 @@ public final class TableMetadataPersistence {
         bitField0_ = (bitField0_ & ~0x00000400);
         nameLogSafety_ = com.palantir.atlasdb.protos.generated.TableMetadataPersistence.LogSafety.UNSAFE;
         bitField0_ = (bitField0_ & ~0x00000800);
+        cacheImmutableValues_ = false;
+        bitField0_ = (bitField0_ & ~0x00001000);
+        valueCompression_ = com.palantir.atlasdb.protos.generated.TableMetadataPersistence.Compression.NONE;
+        bitField0_ = (bitField0_ & ~0x00002000);
         return this;
       }
 
@@ -1875,6 +1968,14 @@ public final class TableMetadataPersistence {
           to_bitField0_ |= 0x00000800;
         }
         result.nameLogSafety_ = nameLogSafety_;
+        if (((from_bitField0_ & 0x00001000) == 0x00001000)) {
+          to_bitField0_ |= 0x00001000;
+        }
+        result.cacheImmutableValues_ = cacheImmutableValues_;
+        if (((from_bitField0_ & 0x00002000) == 0x00002000)) {
+          to_bitField0_ |= 0x00002000;
+        }
+        result.valueCompression_ = valueCompression_;
         result.bitField0_ = to_bitField0_;
         onBuilt();
         return result;
@@ -1927,6 +2028,12 @@ public final class TableMetadataPersistence {
         if (other.hasNameLogSafety()) {
           setNameLogSafety(other.getNameLogSafety());
         }
+        if (other.hasCacheImmutableValues()) {
+          setCacheImmutableValues(other.getCacheImmutableValues());
+        }
+        if (other.hasValueCompression()) {
+          setValueCompression(other.getValueCompression());
+        }
         this.mergeUnknownFields(other.getUnknownFields());
         return this;
       }
@@ -2541,6 +2648,73 @@ public final class TableMetadataPersistence {
         return this;
       }
 
+      private boolean cacheImmutableValues_ ;
+      /**
+       * <code>optional bool cacheImmutableValues = 13;</code>
+       */
+      public boolean hasCacheImmutableValues() {
+        return ((bitField0_ & 0x00001000) == 0x00001000);
+      }
+      /**
+       * <code>optional bool cacheImmutableValues = 13;</code>
+       */
+      public boolean getCacheImmutableValues() {
+        return cacheImmutableValues_;
+      }
+      /**
+       * <code>optional bool cacheImmutableValues = 13;</code>
+       */
+      public Builder setCacheImmutableValues(boolean value) {
+        bitField0_ |= 0x00001000;
+        cacheImmutableValues_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional bool cacheImmutableValues = 13;</code>
+       */
+      public Builder clearCacheImmutableValues() {
+        bitField0_ = (bitField0_ & ~0x00001000);
+        cacheImmutableValues_ = false;
+        onChanged();
+        return this;
+      }
+
+      private com.palantir.atlasdb.protos.generated.TableMetadataPersistence.Compression valueCompression_ = com.palantir.atlasdb.protos.generated.TableMetadataPersistence.Compression.NONE;
+      /**
+       * <code>optional .com.palantir.atlasdb.protos.generated.Compression valueCompression = 14 [default = NONE];</code>
+       */
+      public boolean hasValueCompression() {
+        return ((bitField0_ & 0x00002000) == 0x00002000);
+      }
+      /**
+       * <code>optional .com.palantir.atlasdb.protos.generated.Compression valueCompression = 14 [default = NONE];</code>
+       */
+      public com.palantir.atlasdb.protos.generated.TableMetadataPersistence.Compression getValueCompression() {
+        return valueCompression_;
+      }
+      /**
+       * <code>optional .com.palantir.atlasdb.protos.generated.Compression valueCompression = 14 [default = NONE];</code>
+       */
+      public Builder setValueCompression(com.palantir.atlasdb.protos.generated.TableMetadataPersistence.Compression value) {
+        if (value == null) {
+          throw new NullPointerException();
+        }
+        bitField0_ |= 0x00002000;
+        valueCompression_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional .com.palantir.atlasdb.protos.generated.Compression valueCompression = 14 [default = NONE];</code>
+       */
+      public Builder clearValueCompression() {
+        bitField0_ = (bitField0_ & ~0x00002000);
+        valueCompression_ = com.palantir.atlasdb.protos.generated.TableMetadataPersistence.Compression.NONE;
+        onChanged();
+        return this;
+      }
+
       // @@protoc_insertion_point(builder_scope:com.palantir.atlasdb.protos.generated.TableMetadata)
     }
 
@@ -9235,7 +9409,7 @@ public final class TableMetadataPersistence {
     java.lang.String[] descriptorData = {
       "\nEmain/proto/com/palantir/atlasdb/protos" +
       "/TableMetadataPersistence.proto\022%com.pal" +
-      "antir.atlasdb.protos.generated\"\355\005\n\rTable" +
+      "antir.atlasdb.protos.generated\"\337\006\n\rTable" +
       "Metadata\022O\n\007rowName\030\001 \002(\0132>.com.palantir" +
       ".atlasdb.protos.generated.NameMetadataDe" +
       "scription\022Q\n\007columns\030\002 \002(\0132@.com.palanti" +
@@ -9254,70 +9428,73 @@ public final class TableMetadataPersistence {
       "sionBlockSizeKiloBytes\030\n \001(\005\022\037\n\027appendHe" +
       "avyAndReadLight\030\013 \001(\010\022O\n\rnameLogSafety\030\014",
       " \001(\01620.com.palantir.atlasdb.protos.gener" +
-      "ated.LogSafety:\006UNSAFE\"\274\001\n\027NameMetadataD" +
-      "escription\022R\n\tnameParts\030\001 \003(\0132?.com.pala" +
-      "ntir.atlasdb.protos.generated.NameCompon" +
-      "entDescription\022(\n\025hasFirstComponentHash\030" +
-      "\002 \001(\010:\005falseB\002\030\001\022#\n\030numberOfComponentsHa" +
-      "shed\030\003 \001(\005:\0010\"\277\002\n\030NameComponentDescripti" +
-      "on\022\025\n\rcomponentName\030\001 \002(\t\022>\n\004type\030\002 \002(\0162" +
-      "0.com.palantir.atlasdb.protos.generated." +
-      "ValueType\022D\n\005order\030\003 \002(\01625.com.palantir.",
-      "atlasdb.protos.generated.ValueByteOrder\022" +
-      "\035\n\025hasUniformPartitioner\030\004 \001(\010\022\032\n\022explic" +
-      "itPartitions\030\005 \003(\t\022K\n\tlogSafety\030\006 \001(\01620." +
-      "com.palantir.atlasdb.protos.generated.Lo" +
-      "gSafety:\006UNSAFE\"\310\001\n\031ColumnMetadataDescri" +
-      "ption\022S\n\014namedColumns\030\001 \003(\0132=.com.palant" +
-      "ir.atlasdb.protos.generated.NamedColumnD" +
-      "escription\022V\n\rdynamicColumn\030\002 \001(\0132?.com." +
-      "palantir.atlasdb.protos.generated.Dynami" +
-      "cColumnDescription\"\300\001\n\030DynamicColumnDesc",
-      "ription\022V\n\016columnNameDesc\030\001 \002(\0132>.com.pa" +
-      "lantir.atlasdb.protos.generated.NameMeta" +
-      "dataDescription\022L\n\005value\030\002 \002(\0132=.com.pal" +
-      "antir.atlasdb.protos.generated.ColumnVal" +
-      "ueDescription\"\330\001\n\026NamedColumnDescription" +
-      "\022\021\n\tshortName\030\001 \002(\t\022\020\n\010longName\030\002 \002(\t\022L\n" +
-      "\005value\030\003 \002(\0132=.com.palantir.atlasdb.prot" +
-      "os.generated.ColumnValueDescription\022K\n\tl" +
-      "ogSafety\030\004 \001(\01620.com.palantir.atlasdb.pr" +
-      "otos.generated.LogSafety:\006UNSAFE\"\274\003\n\026Col",
-      "umnValueDescription\022>\n\004type\030\001 \002(\01620.com." +
+      "ated.LogSafety:\006UNSAFE\022\034\n\024cacheImmutable" +
+      "Values\030\r \001(\010\022R\n\020valueCompression\030\016 \001(\01622" +
+      ".com.palantir.atlasdb.protos.generated.C" +
+      "ompression:\004NONE\"\274\001\n\027NameMetadataDescrip" +
+      "tion\022R\n\tnameParts\030\001 \003(\0132?.com.palantir.a" +
+      "tlasdb.protos.generated.NameComponentDes" +
+      "cription\022(\n\025hasFirstComponentHash\030\002 \001(\010:" +
+      "\005falseB\002\030\001\022#\n\030numberOfComponentsHashed\030\003" +
+      " \001(\005:\0010\"\277\002\n\030NameComponentDescription\022\025\n\r",
+      "componentName\030\001 \002(\t\022>\n\004type\030\002 \002(\01620.com." +
       "palantir.atlasdb.protos.generated.ValueT" +
-      "ype\022\021\n\tclassName\030\002 \001(\t\022M\n\013compression\030\003 " +
-      "\001(\01622.com.palantir.atlasdb.protos.genera" +
-      "ted.Compression:\004NONE\022H\n\006format\030\004 \001(\01628." +
+      "ype\022D\n\005order\030\003 \002(\01625.com.palantir.atlasd" +
+      "b.protos.generated.ValueByteOrder\022\035\n\025has" +
+      "UniformPartitioner\030\004 \001(\010\022\032\n\022explicitPart" +
+      "itions\030\005 \003(\t\022K\n\tlogSafety\030\006 \001(\01620.com.pa" +
+      "lantir.atlasdb.protos.generated.LogSafet" +
+      "y:\006UNSAFE\"\310\001\n\031ColumnMetadataDescription\022" +
+      "S\n\014namedColumns\030\001 \003(\0132=.com.palantir.atl" +
+      "asdb.protos.generated.NamedColumnDescrip",
+      "tion\022V\n\rdynamicColumn\030\002 \001(\0132?.com.palant" +
+      "ir.atlasdb.protos.generated.DynamicColum" +
+      "nDescription\"\300\001\n\030DynamicColumnDescriptio" +
+      "n\022V\n\016columnNameDesc\030\001 \002(\0132>.com.palantir" +
+      ".atlasdb.protos.generated.NameMetadataDe" +
+      "scription\022L\n\005value\030\002 \002(\0132=.com.palantir." +
+      "atlasdb.protos.generated.ColumnValueDesc" +
+      "ription\"\330\001\n\026NamedColumnDescription\022\021\n\tsh" +
+      "ortName\030\001 \002(\t\022\020\n\010longName\030\002 \002(\t\022L\n\005value" +
+      "\030\003 \002(\0132=.com.palantir.atlasdb.protos.gen",
+      "erated.ColumnValueDescription\022K\n\tlogSafe" +
+      "ty\030\004 \001(\01620.com.palantir.atlasdb.protos.g" +
+      "enerated.LogSafety:\006UNSAFE\"\274\003\n\026ColumnVal" +
+      "ueDescription\022>\n\004type\030\001 \002(\01620.com.palant" +
+      "ir.atlasdb.protos.generated.ValueType\022\021\n" +
+      "\tclassName\030\002 \001(\t\022M\n\013compression\030\003 \001(\01622." +
       "com.palantir.atlasdb.protos.generated.Co" +
-      "lumnValueFormat\022\032\n\022canonicalClassName\030\005 " +
-      "\001(\t\022\037\n\023protoFileDescriptor\030\006 \001(\014B\002\030\001\022\030\n\020" +
-      "protoMessageName\030\007 \001(\t\022_\n\027protoFileDescr" +
-      "iptorTree\030\010 \001(\0132>.com.palantir.atlasdb.p",
-      "rotos.generated.FileDescriptorTreeProto\"" +
-      "\214\001\n\027FileDescriptorTreeProto\022\033\n\023protoFile" +
-      "Descriptor\030\001 \002(\014\022T\n\014dependencies\030\002 \003(\0132>" +
-      ".com.palantir.atlasdb.protos.generated.F" +
-      "ileDescriptorTreeProto*\305\001\n\tValueType\022\014\n\010" +
-      "VAR_LONG\020\001\022\016\n\nFIXED_LONG\020\002\022\n\n\006STRING\020\003\022\010" +
-      "\n\004BLOB\020\004\022\023\n\017VAR_SIGNED_LONG\020\005\022\034\n\030FIXED_L" +
-      "ONG_LITTLE_ENDIAN\020\006\022\016\n\nSHA256HASH\020\007\022\016\n\nV" +
-      "AR_STRING\020\010\022\027\n\023NULLABLE_FIXED_LONG\020\t\022\016\n\n" +
-      "SIZED_BLOB\020\n\022\010\n\004UUID\020\013*#\n\013Compression\022\010\n",
-      "\004NONE\020\001\022\n\n\006SNAPPY\020\002*N\n\021ColumnValueFormat" +
-      "\022\t\n\005PROTO\020\001\022\017\n\013PERSISTABLE\020\002\022\016\n\nVALUE_TY" +
-      "PE\020\003\022\r\n\tPERSISTER\020\004*/\n\016ValueByteOrder\022\r\n" +
-      "\tASCENDING\020\001\022\016\n\nDESCENDING\020\002*\215\001\n\024TableCo" +
-      "nflictHandler\022\016\n\nIGNORE_ALL\020\001\022\030\n\024RETRY_O" +
-      "N_WRITE_WRITE\020\002\022\032\n\026RETRY_ON_VALUE_CHANGE" +
-      "D\020\003\022\020\n\014SERIALIZABLE\020\004\022\035\n\031RETRY_ON_WRITE_" +
-      "WRITE_CELL\020\005*F\n\rCachePriority\022\013\n\007COLDEST" +
-      "\020\000\022\010\n\004COLD\020 \022\010\n\004WARM\020@\022\007\n\003HOT\020`\022\013\n\007HOTTE" +
-      "ST\020\177**\n\021PartitionStrategy\022\013\n\007ORDERED\020\000\022\010",
-      "\n\004HASH\020\001*<\n\rSweepStrategy\022\013\n\007NOTHING\020\000\022\020" +
-      "\n\014CONSERVATIVE\020\001\022\014\n\010THOROUGH\020\002*;\n\022Expira" +
-      "tionStrategy\022\t\n\005NEVER\020\000\022\032\n\026INDIVIDUALLY_" +
-      "SPECIFIED\020\001*!\n\tLogSafety\022\010\n\004SAFE\020\000\022\n\n\006UN" +
-      "SAFE\020\001"
+      "mpression:\004NONE\022H\n\006format\030\004 \001(\01628.com.pa" +
+      "lantir.atlasdb.protos.generated.ColumnVa" +
+      "lueFormat\022\032\n\022canonicalClassName\030\005 \001(\t\022\037\n",
+      "\023protoFileDescriptor\030\006 \001(\014B\002\030\001\022\030\n\020protoM" +
+      "essageName\030\007 \001(\t\022_\n\027protoFileDescriptorT" +
+      "ree\030\010 \001(\0132>.com.palantir.atlasdb.protos." +
+      "generated.FileDescriptorTreeProto\"\214\001\n\027Fi" +
+      "leDescriptorTreeProto\022\033\n\023protoFileDescri" +
+      "ptor\030\001 \002(\014\022T\n\014dependencies\030\002 \003(\0132>.com.p" +
+      "alantir.atlasdb.protos.generated.FileDes" +
+      "criptorTreeProto*\305\001\n\tValueType\022\014\n\010VAR_LO" +
+      "NG\020\001\022\016\n\nFIXED_LONG\020\002\022\n\n\006STRING\020\003\022\010\n\004BLOB" +
+      "\020\004\022\023\n\017VAR_SIGNED_LONG\020\005\022\034\n\030FIXED_LONG_LI",
+      "TTLE_ENDIAN\020\006\022\016\n\nSHA256HASH\020\007\022\016\n\nVAR_STR" +
+      "ING\020\010\022\027\n\023NULLABLE_FIXED_LONG\020\t\022\016\n\nSIZED_" +
+      "BLOB\020\n\022\010\n\004UUID\020\013*,\n\013Compression\022\010\n\004NONE\020" +
+      "\001\022\n\n\006SNAPPY\020\002\022\007\n\003LZ4\020\003*N\n\021ColumnValueFor" +
+      "mat\022\t\n\005PROTO\020\001\022\017\n\013PERSISTABLE\020\002\022\016\n\nVALUE" +
+      "_TYPE\020\003\022\r\n\tPERSISTER\020\004*/\n\016ValueByteOrder" +
+      "\022\r\n\tASCENDING\020\001\022\016\n\nDESCENDING\020\002*\215\001\n\024Tabl" +
+      "eConflictHandler\022\016\n\nIGNORE_ALL\020\001\022\030\n\024RETR" +
+      "Y_ON_WRITE_WRITE\020\002\022\032\n\026RETRY_ON_VALUE_CHA" +
+      "NGED\020\003\022\020\n\014SERIALIZABLE\020\004\022\035\n\031RETRY_ON_WRI",
+      "TE_WRITE_CELL\020\005*F\n\rCachePriority\022\013\n\007COLD" +
+      "EST\020\000\022\010\n\004COLD\020 \022\010\n\004WARM\020@\022\007\n\003HOT\020`\022\013\n\007HO" +
+      "TTEST\020\177**\n\021PartitionStrategy\022\013\n\007ORDERED\020" +
+      "\000\022\010\n\004HASH\020\001*<\n\rSweepStrategy\022\013\n\007NOTHING\020" +
+      "\000\022\020\n\014CONSERVATIVE\020\001\022\014\n\010THOROUGH\020\002*;\n\022Exp" +
+      "irationStrategy\022\t\n\005NEVER\020\000\022\032\n\026INDIVIDUAL" +
+      "LY_SPECIFIED\020\001*!\n\tLogSafety\022\010\n\004SAFE\020\000\022\n\n" +
+      "\006UNSAFE\020\001"
     };
     com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner =
         new com.google.protobuf.Descriptors.FileDescriptor.    InternalDescriptorAssigner() {
@@ -9336,7 +9513,7 @@ public final class TableMetadataPersistence {
     internal_static_com_palantir_atlasdb_protos_generated_TableMetadata_fieldAccessorTable = new
       com.google.protobuf.GeneratedMessage.FieldAccessorTable(
         internal_static_com_palantir_atlasdb_protos_generated_TableMetadata_descriptor,
-        new java.lang.String[] { "RowName", "Columns", "ConflictHandler", "CachePriority", "PartitionStrategy", "RangeScanAllowed", "ExplicitCompression", "NegativeLookups", "SweepStrategy", "ExplicitCompressionBlockSizeKiloBytes", "AppendHeavyAndReadLight", "NameLogSafety", });
+        new java.lang.String[] { "RowName", "Columns", "ConflictHandler", "CachePriority", "PartitionStrategy", "RangeScanAllowed", "ExplicitCompression", "NegativeLookups", "SweepStrategy", "ExplicitCompressionBlockSizeKiloBytes", "AppendHeavyAndReadLight", "NameLogSafety", "CacheImmutableValues", "ValueCompression", });
     internal_static_com_palantir_atlasdb_protos_generated_NameMetadataDescription_descriptor =
       getDescriptor().getMessageTypes().get(1);
     internal_static_com_palantir_atlasdb_protos_generated_NameMetadataDescription_fieldAccessorTable = new
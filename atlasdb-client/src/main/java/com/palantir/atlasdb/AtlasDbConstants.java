@@ -74,6 +74,8 @@ public final class AtlasDbConstants {
 
     public static final Set<TableReference> hiddenTables = ImmutableSet.of(
             TransactionConstants.TRANSACTION_TABLE,
+            TransactionConstants.TRANSACTIONS2_TABLE,
+            TransactionConstants.TRANSACTIONS_CUTOVER_TABLE,
             PUNCH_TABLE,
             OLD_SCRUB_TABLE,
             SCRUB_TABLE,
@@ -86,6 +88,8 @@ public final class AtlasDbConstants {
      */
     public static final Set<TableReference> ATOMIC_TABLES = ImmutableSet.of(
             TransactionConstants.TRANSACTION_TABLE,
+            TransactionConstants.TRANSACTIONS2_TABLE,
+            TransactionConstants.TRANSACTIONS_CUTOVER_TABLE,
             NAMESPACE_TABLE,
             PERSISTED_LOCKS_TABLE);
 
@@ -118,6 +122,18 @@ public final class AtlasDbConstants {
 
     public static final long DEFAULT_TIMESTAMP_CACHE_SIZE = 1_000_000;
 
+    public static final boolean DEFAULT_BATCH_TRANSACTION_SERVICE_READS = false;
+    public static final boolean DEFAULT_BATCH_TRANSACTION_SERVICE_WRITES = false;
+    public static final long DEFAULT_TRANSACTION_SERVICE_READ_BATCH_WINDOW_MICROS = 500;
+    public static final int DEFAULT_TRANSACTION_SERVICE_READ_BATCH_SIZE = 1_000;
+    public static final boolean DEFAULT_USE_VERSIONED_TRANSACTIONS_TABLE = false;
+    public static final boolean DEFAULT_BATCH_TRANSACTION_STARTS = false;
+    public static final long DEFAULT_IMMUTABLE_VALUE_CACHE_MAX_BYTES = 0;
+
+    public static final boolean DEFAULT_COALESCE_KEY_VALUE_SERVICE_READS = false;
+    public static final long DEFAULT_KEY_VALUE_SERVICE_READ_BATCH_WINDOW_MICROS = 200;
+    public static final int DEFAULT_KEY_VALUE_SERVICE_READ_BATCH_SIZE = 1_000;
+
     public static final int MAX_TABLE_PREFIX_LENGTH = 7;
     public static final int MAX_OVERFLOW_TABLE_PREFIX_LENGTH = 6;
 
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.cache;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A bounded, primitive long to long cache with CLOCK eviction.
+ * <p>
+ * The cache is organised as a set-associative table: each key hashes to a set of {@link #WAYS} slots, and when a
+ * set is full the CLOCK hand of that set picks a victim that has not been read since the hand last passed it.
+ * Keys and values are stored in flat arrays, so no per-entry objects are allocated.
+ * <p>
+ * Reads are lock-free. Writers to the same set are serialised on a striped lock. Each slot is guarded by a version
+ * stamp that writers make odd while they replace the slot and even again once they are done, and a reader only
+ * accepts a hit if the stamp was even and unchanged across its reads of the key and value. Re-reading the key alone
+ * would not be enough, since the slot may be evicted and refilled with the same key in between.
+ * <p>
+ * {@link Long#MIN_VALUE} is reserved and may not be used as a key.
+ */
+public final class ConcurrentLongLongCache {
+    static final int WAYS = 8;
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int LOCK_STRIPES = 256;
+    private static final int MAX_SETS = 1 << 27;
+
+    private final int setMask;
+    private final AtomicLongArray keys;
+    private final AtomicLongArray values;
+    private final AtomicLongArray stamps;
+    private final AtomicIntegerArray referenced;
+    private final int[] clockHands;
+    private final Object[] locks;
+
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder size = new LongAdder();
+
+    public ConcurrentLongLongCache(long maximumSize) {
+        Preconditions.checkArgument(maximumSize > 0, "Cache size must be positive, but was %s", maximumSize);
+        int numSets = Integer.highestOneBit((int) Math.min(MAX_SETS, ceilDiv(maximumSize, WAYS)));
+        if (numSets * (long) WAYS < maximumSize && numSets < MAX_SETS) {
+            numSets <<= 1;
+        }
+        int capacity = numSets * WAYS;
+        this.setMask = numSets - 1;
+        this.keys = new AtomicLongArray(capacity);
+        this.values = new AtomicLongArray(capacity);
+        this.stamps = new AtomicLongArray(capacity);
+        this.referenced = new AtomicIntegerArray(capacity);
+        this.clockHands = new int[numSets];
+        this.locks = new Object[Math.min(LOCK_STRIPES, numSets)];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        for (int i = 0; i < capacity; i++) {
+            keys.lazySet(i, EMPTY);
+        }
+    }
+
+    /**
+     * Returns the value cached for the given key, or {@code defaultValue} if there is none.
+     */
+    public long get(long key, long defaultValue) {
+        checkKey(key);
+        int base = setBase(key);
+        for (int slot = base; slot < base + WAYS; slot++) {
+            long stamp = stamps.get(slot);
+            if ((stamp & 1) == 0 && keys.get(slot) == key) {
+                long value = values.get(slot);
+                if (stamps.get(slot) == stamp) {
+                    if (referenced.get(slot) == 0) {
+                        referenced.lazySet(slot, 1);
+                    }
+                    return value;
+                }
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Caches the given value for the given key, possibly evicting another entry. Callers must never put different
+     * values for the same key.
+     */
+    public void put(long key, long value) {
+        checkKey(key);
+        int set = setIndex(key);
+        int base = set * WAYS;
+        synchronized (locks[set % locks.length]) {
+            int free = -1;
+            for (int slot = base; slot < base + WAYS; slot++) {
+                long existing = keys.get(slot);
+                if (existing == key) {
+                    return;
+                } else if (existing == EMPTY && free < 0) {
+                    free = slot;
+                }
+            }
+            if (free >= 0) {
+                size.increment();
+            } else {
+                free = base + advanceClock(set);
+                evictions.increment();
+            }
+            stamps.incrementAndGet(free);
+            keys.set(free, key);
+            values.set(free, value);
+            referenced.set(free, 0);
+            stamps.incrementAndGet(free);
+        }
+    }
+
+    /**
+     * Removes all entries from the cache. Concurrent puts may or may not survive.
+     */
+    public void clear() {
+        for (int set = 0; set <= setMask; set++) {
+            int base = set * WAYS;
+            synchronized (locks[set % locks.length]) {
+                for (int slot = base; slot < base + WAYS; slot++) {
+                    if (keys.get(slot) != EMPTY) {
+                        stamps.incrementAndGet(slot);
+                        keys.set(slot, EMPTY);
+                        stamps.incrementAndGet(slot);
+                        size.decrement();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies every entry currently in this cache into {@code target}.
+     */
+    public void copyInto(ConcurrentLongLongCache target) {
+        int capacity = keys.length();
+        for (int slot = 0; slot < capacity; slot++) {
+            long stamp = stamps.get(slot);
+            long key = keys.get(slot);
+            if ((stamp & 1) == 0 && key != EMPTY) {
+                long value = values.get(slot);
+                if (stamps.get(slot) == stamp) {
+                    target.put(key, value);
+                }
+            }
+        }
+    }
+
+    public long capacity() {
+        return keys.length();
+    }
+
+    public long estimatedSize() {
+        return size.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    private int advanceClock(int set) {
+        int base = set * WAYS;
+        // bounded, in case concurrent readers keep re-referencing the slots of this set
+        for (int i = 0; i < 2 * WAYS; i++) {
+            int way = clockHands[set];
+            clockHands[set] = (way + 1) % WAYS;
+            if (referenced.get(base + way) == 0) {
+                return way;
+            }
+            referenced.set(base + way, 0);
+        }
+        return clockHands[set];
+    }
+
+    private int setBase(long key) {
+        return setIndex(key) * WAYS;
+    }
+
+    private int setIndex(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & setMask;
+    }
+
+    private static void checkKey(long key) {
+        Preconditions.checkArgument(key != EMPTY, "Long.MIN_VALUE cannot be used as a key");
+    }
+
+    private static long ceilDiv(long dividend, long divisor) {
+        return (dividend + divisor - 1) / divisor;
+    }
+}
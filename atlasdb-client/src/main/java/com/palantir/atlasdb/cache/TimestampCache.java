@@ -15,44 +15,61 @@
  */
 package com.palantir.atlasdb.cache;
 
-import java.util.concurrent.ConcurrentMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.annotation.Nullable;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricSet;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Supplier;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
 import com.palantir.atlasdb.util.AtlasDbMetrics;
 
 /**
- * This class just here for readability and not directly leaking / tying us down to a Guava class in our API.
+ * Caches start timestamp to commit timestamp mappings of already committed transactions.
+ * <p>
+ * Entries are kept in a {@link ConcurrentLongLongCache}, so no boxing or per-entry allocation takes place on the
+ * primitive read and write paths. The size supplier is polled at most once every
+ * {@link #RESIZE_CHECK_INTERVAL_MILLIS} when entries are added, and the cache is resized live if the configured
+ * size has changed.
  */
 public class TimestampCache {
-    private final Supplier<Long> size;
+    private static final Logger log = LoggerFactory.getLogger(TimestampCache.class);
 
-    private volatile Cache<Long, Long> startToCommitTimestampCache;
+    public static final long NO_COMMIT_TIMESTAMP = Long.MIN_VALUE;
 
     @VisibleForTesting
-    static Cache<Long, Long> createCache(long size) {
-        return CacheBuilder.newBuilder()
-                .maximumSize(size)
-                .recordStats()
-                .build();
-    }
+    static final long RESIZE_CHECK_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    private final Supplier<Long> size;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final AtomicLong retiredEvictions = new AtomicLong();
+
+    private volatile ConcurrentLongLongCache startToCommitTimestampCache;
+    private volatile long currentSize;
+    private volatile long lastResizeCheckMillis;
 
     public TimestampCache(Supplier<Long> size) {
-        this.size = size;
-        startToCommitTimestampCache = createCache(size.get());
-        AtlasDbMetrics.registerCache(startToCommitTimestampCache,
-                MetricRegistry.name(TimestampCache.class, "startToCommitTimestamp"));
+        this(size, MetricRegistry.name(TimestampCache.class, "startToCommitTimestamp"));
     }
 
     @VisibleForTesting
-    TimestampCache(Cache<Long, Long> cache) {
-        this.size = null;
-        this.startToCommitTimestampCache = cache;
+    TimestampCache(Supplier<Long> size, String metricsPrefix) {
+        this.size = size;
+        this.currentSize = size.get();
+        this.startToCommitTimestampCache = new ConcurrentLongLongCache(currentSize);
+        this.lastResizeCheckMillis = System.currentTimeMillis();
+        AtlasDbMetrics.registerMetricSet(new TimestampCacheMetrics(), metricsPrefix);
     }
 
     /**
@@ -63,7 +80,26 @@ public class TimestampCache {
      */
     @Nullable
     public Long getCommitTimestampIfPresent(Long startTimestamp) {
-        return startToCommitTimestampCache.getIfPresent(startTimestamp);
+        long commitTimestamp = getCommitTimestampOrDefault(startTimestamp, NO_COMMIT_TIMESTAMP);
+        return commitTimestamp == NO_COMMIT_TIMESTAMP ? null : commitTimestamp;
+    }
+
+    /**
+     * Primitive variant of {@link #getCommitTimestampIfPresent(Long)}.
+     *
+     * @param startTimestamp transaction start timestamp
+     * @param defaultValue value to return if the start timestamp is not cached
+     * @return commit timestamp for the specified transaction start timestamp if present in cache, otherwise
+     * {@code defaultValue}
+     */
+    public long getCommitTimestampOrDefault(long startTimestamp, long defaultValue) {
+        long commitTimestamp = startToCommitTimestampCache.get(startTimestamp, NO_COMMIT_TIMESTAMP);
+        if (commitTimestamp == NO_COMMIT_TIMESTAMP) {
+            misses.increment();
+            return defaultValue;
+        }
+        hits.increment();
+        return commitTimestamp;
     }
 
     /**
@@ -73,7 +109,8 @@ public class TimestampCache {
      * @param startTimestamp transaction start timestamp
      * @param commitTimestamp transaction commit timestamp
      */
-    public void putAlreadyCommittedTransaction(Long startTimestamp, Long commitTimestamp) {
+    public void putAlreadyCommittedTransaction(long startTimestamp, long commitTimestamp) {
+        resizeIfNecessary();
         startToCommitTimestampCache.put(startTimestamp, commitTimestamp);
     }
 
@@ -81,14 +118,68 @@ public class TimestampCache {
      * Clear all values from the cache.
      */
     public void clear() {
-        startToCommitTimestampCache.invalidateAll();
+        startToCommitTimestampCache.clear();
+    }
+
+    @VisibleForTesting
+    long capacity() {
+        return startToCommitTimestampCache.capacity();
+    }
+
+    private void resizeIfNecessary() {
+        long now = System.currentTimeMillis();
+        if (now - lastResizeCheckMillis < RESIZE_CHECK_INTERVAL_MILLIS) {
+            return;
+        }
+        lastResizeCheckMillis = now;
+        if (size.get() != currentSize) {
+            resizeToConfiguredSize();
+        }
     }
 
-    // TODO(2565): create a background thread periodically polls the supplier to look for a change and
-    // resizes accordingly.
-    private void resize(long newSize) {
-        ConcurrentMap<Long, Long> existing = startToCommitTimestampCache.asMap();
-        startToCommitTimestampCache = createCache(newSize);
-        startToCommitTimestampCache.putAll(existing);
+    @VisibleForTesting
+    synchronized void resizeToConfiguredSize() {
+        long newSize = size.get();
+        if (newSize == currentSize) {
+            return;
+        }
+        log.info("Resizing the timestamp cache from {} to {} entries", currentSize, newSize);
+        ConcurrentLongLongCache existing = startToCommitTimestampCache;
+        ConcurrentLongLongCache resized = new ConcurrentLongLongCache(newSize);
+        existing.copyInto(resized);
+        startToCommitTimestampCache = resized;
+        currentSize = newSize;
+        retiredEvictions.addAndGet(existing.evictionCount());
+    }
+
+    private final class TimestampCacheMetrics implements MetricSet {
+        @Override
+        public Map<String, Metric> getMetrics() {
+            return ImmutableMap.<String, Metric>builder()
+                    .put("cache.hit.count", (Gauge<Long>) hits::sum)
+                    .put("cache.miss.count", (Gauge<Long>) misses::sum)
+                    .put("cache.request.count", (Gauge<Long>) this::requestCount)
+                    .put("cache.hit.ratio", (Gauge<Double>) this::hitRatio)
+                    .put("cache.miss.ratio", (Gauge<Double>) this::missRatio)
+                    .put("cache.eviction.count", (Gauge<Long>) () ->
+                            retiredEvictions.get() + startToCommitTimestampCache.evictionCount())
+                    .put("cache.estimated.size", (Gauge<Long>) () -> startToCommitTimestampCache.estimatedSize())
+                    .put("cache.maximum.size", (Gauge<Long>) () -> currentSize)
+                    .build();
+        }
+
+        private long requestCount() {
+            return hits.sum() + misses.sum();
+        }
+
+        private double hitRatio() {
+            long requests = requestCount();
+            return requests == 0 ? 1.0d : (double) hits.sum() / requests;
+        }
+
+        private double missRatio() {
+            long requests = requestCount();
+            return requests == 0 ? 0.0d : (double) misses.sum() / requests;
+        }
     }
 }
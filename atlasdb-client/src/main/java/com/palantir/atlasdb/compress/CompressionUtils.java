@@ -16,13 +16,26 @@
 package com.palantir.atlasdb.compress;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import org.xerial.snappy.Snappy;
 
 import com.palantir.atlasdb.table.description.ColumnValueDescription.Compression;
 import com.palantir.common.base.Throwables;
 
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
 public final class CompressionUtils {
+    private static final LZ4Compressor LZ4_COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+    private static final LZ4FastDecompressor LZ4_DECOMPRESSOR = LZ4Factory.fastestInstance().fastDecompressor();
+    private static final int LZ4_LENGTH_SIZE = Integer.BYTES;
+    // an LZ4 block can't expand to more than this many times its size
+    private static final long LZ4_MAX_COMPRESSION_RATIO = 255;
+
     private CompressionUtils() {
         // empty
     }
@@ -30,6 +43,8 @@ public final class CompressionUtils {
     public static byte[] compress(byte[] bytes, Compression compressionType) {
         if (compressionType == Compression.SNAPPY) {
             return compressWithSnappy(bytes);
+        } else if (compressionType == Compression.LZ4) {
+            return compressWithLz4(bytes);
         } else if (compressionType == Compression.NONE) {
             return bytes;
         } else {
@@ -40,6 +55,8 @@ public final class CompressionUtils {
     public static byte[] decompress(byte[] bytes, Compression compressionType) {
         if (compressionType == Compression.SNAPPY) {
             return decompressWithSnappy(bytes);
+        } else if (compressionType == Compression.LZ4) {
+            return decompressWithLz4(bytes);
         } else if (compressionType == Compression.NONE) {
             return bytes;
         } else {
@@ -65,4 +82,35 @@ public final class CompressionUtils {
             throw Throwables.throwUncheckedException(e);
         }
     }
+
+    /**
+     * Compresses the bytes as a single LZ4 block, preceded by the length of the uncompressed bytes.
+     */
+    public static byte[] compressWithLz4(byte[] bytes) {
+        byte[] compressed = new byte[LZ4_LENGTH_SIZE + LZ4_COMPRESSOR.maxCompressedLength(bytes.length)];
+        ByteBuffer.wrap(compressed).putInt(bytes.length);
+        int compressedLength = LZ4_COMPRESSOR.compress(
+                bytes, 0, bytes.length, compressed, LZ4_LENGTH_SIZE, compressed.length - LZ4_LENGTH_SIZE);
+        return Arrays.copyOf(compressed, LZ4_LENGTH_SIZE + compressedLength);
+    }
+
+    public static byte[] decompressWithLz4(byte[] bytes) {
+        if (bytes.length < LZ4_LENGTH_SIZE) {
+            throw new IllegalArgumentException("Cannot decompress these bytes using LZ4");
+        }
+        int length = ByteBuffer.wrap(bytes).getInt();
+        if (length < 0 || length > (bytes.length - LZ4_LENGTH_SIZE) * LZ4_MAX_COMPRESSION_RATIO) {
+            throw new IllegalArgumentException("Cannot decompress these bytes using LZ4");
+        }
+        try {
+            byte[] decompressed = new byte[length];
+            int read = LZ4_DECOMPRESSOR.decompress(bytes, LZ4_LENGTH_SIZE, decompressed, 0, length);
+            if (LZ4_LENGTH_SIZE + read != bytes.length) {
+                throw new IllegalArgumentException("Cannot decompress these bytes using LZ4");
+            }
+            return decompressed;
+        } catch (LZ4Exception e) {
+            throw new IllegalArgumentException("Cannot decompress these bytes using LZ4", e);
+        }
+    }
 }
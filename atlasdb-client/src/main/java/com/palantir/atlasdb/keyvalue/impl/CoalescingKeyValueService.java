@@ -0,0 +1,224 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Functions;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.util.AtlasDbMetrics;
+import com.palantir.common.base.Throwables;
+
+/**
+ * Coalesces concurrent point reads of the same table at the same timestamp into a single call to
+ * {@link KeyValueService#get(TableReference, Map)} on the delegate.
+ * <p>
+ * The first thread to read from a table at a given timestamp opens a batch and waits for up to the batch window
+ * for other threads to add their cells to it, or until the batch holds the maximum number of cells. It then reads
+ * every cell in the batch from the delegate and hands each thread the values of the cells it asked for. Reads of
+ * cells at differing timestamps, and reads that would fill a batch by themselves, go straight to the delegate.
+ */
+public final class CoalescingKeyValueService extends ForwardingKeyValueService {
+    private final KeyValueService delegate;
+    private final long batchWindowNanos;
+    private final int maxBatchSize;
+    private final ConcurrentMap<BatchKey, Batch> openBatches = Maps.newConcurrentMap();
+    private final Histogram batchSize;
+
+    private CoalescingKeyValueService(KeyValueService delegate, long batchWindowMicros, int maxBatchSize) {
+        this.delegate = delegate;
+        this.batchWindowNanos = TimeUnit.MICROSECONDS.toNanos(batchWindowMicros);
+        this.maxBatchSize = maxBatchSize;
+        this.batchSize = AtlasDbMetrics.getMetricRegistry().histogram(
+                MetricRegistry.name(CoalescingKeyValueService.class, "batchSize"));
+    }
+
+    public static CoalescingKeyValueService create(
+            KeyValueService delegate,
+            long batchWindowMicros,
+            int maxBatchSize) {
+        Preconditions.checkArgument(batchWindowMicros >= 0, "Batch window must be non-negative");
+        Preconditions.checkArgument(maxBatchSize > 0, "Batch size must be positive");
+        return new CoalescingKeyValueService(delegate, batchWindowMicros, maxBatchSize);
+    }
+
+    @Override
+    protected KeyValueService delegate() {
+        return delegate;
+    }
+
+    @Override
+    public Map<Cell, Value> get(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+        Long timestamp = getSingleTimestamp(timestampByCell);
+        if (timestamp == null || timestampByCell.size() >= maxBatchSize) {
+            return delegate().get(tableRef, timestampByCell);
+        }
+
+        BatchKey key = new BatchKey(tableRef, timestamp);
+        Set<Cell> cells = timestampByCell.keySet();
+        while (true) {
+            Batch batch = openBatches.get(key);
+            if (batch == null) {
+                Batch newBatch = new Batch(cells);
+                if (openBatches.putIfAbsent(key, newBatch) == null) {
+                    return valuesOf(cells, readBatch(key, newBatch));
+                }
+            } else if (batch.tryAdd(cells, maxBatchSize)) {
+                return valuesOf(cells, batch.awaitResult());
+            } else {
+                // the batch is already being read, so make way for a new one
+                openBatches.remove(key, batch);
+            }
+        }
+    }
+
+    private Map<Cell, Value> readBatch(BatchKey key, Batch batch) {
+        Set<Cell> cells;
+        try {
+            cells = batch.awaitClose(batchWindowNanos);
+        } finally {
+            openBatches.remove(key, batch);
+        }
+        batchSize.update(cells.size());
+        try {
+            Map<Cell, Long> timestampByCell = Maps.toMap(cells, Functions.constant(key.timestamp));
+            Map<Cell, Value> values = delegate().get(key.tableRef, timestampByCell);
+            batch.result.complete(values);
+            return values;
+        } catch (Throwable t) {
+            batch.result.completeExceptionally(t);
+            throw t;
+        }
+    }
+
+    private static Long getSingleTimestamp(Map<Cell, Long> timestampByCell) {
+        Long timestamp = null;
+        for (Long cellTimestamp : timestampByCell.values()) {
+            if (timestamp == null) {
+                timestamp = cellTimestamp;
+            } else if (!timestamp.equals(cellTimestamp)) {
+                return null;
+            }
+        }
+        return timestamp;
+    }
+
+    private static Map<Cell, Value> valuesOf(Set<Cell> cells, Map<Cell, Value> batchValues) {
+        Map<Cell, Value> values = Maps.newHashMapWithExpectedSize(cells.size());
+        for (Cell cell : cells) {
+            Value value = batchValues.get(cell);
+            if (value != null) {
+                values.put(cell, value);
+            }
+        }
+        return values;
+    }
+
+    private static final class Batch {
+        private final Set<Cell> cells;
+        private final CompletableFuture<Map<Cell, Value>> result = new CompletableFuture<>();
+        private boolean closed = false;
+
+        Batch(Set<Cell> cells) {
+            this.cells = Sets.newHashSet(cells);
+        }
+
+        /**
+         * Adds the given cells to the batch, unless it is no longer open. Closes the batch once it holds at least
+         * the given number of cells, waking up the thread waiting to read it.
+         */
+        synchronized boolean tryAdd(Set<Cell> cellsToAdd, int maxBatchSize) {
+            if (closed) {
+                return false;
+            }
+            cells.addAll(cellsToAdd);
+            if (cells.size() >= maxBatchSize) {
+                closed = true;
+                notifyAll();
+            }
+            return true;
+        }
+
+        synchronized Set<Cell> awaitClose(long windowNanos) {
+            long deadline = System.nanoTime() + windowNanos;
+            long remainingNanos = windowNanos;
+            try {
+                while (!closed && remainingNanos > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+                    remainingNanos = deadline - System.nanoTime();
+                }
+            } catch (InterruptedException e) {
+                // still read the batch, since other threads are waiting on it
+                Thread.currentThread().interrupt();
+            }
+            closed = true;
+            return ImmutableSet.copyOf(cells);
+        }
+
+        Map<Cell, Value> awaitResult() {
+            try {
+                return result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw Throwables.rewrapAndThrowUncheckedException(e);
+            } catch (ExecutionException e) {
+                throw Throwables.rewrapAndThrowUncheckedException(e.getCause());
+            }
+        }
+    }
+
+    private static final class BatchKey {
+        private final TableReference tableRef;
+        private final long timestamp;
+
+        BatchKey(TableReference tableRef, long timestamp) {
+            this.tableRef = tableRef;
+            this.timestamp = timestamp;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (other == null || getClass() != other.getClass()) {
+                return false;
+            }
+            BatchKey that = (BatchKey) other;
+            return timestamp == that.timestamp && tableRef.equals(that.tableRef);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tableRef, timestamp);
+        }
+    }
+}
@@ -0,0 +1,373 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.primitives.Bytes;
+import com.palantir.atlasdb.compress.CompressionUtils;
+import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.logging.LoggingArgs;
+import com.palantir.atlasdb.table.description.ColumnValueDescription.Compression;
+import com.palantir.atlasdb.table.description.TableMetadata;
+import com.palantir.atlasdb.util.AtlasDbMetrics;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.ClosableIterators;
+import com.palantir.util.paging.SimpleTokenBackedResultsPage;
+import com.palantir.util.paging.TokenBackedBasicResultsPage;
+
+/**
+ * Compresses the values written to tables whose {@link TableMetadata#getValueCompression()} is set, and decompresses
+ * them again on every read. Reads and writes of other tables are passed straight through, so values compressed while
+ * a table had compression enabled must be rewritten before it is turned off again.
+ * <p>
+ * A compressed value is stored behind a short header naming the format version and the compression used, so values
+ * written before compression was enabled, or with a different compression, remain readable. Values that don't
+ * shrink are stored as they are. Empty values are never touched, as they mark deleted cells. A value with a header
+ * that cannot be decompressed is corrupt, and reading it throws.
+ * <p>
+ * {@link #checkAndSet} compares the stored bytes, so it passes values through uncompressed.
+ */
+public final class CompressingKeyValueService extends ForwardingKeyValueService {
+    private static final byte[] MAGIC = {(byte) 0xc7, (byte) 0x5a, (byte) 0x0e, (byte) 0x91};
+    private static final byte FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = MAGIC.length + 2;
+
+    private final KeyValueService delegate;
+    private final ConcurrentMap<TableReference, Compression> compressionByTable = Maps.newConcurrentMap();
+    private final ConcurrentMap<TableReference, TableMetrics> metricsByTable = Maps.newConcurrentMap();
+
+    private CompressingKeyValueService(KeyValueService delegate) {
+        this.delegate = delegate;
+    }
+
+    public static CompressingKeyValueService create(KeyValueService delegate) {
+        return new CompressingKeyValueService(delegate);
+    }
+
+    @Override
+    protected KeyValueService delegate() {
+        return delegate;
+    }
+
+    @Override
+    public Map<Cell, Value> get(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+        Map<Cell, Value> values = delegate().get(tableRef, timestampByCell);
+        return isCompressed(tableRef) ? decompressValues(values) : values;
+    }
+
+    @Override
+    public Map<Cell, Value> getRows(TableReference tableRef, Iterable<byte[]> rows,
+            ColumnSelection columnSelection, long timestamp) {
+        Map<Cell, Value> values = delegate().getRows(tableRef, rows, columnSelection, timestamp);
+        return isCompressed(tableRef) ? decompressValues(values) : values;
+    }
+
+    @Override
+    public Map<byte[], RowColumnRangeIterator> getRowsColumnRange(TableReference tableRef, Iterable<byte[]> rows,
+            BatchColumnRangeSelection batchColumnRangeSelection, long timestamp) {
+        Map<byte[], RowColumnRangeIterator> iterators =
+                delegate().getRowsColumnRange(tableRef, rows, batchColumnRangeSelection, timestamp);
+        if (!isCompressed(tableRef)) {
+            return iterators;
+        }
+        return Maps.newHashMap(Maps.transformValues(iterators, CompressingKeyValueService::decompressIterator));
+    }
+
+    @Override
+    public RowColumnRangeIterator getRowsColumnRange(TableReference tableRef, Iterable<byte[]> rows,
+            ColumnRangeSelection columnRangeSelection, int cellBatchHint, long timestamp) {
+        RowColumnRangeIterator iterator =
+                delegate().getRowsColumnRange(tableRef, rows, columnRangeSelection, cellBatchHint, timestamp);
+        return isCompressed(tableRef) ? decompressIterator(iterator) : iterator;
+    }
+
+    @Override
+    public ClosableIterator<RowResult<Value>> getRange(TableReference tableRef, RangeRequest rangeRequest,
+            long timestamp) {
+        ClosableIterator<RowResult<Value>> range = delegate().getRange(tableRef, rangeRequest, timestamp);
+        if (!isCompressed(tableRef)) {
+            return range;
+        }
+        return ClosableIterators.wrap(Iterators.transform(range, CompressingKeyValueService::decompressRow), range);
+    }
+
+    @Override
+    public Map<RangeRequest, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>> getFirstBatchForRanges(
+            TableReference tableRef, Iterable<RangeRequest> rangeRequests, long timestamp) {
+        Map<RangeRequest, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>> pages =
+                delegate().getFirstBatchForRanges(tableRef, rangeRequests, timestamp);
+        if (!isCompressed(tableRef)) {
+            return pages;
+        }
+        return Maps.newHashMap(Maps.transformValues(
+                pages,
+                page -> SimpleTokenBackedResultsPage.create(
+                        page.getTokenForNextPage(),
+                        ImmutableList.copyOf(
+                                Lists.transform(page.getResults(), CompressingKeyValueService::decompressRow)),
+                        page.moreResultsAvailable())));
+    }
+
+    @Override
+    public void put(TableReference tableRef, Map<Cell, byte[]> values, long timestamp) {
+        delegate().put(tableRef, compress(tableRef, values), timestamp);
+    }
+
+    @Override
+    public void multiPut(Map<TableReference, ? extends Map<Cell, byte[]>> valuesByTable, long timestamp) {
+        Map<TableReference, Map<Cell, byte[]>> compressed = Maps.newHashMapWithExpectedSize(valuesByTable.size());
+        valuesByTable.forEach((tableRef, values) -> compressed.put(tableRef, compress(tableRef, values)));
+        delegate().multiPut(compressed, timestamp);
+    }
+
+    @Override
+    public void putWithTimestamps(TableReference tableRef, Multimap<Cell, Value> cellValues) {
+        Compression compression = getCompression(tableRef);
+        if (compression == Compression.NONE) {
+            delegate().putWithTimestamps(tableRef, cellValues);
+            return;
+        }
+        ImmutableMultimap.Builder<Cell, Value> compressed = ImmutableMultimap.builder();
+        for (Map.Entry<Cell, Value> e : cellValues.entries()) {
+            byte[] contents = compress(tableRef, compression, e.getValue().getContents());
+            compressed.put(e.getKey(), Value.create(contents, e.getValue().getTimestamp()));
+        }
+        delegate().putWithTimestamps(tableRef, compressed.build());
+    }
+
+    @Override
+    public void putUnlessExists(TableReference tableRef, Map<Cell, byte[]> values) throws KeyAlreadyExistsException {
+        delegate().putUnlessExists(tableRef, compress(tableRef, values));
+    }
+
+    @Override
+    public void dropTable(TableReference tableRef) {
+        delegate().dropTable(tableRef);
+        compressionByTable.remove(tableRef);
+    }
+
+    @Override
+    public void dropTables(Set<TableReference> tableRefs) {
+        delegate().dropTables(tableRefs);
+        tableRefs.forEach(compressionByTable::remove);
+    }
+
+    @Override
+    public void createTable(TableReference tableRef, byte[] tableMetadata) {
+        delegate().createTable(tableRef, tableMetadata);
+        compressionByTable.remove(tableRef);
+    }
+
+    @Override
+    public void createTables(Map<TableReference, byte[]> tableRefToTableMetadata) {
+        delegate().createTables(tableRefToTableMetadata);
+        tableRefToTableMetadata.keySet().forEach(compressionByTable::remove);
+    }
+
+    @Override
+    public void putMetadataForTable(TableReference tableRef, byte[] metadata) {
+        delegate().putMetadataForTable(tableRef, metadata);
+        compressionByTable.remove(tableRef);
+    }
+
+    @Override
+    public void putMetadataForTables(Map<TableReference, byte[]> tableRefToMetadata) {
+        delegate().putMetadataForTables(tableRefToMetadata);
+        tableRefToMetadata.keySet().forEach(compressionByTable::remove);
+    }
+
+    private boolean isCompressed(TableReference tableRef) {
+        return getCompression(tableRef) != Compression.NONE;
+    }
+
+    private Compression getCompression(TableReference tableRef) {
+        Compression compression = compressionByTable.get(tableRef);
+        if (compression == null) {
+            // Looked up outside of the map, so that we don't block other tables on a call to the delegate.
+            compression = getCompression(delegate().getMetadataForTable(tableRef));
+            compressionByTable.putIfAbsent(tableRef, compression);
+        }
+        return compression;
+    }
+
+    private static Compression getCompression(byte[] metadata) {
+        if (metadata == null || metadata.length == 0) {
+            return Compression.NONE;
+        }
+        return TableMetadata.BYTES_HYDRATOR.hydrateFromBytes(metadata).getValueCompression();
+    }
+
+    private Map<Cell, byte[]> compress(TableReference tableRef, Map<Cell, byte[]> values) {
+        Compression compression = getCompression(tableRef);
+        if (compression == Compression.NONE) {
+            return values;
+        }
+        Map<Cell, byte[]> compressed = Maps.newHashMapWithExpectedSize(values.size());
+        values.forEach((cell, contents) -> compressed.put(cell, compress(tableRef, compression, contents)));
+        return compressed;
+    }
+
+    private byte[] compress(TableReference tableRef, Compression compression, byte[] contents) {
+        byte[] stored = encode(compression, contents);
+        TableMetrics metrics = metricsByTable.computeIfAbsent(
+                LoggingArgs.safeTableOrPlaceholder(tableRef), TableMetrics::create);
+        metrics.uncompressedBytes.inc(contents.length);
+        metrics.storedBytes.inc(stored.length);
+        return stored;
+    }
+
+    private static byte[] encode(Compression compression, byte[] contents) {
+        if (contents.length == 0) {
+            return contents;
+        }
+        byte[] compressed = CompressionUtils.compress(contents, compression);
+        if (HEADER_SIZE + compressed.length < contents.length) {
+            return withHeader(compression, compressed);
+        }
+        // only needs a header if it would otherwise be mistaken for a compressed value
+        return hasHeader(contents) ? withHeader(Compression.NONE, contents) : contents;
+    }
+
+    private static byte[] withHeader(Compression compression, byte[] payload) {
+        return Bytes.concat(MAGIC, new byte[] {FORMAT_VERSION, codecId(compression)}, payload);
+    }
+
+    private static boolean hasHeader(byte[] stored) {
+        if (stored.length < HEADER_SIZE) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (stored[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return stored[MAGIC.length] == FORMAT_VERSION;
+    }
+
+    /**
+     * Decodes a stored value. Values without a header were written without compression and are returned as they are.
+     */
+    private static byte[] decode(byte[] stored) {
+        if (!hasHeader(stored)) {
+            return stored;
+        }
+        byte codecId = stored[MAGIC.length + 1];
+        Compression compression = fromCodecId(codecId);
+        if (compression == null) {
+            throw new IllegalStateException("Stored value has a compression header with unknown codec " + codecId);
+        }
+        byte[] payload = Arrays.copyOfRange(stored, HEADER_SIZE, stored.length);
+        try {
+            return CompressionUtils.decompress(payload, compression);
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Could not decompress a stored value compressed with " + compression, e);
+        }
+    }
+
+    private static byte codecId(Compression compression) {
+        switch (compression) {
+            case NONE:
+                return 0;
+            case SNAPPY:
+                return 1;
+            case LZ4:
+                return 2;
+            default:
+                throw new IllegalArgumentException("Unknown compression " + compression);
+        }
+    }
+
+    private static Compression fromCodecId(byte codecId) {
+        switch (codecId) {
+            case 0:
+                return Compression.NONE;
+            case 1:
+                return Compression.SNAPPY;
+            case 2:
+                return Compression.LZ4;
+            default:
+                return null;
+        }
+    }
+
+    private static Value decompressValue(Value value) {
+        byte[] contents = decode(value.getContents());
+        return contents == value.getContents() ? value : Value.create(contents, value.getTimestamp());
+    }
+
+    private static Map<Cell, Value> decompressValues(Map<Cell, Value> values) {
+        Map<Cell, Value> result = Maps.newHashMapWithExpectedSize(values.size());
+        values.forEach((cell, value) -> result.put(cell, decompressValue(value)));
+        return result;
+    }
+
+    private static RowColumnRangeIterator decompressIterator(RowColumnRangeIterator iterator) {
+        return new LocalRowColumnRangeIterator(Iterators.transform(iterator,
+                e -> Maps.immutableEntry(e.getKey(), decompressValue(e.getValue()))));
+    }
+
+    private static RowResult<Value> decompressRow(RowResult<Value> rowResult) {
+        SortedMap<byte[], Value> columns = ImmutableSortedMap.copyOfSorted(Maps.transformValues(
+                rowResult.getColumns(), CompressingKeyValueService::decompressValue));
+        return RowResult.create(rowResult.getRowName(), columns);
+    }
+
+    private static final class TableMetrics {
+        private final Counter uncompressedBytes = new Counter();
+        private final Counter storedBytes = new Counter();
+
+        static TableMetrics create(TableReference safeTableRef) {
+            TableMetrics metrics = new TableMetrics();
+            Gauge<Double> compressionRatio = () -> metrics.storedBytes.getCount() == 0
+                    ? 1.0
+                    : (double) metrics.uncompressedBytes.getCount() / metrics.storedBytes.getCount();
+            Map<String, Metric> metricSet = ImmutableMap.of(
+                    "uncompressedBytes", metrics.uncompressedBytes,
+                    "storedBytes", metrics.storedBytes,
+                    "compressionRatio", compressionRatio);
+            AtlasDbMetrics.registerMetricSet(() -> metricSet,
+                    MetricRegistry.name(CompressingKeyValueService.class, safeTableRef.getQualifiedName()));
+            return metrics;
+        }
+    }
+}
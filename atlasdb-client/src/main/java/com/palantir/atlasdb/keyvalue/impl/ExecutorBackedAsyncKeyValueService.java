@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import com.palantir.atlasdb.keyvalue.api.AsyncKeyValueService;
+import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+
+/**
+ * Adapts a {@link KeyValueService} without a non-blocking client to {@link AsyncKeyValueService}, by running each
+ * blocking call on the given executor. Every outstanding request therefore holds a thread of the executor.
+ */
+public final class ExecutorBackedAsyncKeyValueService implements AsyncKeyValueService {
+    private final KeyValueService delegate;
+    private final Executor executor;
+
+    private ExecutorBackedAsyncKeyValueService(KeyValueService delegate, Executor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    public static ExecutorBackedAsyncKeyValueService create(KeyValueService delegate, Executor executor) {
+        return new ExecutorBackedAsyncKeyValueService(delegate, executor);
+    }
+
+    @Override
+    public CompletableFuture<Map<Cell, Value>> getAsync(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+        return CompletableFuture.supplyAsync(() -> delegate.get(tableRef, timestampByCell), executor);
+    }
+
+    @Override
+    public CompletableFuture<Map<Cell, Value>> getRowsAsync(
+            TableReference tableRef,
+            Iterable<byte[]> rows,
+            ColumnSelection columnSelection,
+            long timestamp) {
+        return CompletableFuture.supplyAsync(
+                () -> delegate.getRows(tableRef, rows, columnSelection, timestamp), executor);
+    }
+
+    @Override
+    public CompletableFuture<Map<byte[], RowColumnRangeIterator>> getRowsColumnRangeAsync(
+            TableReference tableRef,
+            Iterable<byte[]> rows,
+            BatchColumnRangeSelection batchColumnRangeSelection,
+            long timestamp) {
+        return CompletableFuture.supplyAsync(
+                () -> delegate.getRowsColumnRange(tableRef, rows, batchColumnRangeSelection, timestamp), executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> putAsync(TableReference tableRef, Map<Cell, byte[]> values, long timestamp) {
+        return CompletableFuture.runAsync(() -> delegate.put(tableRef, values, timestamp), executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> multiPutAsync(
+            Map<TableReference, ? extends Map<Cell, byte[]>> valuesByTable,
+            long timestamp) {
+        return CompletableFuture.runAsync(() -> delegate.multiPut(valuesByTable, timestamp), executor);
+    }
+}
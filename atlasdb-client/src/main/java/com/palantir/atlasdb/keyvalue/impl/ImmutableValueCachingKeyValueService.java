@@ -0,0 +1,304 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.primitives.Ints;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.CheckAndSetRequest;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.table.description.TableMetadata;
+import com.palantir.atlasdb.transaction.api.ConflictHandler;
+import com.palantir.atlasdb.util.AtlasDbMetrics;
+
+/**
+ * Caches values read from tables whose {@link TableMetadata#shouldCacheImmutableValues()} is set, across
+ * transactions.
+ * <p>
+ * Each cell of such a table is written at most once, so a value that was written before the timestamp we are reading
+ * at is the latest value at that timestamp, and we can serve it from the cache. Cells without a value are never
+ * cached, since they may still be written. Writes and deletes through this key value service invalidate the cells
+ * they touch, which also covers uncommitted values that are later rolled back. Writes and deletes made through
+ * other clients are not seen, so tables with the {@link ConflictHandler#IGNORE_ALL} conflict handler, such as
+ * indexes, are never cached: their rows are deleted when the values they index change, and concurrent writes to
+ * their cells are not detected as conflicts.
+ * <p>
+ * Cached cells are keyed by the incarnation of their table, which is replaced when the table is truncated, dropped
+ * or has its metadata changed, so invalidating a table does not need to scan the cache; its old entries are simply
+ * never read again and are evicted as new entries come in. The cache is bounded by the approximate size in bytes of
+ * the cells and values in it.
+ */
+public final class ImmutableValueCachingKeyValueService extends ForwardingKeyValueService {
+    private final KeyValueService delegate;
+    private final Cache<CachedCell, Value> cache;
+    private final ConcurrentMap<TableReference, Optional<TableIncarnation>> tableIncarnations =
+            Maps.newConcurrentMap();
+
+    private ImmutableValueCachingKeyValueService(KeyValueService delegate, long maxCachedBytes) {
+        this.delegate = delegate;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxCachedBytes)
+                .weigher((CachedCell cell, Value value) -> Ints.saturatedCast(
+                        Cells.getApproxSizeOfCell(cell.cell) + value.getContents().length))
+                .recordStats()
+                .build();
+    }
+
+    public static ImmutableValueCachingKeyValueService create(KeyValueService delegate, long maxCachedBytes) {
+        Preconditions.checkArgument(maxCachedBytes >= 0, "maxCachedBytes must be non-negative");
+        ImmutableValueCachingKeyValueService kvs = new ImmutableValueCachingKeyValueService(delegate, maxCachedBytes);
+        AtlasDbMetrics.registerCache(kvs.cache,
+                MetricRegistry.name(ImmutableValueCachingKeyValueService.class, "cache"));
+        return kvs;
+    }
+
+    @Override
+    protected KeyValueService delegate() {
+        return delegate;
+    }
+
+    @Override
+    public Map<Cell, Value> get(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+        Optional<TableIncarnation> incarnation = getIncarnation(tableRef);
+        if (!incarnation.isPresent()) {
+            return delegate().get(tableRef, timestampByCell);
+        }
+        Map<Cell, Value> result = Maps.newHashMapWithExpectedSize(timestampByCell.size());
+        Map<Cell, Long> uncachedTimestampByCell = Maps.newHashMap();
+        for (Map.Entry<Cell, Long> e : timestampByCell.entrySet()) {
+            Value value = cache.getIfPresent(new CachedCell(incarnation.get(), e.getKey()));
+            if (value != null && value.getTimestamp() < e.getValue()) {
+                result.put(e.getKey(), value);
+            } else {
+                uncachedTimestampByCell.put(e.getKey(), e.getValue());
+            }
+        }
+        if (!uncachedTimestampByCell.isEmpty()) {
+            Map<Cell, Value> values = delegate().get(tableRef, uncachedTimestampByCell);
+            for (Map.Entry<Cell, Value> e : values.entrySet()) {
+                cache.put(new CachedCell(incarnation.get(), e.getKey()), e.getValue());
+            }
+            result.putAll(values);
+        }
+        return result;
+    }
+
+    @Override
+    public void put(TableReference tableRef, Map<Cell, byte[]> values, long timestamp) {
+        delegate().put(tableRef, values, timestamp);
+        invalidate(tableRef, values.keySet());
+    }
+
+    @Override
+    public void multiPut(Map<TableReference, ? extends Map<Cell, byte[]>> valuesByTable, long timestamp) {
+        delegate().multiPut(valuesByTable, timestamp);
+        valuesByTable.forEach((tableRef, values) -> invalidate(tableRef, values.keySet()));
+    }
+
+    @Override
+    public void putWithTimestamps(TableReference tableRef, Multimap<Cell, Value> cellValues) {
+        delegate().putWithTimestamps(tableRef, cellValues);
+        invalidate(tableRef, cellValues.keySet());
+    }
+
+    @Override
+    public void putUnlessExists(TableReference tableRef, Map<Cell, byte[]> values) throws KeyAlreadyExistsException {
+        try {
+            delegate().putUnlessExists(tableRef, values);
+        } finally {
+            invalidate(tableRef, values.keySet());
+        }
+    }
+
+    @Override
+    public void checkAndSet(CheckAndSetRequest request) {
+        try {
+            delegate().checkAndSet(request);
+        } finally {
+            invalidate(request.table(), ImmutableSet.of(request.cell()));
+        }
+    }
+
+    @Override
+    public void addGarbageCollectionSentinelValues(TableReference tableRef, Iterable<Cell> cells) {
+        delegate().addGarbageCollectionSentinelValues(tableRef, cells);
+        invalidate(tableRef, cells);
+    }
+
+    @Override
+    public void delete(TableReference tableRef, Multimap<Cell, Long> keys) {
+        delegate().delete(tableRef, keys);
+        invalidate(tableRef, keys.keySet());
+    }
+
+    @Override
+    public void deleteRange(TableReference tableRef, RangeRequest range) {
+        delegate().deleteRange(tableRef, range);
+        invalidateTable(tableRef);
+    }
+
+    @Override
+    public void truncateTable(TableReference tableRef) {
+        delegate().truncateTable(tableRef);
+        invalidateTable(tableRef);
+    }
+
+    @Override
+    public void truncateTables(Set<TableReference> tableRefs) {
+        delegate().truncateTables(tableRefs);
+        tableRefs.forEach(this::invalidateTable);
+    }
+
+    @Override
+    public void dropTable(TableReference tableRef) {
+        delegate().dropTable(tableRef);
+        invalidateTable(tableRef);
+    }
+
+    @Override
+    public void dropTables(Set<TableReference> tableRefs) {
+        delegate().dropTables(tableRefs);
+        tableRefs.forEach(this::invalidateTable);
+    }
+
+    @Override
+    public void createTable(TableReference tableRef, byte[] tableMetadata) {
+        delegate().createTable(tableRef, tableMetadata);
+        invalidateTable(tableRef);
+    }
+
+    @Override
+    public void createTables(Map<TableReference, byte[]> tableRefToTableMetadata) {
+        delegate().createTables(tableRefToTableMetadata);
+        tableRefToTableMetadata.keySet().forEach(this::invalidateTable);
+    }
+
+    @Override
+    public void putMetadataForTable(TableReference tableRef, byte[] metadata) {
+        delegate().putMetadataForTable(tableRef, metadata);
+        invalidateTable(tableRef);
+    }
+
+    @Override
+    public void putMetadataForTables(Map<TableReference, byte[]> tableRefToMetadata) {
+        delegate().putMetadataForTables(tableRefToMetadata);
+        tableRefToMetadata.keySet().forEach(this::invalidateTable);
+    }
+
+    @Override
+    public void close() {
+        cache.invalidateAll();
+        delegate().close();
+    }
+
+    @VisibleForTesting
+    long getCachedCellCount() {
+        return cache.size();
+    }
+
+    /**
+     * Returns the current incarnation of the given table, or empty if its values must not be cached.
+     */
+    private Optional<TableIncarnation> getIncarnation(TableReference tableRef) {
+        Optional<TableIncarnation> incarnation = tableIncarnations.get(tableRef);
+        if (incarnation == null) {
+            // Looked up outside of the map, so that we don't block other tables on a call to the delegate.
+            incarnation = shouldCache(delegate().getMetadataForTable(tableRef))
+                    ? Optional.of(new TableIncarnation())
+                    : Optional.empty();
+            Optional<TableIncarnation> existing = tableIncarnations.putIfAbsent(tableRef, incarnation);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        return incarnation;
+    }
+
+    private static boolean shouldCache(byte[] metadata) {
+        if (metadata == null || metadata.length == 0) {
+            return false;
+        }
+        TableMetadata tableMetadata = TableMetadata.BYTES_HYDRATOR.hydrateFromBytes(metadata);
+        return tableMetadata.shouldCacheImmutableValues()
+                && tableMetadata.getConflictHandler() != ConflictHandler.IGNORE_ALL;
+    }
+
+    private void invalidate(TableReference tableRef, Iterable<Cell> cells) {
+        Optional<TableIncarnation> incarnation = getIncarnation(tableRef);
+        if (!incarnation.isPresent()) {
+            return;
+        }
+        for (Cell cell : cells) {
+            cache.invalidate(new CachedCell(incarnation.get(), cell));
+        }
+    }
+
+    /**
+     * Starts a new incarnation of the given table, and rereads whether it is cached on its next use.
+     */
+    private void invalidateTable(TableReference tableRef) {
+        tableIncarnations.remove(tableRef);
+    }
+
+    /**
+     * Identifies one incarnation of a table in the cache; compared by identity.
+     */
+    private static final class TableIncarnation {
+    }
+
+    private static final class CachedCell {
+        private final TableIncarnation table;
+        private final Cell cell;
+
+        CachedCell(TableIncarnation table, Cell cell) {
+            this.table = table;
+            this.cell = cell;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (other == null || getClass() != other.getClass()) {
+                return false;
+            }
+            CachedCell that = (CachedCell) other;
+            return table == that.table && cell.equals(that.cell);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(table) + cell.hashCode();
+        }
+    }
+}
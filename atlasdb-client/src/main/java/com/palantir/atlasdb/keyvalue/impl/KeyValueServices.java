@@ -161,6 +161,16 @@ public class KeyValueServices {
         log.warn("Using inefficient postfiltering for getRowsColumnRange because the KVS doesn't support it natively. "
                 + "Production environments should use a KVS with a proper implementation.");
         Map<Cell, Value> allValues = kvs.getRows(tableRef, rows, ColumnSelection.all(), timestamp);
+        return filterRowsToColumnRange(rows, allValues, columnRangeSelection);
+    }
+
+    /**
+     * Filters the values of every column of the given rows down to those in the given column range, as returned by
+     * {@link KeyValueService#getRowsColumnRange(TableReference, Iterable, BatchColumnRangeSelection, long)}.
+     */
+    public static Map<byte[], RowColumnRangeIterator> filterRowsToColumnRange(Iterable<byte[]> rows,
+            Map<Cell, Value> allValues,
+            BatchColumnRangeSelection columnRangeSelection) {
         Map<Sha256Hash, byte[]> hashesToBytes = Maps.newHashMap();
         Map<Sha256Hash, ImmutableSortedMap.Builder<byte[], Value>> rowsToColumns = Maps.newHashMap();
 
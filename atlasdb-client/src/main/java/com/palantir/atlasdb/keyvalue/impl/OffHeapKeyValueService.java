@@ -0,0 +1,941 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.apache.commons.lang3.ArrayUtils;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.PeekingIterator;
+import com.google.common.collect.Sets;
+import com.google.common.io.BaseEncoding;
+import com.google.common.primitives.Longs;
+import com.google.common.primitives.UnsignedBytes;
+import com.google.common.primitives.UnsignedLongs;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
+import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweeping;
+import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweepingRequest;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.CheckAndSetException;
+import com.palantir.atlasdb.keyvalue.api.CheckAndSetRequest;
+import com.palantir.atlasdb.keyvalue.api.ClusterAvailabilityStatus;
+import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RangeRequests;
+import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.util.MetricsManager;
+import com.palantir.common.annotation.Output;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.ClosableIterators;
+import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.remoting3.tracing.Tracers;
+import com.palantir.util.paging.TokenBackedBasicResultsPage;
+
+/**
+ * In-memory (non-durable) key-value store that keeps its keys and values off the Java heap.
+ * <p>
+ * Behaves like {@link InMemoryKeyValueService}, but each version of a cell is written once into a direct memory slab
+ * owned by its table, and indexed by a small handle to that slab rather than by separate key and value arrays. This
+ * keeps the number and size of heap objects low enough for the store to hold many millions of cells without
+ * overwhelming the garbage collector. Space taken by deleted or overwritten versions is given back when the table is
+ * compacted, which happens by itself once less than half of a table's slabs are live, or on
+ * {@link #compactInternally}, and when the table is truncated or dropped. The allocated and live bytes of each
+ * instance are reported as the gauges {@code OffHeapKeyValueService.<n>.allocatedBytes} and
+ * {@code OffHeapKeyValueService.<n>.liveBytes}, where {@code n} numbers the instances in the order they were created,
+ * until the instance is closed.
+ * <p>
+ * The direct memory used is bounded by the JVM's {@code -XX:MaxDirectMemorySize}.
+ */
+@ThreadSafe
+public class OffHeapKeyValueService extends AbstractKeyValueService {
+    public static final int DEFAULT_SLAB_SIZE_BYTES = 1024 * 1024;
+
+    private static final AtomicLong instanceCount = new AtomicLong();
+
+    private final ConcurrentMap<TableReference, Table> tables = Maps.newConcurrentMap();
+    private final ConcurrentMap<TableReference, byte[]> tableMetadata = Maps.newConcurrentMap();
+    private final boolean createTablesAutomatically;
+    private final int slabSizeBytes;
+    private final MetricsManager metricsManager = new MetricsManager();
+    private final String metricPrefix = String.valueOf(instanceCount.getAndIncrement());
+
+    public OffHeapKeyValueService(boolean createTablesAutomatically) {
+        this(createTablesAutomatically,
+                Tracers.wrap(PTExecutors.newFixedThreadPool(16, PTExecutors.newNamedThreadFactory(true))),
+                DEFAULT_SLAB_SIZE_BYTES);
+    }
+
+    public OffHeapKeyValueService(boolean createTablesAutomatically,
+                                  ExecutorService executor,
+                                  int slabSizeBytes) {
+        super(executor);
+        Preconditions.checkArgument(slabSizeBytes > 0, "Slab size must be positive");
+        this.createTablesAutomatically = createTablesAutomatically;
+        this.slabSizeBytes = slabSizeBytes;
+        metricsManager.registerMetric(OffHeapKeyValueService.class, metricPrefix, "allocatedBytes",
+                (Gauge<Long>) this::getAllocatedBytes);
+        metricsManager.registerMetric(OffHeapKeyValueService.class, metricPrefix, "liveBytes",
+                (Gauge<Long>) this::getLiveBytes);
+    }
+
+    @VisibleForTesting
+    String getMetricName(String name) {
+        return MetricRegistry.name(OffHeapKeyValueService.class, metricPrefix, name);
+    }
+
+    /**
+     * Returns the number of bytes of direct memory held by the slabs of all tables, including space taken by
+     * versions that have since been deleted or overwritten.
+     */
+    public long getAllocatedBytes() {
+        return tables.values().stream().mapToLong(Table::getAllocatedBytes).sum();
+    }
+
+    /**
+     * Returns the number of bytes of direct memory taken by the versions that are currently stored.
+     */
+    public long getLiveBytes() {
+        return tables.values().stream().mapToLong(table -> table.liveBytes.get()).sum();
+    }
+
+    @Override
+    public Map<Cell, Value> getRows(TableReference tableRef, Iterable<byte[]> rows,
+                                    ColumnSelection columnSelection, long timestamp) {
+        Map<Cell, Value> result = Maps.newHashMap();
+        ConcurrentSkipListMap<Record, Record> table = getTable(tableRef).entries;
+
+        for (byte[] row : rows) {
+            Cell rowBegin = Cells.createSmallestCellForRow(row);
+            Cell rowEnd = Cells.createLargestCellForRow(row);
+            PeekingIterator<Record> records = Iterators.peekingIterator(table.subMap(
+                    Record.probe(rowBegin, Long.MIN_VALUE), Record.probe(rowEnd, timestamp)).values().iterator());
+            while (records.hasNext()) {
+                Record record = records.peek();
+                byte[] col = record.getColumnName();
+                Iterator<Record> cellIter = takeCell(records, record);
+                if (columnSelection.contains(col)) {
+                    getLatestVersionOfCell(row, col, cellIter, timestamp, result);
+                }
+                Iterators.size(cellIter);
+            }
+        }
+
+        return result;
+    }
+
+    private static void getLatestVersionOfCell(byte[] row, byte[] col, Iterator<Record> cellIter, long timestamp,
+                                               @Output Map<Cell, Value> result) {
+        Record lastRecord = null;
+        while (cellIter.hasNext()) {
+            Record curRecord = cellIter.next();
+            if (curRecord.getTimestamp() >= timestamp) {
+                break;
+            }
+            lastRecord = curRecord;
+        }
+        if (lastRecord != null) {
+            result.put(Cell.create(row, col), lastRecord.toValue());
+        }
+    }
+
+    @Override
+    public Map<Cell, Value> get(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+        ConcurrentSkipListMap<Record, Record> table = getTable(tableRef).entries;
+        Map<Cell, Value> result = Maps.newHashMap();
+        for (Map.Entry<Cell, Long> e : timestampByCell.entrySet()) {
+            Cell cell = e.getKey();
+            Map.Entry<Record, Record> lastEntry = table.lowerEntry(Record.probe(cell, e.getValue()));
+            if (lastEntry != null && lastEntry.getValue().matchesCell(cell)) {
+                result.put(cell, lastEntry.getValue().toValue());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<RangeRequest, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>> getFirstBatchForRanges(
+            TableReference tableRef,
+            Iterable<RangeRequest> rangeRequests,
+            long timestamp) {
+        return KeyValueServices.getFirstBatchForRangesUsingGetRange(this, tableRef, rangeRequests, timestamp);
+    }
+
+    @Override
+    public ClosableIterator<RowResult<Value>> getRange(
+            TableReference tableRef,
+            final RangeRequest range,
+            final long timestamp) {
+        boolean reversed = range.isReverse();
+        return getRangeInternal(tableRef, range, records -> {
+            Record lastRecord = null;
+            while (records.hasNext()) {
+                Record record = records.next();
+                if (reversed && record.getTimestamp() < timestamp) {
+                    lastRecord = record;
+                    break;
+                } else if (!reversed && record.getTimestamp() >= timestamp) {
+                    break;
+                }
+                lastRecord = record;
+            }
+            return lastRecord != null ? lastRecord.toValue() : null;
+        });
+    }
+
+    @Override
+    public ClosableIterator<RowResult<Set<Long>>> getRangeOfTimestamps(
+            TableReference tableRef,
+            final RangeRequest range,
+            final long timestamp) {
+        return getRangeInternal(tableRef, range, records -> {
+            Set<Long> timestamps = Sets.newTreeSet();
+            while (records.hasNext()) {
+                Record record = records.next();
+                if (record.getTimestamp() >= timestamp) {
+                    break;
+                }
+                timestamps.add(record.getTimestamp());
+            }
+            return !timestamps.isEmpty() ? timestamps : null;
+        });
+    }
+
+    @Override
+    public ClosableIterator<List<CandidateCellForSweeping>> getCandidateCellsForSweeping(TableReference tableRef,
+            CandidateCellForSweepingRequest request) {
+        return new GetCandidateCellsForSweepingShim(this).getCandidateCellsForSweeping(tableRef, request);
+    }
+
+    private <T> ClosableIterator<RowResult<T>> getRangeInternal(TableReference tableRef,
+                                                                final RangeRequest range,
+                                                                final ResultProducer<T> resultProducer) {
+        ConcurrentNavigableMap<Record, Record> tableMap = getTable(tableRef).entries;
+        if (range.isReverse()) {
+            tableMap = tableMap.descendingMap();
+        }
+        if (range.getStartInclusive().length != 0) {
+            Cell startCell = range.isReverse()
+                    ? Cells.createLargestCellForRow(range.getStartInclusive())
+                    : Cells.createSmallestCellForRow(range.getStartInclusive());
+            tableMap = tableMap.tailMap(Record.probe(startCell, Long.MIN_VALUE));
+        }
+        if (range.getEndExclusive().length != 0) {
+            Cell endCell = range.isReverse()
+                    ? Cells.createLargestCellForRow(range.getEndExclusive())
+                    : Cells.createSmallestCellForRow(range.getEndExclusive());
+            tableMap = tableMap.headMap(Record.probe(endCell, Long.MAX_VALUE));
+        }
+        final PeekingIterator<Record> it = Iterators.peekingIterator(tableMap.values().iterator());
+        return ClosableIterators.wrap(new AbstractIterator<RowResult<T>>() {
+            @Override
+            protected RowResult<T> computeNext() {
+                while (true) {
+                    if (!it.hasNext()) {
+                        return endOfData();
+                    }
+                    ImmutableSortedMap.Builder<byte[], T> result = ImmutableSortedMap.orderedBy(
+                            UnsignedBytes.lexicographicalComparator());
+                    Record record = it.peek();
+                    byte[] row = record.getRowName();
+                    collectValueForTimestamp(record.getColumnName(), takeCell(it, record), result, range,
+                            resultProducer);
+
+                    while (it.hasNext() && it.peek().matchesRow(row)) {
+                        record = it.peek();
+                        collectValueForTimestamp(record.getColumnName(), takeCell(it, record), result, range,
+                                resultProducer);
+                    }
+                    SortedMap<byte[], T> columns = result.build();
+                    if (!columns.isEmpty()) {
+                        return RowResult.create(row, columns);
+                    }
+                }
+            }
+        });
+    }
+
+    private static Iterator<Record> takeCell(final PeekingIterator<Record> it, final Record record) {
+        return new AbstractIterator<Record>() {
+            @Override
+            protected Record computeNext() {
+                if (it.hasNext() && it.peek().matchesCell(record)) {
+                    return it.next();
+                }
+                return endOfData();
+            }
+        };
+    }
+
+    @Override
+    public Map<byte[], RowColumnRangeIterator> getRowsColumnRange(TableReference tableRef,
+                                                                  Iterable<byte[]> rows,
+                                                                  BatchColumnRangeSelection batchColumnRangeSelection,
+                                                                  long timestamp) {
+        Map<byte[], RowColumnRangeIterator> result = Maps.newHashMap();
+        ConcurrentSkipListMap<Record, Record> table = getTable(tableRef).entries;
+
+        ColumnRangeSelection columnRangeSelection = new ColumnRangeSelection(
+                batchColumnRangeSelection.getStartCol(),
+                batchColumnRangeSelection.getEndCol());
+        for (byte[] row : rows) {
+            result.put(row, getColumnRangeForSingleRow(table, row, columnRangeSelection, timestamp));
+        }
+
+        return result;
+    }
+
+    @Override
+    public RowColumnRangeIterator getRowsColumnRange(TableReference tableRef,
+                                                     Iterable<byte[]> rows,
+                                                     ColumnRangeSelection columnRangeSelection,
+                                                     int cellBatchHint,
+                                                     long timestamp) {
+        ConcurrentSkipListMap<Record, Record> table = getTable(tableRef).entries;
+        Iterator<RowColumnRangeIterator> rowColumnRanges =
+                Iterators.transform(rows.iterator(),
+                        row -> getColumnRangeForSingleRow(table, row, columnRangeSelection, timestamp));
+        return new LocalRowColumnRangeIterator(Iterators.concat(rowColumnRanges));
+    }
+
+    private RowColumnRangeIterator getColumnRangeForSingleRow(ConcurrentSkipListMap<Record, Record> table,
+                                                              byte[] row,
+                                                              ColumnRangeSelection columnRangeSelection,
+                                                              long timestamp) {
+        Cell rowBegin;
+        if (columnRangeSelection.getStartCol().length > 0) {
+            rowBegin = Cell.create(row, columnRangeSelection.getStartCol());
+        } else {
+            rowBegin = Cells.createSmallestCellForRow(row);
+        }
+        // Inclusive last cell.
+        Cell rowEnd;
+        if (columnRangeSelection.getEndCol().length > 0) {
+            rowEnd = Cell.create(row, RangeRequests.previousLexicographicName(columnRangeSelection.getEndCol()));
+        } else {
+            rowEnd = Cells.createLargestCellForRow(row);
+        }
+        PeekingIterator<Record> records = Iterators.peekingIterator(table.subMap(
+                Record.probe(rowBegin, Long.MIN_VALUE), Record.probe(rowEnd, timestamp)).values().iterator());
+        Map<Cell, Value> rowResults = new LinkedHashMap<>();
+        while (records.hasNext()) {
+            Record record = records.peek();
+            getLatestVersionOfCell(row, record.getColumnName(), takeCell(records, record), timestamp, rowResults);
+        }
+        return new LocalRowColumnRangeIterator(rowResults.entrySet().iterator());
+    }
+
+    private interface ResultProducer<T> {
+        @Nullable T apply(Iterator<Record> timestampValues);
+    }
+
+    private static <T> void collectValueForTimestamp(byte[] col,
+                                                     Iterator<Record> timestampValues,
+                                                     @Output ImmutableSortedMap.Builder<byte[], T> results,
+                                                     RangeRequest range,
+                                                     ResultProducer<T> resultProducer) {
+        T result = null;
+        if (range.containsColumn(col)) {
+            result = resultProducer.apply(timestampValues);
+        }
+
+        // exhaust remaining entries
+        Iterators.size(timestampValues);
+        if (result != null) {
+            results.put(col, result);
+        }
+    }
+
+    @Override
+    public void put(TableReference tableRef, Map<Cell, byte[]> values, long timestamp) {
+        putInternal(tableRef, KeyValueServices.toConstantTimestampValues(values.entrySet(), timestamp), false);
+    }
+
+    @Override
+    public void putWithTimestamps(TableReference tableRef, Multimap<Cell, Value> values) {
+        putInternal(tableRef, values.entries(), false);
+    }
+
+    @Override
+    public void putUnlessExists(TableReference tableRef, Map<Cell, byte[]> values)
+            throws KeyAlreadyExistsException {
+        putInternal(tableRef,
+                KeyValueServices.toConstantTimestampValues(values.entrySet(), AtlasDbConstants.TRANSACTION_TS),
+                true);
+    }
+
+    private void putInternal(
+            TableReference tableRef,
+            Collection<Map.Entry<Cell, Value>> values,
+            boolean doNotOverwriteWithSameValue) {
+        Table table = getTable(tableRef);
+        try {
+            for (Map.Entry<Cell, Value> e : values) {
+                byte[] contents = e.getValue().getContents();
+                Record existing = table.putIfAbsent(e.getKey(), e.getValue().getTimestamp(), contents);
+                if (existing != null && (doNotOverwriteWithSameValue || !existing.hasContents(contents))) {
+                    throw new KeyAlreadyExistsException("We already have a value for this timestamp");
+                }
+            }
+        } finally {
+            table.compactIfMostlyDead();
+        }
+    }
+
+    @Override
+    public void checkAndSet(CheckAndSetRequest request) throws CheckAndSetException {
+        TableReference tableRef = request.table();
+        Table table = getTable(tableRef);
+        Cell cell = request.cell();
+        Optional<byte[]> oldValue = request.oldValue();
+
+        try {
+            if (oldValue.isPresent()) {
+                if (!table.replace(cell, AtlasDbConstants.TRANSACTION_TS, oldValue.get(), request.newValue())) {
+                    // Re-fetch, something may have happened between get and replace
+                    Record actual = table.entries.get(Record.probe(cell, AtlasDbConstants.TRANSACTION_TS));
+                    throwCheckAndSetException(cell, tableRef, oldValue.get(), actual);
+                }
+            } else {
+                Record existing = table.putIfAbsent(cell, AtlasDbConstants.TRANSACTION_TS, request.newValue());
+                if (existing != null) {
+                    throwCheckAndSetException(cell, tableRef, null, existing);
+                }
+            }
+        } finally {
+            table.compactIfMostlyDead();
+        }
+    }
+
+    private void throwCheckAndSetException(Cell cell, TableReference tableRef, byte[] expected,
+                                           @Nullable Record actual) {
+        ImmutableList<byte[]> actuals = actual == null ? ImmutableList.of() : ImmutableList.of(actual.getContents());
+        throw new CheckAndSetException(cell, tableRef, expected, actuals);
+    }
+
+    @Override
+    public void delete(TableReference tableRef, Multimap<Cell, Long> keys) {
+        Table table = getTable(tableRef);
+        for (Map.Entry<Cell, Long> e : keys.entries()) {
+            table.remove(Record.probe(e.getKey(), e.getValue()));
+        }
+        table.compactIfMostlyDead();
+    }
+
+    @Override
+    public Multimap<Cell, Long> getAllTimestamps(TableReference tableRef, Set<Cell> cells, long ts) {
+        Multimap<Cell, Long> multimap = HashMultimap.create();
+        ConcurrentSkipListMap<Record, Record> table = getTable(tableRef).entries;
+        for (Cell cell : cells) {
+            for (Record record : table.subMap(Record.probe(cell, Long.MIN_VALUE), Record.probe(cell, ts)).values()) {
+                multimap.put(cell, record.getTimestamp());
+            }
+        }
+        return multimap;
+    }
+
+    @Override
+    public void dropTable(TableReference tableRef) {
+        tables.remove(tableRef);
+        tableMetadata.remove(tableRef);
+    }
+
+    @Override
+    public void truncateTable(TableReference tableRef) {
+        Table table = tables.get(tableRef);
+        if (table != null) {
+            table.clear();
+        } else {
+            throw new IllegalStateException(
+                    String.format("Truncate called on a table (%s) that did not exist", tableRef));
+        }
+    }
+
+    @Override
+    public void createTable(TableReference tableRef, byte[] metadata) {
+        tables.putIfAbsent(tableRef, new Table(slabSizeBytes));
+        putMetadataForTable(tableRef, metadata);
+    }
+
+    @Override
+    public void putMetadataForTable(TableReference tableRef, byte[] metadata) {
+        if (!tables.containsKey(tableRef)) {
+            throw new IllegalArgumentException("No such table " + tableRef);
+        }
+        tableMetadata.put(tableRef, metadata);
+    }
+
+    @Override
+    public byte[] getMetadataForTable(TableReference tableRef) {
+        if (!tables.containsKey(tableRef)) {
+            return AtlasDbConstants.EMPTY_TABLE_METADATA;
+        }
+        byte[] ret = tableMetadata.get(tableRef);
+        return ret == null ? ArrayUtils.EMPTY_BYTE_ARRAY : ret;
+    }
+
+    @Override
+    public Set<TableReference> getAllTableNames() {
+        return ImmutableSet.copyOf(tables.keySet());
+    }
+
+    private Table getTable(TableReference tableRef) {
+        if (createTablesAutomatically && !tables.containsKey(tableRef)) {
+            createTable(tableRef, AtlasDbConstants.EMPTY_TABLE_METADATA);
+        }
+        Table table = tables.get(tableRef);
+        if (table == null) {
+            throw new IllegalArgumentException("table " + tableRef.getQualifiedName() + " does not exist");
+        }
+        return table;
+    }
+
+    @Override
+    public void addGarbageCollectionSentinelValues(TableReference tableRef, Iterable<Cell> cells) {
+        Table table = getTable(tableRef);
+        for (Cell cell : cells) {
+            table.put(cell, Value.INVALID_VALUE_TIMESTAMP, ArrayUtils.EMPTY_BYTE_ARRAY);
+        }
+        table.compactIfMostlyDead();
+    }
+
+    @Override
+    public void compactInternally(TableReference tableRef) {
+        getTable(tableRef).compact();
+    }
+
+    @Override
+    public ClusterAvailabilityStatus getClusterAvailabilityStatus() {
+        return ClusterAvailabilityStatus.ALL_AVAILABLE;
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        metricsManager.deregisterMetrics();
+        tables.clear();
+        tableMetadata.clear();
+    }
+
+    /**
+     * The versions of a table, and the slabs of direct memory that they are written to.
+     * <p>
+     * Slabs are never reused, so readers may keep reading a record after it has been removed from the table. The
+     * memory of a slab is freed once the table no longer refers to it and no records in it are reachable.
+     * <p>
+     * Compaction copies the live records into new slabs and swaps in a new map of them, so readers are never blocked
+     * and see either the old or the new records. Changes to the table are blocked while it is compacted, so that none
+     * are lost.
+     */
+    private static final class Table {
+        private static final int MIN_SLABS_TO_COMPACT = 4;
+
+        private final ReadWriteLock compactionLock = new ReentrantReadWriteLock();
+        private final AtomicLong liveBytes = new AtomicLong();
+        private final int slabSizeBytes;
+
+        private volatile ConcurrentSkipListMap<Record, Record> entries = new ConcurrentSkipListMap<>();
+
+        @GuardedBy("this")
+        private ByteBuffer currentSlab;
+        @GuardedBy("this")
+        private int currentSlabPosition;
+        @GuardedBy("this")
+        private long allocatedBytes;
+
+        Table(int slabSizeBytes) {
+            this.slabSizeBytes = slabSizeBytes;
+        }
+
+        synchronized long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        /**
+         * Stores the given version unless there is already a version of the cell at that timestamp, in which case
+         * nothing is written to the slabs and the existing version is returned.
+         */
+        @Nullable
+        Record putIfAbsent(Cell cell, long timestamp, byte[] contents) {
+            compactionLock.readLock().lock();
+            try {
+                Record existing = entries.get(Record.probe(cell, timestamp));
+                if (existing != null) {
+                    return existing;
+                }
+                Record record = write(cell, timestamp, contents);
+                existing = entries.putIfAbsent(record, record);
+                if (existing == null) {
+                    liveBytes.addAndGet(record.size());
+                }
+                return existing;
+            } finally {
+                compactionLock.readLock().unlock();
+            }
+        }
+
+        void put(Cell cell, long timestamp, byte[] contents) {
+            compactionLock.readLock().lock();
+            try {
+                Record record = write(cell, timestamp, contents);
+                Record existing = entries.put(record, record);
+                liveBytes.addAndGet(record.size() - (existing == null ? 0 : existing.size()));
+            } finally {
+                compactionLock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Replaces the version of the cell at the given timestamp if it has the expected contents. Nothing is
+         * written to the slabs unless it does.
+         */
+        boolean replace(Cell cell, long timestamp, byte[] expectedContents, byte[] contents) {
+            compactionLock.readLock().lock();
+            try {
+                Record stored = entries.get(Record.probe(cell, timestamp));
+                if (stored == null || !stored.hasContents(expectedContents)) {
+                    return false;
+                }
+                Record record = write(cell, timestamp, contents);
+                if (entries.replace(record, stored, record)) {
+                    liveBytes.addAndGet(record.size() - stored.size());
+                    return true;
+                }
+                return false;
+            } finally {
+                compactionLock.readLock().unlock();
+            }
+        }
+
+        void remove(Record probe) {
+            compactionLock.readLock().lock();
+            try {
+                Record removed = entries.remove(probe);
+                if (removed != null) {
+                    liveBytes.addAndGet(-removed.size());
+                }
+            } finally {
+                compactionLock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Compacts the table if it has at least a few slabs, and less than half of the bytes in them are live.
+         */
+        void compactIfMostlyDead() {
+            if (isMostlyDead()) {
+                compactionLock.writeLock().lock();
+                try {
+                    // someone else may have compacted while we waited for the lock
+                    if (isMostlyDead()) {
+                        compactInternal();
+                    }
+                } finally {
+                    compactionLock.writeLock().unlock();
+                }
+            }
+        }
+
+        void compact() {
+            compactionLock.writeLock().lock();
+            try {
+                compactInternal();
+            } finally {
+                compactionLock.writeLock().unlock();
+            }
+        }
+
+        void clear() {
+            compactionLock.writeLock().lock();
+            try {
+                entries = new ConcurrentSkipListMap<>();
+                liveBytes.set(0);
+                resetSlabs();
+            } finally {
+                compactionLock.writeLock().unlock();
+            }
+        }
+
+        private boolean isMostlyDead() {
+            long allocated = getAllocatedBytes();
+            return allocated >= (long) MIN_SLABS_TO_COMPACT * slabSizeBytes && 2 * liveBytes.get() < allocated;
+        }
+
+        @GuardedBy("compactionLock.writeLock()")
+        private void compactInternal() {
+            resetSlabs();
+            ConcurrentSkipListMap<Record, Record> compacted = new ConcurrentSkipListMap<>();
+            long compactedBytes = 0;
+            for (Record record : entries.values()) {
+                Record copy = copy(record);
+                compacted.put(copy, copy);
+                compactedBytes += copy.size();
+            }
+            entries = compacted;
+            liveBytes.set(compactedBytes);
+        }
+
+        private synchronized void resetSlabs() {
+            currentSlab = null;
+            currentSlabPosition = 0;
+            allocatedBytes = 0;
+        }
+
+        private Record write(Cell cell, long timestamp, byte[] contents) {
+            byte[] row = cell.getRowName();
+            byte[] col = cell.getColumnName();
+            int size = Record.sizeOf(row.length, col.length, contents.length);
+            Record record = allocate(size);
+            ByteBuffer buffer = record.buffer.duplicate();
+            buffer.position(record.offset);
+            Record.writeTo(buffer, row, col, timestamp, contents);
+            return record;
+        }
+
+        private Record copy(Record record) {
+            int size = record.size();
+            Record copy = allocate(size);
+            ByteBuffer source = record.buffer.duplicate();
+            source.limit(record.offset + size).position(record.offset);
+            ByteBuffer target = copy.buffer.duplicate();
+            target.position(copy.offset);
+            target.put(source);
+            return copy;
+        }
+
+        private synchronized Record allocate(int size) {
+            if (size > slabSizeBytes) {
+                allocatedBytes += size;
+                return new Record(ByteBuffer.allocateDirect(size), 0);
+            }
+            if (currentSlab == null || slabSizeBytes - currentSlabPosition < size) {
+                currentSlab = ByteBuffer.allocateDirect(slabSizeBytes);
+                currentSlabPosition = 0;
+                allocatedBytes += slabSizeBytes;
+            }
+            Record record = new Record(currentSlab, currentSlabPosition);
+            currentSlabPosition += size;
+            return record;
+        }
+    }
+
+    /**
+     * A version of a cell, laid out as the lengths of its row name, column name and contents, then its timestamp,
+     * row name, column name and contents. Records are compared by cell and then timestamp, and are otherwise only
+     * equal to themselves.
+     */
+    private static final class Record implements Comparable<Record> {
+        private static final int ROW_LENGTH_OFFSET = 0;
+        private static final int COLUMN_LENGTH_OFFSET = 4;
+        private static final int CONTENTS_LENGTH_OFFSET = 8;
+        private static final int TIMESTAMP_OFFSET = 12;
+        private static final int HEADER_SIZE = 20;
+
+        private final ByteBuffer buffer;
+        private final int offset;
+
+        Record(ByteBuffer buffer, int offset) {
+            this.buffer = buffer;
+            this.offset = offset;
+        }
+
+        /**
+         * Creates a record on the heap, without any contents, to look up the given version of a cell.
+         */
+        static Record probe(Cell cell, long timestamp) {
+            byte[] row = cell.getRowName();
+            byte[] col = cell.getColumnName();
+            ByteBuffer buffer = ByteBuffer.allocate(sizeOf(row.length, col.length, 0));
+            writeTo(buffer, row, col, timestamp, ArrayUtils.EMPTY_BYTE_ARRAY);
+            return new Record(buffer, 0);
+        }
+
+        static int sizeOf(int rowLength, int columnLength, int contentsLength) {
+            return HEADER_SIZE + rowLength + columnLength + contentsLength;
+        }
+
+        static void writeTo(ByteBuffer buffer, byte[] row, byte[] col, long timestamp, byte[] contents) {
+            buffer.putInt(row.length)
+                    .putInt(col.length)
+                    .putInt(contents.length)
+                    .putLong(timestamp)
+                    .put(row)
+                    .put(col)
+                    .put(contents);
+        }
+
+        int size() {
+            return sizeOf(rowLength(), columnLength(), contentsLength());
+        }
+
+        long getTimestamp() {
+            return buffer.getLong(offset + TIMESTAMP_OFFSET);
+        }
+
+        byte[] getRowName() {
+            return copy(rowOffset(), rowLength());
+        }
+
+        byte[] getColumnName() {
+            return copy(columnOffset(), columnLength());
+        }
+
+        byte[] getContents() {
+            return copy(contentsOffset(), contentsLength());
+        }
+
+        Value toValue() {
+            return Value.create(getContents(), getTimestamp());
+        }
+
+        boolean hasContents(byte[] contents) {
+            return compare(buffer, contentsOffset(), contentsLength(), ByteBuffer.wrap(contents), 0, contents.length)
+                    == 0;
+        }
+
+        boolean matchesRow(byte[] row) {
+            return compare(buffer, rowOffset(), rowLength(), ByteBuffer.wrap(row), 0, row.length) == 0;
+        }
+
+        boolean matchesCell(Cell cell) {
+            byte[] col = cell.getColumnName();
+            return matchesRow(cell.getRowName())
+                    && compare(buffer, columnOffset(), columnLength(), ByteBuffer.wrap(col), 0, col.length) == 0;
+        }
+
+        boolean matchesCell(Record other) {
+            return compareCells(other) == 0;
+        }
+
+        @Override
+        public int compareTo(Record other) {
+            int comparison = compareCells(other);
+            if (comparison != 0) {
+                return comparison;
+            }
+            return Longs.compare(getTimestamp(), other.getTimestamp());
+        }
+
+        private int compareCells(Record other) {
+            int comparison = compare(buffer, rowOffset(), rowLength(),
+                    other.buffer, other.rowOffset(), other.rowLength());
+            if (comparison != 0) {
+                return comparison;
+            }
+            return compare(buffer, columnOffset(), columnLength(),
+                    other.buffer, other.columnOffset(), other.columnLength());
+        }
+
+        /**
+         * Compares the given ranges of bytes lexicographically as unsigned bytes, eight bytes at a time where
+         * possible.
+         */
+        private static int compare(ByteBuffer left, int leftOffset, int leftLength,
+                                   ByteBuffer right, int rightOffset, int rightLength) {
+            int length = Math.min(leftLength, rightLength);
+            int i = 0;
+            for (; i + Long.BYTES <= length; i += Long.BYTES) {
+                long leftLong = left.getLong(leftOffset + i);
+                long rightLong = right.getLong(rightOffset + i);
+                if (leftLong != rightLong) {
+                    return UnsignedLongs.compare(leftLong, rightLong);
+                }
+            }
+            for (; i < length; i++) {
+                int comparison = UnsignedBytes.compare(left.get(leftOffset + i), right.get(rightOffset + i));
+                if (comparison != 0) {
+                    return comparison;
+                }
+            }
+            return leftLength - rightLength;
+        }
+
+        private byte[] copy(int from, int length) {
+            byte[] bytes = new byte[length];
+            ByteBuffer source = buffer.duplicate();
+            source.position(from);
+            source.get(bytes);
+            return bytes;
+        }
+
+        private int rowLength() {
+            return buffer.getInt(offset + ROW_LENGTH_OFFSET);
+        }
+
+        private int columnLength() {
+            return buffer.getInt(offset + COLUMN_LENGTH_OFFSET);
+        }
+
+        private int contentsLength() {
+            return buffer.getInt(offset + CONTENTS_LENGTH_OFFSET);
+        }
+
+        private int rowOffset() {
+            return offset + HEADER_SIZE;
+        }
+
+        private int columnOffset() {
+            return rowOffset() + rowLength();
+        }
+
+        private int contentsOffset() {
+            return columnOffset() + columnLength();
+        }
+
+        @Override
+        public String toString() {
+            return "Record [row=" + BaseEncoding.base16().lowerCase().encode(getRowName())
+                    + ", col=" + BaseEncoding.base16().lowerCase().encode(getColumnName())
+                    + ", ts=" + getTimestamp() + "]";
+        }
+    }
+}
@@ -19,6 +19,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
@@ -54,6 +55,7 @@ import com.palantir.atlasdb.schema.generated.SweepPriorityTable;
 import com.palantir.atlasdb.schema.generated.SweepPriorityTable.SweepPriorityNamedColumn;
 import com.palantir.atlasdb.schema.generated.SweepPriorityTable.SweepPriorityRow;
 import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.atlasdb.transaction.service.TransactionService;
 import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.common.persist.Persistables;
 import com.palantir.timestamp.TimestampService;
@@ -75,6 +77,7 @@ public class SweepStatsKeyValueService extends ForwardingKeyValueService {
 
     private final KeyValueService delegate;
     private final TimestampService timestampService;
+    private final Optional<TransactionService> transactionService;
     private final Multiset<TableReference> writesByTable = ConcurrentHashMultiset.create();
 
     private final Set<TableReference> clearedTables = Collections.newSetFromMap(
@@ -85,13 +88,27 @@ public class SweepStatsKeyValueService extends ForwardingKeyValueService {
     private final ScheduledExecutorService flushExecutor = PTExecutors.newSingleThreadScheduledExecutor();
 
     public static SweepStatsKeyValueService create(KeyValueService delegate, TimestampService timestampService) {
-        return new SweepStatsKeyValueService(delegate, timestampService);
+        return new SweepStatsKeyValueService(delegate, timestampService, Optional.empty());
+    }
+
+    /**
+     * Flushes of the sweep stats are committed through the given transaction service rather than straight into
+     * the transaction table, which is needed if the transaction service does not use the original transactions
+     * table format.
+     */
+    public static SweepStatsKeyValueService create(
+            KeyValueService delegate,
+            TimestampService timestampService,
+            TransactionService transactionService) {
+        return new SweepStatsKeyValueService(delegate, timestampService, Optional.of(transactionService));
     }
 
     private SweepStatsKeyValueService(KeyValueService delegate,
-                                     TimestampService timestampService) {
+                                     TimestampService timestampService,
+                                     Optional<TransactionService> transactionService) {
         this.delegate = delegate;
         this.timestampService = timestampService;
+        this.transactionService = transactionService;
         this.flushExecutor.scheduleWithFixedDelay(createFlushTask(), FLUSH_DELAY_SECONDS, FLUSH_DELAY_SECONDS,
                 TimeUnit.SECONDS);
     }
@@ -268,6 +285,10 @@ public class SweepStatsKeyValueService extends ForwardingKeyValueService {
     }
 
     private void commit(long timestamp) {
+        if (transactionService.isPresent()) {
+            transactionService.get().putUnlessExists(timestamp, timestamp);
+            return;
+        }
         Cell cell = Cell.create(
                 TransactionConstants.getValueForTimestamp(timestamp),
                 TransactionConstants.COMMIT_TS_COLUMN);
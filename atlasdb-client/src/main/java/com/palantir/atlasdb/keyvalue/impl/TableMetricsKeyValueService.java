@@ -0,0 +1,549 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.ToLongFunction;
+
+import org.mpierce.metrics.reservoir.hdrhistogram.HdrHistogramReservoir;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.CheckAndSetRequest;
+import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.logging.LoggingArgs;
+import com.palantir.atlasdb.util.AtlasDbMetrics;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.ForwardingClosableIterator;
+import com.palantir.util.paging.TokenBackedBasicResultsPage;
+
+/**
+ * Records the latency of every call to the delegate that reads or writes the cells of a table, along with the number
+ * of cells and bytes read or written by the call, in metrics named after the table and the operation:
+ * <ul>
+ *     <li>{@code <table>.<operation>.latency}, a {@link Timer} of the call's latency</li>
+ *     <li>{@code <table>.<operation>.cells}, a {@link Histogram} of the cells read or written</li>
+ *     <li>{@code <table>.<operation>.bytes}, a {@link Histogram} of the bytes of the row names, column names and
+ *     values read or written</li>
+ * </ul>
+ * Tables whose names are not safe to log share the metrics of {@link LoggingArgs#PLACEHOLDER_TABLE_REFERENCE}. The
+ * metrics of a safe table are removed when it is dropped.
+ * <p>
+ * Every metric records into an {@link HdrHistogramReservoir}, whatever the reservoirs of the registry, so recording a
+ * value doesn't allocate and the percentiles reported cover every value recorded since the last report.
+ * <p>
+ * Range scans record the time spent in the delegate fetching rows, leaving out the time the caller spends between
+ * rows, along with the rows returned, once the iterator is exhausted or closed. Column range iterators are loaded
+ * lazily, so only the latency of the call that creates them is recorded.
+ * <p>
+ * The metrics of a table and operation are created the first time they are used, and are looked up without locking
+ * or allocating afterwards, so this is cheap enough to leave on in production.
+ */
+public final class TableMetricsKeyValueService extends ForwardingKeyValueService {
+    enum Operation {
+        GET("get"),
+        GET_ROWS("getRows"),
+        GET_ROWS_COLUMN_RANGE("getRowsColumnRange"),
+        GET_RANGE("getRange"),
+        GET_RANGE_OF_TIMESTAMPS("getRangeOfTimestamps"),
+        GET_FIRST_BATCH_FOR_RANGES("getFirstBatchForRanges"),
+        GET_LATEST_TIMESTAMPS("getLatestTimestamps"),
+        GET_ALL_TIMESTAMPS("getAllTimestamps"),
+        PUT("put"),
+        MULTI_PUT("multiPut"),
+        PUT_WITH_TIMESTAMPS("putWithTimestamps"),
+        PUT_UNLESS_EXISTS("putUnlessExists"),
+        CHECK_AND_SET("checkAndSet"),
+        ADD_GARBAGE_COLLECTION_SENTINEL_VALUES("addGarbageCollectionSentinelValues"),
+        DELETE("delete"),
+        DELETE_RANGE("deleteRange"),
+        TRUNCATE_TABLE("truncateTable");
+
+        private static final Operation[] VALUES = values();
+
+        private final String metricName;
+
+        Operation(String metricName) {
+            this.metricName = metricName;
+        }
+    }
+
+    private final KeyValueService delegate;
+    private final MetricRegistry metricRegistry;
+    private final ConcurrentMap<TableReference, AtomicReferenceArray<OperationMetrics>> metricsByTable =
+            Maps.newConcurrentMap();
+
+    private TableMetricsKeyValueService(KeyValueService delegate, MetricRegistry metricRegistry) {
+        this.delegate = delegate;
+        this.metricRegistry = metricRegistry;
+    }
+
+    public static TableMetricsKeyValueService create(KeyValueService delegate) {
+        return new TableMetricsKeyValueService(delegate, AtlasDbMetrics.getMetricRegistry());
+    }
+
+    @Override
+    protected KeyValueService delegate() {
+        return delegate;
+    }
+
+    @Override
+    public Map<Cell, Value> get(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+        OperationMetrics metrics = metricsFor(tableRef, Operation.GET);
+        long start = System.nanoTime();
+        try {
+            Map<Cell, Value> result = delegate().get(tableRef, timestampByCell);
+            metrics.updateSizes(result.size(), sizeOfValues(result));
+            return result;
+        } finally {
+            metrics.updateLatency(start);
+        }
+    }
+
+    @Override
+    public Map<Cell, Value> getRows(TableReference tableRef, Iterable<byte[]> rows,
+            ColumnSelection columnSelection, long timestamp) {
+        OperationMetrics metrics = metricsFor(tableRef, Operation.GET_ROWS);
+        long start = System.nanoTime();
+        try {
+            Map<Cell, Value> result = delegate().getRows(tableRef, rows, columnSelection, timestamp);
+            metrics.updateSizes(result.size(), sizeOfValues(result));
+            return result;
+        } finally {
+            metrics.updateLatency(start);
+        }
+    }
+
+    @Override
+    public Map<byte[], RowColumnRangeIterator> getRowsColumnRange(TableReference tableRef, Iterable<byte[]> rows,
+            BatchColumnRangeSelection batchColumnRangeSelection, long timestamp) {
+        OperationMetrics metrics = metricsFor(tableRef, Operation.GET_ROWS_COLUMN_RANGE);
+        long start = System.nanoTime();
+        try {
+            return delegate().getRowsColumnRange(tableRef, rows, batchColumnRangeSelection, timestamp);
+        } finally {
+            metrics.updateLatency(start);
+        }
+    }
+
+    @Override
+    public RowColumnRangeIterator getRowsColumnRange(TableReference tableRef, Iterable<byte[]> rows,
+            ColumnRangeSelection columnRangeSelection, int cellBatchHint, long timestamp) {
+        OperationMetrics metrics = metricsFor(tableRef, Operation.GET_ROWS_COLUMN_RANGE);
+        long start = System.nanoTime();
+        try {
+            return delegate().getRowsColumnRange(tableRef, rows, columnRangeSelection, cellBatchHint, timestamp);
+        } finally {
+            metrics.updateLatency(start);
+        }
+    }
+
+    @Override
+    public ClosableIterator<RowResult<Value>> getRange(TableReference tableRef, RangeRequest rangeRequest,
+            long timestamp) {
+        OperationMetrics metrics = metricsFor(tableRef, Operation.GET_RANGE);
+        long start = System.nanoTime();
+        ClosableIterator<RowResult<Value>> range;
+        try {
+            range = delegate().getRange(tableRef, rangeRequest, timestamp);
+        } catch (RuntimeException | Error e) {
+            metrics.updateLatency(start);
+            throw e;
+        }
+        return new MeasuringRangeIterator<>(range, metrics, System.nanoTime() - start,
+                value -> value.getContents().length);
+    }
+
+    @Override
+    public ClosableIterator<RowResult<Set<Long>>> getRangeOfTimestamps(TableReference tableRef,
+            RangeRequest rangeRequest, long timestamp) {
+        OperationMetrics metrics = metricsFor(tableRef, Operation.GET_RANGE_OF_TIMESTAMPS);
+        long start = System.nanoTime();
+        ClosableIterator<RowResult<Set<Long>>> range;
+        try {
+            range = delegate().getRangeOfTimestamps(tableRef, rangeRequest, timestamp);
+        } catch (RuntimeException | Error e) {
+            metrics.updateLatency(start);
+            throw e;
+        }
+        return new MeasuringRangeIterator<>(range, metrics, System.nanoTime() - start,
+                timestamps -> timestamps.size() * Long.BYTES);
+    }
+
+    @Override
+    public Map<RangeRequest, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>> getFirstBatchForRanges(
+            TableReference tableRef, Iterable<RangeRequest> rangeRequests, long timestamp) {
+        OperationMetrics metrics = metricsFor(tableRef, Operation.GET_FIRST_BATCH_FOR_RANGES);
+        long start = System.nanoTime();
+        try {
+            Map<RangeRequest, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>> result =
+                    delegate().getFirstBatchForRanges(tableRef, rangeRequests, timestamp);
+            long cells = 0;
+            long bytes = 0;
+            for (TokenBackedBasicResultsPage<RowResult<Value>, byte[]> page : result.values()) {
+                for (RowResult<Value> row : page.getResults()) {
+                    cells += row.getColumns().size();
+                    bytes += sizeOfRow(row, value -> value.getContents().length);
+                }
+            }
+            metrics.updateSizes(cells, bytes);
+            return result;
+        } finally {
+            metrics.updateLatency(start);
+        }
+    }
+
+    @Override
+    public Map<Cell, Long> getLatestTimestamps(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+        OperationMetrics metrics = metricsFor(tableRef, Operation.GET_LATEST_TIMESTAMPS);
+        long start = System.nanoTime();
+        try {
+            Map<Cell, Long> result = delegate().getLatestTimestamps(tableRef, timestampByCell);
+            metrics.updateSizes(result.size(), sizeOfCells(result.keySet()) + result.size() * Long.BYTES);
+            return result;
+        } finally {
+            metrics.updateLatency(start);
+        }
+    }
+
+    @Override
+    public Multimap<Cell, Long> getAllTimestamps(TableReference tableRef, Set<Cell> cells, long timestamp) {
+        OperationMetrics metrics = metricsFor(tableRef, Operation.GET_ALL_TIMESTAMPS);
+        long start = System.nanoTime();
+        try {
+            Multimap<Cell, Long> result = delegate().getAllTimestamps(tableRef, cells, timestamp);
+            metrics.updateSizes(result.keySet().size(), sizeOfCells(result.keys()) + result.size() * Long.BYTES);
+            return result;
+        } finally {
+            metrics.updateLatency(start);
+        }
+    }
+
+    @Override
+    public void put(TableReference tableRef, Map<Cell, byte[]> values, long timestamp) {
+        OperationMetrics metrics = metricsFor(tableRef, Operation.PUT);
+        long start = System.nanoTime();
+        try {
+            delegate().put(tableRef, values, timestamp);
+        } finally {
+            metrics.updateLatency(start);
+        }
+        metrics.updateSizes(values.size(), sizeOfBytes(values));
+    }
+
+    @Override
+    public void multiPut(Map<TableReference, ? extends Map<Cell, byte[]>> valuesByTable, long timestamp) {
+        long start = System.nanoTime();
+        try {
+            delegate().multiPut(valuesByTable, timestamp);
+        } finally {
+            long latencyNanos = System.nanoTime() - start;
+            for (TableReference tableRef : valuesByTable.keySet()) {
+                metricsFor(tableRef, Operation.MULTI_PUT).latency.update(latencyNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        for (Map.Entry<TableReference, ? extends Map<Cell, byte[]>> e : valuesByTable.entrySet()) {
+            metricsFor(e.getKey(), Operation.MULTI_PUT).updateSizes(e.getValue().size(), sizeOfBytes(e.getValue()));
+        }
+    }
+
+    @Override
+    public void putWithTimestamps(TableReference tableRef, Multimap<Cell, Value> values) {
+        OperationMetrics metrics = metricsFor(tableRef, Operation.PUT_WITH_TIMESTAMPS);
+        long start = System.nanoTime();
+        try {
+            delegate().putWithTimestamps(tableRef, values);
+        } finally {
+            metrics.updateLatency(start);
+        }
+        metrics.updateSizes(values.size(), sizeOfValues(values.entries()));
+    }
+
+    @Override
+    public void putUnlessExists(TableReference tableRef, Map<Cell, byte[]> values) throws KeyAlreadyExistsException {
+        OperationMetrics metrics = metricsFor(tableRef, Operation.PUT_UNLESS_EXISTS);
+        long start = System.nanoTime();
+        try {
+            delegate().putUnlessExists(tableRef, values);
+        } finally {
+            metrics.updateLatency(start);
+        }
+        metrics.updateSizes(values.size(), sizeOfBytes(values));
+    }
+
+    @Override
+    public void checkAndSet(CheckAndSetRequest request) {
+        OperationMetrics metrics = metricsFor(request.table(), Operation.CHECK_AND_SET);
+        long start = System.nanoTime();
+        try {
+            delegate().checkAndSet(request);
+        } finally {
+            metrics.updateLatency(start);
+        }
+        metrics.updateSizes(1, sizeOfCell(request.cell()) + request.newValue().length);
+    }
+
+    @Override
+    public void addGarbageCollectionSentinelValues(TableReference tableRef, Iterable<Cell> cells) {
+        OperationMetrics metrics = metricsFor(tableRef, Operation.ADD_GARBAGE_COLLECTION_SENTINEL_VALUES);
+        long start = System.nanoTime();
+        try {
+            delegate().addGarbageCollectionSentinelValues(tableRef, cells);
+        } finally {
+            metrics.updateLatency(start);
+        }
+    }
+
+    @Override
+    public void delete(TableReference tableRef, Multimap<Cell, Long> keys) {
+        OperationMetrics metrics = metricsFor(tableRef, Operation.DELETE);
+        long start = System.nanoTime();
+        try {
+            delegate().delete(tableRef, keys);
+        } finally {
+            metrics.updateLatency(start);
+        }
+        metrics.updateSizes(keys.size(), sizeOfCells(keys.keys()));
+    }
+
+    @Override
+    public void deleteRange(TableReference tableRef, RangeRequest range) {
+        OperationMetrics metrics = metricsFor(tableRef, Operation.DELETE_RANGE);
+        long start = System.nanoTime();
+        try {
+            delegate().deleteRange(tableRef, range);
+        } finally {
+            metrics.updateLatency(start);
+        }
+    }
+
+    @Override
+    public void truncateTable(TableReference tableRef) {
+        OperationMetrics metrics = metricsFor(tableRef, Operation.TRUNCATE_TABLE);
+        long start = System.nanoTime();
+        try {
+            delegate().truncateTable(tableRef);
+        } finally {
+            metrics.updateLatency(start);
+        }
+    }
+
+    @Override
+    public void truncateTables(Set<TableReference> tableRefs) {
+        long start = System.nanoTime();
+        try {
+            delegate().truncateTables(tableRefs);
+        } finally {
+            long latencyNanos = System.nanoTime() - start;
+            for (TableReference tableRef : tableRefs) {
+                metricsFor(tableRef, Operation.TRUNCATE_TABLE).latency.update(latencyNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    @Override
+    public void dropTable(TableReference tableRef) {
+        delegate().dropTable(tableRef);
+        removeMetrics(tableRef);
+    }
+
+    @Override
+    public void dropTables(Set<TableReference> tableRefs) {
+        delegate().dropTables(tableRefs);
+        tableRefs.forEach(this::removeMetrics);
+    }
+
+    private void removeMetrics(TableReference tableRef) {
+        metricsByTable.remove(tableRef);
+        TableReference safeTableRef = LoggingArgs.safeTableOrPlaceholder(tableRef);
+        if (!safeTableRef.equals(LoggingArgs.PLACEHOLDER_TABLE_REFERENCE)) {
+            // other unsafe tables may still be recording into the placeholder's metrics
+            String prefix = metricPrefix(safeTableRef) + ".";
+            metricRegistry.removeMatching((name, metric) -> name.startsWith(prefix));
+        }
+    }
+
+    private static String metricPrefix(TableReference safeTableRef) {
+        return MetricRegistry.name(TableMetricsKeyValueService.class, safeTableRef.getQualifiedName());
+    }
+
+    private OperationMetrics metricsFor(TableReference tableRef, Operation operation) {
+        AtomicReferenceArray<OperationMetrics> tableMetrics = metricsByTable.get(tableRef);
+        if (tableMetrics == null) {
+            tableMetrics = metricsByTable.computeIfAbsent(tableRef,
+                    unused -> new AtomicReferenceArray<>(Operation.VALUES.length));
+        }
+        OperationMetrics metrics = tableMetrics.get(operation.ordinal());
+        if (metrics == null) {
+            // the registry hands out the same metrics for the same names, so racing threads agree on the result
+            metrics = new OperationMetrics(metricRegistry, tableRef, operation);
+            tableMetrics.set(operation.ordinal(), metrics);
+        }
+        return metrics;
+    }
+
+    private static long sizeOfCell(Cell cell) {
+        return cell.getRowName().length + cell.getColumnName().length;
+    }
+
+    private static long sizeOfCells(Iterable<Cell> cells) {
+        long size = 0;
+        for (Cell cell : cells) {
+            size += sizeOfCell(cell);
+        }
+        return size;
+    }
+
+    private static long sizeOfValues(Map<Cell, Value> values) {
+        return sizeOfValues(values.entrySet());
+    }
+
+    private static long sizeOfValues(Iterable<Map.Entry<Cell, Value>> values) {
+        long size = 0;
+        for (Map.Entry<Cell, Value> e : values) {
+            size += sizeOfCell(e.getKey()) + e.getValue().getContents().length;
+        }
+        return size;
+    }
+
+    private static long sizeOfBytes(Map<Cell, byte[]> values) {
+        long size = 0;
+        for (Map.Entry<Cell, byte[]> e : values.entrySet()) {
+            size += sizeOfCell(e.getKey()) + e.getValue().length;
+        }
+        return size;
+    }
+
+    private static <T> long sizeOfRow(RowResult<T> row, ToLongFunction<T> sizeOfValue) {
+        long size = 0;
+        for (Map.Entry<byte[], T> e : row.getColumns().entrySet()) {
+            size += row.getRowName().length + e.getKey().length + sizeOfValue.applyAsLong(e.getValue());
+        }
+        return size;
+    }
+
+    private static final class OperationMetrics {
+        private final Timer latency;
+        private final Histogram cells;
+        private final Histogram bytes;
+
+        OperationMetrics(MetricRegistry metricRegistry, TableReference tableRef, Operation operation) {
+            String prefix = MetricRegistry.name(
+                    metricPrefix(LoggingArgs.safeTableOrPlaceholder(tableRef)), operation.metricName);
+            this.latency = metricRegistry.timer(MetricRegistry.name(prefix, "latency"),
+                    () -> new Timer(new HdrHistogramReservoir()));
+            this.cells = metricRegistry.histogram(MetricRegistry.name(prefix, "cells"),
+                    () -> new Histogram(new HdrHistogramReservoir()));
+            this.bytes = metricRegistry.histogram(MetricRegistry.name(prefix, "bytes"),
+                    () -> new Histogram(new HdrHistogramReservoir()));
+        }
+
+        void updateLatency(long startNanos) {
+            latency.update(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+
+        void updateSizes(long cellCount, long byteCount) {
+            cells.update(cellCount);
+            bytes.update(byteCount);
+        }
+    }
+
+    private static final class MeasuringRangeIterator<T> extends ForwardingClosableIterator<RowResult<T>> {
+        private final ClosableIterator<RowResult<T>> delegate;
+        private final OperationMetrics metrics;
+        private final ToLongFunction<T> sizeOfValue;
+        private long fetchNanos;
+        private long cells = 0;
+        private long bytes = 0;
+        private boolean recorded = false;
+
+        MeasuringRangeIterator(ClosableIterator<RowResult<T>> delegate, OperationMetrics metrics, long fetchNanos,
+                ToLongFunction<T> sizeOfValue) {
+            this.delegate = delegate;
+            this.metrics = metrics;
+            this.fetchNanos = fetchNanos;
+            this.sizeOfValue = sizeOfValue;
+        }
+
+        @Override
+        protected ClosableIterator<RowResult<T>> delegate() {
+            return delegate;
+        }
+
+        @Override
+        public boolean hasNext() {
+            long start = System.nanoTime();
+            boolean hasNext;
+            try {
+                hasNext = delegate.hasNext();
+            } finally {
+                fetchNanos += System.nanoTime() - start;
+            }
+            if (!hasNext) {
+                record();
+            }
+            return hasNext;
+        }
+
+        @Override
+        public RowResult<T> next() {
+            long start = System.nanoTime();
+            RowResult<T> row;
+            try {
+                row = delegate.next();
+            } finally {
+                fetchNanos += System.nanoTime() - start;
+            }
+            cells += row.getColumns().size();
+            bytes += sizeOfRow(row, sizeOfValue);
+            return row;
+        }
+
+        @Override
+        public void close() {
+            try {
+                delegate.close();
+            } finally {
+                record();
+            }
+        }
+
+        private void record() {
+            if (!recorded) {
+                recorded = true;
+                metrics.latency.update(fetchNanos, TimeUnit.NANOSECONDS);
+                metrics.updateSizes(cells, bytes);
+            }
+        }
+    }
+}
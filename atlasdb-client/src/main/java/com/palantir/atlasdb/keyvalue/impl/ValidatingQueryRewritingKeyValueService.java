@@ -198,7 +198,7 @@ public class ValidatingQueryRewritingKeyValueService extends ForwardingKeyValueS
     public void put(TableReference tableRef, Map<Cell, byte[]> values, long timestamp) throws KeyAlreadyExistsException {
         Validate.isTrue(timestamp != Long.MAX_VALUE);
         Validate.isTrue(timestamp >= 0);
-        Validate.isTrue(!tableRef.equals(TransactionConstants.TRANSACTION_TABLE), TRANSACTION_ERROR);
+        Validate.isTrue(!isTransactionTable(tableRef), TRANSACTION_ERROR);
         if (values.isEmpty()) {
             return;
         }
@@ -238,7 +238,7 @@ public class ValidatingQueryRewritingKeyValueService extends ForwardingKeyValueS
         if (cellValues.isEmpty()) {
             return;
         }
-        Validate.isTrue(!tableRef.equals(TransactionConstants.TRANSACTION_TABLE), TRANSACTION_ERROR);
+        Validate.isTrue(!isTransactionTable(tableRef), TRANSACTION_ERROR);
 
         long lastTimestamp = -1;
         boolean allAtSameTimestamp = true;
@@ -281,4 +281,9 @@ public class ValidatingQueryRewritingKeyValueService extends ForwardingKeyValueS
         }
         delegate.truncateTables(tableRefs);
     }
+
+    private static boolean isTransactionTable(TableReference tableRef) {
+        return tableRef.equals(TransactionConstants.TRANSACTION_TABLE)
+                || tableRef.equals(TransactionConstants.TRANSACTIONS2_TABLE);
+    }
 }
@@ -49,6 +49,11 @@ public final class LoggingArgs {
         UnsafeArg<List<TableReference>> unsafeTableRefs();
     }
 
+    /**
+     * Stands in for tables whose names are not safe to log, for example in metric names.
+     */
+    public static final TableReference PLACEHOLDER_TABLE_REFERENCE = TableReference.createWithEmptyNamespace("{table}");
+
     private static volatile KeyValueServiceLogArbitrator logArbitrator = KeyValueServiceLogArbitrator.ALL_UNSAFE;
 
     private LoggingArgs() {
@@ -93,6 +98,13 @@ public final class LoggingArgs {
         return getArg(argName, tableReference, logArbitrator.isTableReferenceSafe(tableReference));
     }
 
+    /**
+     * Returns the supplied table reference if it is safe to log, and {@link #PLACEHOLDER_TABLE_REFERENCE} otherwise.
+     */
+    public static TableReference safeTableOrPlaceholder(TableReference tableReference) {
+        return logArbitrator.isTableReferenceSafe(tableReference) ? tableReference : PLACEHOLDER_TABLE_REFERENCE;
+    }
+
     public static Arg<String> customTableName(TableReference tableReference, String tableName) {
         return getArg("tableName", tableName, logArbitrator.isTableReferenceSafe(tableReference));
     }
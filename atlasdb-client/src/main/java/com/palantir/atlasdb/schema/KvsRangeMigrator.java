@@ -58,6 +58,7 @@ public class KvsRangeMigrator implements RangeMigrator {
     private final long migrationTimestamp;
     private final AbstractTaskCheckpointer checkpointer;
     private final Function<RowResult<byte[]>, Map<Cell, byte[]>> rowTransform;
+    private final MigrationThroughput throughput;
 
     KvsRangeMigrator(TableReference srcTable,
                      TableReference destTable,
@@ -67,7 +68,8 @@ public class KvsRangeMigrator implements RangeMigrator {
                      KeyValueService writeKvs,
                      long migrationTimestamp,
                      AbstractTaskCheckpointer checkpointer,
-                     Function<RowResult<byte[]>, Map<Cell, byte[]>> rowTransform) {
+                     Function<RowResult<byte[]>, Map<Cell, byte[]>> rowTransform,
+                     MigrationThroughput throughput) {
         this.srcTable = srcTable;
         this.destTable = destTable;
         this.readBatchSize = readBatchSize;
@@ -77,6 +79,7 @@ public class KvsRangeMigrator implements RangeMigrator {
         this.migrationTimestamp = migrationTimestamp;
         this.checkpointer = checkpointer;
         this.rowTransform = rowTransform;
+        this.throughput = throughput;
     }
 
     @Override
@@ -172,11 +175,14 @@ public class KvsRangeMigrator implements RangeMigrator {
     }
 
     protected void writeToKvs(Map<Cell, byte[]> writeMap) {
+        long bytes = getApproxSize(writeMap);
+        throughput.acquire(bytes);
         try {
             writeKvs.put(destTable, writeMap, migrationTimestamp);
         } catch (KeyAlreadyExistsException e) {
             retryWriteToKvs(writeMap);
         }
+        throughput.recordWrite(writeMap.size(), bytes);
     }
 
     protected void retryWriteToKvs(Map<Cell, byte[]> writeMap) {
@@ -187,6 +193,14 @@ public class KvsRangeMigrator implements RangeMigrator {
         writeKvs.put(destTable, writeMap, migrationTimestamp);
     }
 
+    private static long getApproxSize(Map<Cell, byte[]> writeMap) {
+        long bytes = 0L;
+        for (Map.Entry<Cell, byte[]> e : writeMap.entrySet()) {
+            bytes += e.getValue().length + Cells.getApproxSizeOfCell(e.getKey());
+        }
+        return bytes;
+    }
+
     private byte[] getNextRowName(byte[] lastRow) {
         if (isRangeDone(lastRow)) {
             return new byte[0];
@@ -36,6 +36,9 @@ import com.palantir.common.collect.Maps2;
  *
  * If readTxManager is not given, the read transaction will be the same as the write transaction.
  * This will not work for kvs migrations.
+ *
+ * If throughput is not given, writes are not rate limited. Range migrators that share a throughput
+ * share its limit.
  */
 public class KvsRangeMigratorBuilder {
     private TableReference srcTable;
@@ -47,6 +50,7 @@ public class KvsRangeMigratorBuilder {
     private long migrationTimestamp;
     private AbstractTaskCheckpointer checkpointer;
     private Function<RowResult<byte[]>, Map<Cell, byte[]>> rowTransform;
+    private MigrationThroughput throughput;
 
     public KvsRangeMigratorBuilder() {
         srcTable = null;
@@ -58,6 +62,7 @@ public class KvsRangeMigratorBuilder {
         migrationTimestamp = -1;
         checkpointer = null;
         rowTransform = getIdentityTransform();
+        throughput = MigrationThroughput.unlimited();
     }
 
     private static Function<RowResult<byte[]>, Map<Cell, byte[]>> getIdentityTransform() {
@@ -118,6 +123,12 @@ public class KvsRangeMigratorBuilder {
         return this;
     }
 
+    public KvsRangeMigratorBuilder throughput(MigrationThroughput migrationThroughput) {
+        Preconditions.checkNotNull(migrationThroughput);
+        this.throughput = migrationThroughput;
+        return this;
+    }
+
     public KvsRangeMigrator build() {
         if (destTable == null) {
             destTable = srcTable;
@@ -140,6 +151,7 @@ public class KvsRangeMigratorBuilder {
                 writeKvs,
                 migrationTimestamp,
                 checkpointer,
-                rowTransform);
+                rowTransform,
+                throughput);
     }
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.schema;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Stopwatch;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.RateLimiter;
+
+/**
+ * Counts the cells and bytes written by a migration, and optionally limits the rate at which it writes bytes.
+ * <p>
+ * A single instance is shared by every {@link KvsRangeMigrator} of a migration, so that the limit applies to the
+ * migration as a whole rather than to each of the ranges being copied concurrently.
+ */
+public final class MigrationThroughput {
+    private final Optional<RateLimiter> bytesRateLimiter;
+    private final Stopwatch stopwatch = Stopwatch.createStarted();
+    private final AtomicLong cellsWritten = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    private MigrationThroughput(Optional<RateLimiter> bytesRateLimiter) {
+        this.bytesRateLimiter = bytesRateLimiter;
+    }
+
+    public static MigrationThroughput unlimited() {
+        return new MigrationThroughput(Optional.empty());
+    }
+
+    public static MigrationThroughput limitedTo(long maxBytesPerSecond) {
+        Preconditions.checkArgument(maxBytesPerSecond > 0, "maxBytesPerSecond must be positive");
+        return new MigrationThroughput(Optional.of(RateLimiter.create(maxBytesPerSecond)));
+    }
+
+    /**
+     * Blocks until the given number of bytes may be written without exceeding the limit, if there is one.
+     */
+    void acquire(long bytes) {
+        if (bytes > 0) {
+            bytesRateLimiter.ifPresent(limiter -> limiter.acquire(Ints.saturatedCast(bytes)));
+        }
+    }
+
+    void recordWrite(long cells, long bytes) {
+        cellsWritten.addAndGet(cells);
+        bytesWritten.addAndGet(bytes);
+    }
+
+    public long getCellsWritten() {
+        return cellsWritten.get();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public double getBytesPerSecond() {
+        long elapsedMicros = stopwatch.elapsed(TimeUnit.MICROSECONDS);
+        return elapsedMicros == 0 ? 0.0 : getBytesWritten() * 1_000_000.0 / elapsedMicros;
+    }
+}
@@ -85,7 +85,7 @@ public class TableMigrator {
     }
 
     public void migrate() {
-        List<byte[]> rangeBoundaries = getRangeBoundaries();
+        List<byte[]> rangeBoundaries = getRangeBoundaries(partitioners, partitions);
 
         int totalTasks = rangeBoundaries.size() - 1;
 
@@ -154,7 +154,7 @@ public class TableMigrator {
      * end to ensure that all entries are covered by the ranges.
      * If a table doesn't support partitioning, we'll make fake partitions and hope it helps.
      */
-    private List<byte[]> getRangeBoundaries() {
+    public static List<byte[]> getRangeBoundaries(List<RowNamePartitioner> partitioners, int partitions) {
         Set<byte[]> rangeBoundaries = Sets.newHashSet();
         // Must use PtBytes.EMPTY_BYTE_ARRAY to avoid duplicate when adding from UniformRowNamePartitioner
         rangeBoundaries.add(PtBytes.EMPTY_BYTE_ARRAY);
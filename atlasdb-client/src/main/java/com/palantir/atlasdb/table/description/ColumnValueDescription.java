@@ -70,6 +70,7 @@ public final class ColumnValueDescription {
 
     public enum Compression {
         SNAPPY,
+        LZ4,
         NONE;
 
         public TableMetadataPersistence.Compression persistToProto() {
@@ -341,6 +341,31 @@ public class TableDefinition extends AbstractDefinition {
         return javaTableName;
     }
 
+    /**
+     * Allows values read from this table to be cached by the key value service across transactions. Only use this
+     * for tables where each cell is written at most once and is never overwritten or deleted afterwards, as other
+     * clients will not see overwrites or deletes of values that they have cached.
+     */
+    public void cacheImmutableValues() {
+        cacheImmutableValues = true;
+    }
+
+    public boolean shouldCacheImmutableValues() {
+        return cacheImmutableValues;
+    }
+
+    /**
+     * Compresses every value of this table in the key value service. Values written before this was set remain
+     * readable, and are only compressed when they are next written.
+     */
+    public void compressValues(Compression compression) {
+        valueCompression = compression;
+    }
+
+    public Compression getValueCompression() {
+        return valueCompression;
+    }
+
     public boolean hasV2TableEnabled() {
         return this.v2TableEnabled;
     }
@@ -390,6 +415,8 @@ public class TableDefinition extends AbstractDefinition {
     private LogSafety tableNameSafety = LogSafety.UNSAFE;
     private LogSafety defaultNamedComponentLogSafety = LogSafety.UNSAFE;
     private boolean v2TableEnabled = false;
+    private boolean cacheImmutableValues = false;
+    private Compression valueCompression = Compression.NONE;
 
     public TableMetadata toTableMetadata() {
         Preconditions.checkState(!rowNameComponents.isEmpty(), "No row name components defined.");
@@ -402,6 +429,9 @@ public class TableDefinition extends AbstractDefinition {
             }
         }
 
+        Preconditions.checkState(!cacheImmutableValues || conflictHandler != ConflictHandler.IGNORE_ALL,
+                "Values of tables with the IGNORE_ALL conflict handler cannot be cached,"
+                        + " as their cells may be overwritten or deleted without conflicting.");
         return new TableMetadata(
                 NameMetadataDescription.create(rowNameComponents, numberOfComponentsHashed),
                 getColumnMetadataDescription(),
@@ -414,7 +444,9 @@ public class TableDefinition extends AbstractDefinition {
                 sweepStrategy,
                 expirationStrategy,
                 appendHeavyAndReadLight,
-                tableNameSafety);
+                tableNameSafety,
+                cacheImmutableValues,
+                valueCompression);
     }
 
     private ColumnMetadataDescription getColumnMetadataDescription() {
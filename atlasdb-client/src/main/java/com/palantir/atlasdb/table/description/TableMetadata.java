@@ -26,6 +26,7 @@ import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.LogSafety;
 import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.PartitionStrategy;
 import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
 import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.TableMetadata.Builder;
+import com.palantir.atlasdb.table.description.ColumnValueDescription.Compression;
 import com.palantir.atlasdb.transaction.api.ConflictHandler;
 import com.palantir.common.base.Throwables;
 import com.palantir.common.persist.Persistable;
@@ -44,6 +45,8 @@ public class TableMetadata implements Persistable {
     final ExpirationStrategy expirationStrategy;
     final boolean appendHeavyAndReadLight;
     final LogSafety nameLogSafety;
+    final boolean cacheImmutableValues;
+    final Compression valueCompression;
 
     public TableMetadata() {
         this(
@@ -107,6 +110,66 @@ public class TableMetadata implements Persistable {
                          ExpirationStrategy expirationStrategy,
                          boolean appendHeavyAndReadLight,
                          LogSafety nameLogSafety) {
+        this(
+                rowMetadata,
+                columns,
+                conflictHandler,
+                cachePriority,
+                partitionStrategy,
+                rangeScanAllowed,
+                explicitCompressionBlockSizeKB,
+                negativeLookups,
+                sweepStrategy,
+                expirationStrategy,
+                appendHeavyAndReadLight,
+                nameLogSafety,
+                false);
+    }
+
+    public TableMetadata(NameMetadataDescription rowMetadata,
+                         ColumnMetadataDescription columns,
+                         ConflictHandler conflictHandler,
+                         CachePriority cachePriority,
+                         PartitionStrategy partitionStrategy,
+                         boolean rangeScanAllowed,
+                         int explicitCompressionBlockSizeKB,
+                         boolean negativeLookups,
+                         SweepStrategy sweepStrategy,
+                         ExpirationStrategy expirationStrategy,
+                         boolean appendHeavyAndReadLight,
+                         LogSafety nameLogSafety,
+                         boolean cacheImmutableValues) {
+        this(
+                rowMetadata,
+                columns,
+                conflictHandler,
+                cachePriority,
+                partitionStrategy,
+                rangeScanAllowed,
+                explicitCompressionBlockSizeKB,
+                negativeLookups,
+                sweepStrategy,
+                expirationStrategy,
+                appendHeavyAndReadLight,
+                nameLogSafety,
+                cacheImmutableValues,
+                Compression.NONE);
+    }
+
+    public TableMetadata(NameMetadataDescription rowMetadata,
+                         ColumnMetadataDescription columns,
+                         ConflictHandler conflictHandler,
+                         CachePriority cachePriority,
+                         PartitionStrategy partitionStrategy,
+                         boolean rangeScanAllowed,
+                         int explicitCompressionBlockSizeKB,
+                         boolean negativeLookups,
+                         SweepStrategy sweepStrategy,
+                         ExpirationStrategy expirationStrategy,
+                         boolean appendHeavyAndReadLight,
+                         LogSafety nameLogSafety,
+                         boolean cacheImmutableValues,
+                         Compression valueCompression) {
         if (rangeScanAllowed) {
             Preconditions.checkArgument(
                     partitionStrategy == PartitionStrategy.ORDERED,
@@ -124,6 +187,8 @@ public class TableMetadata implements Persistable {
         this.expirationStrategy = expirationStrategy;
         this.appendHeavyAndReadLight = appendHeavyAndReadLight;
         this.nameLogSafety = nameLogSafety;
+        this.cacheImmutableValues = cacheImmutableValues;
+        this.valueCompression = Preconditions.checkNotNull(valueCompression);
     }
 
     public NameMetadataDescription getRowMetadata() {
@@ -178,6 +243,22 @@ public class TableMetadata implements Persistable {
         return nameLogSafety;
     }
 
+    /**
+     * Whether values in this table may be cached across transactions, which is only safe if each cell is written
+     * at most once and is never overwritten or deleted by a later transaction.
+     */
+    public boolean shouldCacheImmutableValues() {
+        return cacheImmutableValues;
+    }
+
+    /**
+     * The compression the key value service applies to every value stored in this table, independently of the
+     * compression of individual columns.
+     */
+    public Compression getValueCompression() {
+        return valueCompression;
+    }
+
     @Override
     public byte[] persistToBytes() {
         return persistToProto().build().toByteArray();
@@ -208,6 +289,13 @@ public class TableMetadata implements Persistable {
         // expiration strategy doesn't need to be persisted.
         builder.setAppendHeavyAndReadLight(appendHeavyAndReadLight);
         builder.setNameLogSafety(nameLogSafety);
+        // only persisted when set, so that the persisted metadata of existing tables doesn't change.
+        if (cacheImmutableValues) {
+            builder.setCacheImmutableValues(cacheImmutableValues);
+        }
+        if (valueCompression != Compression.NONE) {
+            builder.setValueCompression(valueCompression.persistToProto());
+        }
         return builder;
     }
 
@@ -244,6 +332,14 @@ public class TableMetadata implements Persistable {
         if (message.hasNameLogSafety()) {
             nameLogSafety = message.getNameLogSafety();
         }
+        boolean cacheImmutableValues = false;
+        if (message.hasCacheImmutableValues()) {
+            cacheImmutableValues = message.getCacheImmutableValues();
+        }
+        Compression valueCompression = Compression.NONE;
+        if (message.hasValueCompression()) {
+            valueCompression = Compression.hydrateFromProto(message.getValueCompression());
+        }
 
         return new TableMetadata(
                 NameMetadataDescription.hydrateFromProto(message.getRowName()),
@@ -257,7 +353,9 @@ public class TableMetadata implements Persistable {
                 sweepStrategy,
                 ExpirationStrategy.NEVER,
                 appendHeavyAndReadLight,
-                nameLogSafety);
+                nameLogSafety,
+                cacheImmutableValues,
+                valueCompression);
     }
 
     @Override
@@ -274,6 +372,8 @@ public class TableMetadata implements Persistable {
                 + ", sweepStrategy = " + sweepStrategy
                 + ", appendHeavyAndReadLight = " + appendHeavyAndReadLight
                 + ", nameLogSafety = " + nameLogSafety
+                + ", cacheImmutableValues = " + cacheImmutableValues
+                + ", valueCompression = " + valueCompression
                 + "]";
     }
 
@@ -293,6 +393,8 @@ public class TableMetadata implements Persistable {
         result = prime * result + sweepStrategy.hashCode();
         result = prime * result + (appendHeavyAndReadLight ? 0 : 1);
         result = prime * result + nameLogSafety.hashCode(); // Nonnull, because it has a default value
+        result = prime * result + (cacheImmutableValues ? 0 : 1);
+        result = prime * result + valueCompression.hashCode();
         return result;
     }
 
@@ -352,6 +454,12 @@ public class TableMetadata implements Persistable {
         if (nameLogSafety != other.nameLogSafety) {
             return false;
         }
+        if (cacheImmutableValues != other.cacheImmutableValues) {
+            return false;
+        }
+        if (valueCompression != other.valueCompression) {
+            return false;
+        }
         return true;
     }
 
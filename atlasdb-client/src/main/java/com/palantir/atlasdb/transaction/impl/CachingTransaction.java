@@ -18,6 +18,7 @@ package com.palantir.atlasdb.transaction.impl;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,6 +40,7 @@ import com.palantir.atlasdb.keyvalue.impl.Cells;
 import com.palantir.atlasdb.transaction.api.Transaction;
 import com.palantir.atlasdb.transaction.api.TransactionFailedException;
 import com.palantir.atlasdb.transaction.service.TransactionService;
+import com.palantir.common.annotation.Output;
 import com.palantir.util.Pair;
 
 public class CachingTransaction extends ForwardingTransaction {
@@ -82,28 +84,7 @@ public class CachingTransaction extends ForwardingTransaction {
         } else {
             Set<byte[]> toLoad = Sets.newHashSet();
             ImmutableSortedMap.Builder<byte[], RowResult<byte[]>> inCache =
-                    ImmutableSortedMap.orderedBy(UnsignedBytes.lexicographicalComparator());
-            for (byte[] row : rows) {
-                ImmutableSortedMap.Builder<byte[], byte[]> matches =
-                        ImmutableSortedMap.orderedBy(UnsignedBytes.lexicographicalComparator());
-                boolean nonEmpty = false;
-                boolean shouldLoad = false;
-                for (byte[] col : columnSelection.getSelectedColumns()) {
-                    byte[] val = getCachedCellIfPresent(tableRef, Cell.create(row, col));
-                    if (val == null) {
-                        shouldLoad = true;
-                        break;
-                    } else if (val.length != 0) {
-                        matches.put(col, val);
-                        nonEmpty = true;
-                    }
-                }
-                if (shouldLoad) {
-                    toLoad.add(row);
-                } else if (nonEmpty) {
-                    inCache.put(row, RowResult.create(row, matches.build()));
-                }
-            }
+                    getCachedRows(tableRef, rows, columnSelection, toLoad);
             SortedMap<byte[], RowResult<byte[]>> results = super.getRows(tableRef, toLoad, columnSelection);
             cacheLoadedRows(tableRef, results.values());
             inCache.putAll(results);
@@ -111,6 +92,32 @@ public class CachingTransaction extends ForwardingTransaction {
         }
     }
 
+    @Override
+    public CompletableFuture<SortedMap<byte[], RowResult<byte[]>>> getRowsAsync(TableReference tableRef,
+            Iterable<byte[]> rows,
+            ColumnSelection columnSelection) {
+        if (Iterables.isEmpty(rows)) {
+            log.info("Attempted getRowsAsync on '{}' table and {} with empty rows argument", tableRef, columnSelection);
+            return CompletableFuture.completedFuture(AbstractTransaction.EMPTY_SORTED_ROWS);
+        }
+
+        if (columnSelection.allColumnsSelected()) {
+            return super.getRowsAsync(tableRef, rows, columnSelection).thenApply(loaded -> {
+                cacheLoadedRows(tableRef, loaded.values());
+                return loaded;
+            });
+        } else {
+            Set<byte[]> toLoad = Sets.newHashSet();
+            ImmutableSortedMap.Builder<byte[], RowResult<byte[]>> inCache =
+                    getCachedRows(tableRef, rows, columnSelection, toLoad);
+            return super.getRowsAsync(tableRef, toLoad, columnSelection).thenApply(results -> {
+                cacheLoadedRows(tableRef, results.values());
+                inCache.putAll(results);
+                return inCache.build();
+            });
+        }
+    }
+
     @Override
     public Map<Cell, byte[]> get(TableReference tableRef, Set<Cell> cells) {
         if (cells.isEmpty()) {
@@ -119,6 +126,72 @@ public class CachingTransaction extends ForwardingTransaction {
         }
 
         Set<Cell> toLoad = Sets.newHashSet();
+        Map<Cell, byte[]> cacheHit = getCachedCells(tableRef, cells, toLoad);
+
+        final Map<Cell, byte[]> loaded = super.get(tableRef, toLoad);
+
+        cacheLoadedCells(tableRef, toLoad, loaded);
+        cacheHit.putAll(loaded);
+        return cacheHit;
+    }
+
+    @Override
+    public CompletableFuture<Map<Cell, byte[]>> getAsync(TableReference tableRef, Set<Cell> cells) {
+        if (cells.isEmpty()) {
+            log.info("Attempted getAsync on '{}' table with empty cells argument", tableRef);
+            return CompletableFuture.completedFuture(ImmutableMap.of());
+        }
+
+        Set<Cell> toLoad = Sets.newHashSet();
+        Map<Cell, byte[]> cacheHit = getCachedCells(tableRef, cells, toLoad);
+        if (toLoad.isEmpty()) {
+            return CompletableFuture.completedFuture(cacheHit);
+        }
+
+        return super.getAsync(tableRef, toLoad).thenApply(loaded -> {
+            cacheLoadedCells(tableRef, toLoad, loaded);
+            cacheHit.putAll(loaded);
+            return cacheHit;
+        });
+    }
+
+    /**
+     * Returns the rows for which every selected column is cached, and adds the other rows to toLoad.
+     */
+    private ImmutableSortedMap.Builder<byte[], RowResult<byte[]>> getCachedRows(TableReference tableRef,
+            Iterable<byte[]> rows,
+            ColumnSelection columnSelection,
+            @Output Set<byte[]> toLoad) {
+        ImmutableSortedMap.Builder<byte[], RowResult<byte[]>> inCache =
+                ImmutableSortedMap.orderedBy(UnsignedBytes.lexicographicalComparator());
+        for (byte[] row : rows) {
+            ImmutableSortedMap.Builder<byte[], byte[]> matches =
+                    ImmutableSortedMap.orderedBy(UnsignedBytes.lexicographicalComparator());
+            boolean nonEmpty = false;
+            boolean shouldLoad = false;
+            for (byte[] col : columnSelection.getSelectedColumns()) {
+                byte[] val = getCachedCellIfPresent(tableRef, Cell.create(row, col));
+                if (val == null) {
+                    shouldLoad = true;
+                    break;
+                } else if (val.length != 0) {
+                    matches.put(col, val);
+                    nonEmpty = true;
+                }
+            }
+            if (shouldLoad) {
+                toLoad.add(row);
+            } else if (nonEmpty) {
+                inCache.put(row, RowResult.create(row, matches.build()));
+            }
+        }
+        return inCache;
+    }
+
+    /**
+     * Returns the cached, non-deleted values of the given cells, and adds the cells that are not cached to toLoad.
+     */
+    private Map<Cell, byte[]> getCachedCells(TableReference tableRef, Set<Cell> cells, @Output Set<Cell> toLoad) {
         Map<Cell, byte[]> cacheHit = Maps.newHashMapWithExpectedSize(cells.size());
         for (Cell cell : cells) {
             byte[] val = getCachedCellIfPresent(tableRef, cell);
@@ -130,11 +203,6 @@ public class CachingTransaction extends ForwardingTransaction {
                 toLoad.add(cell);
             }
         }
-
-        final Map<Cell, byte[]> loaded = super.get(tableRef, toLoad);
-
-        cacheLoadedCells(tableRef, toLoad, loaded);
-        cacheHit.putAll(loaded);
         return cacheHit;
     }
 
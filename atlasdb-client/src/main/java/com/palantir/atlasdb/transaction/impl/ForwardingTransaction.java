@@ -20,6 +20,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiFunction;
 import java.util.stream.Stream;
 
@@ -75,6 +76,18 @@ public abstract class ForwardingTransaction extends ForwardingObject implements
         return delegate().get(tableRef, cells);
     }
 
+    @Override
+    public CompletableFuture<SortedMap<byte[], RowResult<byte[]>>> getRowsAsync(TableReference tableRef,
+            Iterable<byte[]> rows,
+            ColumnSelection columnSelection) {
+        return delegate().getRowsAsync(tableRef, rows, columnSelection);
+    }
+
+    @Override
+    public CompletableFuture<Map<Cell, byte[]>> getAsync(TableReference tableRef, Set<Cell> cells) {
+        return delegate().getAsync(tableRef, cells);
+    }
+
     @Override
     public BatchingVisitable<RowResult<byte[]>> getRange(TableReference tableRef, RangeRequest rangeRequest) {
         return delegate().getRange(tableRef, rangeRequest);
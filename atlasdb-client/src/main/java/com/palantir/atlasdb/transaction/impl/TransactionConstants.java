@@ -22,6 +22,7 @@ import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.ptobject.EncodingUtils;
 import com.palantir.atlasdb.table.description.ColumnMetadataDescription;
 import com.palantir.atlasdb.table.description.ColumnValueDescription;
+import com.palantir.atlasdb.table.description.DynamicColumnDescription;
 import com.palantir.atlasdb.table.description.NameComponentDescription;
 import com.palantir.atlasdb.table.description.NameMetadataDescription;
 import com.palantir.atlasdb.table.description.NamedColumnDescription;
@@ -38,6 +39,20 @@ public class TransactionConstants {
     public static final byte[] COMMIT_TS_COLUMN = PtBytes.toBytes(COMMIT_TS_COLUMN_STRING);
     public static final long FAILED_COMMIT_TS = -1L;
 
+    /**
+     * Second version of the transactions table, in which many start timestamps share a row. See
+     * {@code BucketedTransactionService} for the encoding.
+     */
+    public static final TableReference TRANSACTIONS2_TABLE = TableReference.createWithEmptyNamespace("_transactions2");
+
+    /**
+     * Holds the start timestamp from which transactions are stored in {@link #TRANSACTIONS2_TABLE} rather than
+     * {@link #TRANSACTION_TABLE}. Once set, it must never change.
+     */
+    public static final TableReference TRANSACTIONS_CUTOVER_TABLE =
+            TableReference.createWithEmptyNamespace("_transactions_cutover");
+    public static final byte[] TRANSACTIONS_CUTOVER_ROW = PtBytes.toBytes("cutover");
+
     public static final long WARN_LEVEL_FOR_QUEUED_BYTES = 10 * 1024 * 1024;
 
     public static final long APPROX_IN_MEM_CELL_OVERHEAD_BYTES = 16;
@@ -59,4 +74,31 @@ public class TransactionConstants {
             new NamedColumnDescription(COMMIT_TS_COLUMN_STRING, "commit_ts", ColumnValueDescription.forType(ValueType.VAR_LONG)))),
         ConflictHandler.IGNORE_ALL);
 
+    public static final TableMetadata TRANSACTIONS2_TABLE_METADATA = new TableMetadata(
+            NameMetadataDescription.create(ImmutableList.of(
+                    new NameComponentDescription.Builder()
+                            .componentName("bucket")
+                            .type(ValueType.FIXED_LONG)
+                            .build(),
+                    new NameComponentDescription.Builder()
+                            .componentName("start_ts_low_bits")
+                            .type(ValueType.VAR_LONG)
+                            .build())),
+            new ColumnMetadataDescription(new DynamicColumnDescription(
+                    NameMetadataDescription.create(ImmutableList.of(new NameComponentDescription.Builder()
+                            .componentName("start_ts_offset")
+                            .type(ValueType.VAR_LONG)
+                            .build())),
+                    ColumnValueDescription.forType(ValueType.VAR_SIGNED_LONG))),
+            ConflictHandler.IGNORE_ALL);
+
+    public static final TableMetadata TRANSACTIONS_CUTOVER_TABLE_METADATA = new TableMetadata(
+            NameMetadataDescription.create(ImmutableList.of(new NameComponentDescription.Builder()
+                    .componentName("name")
+                    .type(ValueType.STRING)
+                    .build())),
+            new ColumnMetadataDescription(ImmutableList.of(
+                    new NamedColumnDescription(COMMIT_TS_COLUMN_STRING, "cutover_ts",
+                            ColumnValueDescription.forType(ValueType.VAR_LONG)))),
+            ConflictHandler.IGNORE_ALL);
 }
@@ -23,6 +23,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricSet;
 import com.codahale.metrics.SharedMetricRegistries;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
@@ -82,9 +83,7 @@ public final class AtlasDbMetrics {
 
     public static void registerCache(Cache<?, ?> cache, String metricsPrefix) {
         MetricRegistry metricRegistry = getMetricRegistry();
-        Set<String> existingMetrics = metricRegistry.getMetrics().keySet().stream()
-                .filter(name -> name.startsWith(metricsPrefix))
-                .collect(Collectors.toSet());
+        Set<String> existingMetrics = getExistingMetrics(metricRegistry, metricsPrefix);
         if (existingMetrics.isEmpty()) {
             MetricRegistries.registerCache(metricRegistry, cache, metricsPrefix);
         } else {
@@ -93,4 +92,21 @@ public final class AtlasDbMetrics {
         }
     }
 
+    public static void registerMetricSet(MetricSet metricSet, String metricsPrefix) {
+        MetricRegistry metricRegistry = getMetricRegistry();
+        Set<String> existingMetrics = getExistingMetrics(metricRegistry, metricsPrefix);
+        if (existingMetrics.isEmpty()) {
+            metricRegistry.register(metricsPrefix, metricSet);
+        } else {
+            log.info("Not registering metrics with prefix '{}' as metric registry already contains metrics: {}",
+                    metricsPrefix, existingMetrics);
+        }
+    }
+
+    private static Set<String> getExistingMetrics(MetricRegistry metricRegistry, String metricsPrefix) {
+        return metricRegistry.getMetrics().keySet().stream()
+                .filter(name -> name.startsWith(metricsPrefix))
+                .collect(Collectors.toSet());
+    }
+
 }
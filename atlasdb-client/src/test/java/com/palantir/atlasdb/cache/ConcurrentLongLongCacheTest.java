@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class ConcurrentLongLongCacheTest {
+    private static final long MISSING = -42L;
+
+    @Test
+    public void returnsCachedValues() {
+        ConcurrentLongLongCache cache = new ConcurrentLongLongCache(100);
+        cache.put(1L, 2L);
+        cache.put(-1L, 3L);
+
+        assertThat(cache.get(1L, MISSING)).isEqualTo(2L);
+        assertThat(cache.get(-1L, MISSING)).isEqualTo(3L);
+        assertThat(cache.get(2L, MISSING)).isEqualTo(MISSING);
+        assertThat(cache.estimatedSize()).isEqualTo(2L);
+    }
+
+    @Test
+    public void capacityIsAtLeastTheRequestedSize() {
+        assertThat(new ConcurrentLongLongCache(1).capacity()).isEqualTo(ConcurrentLongLongCache.WAYS);
+        assertThat(new ConcurrentLongLongCache(1_000_000).capacity()).isGreaterThanOrEqualTo(1_000_000L);
+    }
+
+    @Test
+    public void evictsWhenFull() {
+        ConcurrentLongLongCache cache = new ConcurrentLongLongCache(ConcurrentLongLongCache.WAYS);
+        for (long key = 0; key < 10 * ConcurrentLongLongCache.WAYS; key++) {
+            cache.put(key, key);
+        }
+
+        assertThat(cache.estimatedSize()).isEqualTo(ConcurrentLongLongCache.WAYS);
+        assertThat(cache.evictionCount()).isEqualTo(9 * ConcurrentLongLongCache.WAYS);
+    }
+
+    @Test
+    public void prefersEvictingUnreferencedEntries() {
+        ConcurrentLongLongCache cache = new ConcurrentLongLongCache(ConcurrentLongLongCache.WAYS);
+        for (long key = 0; key < ConcurrentLongLongCache.WAYS; key++) {
+            cache.put(key, key);
+        }
+        cache.get(0L, MISSING);
+
+        cache.put(100L, 100L);
+
+        assertThat(cache.get(0L, MISSING)).isEqualTo(0L);
+        assertThat(cache.get(100L, MISSING)).isEqualTo(100L);
+    }
+
+    @Test
+    public void clearRemovesAllEntries() {
+        ConcurrentLongLongCache cache = new ConcurrentLongLongCache(100);
+        cache.put(1L, 2L);
+        cache.clear();
+
+        assertThat(cache.get(1L, MISSING)).isEqualTo(MISSING);
+        assertThat(cache.estimatedSize()).isEqualTo(0L);
+    }
+
+    @Test
+    public void copiesEntriesIntoAnotherCache() {
+        ConcurrentLongLongCache source = new ConcurrentLongLongCache(100);
+        ConcurrentLongLongCache target = new ConcurrentLongLongCache(1000);
+        for (long key = 0; key < 50; key++) {
+            source.put(key, key * 2);
+        }
+        source.copyInto(target);
+
+        for (long key = 0; key < 50; key++) {
+            assertThat(target.get(key, MISSING)).isEqualTo(key * 2);
+        }
+    }
+
+    @Test
+    public void cannotUseReservedKey() {
+        ConcurrentLongLongCache cache = new ConcurrentLongLongCache(100);
+        assertThatThrownBy(() -> cache.put(Long.MIN_VALUE, 1L)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void concurrentReadersNeverSeeValuesOfOtherKeys() throws Exception {
+        ConcurrentLongLongCache cache = new ConcurrentLongLongCache(64);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = Lists.newArrayList();
+            for (int thread = 0; thread < 4; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (long i = 0; i < 200_000; i++) {
+                        long key = i % 1000;
+                        long value = cache.get(key, MISSING);
+                        if (value == MISSING) {
+                            cache.put(key, key + 1);
+                        } else {
+                            assertThat(value).isEqualTo(key + 1);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -16,12 +16,14 @@
 package com.palantir.atlasdb.cache;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasItems;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 
 import java.util.SortedMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.Rule;
 import org.junit.Test;
@@ -29,9 +31,7 @@ import org.junit.Test;
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricFilter;
 import com.codahale.metrics.MetricRegistry;
-import com.google.common.cache.Cache;
 import com.palantir.atlasdb.AtlasDbConstants;
-import com.palantir.atlasdb.util.AtlasDbMetrics;
 import com.palantir.atlasdb.util.MetricsRule;
 
 public class TimestampCacheTest {
@@ -42,10 +42,8 @@ public class TimestampCacheTest {
 
     @Test
     public void cacheExposesMetrics() throws Exception {
-        Cache<Long, Long> cache = TimestampCache.createCache(AtlasDbConstants.DEFAULT_TIMESTAMP_CACHE_SIZE);
-        AtlasDbMetrics.registerCache(cache, TEST_CACHE_NAME);
-
-        TimestampCache timestampCache = new TimestampCache(cache);
+        TimestampCache timestampCache = new TimestampCache(
+                () -> AtlasDbConstants.DEFAULT_TIMESTAMP_CACHE_SIZE, TEST_CACHE_NAME);
 
         SortedMap<String, Gauge> gauges = metricsRule.metrics().getGauges(startsWith(TimestampCache.class.getName()));
         assertThat(gauges.keySet(), hasItems(cacheMetricName("hit.count"), cacheMetricName("miss.ratio")));
@@ -69,6 +67,33 @@ public class TimestampCacheTest {
         assertThat(gauges.get(cacheMetricName("request.count")).getValue(), equalTo(5L));
     }
 
+    @Test
+    public void resizesToConfiguredSizeAndKeepsEntries() {
+        AtomicLong size = new AtomicLong(100);
+        TimestampCache timestampCache = new TimestampCache(size::get, TEST_CACHE_NAME);
+        for (long startTs = 1; startTs <= 50; startTs++) {
+            timestampCache.putAlreadyCommittedTransaction(startTs, startTs + 1);
+        }
+        long originalCapacity = timestampCache.capacity();
+
+        size.set(100_000);
+        timestampCache.resizeToConfiguredSize();
+
+        assertThat(timestampCache.capacity(), greaterThan(originalCapacity));
+        for (long startTs = 1; startTs <= 50; startTs++) {
+            assertThat(timestampCache.getCommitTimestampIfPresent(startTs), is(startTs + 1));
+        }
+    }
+
+    @Test
+    public void primitiveLookupReturnsDefaultForMissingEntries() {
+        TimestampCache timestampCache = new TimestampCache(() -> 10L, TEST_CACHE_NAME);
+        timestampCache.putAlreadyCommittedTransaction(5L, 7L);
+
+        assertThat(timestampCache.getCommitTimestampOrDefault(5L, -1L), is(7L));
+        assertThat(timestampCache.getCommitTimestampOrDefault(6L, -1L), is(-1L));
+    }
+
     private static String cacheMetricName(String name) {
         return TEST_CACHE_NAME + ".cache." + name;
     }
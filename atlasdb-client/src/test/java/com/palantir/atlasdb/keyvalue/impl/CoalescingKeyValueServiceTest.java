@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+
+public class CoalescingKeyValueServiceTest {
+    private static final TableReference TABLE = TableReference.createFromFullyQualifiedName("test.table");
+    private static final Cell CELL_1 = Cell.create(PtBytes.toBytes("row1"), PtBytes.toBytes("col"));
+    private static final Cell CELL_2 = Cell.create(PtBytes.toBytes("row2"), PtBytes.toBytes("col"));
+    private static final byte[] VALUE_1 = PtBytes.toBytes("value1");
+    private static final byte[] VALUE_2 = PtBytes.toBytes("value2");
+    private static final long WRITE_TS = 10L;
+    private static final long READ_TS = 20L;
+    private static final long LONG_WINDOW_MICROS = TimeUnit.SECONDS.toMicros(30);
+
+    private final KeyValueService delegate = spy(new InMemoryKeyValueService(false));
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @Before
+    public void setUp() {
+        delegate.createTable(TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        delegate.put(TABLE, ImmutableMap.of(CELL_1, VALUE_1, CELL_2, VALUE_2), WRITE_TS);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void coalescesConcurrentReadsAtTheSameTimestamp() throws Exception {
+        KeyValueService kvs = CoalescingKeyValueService.create(delegate, LONG_WINDOW_MICROS, 2);
+
+        Future<Map<Cell, Value>> firstRead = executor.submit(() -> kvs.get(TABLE, ImmutableMap.of(CELL_1, READ_TS)));
+        Future<Map<Cell, Value>> secondRead = executor.submit(() -> kvs.get(TABLE, ImmutableMap.of(CELL_2, READ_TS)));
+
+        assertThat(firstRead.get().keySet()).containsExactly(CELL_1);
+        assertThat(firstRead.get().get(CELL_1).getContents()).isEqualTo(VALUE_1);
+        assertThat(secondRead.get().keySet()).containsExactly(CELL_2);
+        assertThat(secondRead.get().get(CELL_2).getContents()).isEqualTo(VALUE_2);
+        verify(delegate, times(1)).get(TABLE, ImmutableMap.of(CELL_1, READ_TS, CELL_2, READ_TS));
+    }
+
+    @Test
+    public void readsBatchOnceTheWindowHasElapsed() {
+        KeyValueService kvs = CoalescingKeyValueService.create(delegate, 0, 10);
+
+        assertThat(kvs.get(TABLE, ImmutableMap.of(CELL_1, READ_TS))).containsOnlyKeys(CELL_1);
+        assertThat(kvs.get(TABLE, ImmutableMap.of(CELL_1, WRITE_TS))).isEmpty();
+        verify(delegate, times(2)).get(eq(TABLE), anyMapOf(Cell.class, Long.class));
+    }
+
+    @Test
+    public void readsCellsAtDifferentTimestampsDirectly() {
+        KeyValueService kvs = CoalescingKeyValueService.create(delegate, LONG_WINDOW_MICROS, 10);
+
+        Map<Cell, Long> timestampByCell = ImmutableMap.of(CELL_1, READ_TS, CELL_2, WRITE_TS);
+        assertThat(kvs.get(TABLE, timestampByCell)).containsOnlyKeys(CELL_1);
+        verify(delegate).get(TABLE, timestampByCell);
+    }
+
+    @Test
+    public void failsEveryReadInTheBatchIfTheDelegateThrows() {
+        doThrow(new RuntimeException("failed")).when(delegate).get(eq(TABLE), anyMapOf(Cell.class, Long.class));
+        KeyValueService kvs = CoalescingKeyValueService.create(delegate, LONG_WINDOW_MICROS, 2);
+
+        Future<Map<Cell, Value>> firstRead = executor.submit(() -> kvs.get(TABLE, ImmutableMap.of(CELL_1, READ_TS)));
+        Future<Map<Cell, Value>> secondRead = executor.submit(() -> kvs.get(TABLE, ImmutableMap.of(CELL_2, READ_TS)));
+
+        assertThatThrownBy(firstRead::get).hasCauseInstanceOf(RuntimeException.class);
+        assertThatThrownBy(secondRead::get).hasCauseInstanceOf(RuntimeException.class);
+    }
+}
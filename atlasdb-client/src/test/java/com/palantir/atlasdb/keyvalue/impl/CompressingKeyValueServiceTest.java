@@ -0,0 +1,159 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.primitives.Bytes;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.table.description.ColumnValueDescription.Compression;
+import com.palantir.atlasdb.table.description.TableDefinition;
+import com.palantir.atlasdb.table.description.ValueType;
+import com.palantir.common.base.ClosableIterator;
+
+public class CompressingKeyValueServiceTest {
+    private static final TableReference COMPRESSED_TABLE = TableReference.createFromFullyQualifiedName("test.lz4");
+    private static final TableReference UNCOMPRESSED_TABLE = TableReference.createFromFullyQualifiedName("test.raw");
+    private static final byte[] ROW = PtBytes.toBytes("row");
+    private static final Cell CELL = Cell.create(ROW, PtBytes.toBytes("c"));
+    private static final byte[] LARGE_VALUE = PtBytes.toBytes(Strings.repeat("compressible ", 100));
+    private static final byte[] SMALL_VALUE = PtBytes.toBytes("v");
+    private static final long WRITE_TS = 10L;
+    private static final long READ_TS = 20L;
+
+    private final KeyValueService delegate = new InMemoryKeyValueService(false);
+    private final KeyValueService kvs = CompressingKeyValueService.create(delegate);
+
+    @Before
+    public void setUp() {
+        kvs.createTable(COMPRESSED_TABLE, compressedTableDefinition().toTableMetadata().persistToBytes());
+        kvs.createTable(UNCOMPRESSED_TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+    }
+
+    @Test
+    public void compressesValuesOfTablesWithTheOption() {
+        kvs.put(COMPRESSED_TABLE, ImmutableMap.of(CELL, LARGE_VALUE), WRITE_TS);
+
+        assertThat(getStoredValue(COMPRESSED_TABLE).length).isLessThan(LARGE_VALUE.length);
+        assertThat(getValue(COMPRESSED_TABLE)).isEqualTo(LARGE_VALUE);
+    }
+
+    @Test
+    public void doesNotCompressTablesWithoutTheOption() {
+        kvs.put(UNCOMPRESSED_TABLE, ImmutableMap.of(CELL, LARGE_VALUE), WRITE_TS);
+
+        assertThat(getStoredValue(UNCOMPRESSED_TABLE)).isEqualTo(LARGE_VALUE);
+        assertThat(getValue(UNCOMPRESSED_TABLE)).isEqualTo(LARGE_VALUE);
+    }
+
+    @Test
+    public void readsValuesWrittenBeforeCompressionWasEnabled() {
+        delegate.put(COMPRESSED_TABLE, ImmutableMap.of(CELL, LARGE_VALUE), WRITE_TS);
+
+        assertThat(getValue(COMPRESSED_TABLE)).isEqualTo(LARGE_VALUE);
+    }
+
+    @Test
+    public void storesValuesThatDoNotShrinkAsTheyAre() {
+        kvs.put(COMPRESSED_TABLE, ImmutableMap.of(CELL, SMALL_VALUE), WRITE_TS);
+
+        assertThat(getStoredValue(COMPRESSED_TABLE)).isEqualTo(SMALL_VALUE);
+        assertThat(getValue(COMPRESSED_TABLE)).isEqualTo(SMALL_VALUE);
+    }
+
+    @Test
+    public void leavesDeletionMarkersAlone() {
+        kvs.put(COMPRESSED_TABLE, ImmutableMap.of(CELL, PtBytes.EMPTY_BYTE_ARRAY), WRITE_TS);
+
+        assertThat(getStoredValue(COMPRESSED_TABLE)).isEmpty();
+    }
+
+    @Test
+    public void passesReadsOfTablesWithoutTheOptionThrough() {
+        kvs.put(COMPRESSED_TABLE, ImmutableMap.of(CELL, LARGE_VALUE), WRITE_TS);
+        byte[] stored = getStoredValue(COMPRESSED_TABLE);
+        delegate.put(UNCOMPRESSED_TABLE, ImmutableMap.of(CELL, stored), WRITE_TS);
+
+        assertThat(getValue(UNCOMPRESSED_TABLE)).isEqualTo(stored);
+    }
+
+    @Test
+    public void throwsOnCompressedValuesThatCannotBeDecompressed() {
+        kvs.put(COMPRESSED_TABLE, ImmutableMap.of(CELL, LARGE_VALUE), WRITE_TS);
+        byte[] header = Arrays.copyOf(getStoredValue(COMPRESSED_TABLE), 6);
+        delegate.put(COMPRESSED_TABLE, ImmutableMap.of(CELL, Bytes.concat(header, new byte[] {0x7f, 0x7f, 0x7f, 0x7f})),
+                READ_TS - 1);
+
+        assertThatThrownBy(() -> getValue(COMPRESSED_TABLE)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void decompressesRowsRangesAndColumnRanges() {
+        kvs.put(COMPRESSED_TABLE, ImmutableMap.of(CELL, LARGE_VALUE), WRITE_TS);
+
+        Map<Cell, Value> rows = kvs.getRows(COMPRESSED_TABLE, ImmutableList.of(ROW), ColumnSelection.all(), READ_TS);
+        assertThat(rows.get(CELL).getContents()).isEqualTo(LARGE_VALUE);
+
+        try (ClosableIterator<RowResult<Value>> range =
+                kvs.getRange(COMPRESSED_TABLE, RangeRequest.all(), READ_TS)) {
+            assertThat(range.next().getOnlyColumnValue().getContents()).isEqualTo(LARGE_VALUE);
+        }
+
+        Map<byte[], RowColumnRangeIterator> columnRanges = kvs.getRowsColumnRange(COMPRESSED_TABLE,
+                ImmutableList.of(ROW), BatchColumnRangeSelection.create(null, null, 10), READ_TS);
+        assertThat(columnRanges.values().iterator().next().next().getValue().getContents()).isEqualTo(LARGE_VALUE);
+    }
+
+    private byte[] getValue(TableReference tableRef) {
+        return kvs.get(tableRef, ImmutableMap.of(CELL, READ_TS)).get(CELL).getContents();
+    }
+
+    private byte[] getStoredValue(TableReference tableRef) {
+        return delegate.get(tableRef, ImmutableMap.of(CELL, READ_TS)).get(CELL).getContents();
+    }
+
+    private static TableDefinition compressedTableDefinition() {
+        return new TableDefinition() {{
+            rowName();
+            rowComponent("row", ValueType.BLOB);
+
+            columns();
+            column("column", "c", ValueType.BLOB);
+
+            compressValues(Compression.LZ4);
+        }};
+    }
+}
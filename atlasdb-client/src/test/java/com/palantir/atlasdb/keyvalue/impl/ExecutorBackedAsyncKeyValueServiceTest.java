@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.AsyncKeyValueService;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+
+public class ExecutorBackedAsyncKeyValueServiceTest {
+    private static final TableReference TABLE = TableReference.createFromFullyQualifiedName("test.table");
+    private static final TableReference OTHER_TABLE = TableReference.createFromFullyQualifiedName("test.other");
+    private static final byte[] ROW = PtBytes.toBytes("row");
+    private static final Cell CELL = Cell.create(ROW, PtBytes.toBytes("col"));
+    private static final byte[] VALUE = PtBytes.toBytes("value");
+    private static final long WRITE_TS = 10L;
+    private static final long READ_TS = 20L;
+
+    private final KeyValueService delegate = spy(new InMemoryKeyValueService(false));
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final AsyncKeyValueService kvs = ExecutorBackedAsyncKeyValueService.create(delegate, executor);
+
+    @Before
+    public void setUp() {
+        delegate.createTable(TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        delegate.createTable(OTHER_TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void readsWhatWasWritten() {
+        kvs.putAsync(TABLE, ImmutableMap.of(CELL, VALUE), WRITE_TS).join();
+
+        Map<Cell, Value> values = kvs.getAsync(TABLE, ImmutableMap.of(CELL, READ_TS)).join();
+        assertThat(values.get(CELL).getContents()).isEqualTo(VALUE);
+        assertThat(kvs.getRowsAsync(TABLE, ImmutableList.of(ROW), ColumnSelection.all(), READ_TS).join())
+                .containsOnlyKeys(CELL);
+    }
+
+    @Test
+    public void multiPutWritesEveryTable() {
+        kvs.multiPutAsync(ImmutableMap.of(
+                TABLE, ImmutableMap.of(CELL, VALUE),
+                OTHER_TABLE, ImmutableMap.of(CELL, VALUE)), WRITE_TS).join();
+
+        assertThat(delegate.get(TABLE, ImmutableMap.of(CELL, READ_TS))).containsOnlyKeys(CELL);
+        assertThat(delegate.get(OTHER_TABLE, ImmutableMap.of(CELL, READ_TS))).containsOnlyKeys(CELL);
+    }
+
+    @Test
+    public void completesExceptionallyIfTheDelegateThrows() {
+        doThrow(new IllegalStateException("failed")).when(delegate).get(eq(TABLE), anyMapOf(Cell.class, Long.class));
+
+        assertThatThrownBy(() -> kvs.getAsync(TABLE, ImmutableMap.of(CELL, READ_TS)).join())
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.table.description.TableDefinition;
+import com.palantir.atlasdb.table.description.ValueType;
+import com.palantir.atlasdb.transaction.api.ConflictHandler;
+
+public class ImmutableValueCachingKeyValueServiceTest {
+    private static final TableReference CACHED_TABLE = TableReference.createFromFullyQualifiedName("test.cached");
+    private static final TableReference UNCACHED_TABLE = TableReference.createFromFullyQualifiedName("test.uncached");
+    private static final Cell CELL = Cell.create(PtBytes.toBytes("row"), PtBytes.toBytes("c"));
+    private static final Cell OTHER_CELL = Cell.create(PtBytes.toBytes("other"), PtBytes.toBytes("c"));
+    private static final byte[] VALUE = PtBytes.toBytes("value");
+    private static final long WRITE_TS = 10L;
+    private static final long READ_TS = 20L;
+    private static final long MAX_CACHED_BYTES = 1024 * 1024;
+
+    private final KeyValueService delegate = spy(new InMemoryKeyValueService(false));
+    private ImmutableValueCachingKeyValueService kvs;
+
+    @Before
+    public void setUp() {
+        kvs = ImmutableValueCachingKeyValueService.create(delegate, MAX_CACHED_BYTES);
+        kvs.createTable(CACHED_TABLE, cachedTableDefinition().toTableMetadata().persistToBytes());
+        kvs.createTable(UNCACHED_TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        kvs.put(CACHED_TABLE, ImmutableMap.of(CELL, VALUE), WRITE_TS);
+        kvs.put(UNCACHED_TABLE, ImmutableMap.of(CELL, VALUE), WRITE_TS);
+    }
+
+    @Test
+    public void servesRepeatedReadsFromTheCache() {
+        assertThat(getValue(CACHED_TABLE, READ_TS)).isEqualTo(VALUE);
+        assertThat(getValue(CACHED_TABLE, READ_TS + 1)).isEqualTo(VALUE);
+
+        verify(delegate, times(1)).get(eq(CACHED_TABLE), anyMapOf(Cell.class, Long.class));
+        assertThat(kvs.getCachedCellCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void doesNotCacheTablesWithoutTheOption() {
+        assertThat(getValue(UNCACHED_TABLE, READ_TS)).isEqualTo(VALUE);
+        assertThat(getValue(UNCACHED_TABLE, READ_TS)).isEqualTo(VALUE);
+
+        verify(delegate, times(2)).get(eq(UNCACHED_TABLE), anyMapOf(Cell.class, Long.class));
+        assertThat(kvs.getCachedCellCount()).isEqualTo(0L);
+    }
+
+    @Test
+    public void doesNotServeCachedValuesWrittenAtOrAfterTheReadTimestamp() {
+        assertThat(getValue(CACHED_TABLE, READ_TS)).isEqualTo(VALUE);
+
+        assertThat(getValue(CACHED_TABLE, WRITE_TS)).isNull();
+        verify(delegate, times(2)).get(eq(CACHED_TABLE), anyMapOf(Cell.class, Long.class));
+    }
+
+    @Test
+    public void doesNotCacheMissingCells() {
+        assertThat(kvs.get(CACHED_TABLE, ImmutableMap.of(OTHER_CELL, READ_TS))).isEmpty();
+        assertThat(kvs.getCachedCellCount()).isEqualTo(0L);
+
+        kvs.put(CACHED_TABLE, ImmutableMap.of(OTHER_CELL, VALUE), WRITE_TS);
+        assertThat(kvs.get(CACHED_TABLE, ImmutableMap.of(OTHER_CELL, READ_TS))).containsKey(OTHER_CELL);
+    }
+
+    @Test
+    public void deleteInvalidatesTheCell() {
+        assertThat(getValue(CACHED_TABLE, READ_TS)).isEqualTo(VALUE);
+
+        kvs.delete(CACHED_TABLE, ImmutableMultimap.of(CELL, WRITE_TS));
+
+        assertThat(kvs.getCachedCellCount()).isEqualTo(0L);
+        assertThat(getValue(CACHED_TABLE, READ_TS)).isNull();
+    }
+
+    @Test
+    public void truncateInvalidatesTheTable() {
+        assertThat(getValue(CACHED_TABLE, READ_TS)).isEqualTo(VALUE);
+
+        kvs.truncateTable(CACHED_TABLE);
+
+        assertThat(getValue(CACHED_TABLE, READ_TS)).isNull();
+        verify(delegate, times(2)).get(eq(CACHED_TABLE), anyMapOf(Cell.class, Long.class));
+    }
+
+    @Test
+    public void cachesAgainAfterTruncate() {
+        kvs.truncateTable(CACHED_TABLE);
+        kvs.put(CACHED_TABLE, ImmutableMap.of(CELL, VALUE), WRITE_TS);
+
+        assertThat(getValue(CACHED_TABLE, READ_TS)).isEqualTo(VALUE);
+        assertThat(getValue(CACHED_TABLE, READ_TS)).isEqualTo(VALUE);
+        verify(delegate, times(1)).get(eq(CACHED_TABLE), anyMapOf(Cell.class, Long.class));
+    }
+
+    @Test
+    public void tablesWithoutConflictDetectionCannotBeCached() {
+        assertThatThrownBy(() -> new TableDefinition() {{
+            rowName();
+            rowComponent("row", ValueType.BLOB);
+
+            columns();
+            column("column", "c", ValueType.BLOB);
+
+            conflictHandler(ConflictHandler.IGNORE_ALL);
+            cacheImmutableValues();
+        }}.toTableMetadata()).isInstanceOf(IllegalStateException.class);
+    }
+
+    private byte[] getValue(TableReference tableRef, long timestamp) {
+        Map<Cell, Value> result = kvs.get(tableRef, ImmutableMap.of(CELL, timestamp));
+        return result.containsKey(CELL) ? result.get(CELL).getContents() : null;
+    }
+
+    private static TableDefinition cachedTableDefinition() {
+        return new TableDefinition() {{
+            rowName();
+            rowComponent("row", ValueType.BLOB);
+
+            columns();
+            column("column", "c", ValueType.BLOB);
+
+            cacheImmutableValues();
+        }};
+    }
+}
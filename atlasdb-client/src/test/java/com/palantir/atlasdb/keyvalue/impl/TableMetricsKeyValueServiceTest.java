@@ -0,0 +1,176 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.ImmutableMap;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.logging.LoggingArgs;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.LogSafety;
+import com.palantir.atlasdb.table.description.TableDefinition;
+import com.palantir.atlasdb.table.description.ValueType;
+import com.palantir.atlasdb.util.MetricsRule;
+import com.palantir.common.base.ClosableIterator;
+
+public class TableMetricsKeyValueServiceTest {
+    private static final TableReference TABLE = TableReference.createFromFullyQualifiedName("test.table");
+    private static final TableReference OTHER_TABLE = TableReference.createFromFullyQualifiedName("test.other");
+    private static final TableReference UNSAFE_TABLE = TableReference.createFromFullyQualifiedName("test.secret");
+    private static final Cell CELL_1 = Cell.create(PtBytes.toBytes("row1"), PtBytes.toBytes("col"));
+    private static final Cell CELL_2 = Cell.create(PtBytes.toBytes("row2"), PtBytes.toBytes("col"));
+    private static final byte[] VALUE = PtBytes.toBytes("value");
+    private static final long CELL_AND_VALUE_BYTES = 4 + 3 + 5;
+    private static final long WRITE_TS = 10L;
+    private static final long READ_TS = 20L;
+
+    @Rule
+    public MetricsRule metricsRule = new MetricsRule();
+
+    private KeyValueService kvs;
+
+    @Before
+    public void setUp() {
+        kvs = TableMetricsKeyValueService.create(new InMemoryKeyValueService(false));
+        kvs.createTable(TABLE, safeTableMetadata(TABLE));
+        kvs.createTable(OTHER_TABLE, safeTableMetadata(OTHER_TABLE));
+        kvs.createTable(UNSAFE_TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        LoggingArgs.hydrate(ImmutableMap.of(
+                TABLE, safeTableMetadata(TABLE),
+                OTHER_TABLE, safeTableMetadata(OTHER_TABLE)));
+    }
+
+    @After
+    public void tearDown() {
+        LoggingArgs.hydrate(ImmutableMap.of());
+    }
+
+    @Test
+    public void recordsLatencyCellsAndBytesOfWrites() {
+        kvs.put(TABLE, ImmutableMap.of(CELL_1, VALUE, CELL_2, VALUE), WRITE_TS);
+
+        assertThat(timer(TABLE, "put").getCount()).isEqualTo(1L);
+        assertThat(histogram(TABLE, "put", "cells").getSnapshot().getMax()).isEqualTo(2L);
+        assertThat(histogram(TABLE, "put", "bytes").getSnapshot().getMax()).isEqualTo(2 * CELL_AND_VALUE_BYTES);
+    }
+
+    @Test
+    public void recordsResultSizesOfReads() {
+        kvs.put(TABLE, ImmutableMap.of(CELL_1, VALUE), WRITE_TS);
+
+        kvs.get(TABLE, ImmutableMap.of(CELL_1, READ_TS, CELL_2, READ_TS));
+
+        assertThat(timer(TABLE, "get").getCount()).isEqualTo(1L);
+        assertThat(histogram(TABLE, "get", "cells").getSnapshot().getMax()).isEqualTo(1L);
+        assertThat(histogram(TABLE, "get", "bytes").getSnapshot().getMax()).isEqualTo(CELL_AND_VALUE_BYTES);
+    }
+
+    @Test
+    public void recordsMetricsSeparatelyForEachTable() {
+        kvs.multiPut(ImmutableMap.of(
+                TABLE, ImmutableMap.of(CELL_1, VALUE, CELL_2, VALUE),
+                OTHER_TABLE, ImmutableMap.of(CELL_1, VALUE)),
+                WRITE_TS);
+
+        assertThat(timer(TABLE, "multiPut").getCount()).isEqualTo(1L);
+        assertThat(timer(OTHER_TABLE, "multiPut").getCount()).isEqualTo(1L);
+        assertThat(histogram(TABLE, "multiPut", "cells").getSnapshot().getMax()).isEqualTo(2L);
+        assertThat(histogram(OTHER_TABLE, "multiPut", "cells").getSnapshot().getMax()).isEqualTo(1L);
+    }
+
+    @Test
+    public void recordsRangeScansWhenTheyAreClosed() {
+        kvs.put(TABLE, ImmutableMap.of(CELL_1, VALUE, CELL_2, VALUE), WRITE_TS);
+
+        try (ClosableIterator<RowResult<Value>> range = kvs.getRange(TABLE, RangeRequest.all(), READ_TS)) {
+            range.next();
+            assertThat(timer(TABLE, "getRange").getCount()).isEqualTo(0L);
+        }
+
+        assertThat(timer(TABLE, "getRange").getCount()).isEqualTo(1L);
+        assertThat(histogram(TABLE, "getRange", "cells").getSnapshot().getMax()).isEqualTo(1L);
+        assertThat(histogram(TABLE, "getRange", "bytes").getSnapshot().getMax()).isEqualTo(CELL_AND_VALUE_BYTES);
+    }
+
+    @Test
+    public void recordsRangeScansWhenTheyAreExhausted() {
+        kvs.put(TABLE, ImmutableMap.of(CELL_1, VALUE, CELL_2, VALUE), WRITE_TS);
+
+        ClosableIterator<RowResult<Value>> range = kvs.getRange(TABLE, RangeRequest.all(), READ_TS);
+        range.forEachRemaining(row -> { });
+
+        assertThat(timer(TABLE, "getRange").getCount()).isEqualTo(1L);
+        assertThat(histogram(TABLE, "getRange", "cells").getSnapshot().getMax()).isEqualTo(2L);
+        range.close();
+        assertThat(timer(TABLE, "getRange").getCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void recordsTablesWithUnsafeNamesUnderAPlaceholder() {
+        kvs.put(UNSAFE_TABLE, ImmutableMap.of(CELL_1, VALUE), WRITE_TS);
+
+        assertThat(timer(LoggingArgs.PLACEHOLDER_TABLE_REFERENCE, "put").getCount()).isEqualTo(1L);
+        assertThat(metricsRule.metrics().getNames()).noneMatch(name -> name.contains(UNSAFE_TABLE.getTablename()));
+    }
+
+    @Test
+    public void removesTheMetricsOfDroppedTables() {
+        kvs.put(TABLE, ImmutableMap.of(CELL_1, VALUE), WRITE_TS);
+        kvs.put(OTHER_TABLE, ImmutableMap.of(CELL_1, VALUE), WRITE_TS);
+
+        kvs.dropTable(TABLE);
+
+        assertThat(metricsRule.metrics().getNames()).noneMatch(name -> name.contains(TABLE.getQualifiedName() + "."));
+        assertThat(metricsRule.metrics().getNames()).contains(metricName(OTHER_TABLE, "put", "latency"));
+    }
+
+    private Timer timer(TableReference tableRef, String operation) {
+        return metricsRule.metrics().timer(metricName(tableRef, operation, "latency"));
+    }
+
+    private Histogram histogram(TableReference tableRef, String operation, String metric) {
+        return metricsRule.metrics().histogram(metricName(tableRef, operation, metric));
+    }
+
+    private static byte[] safeTableMetadata(TableReference tableRef) {
+        return new TableDefinition() {{
+            tableNameLogSafety(LogSafety.SAFE);
+            javaTableName(tableRef.getTablename());
+            rowName();
+            rowComponent("row", ValueType.BLOB);
+            noColumns();
+        }}.toTableMetadata().persistToBytes();
+    }
+
+    private static String metricName(TableReference tableRef, String operation, String metric) {
+        return MetricRegistry.name(TableMetricsKeyValueService.class, tableRef.getQualifiedName(), operation, metric);
+    }
+}
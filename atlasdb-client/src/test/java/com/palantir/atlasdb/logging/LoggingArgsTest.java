@@ -111,6 +111,13 @@ public class LoggingArgsTest {
         assertThat(tableReferenceArg.getValue()).isEqualTo(SAFE_TABLE_REFERENCE);
     }
 
+    @Test
+    public void replacesTableReferenceWithPlaceholderIfUnsafe() {
+        assertThat(LoggingArgs.safeTableOrPlaceholder(SAFE_TABLE_REFERENCE)).isEqualTo(SAFE_TABLE_REFERENCE);
+        assertThat(LoggingArgs.safeTableOrPlaceholder(UNSAFE_TABLE_REFERENCE))
+                .isEqualTo(LoggingArgs.PLACEHOLDER_TABLE_REFERENCE);
+    }
+
     @Test
     public void propagatesNameAndRowComponentNameIfSafe() {
         Arg<String> rowNameArg = LoggingArgs.rowComponent(ARG_NAME, SAFE_TABLE_REFERENCE, SAFE_ROW_NAME);
@@ -147,6 +147,8 @@ public class TableMetadataPersistenceTest {
             explicitCompressionBlockSizeKB(CUSTOM_COMPRESSION_BLOCK_SIZE);
             negativeLookups();
             appendHeavyAndReadLight();
+            cacheImmutableValues();
+            compressValues(ColumnValueDescription.Compression.LZ4);
         }};
     }
 
@@ -247,6 +247,101 @@ public abstract class AtlasDbConfig {
         return 1000;
     }
 
+    /**
+     * If true, commit timestamp lookups made by concurrent transactions are coalesced into batched reads against
+     * the transactions table.
+     */
+    @Value.Default
+    public boolean batchTransactionServiceReads() {
+        return AtlasDbConstants.DEFAULT_BATCH_TRANSACTION_SERVICE_READS;
+    }
+
+    /**
+     * If true, commit timestamps written by concurrent committers are grouped into batched writes to the
+     * transactions table. Batches are written one at a time, so this only helps key value services that can
+     * check-and-set many cells at once or concurrently, such as Cassandra, which issues the check-and-sets of a
+     * batch concurrently.
+     */
+    @Value.Default
+    public boolean batchTransactionServiceWrites() {
+        return AtlasDbConstants.DEFAULT_BATCH_TRANSACTION_SERVICE_WRITES;
+    }
+
+    /**
+     * The maximum time, in microseconds, that a transactions table read or write waits for others to join its
+     * batch. Only used if {@link #batchTransactionServiceReads()} or {@link #batchTransactionServiceWrites()} is true.
+     */
+    @Value.Default
+    public long getTransactionServiceReadBatchWindowMicros() {
+        return AtlasDbConstants.DEFAULT_TRANSACTION_SERVICE_READ_BATCH_WINDOW_MICROS;
+    }
+
+    /**
+     * The number of start timestamps after which a batch of transactions table reads or writes is sent without
+     * waiting for the batch window to elapse. Only used if {@link #batchTransactionServiceReads()} or
+     * {@link #batchTransactionServiceWrites()} is true.
+     */
+    @Value.Default
+    public int getTransactionServiceReadBatchSize() {
+        return AtlasDbConstants.DEFAULT_TRANSACTION_SERVICE_READ_BATCH_SIZE;
+    }
+
+    /**
+     * If true, point reads made by concurrent threads against the same table at the same timestamp are coalesced
+     * into a single read against the key value service.
+     */
+    @Value.Default
+    public boolean coalesceKeyValueServiceReads() {
+        return AtlasDbConstants.DEFAULT_COALESCE_KEY_VALUE_SERVICE_READS;
+    }
+
+    /**
+     * The maximum time, in microseconds, that a point read waits for others to join its batch. Only used if
+     * {@link #coalesceKeyValueServiceReads()} is true.
+     */
+    @Value.Default
+    public long getKeyValueServiceReadBatchWindowMicros() {
+        return AtlasDbConstants.DEFAULT_KEY_VALUE_SERVICE_READ_BATCH_WINDOW_MICROS;
+    }
+
+    /**
+     * The number of cells after which a batch of point reads is sent without waiting for the batch window to
+     * elapse. Only used if {@link #coalesceKeyValueServiceReads()} is true.
+     */
+    @Value.Default
+    public int getKeyValueServiceReadBatchSize() {
+        return AtlasDbConstants.DEFAULT_KEY_VALUE_SERVICE_READ_BATCH_SIZE;
+    }
+
+    /**
+     * If true, transactions are read from and written to the bucketed transactions table from the cutover timestamp
+     * stored in the key value service onwards. Until a cutover is installed, only the original transactions table
+     * is used. Every client of the key value service must have this enabled before a cutover is installed.
+     */
+    @Value.Default
+    public boolean useVersionedTransactionsTable() {
+        return AtlasDbConstants.DEFAULT_USE_VERSIONED_TRANSACTIONS_TABLE;
+    }
+
+    /**
+     * If true, transactions are started with a single call to the lock service, and transactions started
+     * concurrently share that call. This requires a TimeLock server that serves the start-transactions endpoint.
+     * If false, each transaction locks the immutable timestamp and fetches its start timestamp with separate calls.
+     */
+    @Value.Default
+    public boolean batchTransactionStarts() {
+        return AtlasDbConstants.DEFAULT_BATCH_TRANSACTION_STARTS;
+    }
+
+    /**
+     * The maximum approximate size, in bytes, of the cache of values read from tables declared with
+     * {@code cacheImmutableValues()}, which is shared across transactions. If zero, no values are cached.
+     */
+    @Value.Default
+    public long getImmutableValueCacheMaxBytes() {
+        return AtlasDbConstants.DEFAULT_IMMUTABLE_VALUE_CACHE_MAX_BYTES;
+    }
+
     /**
      * The default lock expiration time for requests to the lock service.
      */
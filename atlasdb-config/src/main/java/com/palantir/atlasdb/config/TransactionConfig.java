@@ -32,4 +32,14 @@ public abstract class TransactionConfig {
         return AtlasDbConstants.DEFAULT_TRANSACTION_LOCK_ACQUIRE_TIMEOUT_MS;
     }
 
+    /**
+     * If true, serializable transactions track long values that they read by a 128-bit digest rather than a copy of
+     * the value, and do not track reads of cells that they have already written. This reduces the memory used by
+     * large serializable transactions. Applies to transactions started after the change.
+     */
+    @Value.Default
+    public boolean compactSerializableReadSets() {
+        return false;
+    }
+
 }
@@ -58,8 +58,12 @@ import com.palantir.atlasdb.factory.timestamp.DecoratedTimelockServices;
 import com.palantir.atlasdb.http.AtlasDbFeignTargetFactory;
 import com.palantir.atlasdb.http.UserAgents;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.CoalescingKeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.CompressingKeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.ImmutableValueCachingKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.ProfilingKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.SweepStatsKeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.TableMetricsKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.TracingKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.ValidatingQueryRewritingKeyValueService;
 import com.palantir.atlasdb.logging.KvsProfilingLogger;
@@ -91,6 +95,7 @@ import com.palantir.atlasdb.transaction.impl.SerializableTransactionManager;
 import com.palantir.atlasdb.transaction.impl.SweepStrategyManager;
 import com.palantir.atlasdb.transaction.impl.SweepStrategyManagers;
 import com.palantir.atlasdb.transaction.impl.TimelockTimestampServiceAdapter;
+import com.palantir.atlasdb.transaction.service.BatchingTransactionService;
 import com.palantir.atlasdb.transaction.service.TransactionService;
 import com.palantir.atlasdb.transaction.service.TransactionServices;
 import com.palantir.atlasdb.util.AtlasDbMetrics;
@@ -102,8 +107,10 @@ import com.palantir.lock.LockRequest;
 import com.palantir.lock.LockServerOptions;
 import com.palantir.lock.LockService;
 import com.palantir.lock.SimpleTimeDuration;
+import com.palantir.lock.client.LegacyStartTransactionsTimelockService;
 import com.palantir.lock.client.LockRefreshingLockService;
 import com.palantir.lock.client.LockRefreshingTimelockService;
+import com.palantir.lock.client.TransactionStartBatchingTimelockService;
 import com.palantir.lock.impl.LegacyTimelockService;
 import com.palantir.lock.impl.LockServiceImpl;
 import com.palantir.lock.v2.TimelockService;
@@ -321,12 +328,26 @@ public abstract class TransactionManagers {
                 userAgent());
 
         KvsProfilingLogger.setSlowLogThresholdMillis(config.getKvsSlowLogThresholdMillis());
-        KeyValueService kvs = ProfilingKeyValueService.create(rawKvs);
-        kvs = SweepStatsKeyValueService.create(kvs,
-                new TimelockTimestampServiceAdapter(lockAndTimestampServices.timelock()));
+        KeyValueService kvs = CompressingKeyValueService.create(rawKvs);
+        kvs = ProfilingKeyValueService.create(kvs);
+        kvs = TableMetricsKeyValueService.create(kvs);
+        kvs = config.useVersionedTransactionsTable()
+                ? SweepStatsKeyValueService.create(kvs,
+                        new TimelockTimestampServiceAdapter(lockAndTimestampServices.timelock()),
+                        TransactionServices.createVersionedTransactionService(kvs))
+                : SweepStatsKeyValueService.create(kvs,
+                        new TimelockTimestampServiceAdapter(lockAndTimestampServices.timelock()));
         kvs = TracingKeyValueService.create(kvs);
         kvs = AtlasDbMetrics.instrument(KeyValueService.class, kvs, MetricRegistry.name(KeyValueService.class));
         kvs = ValidatingQueryRewritingKeyValueService.create(kvs);
+        if (config.coalesceKeyValueServiceReads()) {
+            kvs = CoalescingKeyValueService.create(kvs,
+                    config.getKeyValueServiceReadBatchWindowMicros(),
+                    config.getKeyValueServiceReadBatchSize());
+        }
+        if (config.getImmutableValueCacheMaxBytes() > 0) {
+            kvs = ImmutableValueCachingKeyValueService.create(kvs, config.getImmutableValueCacheMaxBytes());
+        }
 
         TransactionManagersInitializer initializer = TransactionManagersInitializer.createInitialTables(
                 kvs,
@@ -338,7 +359,7 @@ public abstract class TransactionManagers {
                 config.initializeAsync());
 
         TransactionService transactionService = AtlasDbMetrics.instrument(TransactionService.class,
-                TransactionServices.createTransactionService(kvs));
+                createTransactionService(config, kvs));
         ConflictDetectionManager conflictManager = ConflictDetectionManagers.create(kvs);
         SweepStrategyManager sweepStrategyManager = SweepStrategyManagers.createDefault(kvs);
 
@@ -373,7 +394,8 @@ public abstract class TransactionManagers {
                 config.keyValueService().concurrentGetRangesThreadPoolSize(),
                 config.keyValueService().defaultGetRangesConcurrency(),
                 config.initializeAsync(),
-                () -> runtimeConfigSupplier.get().getTimestampCacheSize());
+                () -> runtimeConfigSupplier.get().getTimestampCacheSize(),
+                () -> runtimeConfigSupplier.get().transaction().compactSerializableReadSets());
 
         PersistentLockManager persistentLockManager = new PersistentLockManager(
                 persistentLockService,
@@ -392,6 +414,21 @@ public abstract class TransactionManagers {
         return transactionManager;
     }
 
+    private static TransactionService createTransactionService(AtlasDbConfig config, KeyValueService kvs) {
+        TransactionService transactionService = config.useVersionedTransactionsTable()
+                ? TransactionServices.createVersionedTransactionService(kvs)
+                : TransactionServices.createTransactionService(kvs);
+        if (config.batchTransactionServiceReads() || config.batchTransactionServiceWrites()) {
+            return BatchingTransactionService.create(
+                    transactionService,
+                    config.getTransactionServiceReadBatchWindowMicros(),
+                    config.getTransactionServiceReadBatchSize(),
+                    config.batchTransactionServiceReads(),
+                    config.batchTransactionServiceWrites());
+        }
+        return transactionService;
+    }
+
     private static boolean areTransactionManagerInitializationPrerequisitesSatisfied(
             AsyncInitializer initializer,
             LockAndTimestampServices lockAndTimestampServices) {
@@ -534,7 +571,7 @@ public abstract class TransactionManagers {
                             return AtlasDbFactory.NO_OP_FAST_FORWARD_TIMESTAMP;
                         },
                         UserAgents.DEFAULT_USER_AGENT);
-        return withRefreshingLockService(lockAndTimestampServices);
+        return withTransactionStartBatching(config, withRefreshingLockService(lockAndTimestampServices));
     }
 
     @VisibleForTesting
@@ -548,9 +585,9 @@ public abstract class TransactionManagers {
             String userAgent) {
         LockAndTimestampServices lockAndTimestampServices =
                 createRawInstrumentedServices(config, env, lock, time, invalidator, userAgent);
-        return withRequestBatchingTimestampService(
+        return withTransactionStartBatching(config, withRequestBatchingTimestampService(
                 runtimeConfigSupplier,
-                withRefreshingLockService(lockAndTimestampServices));
+                withRefreshingLockService(lockAndTimestampServices)));
     }
 
     private static LockAndTimestampServices withRefreshingLockService(
@@ -577,6 +614,18 @@ public abstract class TransactionManagers {
                 .build();
     }
 
+    private static LockAndTimestampServices withTransactionStartBatching(
+            AtlasDbConfig config,
+            LockAndTimestampServices lockAndTimestampServices) {
+        TimelockService timelock = config.batchTransactionStarts()
+                ? new TransactionStartBatchingTimelockService(lockAndTimestampServices.timelock())
+                : new LegacyStartTransactionsTimelockService(lockAndTimestampServices.timelock());
+        return ImmutableLockAndTimestampServices.builder()
+                .from(lockAndTimestampServices)
+                .timelock(timelock)
+                .build();
+    }
+
     @VisibleForTesting
     static LockAndTimestampServices createRawInstrumentedServices(
             AtlasDbConfig config,
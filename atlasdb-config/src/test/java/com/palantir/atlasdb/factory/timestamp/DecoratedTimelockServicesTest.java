@@ -0,0 +1,97 @@
+/*
+ * Copyright 2018 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.factory.timestamp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.palantir.atlasdb.config.ImmutableTimestampClientConfig;
+import com.palantir.lock.client.LegacyStartTransactionsTimelockService;
+import com.palantir.lock.v2.LockImmutableTimestampRequest;
+import com.palantir.lock.v2.LockImmutableTimestampResponse;
+import com.palantir.lock.v2.LockToken;
+import com.palantir.lock.v2.TimelockService;
+import com.palantir.timestamp.TimestampRange;
+
+public class DecoratedTimelockServicesTest {
+    private static final int CONCURRENT_STARTS = 16;
+
+    private final TimelockService rawTimelock = mock(TimelockService.class);
+    private final ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_STARTS);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void coalescesTheTimestampsOfConcurrentSingleTransactionStarts() throws Exception {
+        AtomicLong nextTimestamp = new AtomicLong(1);
+        CountDownLatch allStarted = new CountDownLatch(CONCURRENT_STARTS);
+        when(rawTimelock.isInitialized()).thenReturn(true);
+        when(rawTimelock.lockImmutableTimestamp(any())).thenAnswer(invocation -> {
+            allStarted.countDown();
+            return LockImmutableTimestampResponse.of(0L, LockToken.of(UUID.randomUUID()));
+        });
+        when(rawTimelock.getFreshTimestamps(anyInt())).thenAnswer(invocation -> {
+            // hold the first batch open until every transaction start is waiting for a timestamp
+            allStarted.await();
+            Thread.sleep(200);
+            int count = (Integer) invocation.getArguments()[0];
+            long lowerBound = nextTimestamp.getAndAdd(count);
+            return TimestampRange.createInclusiveRange(lowerBound, lowerBound + count - 1);
+        });
+        TimelockService timelock = new LegacyStartTransactionsTimelockService(
+                DecoratedTimelockServices.createTimelockServiceWithTimestampBatching(
+                        rawTimelock, () -> ImmutableTimestampClientConfig.of(true)));
+
+        List<Future<Long>> startTimestamps = Lists.newArrayList();
+        for (int i = 0; i < CONCURRENT_STARTS; i++) {
+            startTimestamps.add(executor.submit(() -> timelock
+                    .startTransactions(LockImmutableTimestampRequest.create(), 1)
+                    .getStartTimestamps()
+                    .getLowerBound()));
+        }
+        Set<Long> distinctTimestamps = Sets.newHashSet();
+        for (Future<Long> startTimestamp : startTimestamps) {
+            distinctTimestamps.add(startTimestamp.get());
+        }
+
+        assertThat(distinctTimestamps).hasSize(CONCURRENT_STARTS);
+        verify(rawTimelock, atMost(2)).getFreshTimestamps(anyInt());
+        verify(rawTimelock, never()).getFreshTimestamp();
+    }
+}
@@ -20,8 +20,11 @@ import javax.inject.Singleton;
 
 import com.google.common.collect.ImmutableSet;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.CompressingKeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.ImmutableValueCachingKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.ProfilingKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.SweepStatsKeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.TableMetricsKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.TracingKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.ValidatingQueryRewritingKeyValueService;
 import com.palantir.atlasdb.logging.KvsProfilingLogger;
@@ -51,12 +54,18 @@ public class KeyValueServiceModule {
                                                          TimestampService tss,
                                                          ServicesConfig config) {
         KvsProfilingLogger.setSlowLogThresholdMillis(config.atlasDbConfig().getKvsSlowLogThresholdMillis());
-        KeyValueService kvs = ProfilingKeyValueService.create(rawKvs);
+        KeyValueService kvs = CompressingKeyValueService.create(rawKvs);
+        kvs = ProfilingKeyValueService.create(kvs);
+        kvs = TableMetricsKeyValueService.create(kvs);
 
         kvs = TracingKeyValueService.create(kvs);
         kvs = AtlasDbMetrics.instrument(KeyValueService.class, kvs);
         kvs = ValidatingQueryRewritingKeyValueService.create(kvs);
         kvs = SweepStatsKeyValueService.create(kvs, tss);
+        if (config.atlasDbConfig().getImmutableValueCacheMaxBytes() > 0) {
+            kvs = ImmutableValueCachingKeyValueService.create(kvs,
+                    config.atlasDbConfig().getImmutableValueCacheMaxBytes());
+        }
         TransactionTables.createTables(kvs);
         ImmutableSet<Schema> schemas =
                 ImmutableSet.<Schema>builder()
@@ -0,0 +1,625 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.PeekingIterator;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+import com.google.common.collect.TreeMultimap;
+import com.google.common.primitives.UnsignedBytes;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
+import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweeping;
+import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweepingRequest;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.CheckAndSetException;
+import com.palantir.atlasdb.keyvalue.api.CheckAndSetRequest;
+import com.palantir.atlasdb.keyvalue.api.ClusterAvailabilityStatus;
+import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.logging.LoggingArgs;
+import com.palantir.atlasdb.util.AtlasDbMetrics;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.ClosableIterators;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.logsafe.SafeArg;
+import com.palantir.util.paging.TokenBackedBasicResultsPage;
+
+/**
+ * Splits the versions of the cells of the tiered tables between a hot key value service, which is expected to be
+ * small and fast, and a cold key value service for bulk storage of older data. Tables that are not tiered live in
+ * the hot key value service only.
+ * <p>
+ * Every write goes to the hot tier. A background task periodically demotes the versions written before the
+ * timestamp given by the demotion timestamp supplier, by copying them to the cold tier and then deleting them from
+ * the hot tier, oldest version first. The hot tier therefore always holds the newest versions of a cell, so a read
+ * that finds a value in the hot tier is answered without touching the cold tier, and only cells that are missing
+ * from the hot tier are looked up in the cold tier. Range scans and other reads that cannot tell which cells they
+ * will return read both tiers and merge the results, keeping the newest version of each cell.
+ * <p>
+ * The demotion timestamp should be no later than the immutable timestamp, so that no running transaction can still
+ * write below it. Garbage collection sentinels are written straight to the cold tier, since they sort below every
+ * other version. Sweep candidates are read from both tiers, so that sweep never deletes the newest version of a
+ * cell because it has been demoted, and sweep deletes from both tiers.
+ * <p>
+ * Check and set and put unless exists are not supported on tiered tables, since demoting a value would hide it from
+ * the next check. The atomic tables therefore cannot be tiered.
+ */
+public final class TieredKeyValueService extends ForwardingKeyValueService {
+    private static final Logger log = LoggerFactory.getLogger(TieredKeyValueService.class);
+
+    @VisibleForTesting
+    static final int DEMOTION_BATCH_SIZE = 1000;
+
+    private final KeyValueService hot;
+    private final KeyValueService cold;
+    private final Set<TableReference> tieredTables;
+    private final Supplier<Long> demotionTimestampSupplier;
+    private final ScheduledExecutorService demotionExecutor = PTExecutors.newSingleThreadScheduledExecutor(
+            new NamedThreadFactory("tiered-kvs-demotion", true /* daemon */));
+    private final Meter demotedCells;
+
+    private TieredKeyValueService(
+            KeyValueService hot,
+            KeyValueService cold,
+            Set<TableReference> tieredTables,
+            Supplier<Long> demotionTimestampSupplier) {
+        this.hot = hot;
+        this.cold = cold;
+        this.tieredTables = ImmutableSet.copyOf(tieredTables);
+        this.demotionTimestampSupplier = demotionTimestampSupplier;
+        this.demotedCells = AtlasDbMetrics.getMetricRegistry().meter(
+                MetricRegistry.name(TieredKeyValueService.class, "demotedCells"));
+    }
+
+    /**
+     * Creates a tiered key value service that demotes old versions of the tiered tables every given number of
+     * milliseconds.
+     */
+    public static TieredKeyValueService create(
+            KeyValueService hot,
+            KeyValueService cold,
+            Set<TableReference> tieredTables,
+            Supplier<Long> demotionTimestampSupplier,
+            long demotionIntervalMillis) {
+        Preconditions.checkNotNull(demotionTimestampSupplier, "demotionTimestampSupplier cannot be null");
+        Preconditions.checkArgument(demotionIntervalMillis > 0, "Demotion interval must be positive");
+        Preconditions.checkArgument(Sets.intersection(tieredTables, AtlasDbConstants.ATOMIC_TABLES).isEmpty(),
+                "Atomic tables cannot be tiered");
+        TieredKeyValueService kvs = new TieredKeyValueService(hot, cold, tieredTables, demotionTimestampSupplier);
+        kvs.demotionExecutor.scheduleWithFixedDelay(
+                kvs::demoteOldVersions, demotionIntervalMillis, demotionIntervalMillis, TimeUnit.MILLISECONDS);
+        return kvs;
+    }
+
+    @Override
+    protected KeyValueService delegate() {
+        return hot;
+    }
+
+    @Override
+    public Collection<? extends KeyValueService> getDelegates() {
+        return ImmutableList.of(hot, cold);
+    }
+
+    /**
+     * Demotes the versions of the tiered tables written before the current demotion timestamp to the cold tier.
+     * Failures are logged, and the versions left behind are demoted by the next run.
+     */
+    public void demoteOldVersions() {
+        long demotionTimestamp = demotionTimestampSupplier.get();
+        for (TableReference tableRef : tieredTables) {
+            try {
+                long cells = demoteVersionsBefore(tableRef, demotionTimestamp);
+                log.debug("Demoted {} cells of table {} written before timestamp {} to the cold tier.",
+                        SafeArg.of("cells", cells),
+                        LoggingArgs.tableRef(tableRef),
+                        SafeArg.of("demotionTimestamp", demotionTimestamp));
+            } catch (Throwable t) {
+                log.warn("Failed to demote old versions of table {} to the cold tier.",
+                        LoggingArgs.tableRef(tableRef), t);
+            }
+        }
+    }
+
+    private long demoteVersionsBefore(TableReference tableRef, long demotionTimestamp) {
+        long demoted = 0;
+        RangeRequest allRows = RangeRequest.builder().batchHint(DEMOTION_BATCH_SIZE).build();
+        try (ClosableIterator<RowResult<Set<Long>>> rows =
+                hot.getRangeOfTimestamps(tableRef, allRows, demotionTimestamp)) {
+            SetMultimap<Cell, Long> batch = TreeMultimap.create();
+            while (rows.hasNext()) {
+                for (Map.Entry<Cell, Set<Long>> cell : rows.next().getCells()) {
+                    batch.putAll(cell.getKey(), cell.getValue());
+                }
+                if (batch.size() >= DEMOTION_BATCH_SIZE) {
+                    demoted += demote(tableRef, batch);
+                    batch.clear();
+                }
+            }
+            demoted += demote(tableRef, batch);
+        }
+        return demoted;
+    }
+
+    private long demote(TableReference tableRef, SetMultimap<Cell, Long> timestampsByCell) {
+        List<Multimap<Cell, Long>> versionsByAge = groupByAge(timestampsByCell);
+        Multimap<Cell, Value> values = HashMultimap.create();
+        Set<Cell> sentinels = Sets.newHashSet();
+        for (Multimap<Cell, Long> versions : versionsByAge) {
+            Map<Cell, Long> readTimestampByCell = ImmutableMap.copyOf(
+                    Maps.transformValues(versions.asMap(), timestamps -> timestamps.iterator().next() + 1));
+            for (Map.Entry<Cell, Value> e : hot.get(tableRef, readTimestampByCell).entrySet()) {
+                long timestamp = e.getValue().getTimestamp();
+                if (timestamp != readTimestampByCell.get(e.getKey()) - 1) {
+                    // the version has been deleted since we listed it
+                    continue;
+                }
+                if (timestamp == Value.INVALID_VALUE_TIMESTAMP) {
+                    sentinels.add(e.getKey());
+                } else {
+                    values.put(e.getKey(), e.getValue());
+                }
+            }
+        }
+        if (!sentinels.isEmpty()) {
+            cold.addGarbageCollectionSentinelValues(tableRef, sentinels);
+        }
+        if (!values.isEmpty()) {
+            cold.putWithTimestamps(tableRef, values);
+        }
+        // Deleting the oldest versions first keeps the newest versions of every cell in the hot tier.
+        for (Multimap<Cell, Long> versions : versionsByAge) {
+            hot.delete(tableRef, versions);
+        }
+        demotedCells.mark(timestampsByCell.keySet().size());
+        return timestampsByCell.keySet().size();
+    }
+
+    /**
+     * Splits the versions of each cell such that the first multimap holds the oldest version of every cell, the
+     * second one the second oldest version and so on.
+     */
+    private static List<Multimap<Cell, Long>> groupByAge(SetMultimap<Cell, Long> sortedTimestampsByCell) {
+        List<Multimap<Cell, Long>> versionsByAge = Lists.newArrayList();
+        for (Map.Entry<Cell, Collection<Long>> e : sortedTimestampsByCell.asMap().entrySet()) {
+            int age = 0;
+            for (Long timestamp : e.getValue()) {
+                if (versionsByAge.size() == age) {
+                    versionsByAge.add(HashMultimap.create());
+                }
+                versionsByAge.get(age).put(e.getKey(), timestamp);
+                age++;
+            }
+        }
+        return versionsByAge;
+    }
+
+    @Override
+    public Map<Cell, Value> get(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+        if (!isTiered(tableRef)) {
+            return hot.get(tableRef, timestampByCell);
+        }
+        Map<Cell, Value> result = Maps.newHashMap(hot.get(tableRef, timestampByCell));
+        Map<Cell, Long> missingTimestampByCell = Maps.filterKeys(timestampByCell, cell -> !result.containsKey(cell));
+        if (!missingTimestampByCell.isEmpty()) {
+            result.putAll(cold.get(tableRef, ImmutableMap.copyOf(missingTimestampByCell)));
+        }
+        return result;
+    }
+
+    @Override
+    public Map<Cell, Long> getLatestTimestamps(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+        if (!isTiered(tableRef)) {
+            return hot.getLatestTimestamps(tableRef, timestampByCell);
+        }
+        Map<Cell, Long> result = Maps.newHashMap(hot.getLatestTimestamps(tableRef, timestampByCell));
+        Map<Cell, Long> missingTimestampByCell = Maps.filterKeys(timestampByCell, cell -> !result.containsKey(cell));
+        if (!missingTimestampByCell.isEmpty()) {
+            result.putAll(cold.getLatestTimestamps(tableRef, ImmutableMap.copyOf(missingTimestampByCell)));
+        }
+        return result;
+    }
+
+    @Override
+    public Map<Cell, Value> getRows(
+            TableReference tableRef,
+            Iterable<byte[]> rows,
+            ColumnSelection columnSelection,
+            long timestamp) {
+        if (!isTiered(tableRef)) {
+            return hot.getRows(tableRef, rows, columnSelection, timestamp);
+        }
+        Map<Cell, Value> result = Maps.newHashMap(hot.getRows(tableRef, rows, columnSelection, timestamp));
+        cold.getRows(tableRef, rows, columnSelection, timestamp).forEach(
+                (cell, value) -> result.merge(cell, value, TieredKeyValueService::newer));
+        return result;
+    }
+
+    @Override
+    public Map<byte[], RowColumnRangeIterator> getRowsColumnRange(
+            TableReference tableRef,
+            Iterable<byte[]> rows,
+            BatchColumnRangeSelection batchColumnRangeSelection,
+            long timestamp) {
+        if (!isTiered(tableRef)) {
+            return hot.getRowsColumnRange(tableRef, rows, batchColumnRangeSelection, timestamp);
+        }
+        SortedMap<byte[], RowColumnRangeIterator> hotRanges = sortedByRow(
+                hot.getRowsColumnRange(tableRef, rows, batchColumnRangeSelection, timestamp));
+        SortedMap<byte[], RowColumnRangeIterator> coldRanges = sortedByRow(
+                cold.getRowsColumnRange(tableRef, rows, batchColumnRangeSelection, timestamp));
+        Map<byte[], RowColumnRangeIterator> result = Maps.newHashMap();
+        for (byte[] row : rows) {
+            result.put(row, new LocalRowColumnRangeIterator(new MergingIterator<Map.Entry<Cell, Value>, byte[]>(
+                    nullToEmpty(hotRanges.get(row)),
+                    nullToEmpty(coldRanges.get(row)),
+                    entry -> entry.getKey().getColumnName(),
+                    UnsignedBytes.lexicographicalComparator(),
+                    TieredKeyValueService::newerEntry)));
+        }
+        return result;
+    }
+
+    @Override
+    public RowColumnRangeIterator getRowsColumnRange(
+            TableReference tableRef,
+            Iterable<byte[]> rows,
+            ColumnRangeSelection columnRangeSelection,
+            int cellBatchHint,
+            long timestamp) {
+        if (!isTiered(tableRef)) {
+            return hot.getRowsColumnRange(tableRef, rows, columnRangeSelection, cellBatchHint, timestamp);
+        }
+        return KeyValueServices.mergeGetRowsColumnRangeIntoSingleIterator(
+                this, tableRef, rows, columnRangeSelection, cellBatchHint, timestamp);
+    }
+
+    @Override
+    public ClosableIterator<RowResult<Value>> getRange(
+            TableReference tableRef,
+            RangeRequest rangeRequest,
+            long timestamp) {
+        if (!isTiered(tableRef)) {
+            return hot.getRange(tableRef, rangeRequest, timestamp);
+        }
+        return mergeRanges(
+                hot.getRange(tableRef, rangeRequest, timestamp),
+                cold.getRange(tableRef, rangeRequest, timestamp),
+                rangeRequest.isReverse(),
+                TieredKeyValueService::newer);
+    }
+
+    @Override
+    public ClosableIterator<RowResult<Set<Long>>> getRangeOfTimestamps(
+            TableReference tableRef,
+            RangeRequest rangeRequest,
+            long timestamp) {
+        if (!isTiered(tableRef)) {
+            return hot.getRangeOfTimestamps(tableRef, rangeRequest, timestamp);
+        }
+        return mergeRanges(
+                hot.getRangeOfTimestamps(tableRef, rangeRequest, timestamp),
+                cold.getRangeOfTimestamps(tableRef, rangeRequest, timestamp),
+                rangeRequest.isReverse(),
+                (hotTimestamps, coldTimestamps) -> Sets.union(hotTimestamps, coldTimestamps).immutableCopy());
+    }
+
+    @Override
+    public Map<RangeRequest, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>> getFirstBatchForRanges(
+            TableReference tableRef,
+            Iterable<RangeRequest> rangeRequests,
+            long timestamp) {
+        if (!isTiered(tableRef)) {
+            return hot.getFirstBatchForRanges(tableRef, rangeRequests, timestamp);
+        }
+        return KeyValueServices.getFirstBatchForRangesUsingGetRange(this, tableRef, rangeRequests, timestamp);
+    }
+
+    @Override
+    public Multimap<Cell, Long> getAllTimestamps(TableReference tableRef, Set<Cell> cells, long timestamp) {
+        if (!isTiered(tableRef)) {
+            return hot.getAllTimestamps(tableRef, cells, timestamp);
+        }
+        Multimap<Cell, Long> result = HashMultimap.create(hot.getAllTimestamps(tableRef, cells, timestamp));
+        result.putAll(cold.getAllTimestamps(tableRef, cells, timestamp));
+        return result;
+    }
+
+    @Override
+    public ClosableIterator<List<CandidateCellForSweeping>> getCandidateCellsForSweeping(
+            TableReference tableRef,
+            CandidateCellForSweepingRequest request) {
+        if (!isTiered(tableRef)) {
+            return hot.getCandidateCellsForSweeping(tableRef, request);
+        }
+        return new GetCandidateCellsForSweepingShim(this).getCandidateCellsForSweeping(tableRef, request);
+    }
+
+    @Override
+    public void putUnlessExists(TableReference tableRef, Map<Cell, byte[]> values) throws KeyAlreadyExistsException {
+        checkNotTiered(tableRef, "putUnlessExists");
+        hot.putUnlessExists(tableRef, values);
+    }
+
+    @Override
+    public void checkAndSet(CheckAndSetRequest checkAndSetRequest) throws CheckAndSetException {
+        checkNotTiered(checkAndSetRequest.table(), "checkAndSet");
+        hot.checkAndSet(checkAndSetRequest);
+    }
+
+    @Override
+    public void addGarbageCollectionSentinelValues(TableReference tableRef, Iterable<Cell> cells) {
+        tierFor(tableRef).addGarbageCollectionSentinelValues(tableRef, cells);
+    }
+
+    @Override
+    public void delete(TableReference tableRef, Multimap<Cell, Long> keys) {
+        hot.delete(tableRef, keys);
+        if (isTiered(tableRef)) {
+            cold.delete(tableRef, keys);
+        }
+    }
+
+    @Override
+    public void deleteRange(TableReference tableRef, RangeRequest range) {
+        hot.deleteRange(tableRef, range);
+        if (isTiered(tableRef)) {
+            cold.deleteRange(tableRef, range);
+        }
+    }
+
+    @Override
+    public void truncateTable(TableReference tableRef) {
+        hot.truncateTable(tableRef);
+        if (isTiered(tableRef)) {
+            cold.truncateTable(tableRef);
+        }
+    }
+
+    @Override
+    public void truncateTables(Set<TableReference> tableRefs) {
+        hot.truncateTables(tableRefs);
+        Set<TableReference> tieredTableRefs = Sets.intersection(tableRefs, tieredTables);
+        if (!tieredTableRefs.isEmpty()) {
+            cold.truncateTables(ImmutableSet.copyOf(tieredTableRefs));
+        }
+    }
+
+    @Override
+    public void createTable(TableReference tableRef, byte[] tableMetadata) {
+        hot.createTable(tableRef, tableMetadata);
+        if (isTiered(tableRef)) {
+            cold.createTable(tableRef, tableMetadata);
+        }
+    }
+
+    @Override
+    public void createTables(Map<TableReference, byte[]> tableRefToTableMetadata) {
+        hot.createTables(tableRefToTableMetadata);
+        Map<TableReference, byte[]> tieredTableRefToMetadata = Maps.filterKeys(tableRefToTableMetadata, this::isTiered);
+        if (!tieredTableRefToMetadata.isEmpty()) {
+            cold.createTables(ImmutableMap.copyOf(tieredTableRefToMetadata));
+        }
+    }
+
+    @Override
+    public void dropTable(TableReference tableRef) {
+        hot.dropTable(tableRef);
+        if (isTiered(tableRef)) {
+            cold.dropTable(tableRef);
+        }
+    }
+
+    @Override
+    public void dropTables(Set<TableReference> tableRefs) {
+        hot.dropTables(tableRefs);
+        Set<TableReference> tieredTableRefs = Sets.intersection(tableRefs, tieredTables);
+        if (!tieredTableRefs.isEmpty()) {
+            cold.dropTables(ImmutableSet.copyOf(tieredTableRefs));
+        }
+    }
+
+    @Override
+    public void putMetadataForTable(TableReference tableRef, byte[] metadata) {
+        hot.putMetadataForTable(tableRef, metadata);
+        if (isTiered(tableRef)) {
+            cold.putMetadataForTable(tableRef, metadata);
+        }
+    }
+
+    @Override
+    public void putMetadataForTables(Map<TableReference, byte[]> tableRefToMetadata) {
+        hot.putMetadataForTables(tableRefToMetadata);
+        Map<TableReference, byte[]> tieredTableRefToMetadata = Maps.filterKeys(tableRefToMetadata, this::isTiered);
+        if (!tieredTableRefToMetadata.isEmpty()) {
+            cold.putMetadataForTables(ImmutableMap.copyOf(tieredTableRefToMetadata));
+        }
+    }
+
+    @Override
+    public void compactInternally(TableReference tableRef) {
+        hot.compactInternally(tableRef);
+        if (isTiered(tableRef)) {
+            cold.compactInternally(tableRef);
+        }
+    }
+
+    @Override
+    public ClusterAvailabilityStatus getClusterAvailabilityStatus() {
+        ClusterAvailabilityStatus hotStatus = hot.getClusterAvailabilityStatus();
+        ClusterAvailabilityStatus coldStatus = cold.getClusterAvailabilityStatus();
+        return hotStatus.compareTo(coldStatus) <= 0 ? hotStatus : coldStatus;
+    }
+
+    @Override
+    public boolean isInitialized() {
+        return hot.isInitialized() && cold.isInitialized();
+    }
+
+    @Override
+    public void close() {
+        demotionExecutor.shutdownNow();
+        hot.close();
+        cold.close();
+    }
+
+    private boolean isTiered(TableReference tableRef) {
+        return tieredTables.contains(tableRef);
+    }
+
+    private void checkNotTiered(TableReference tableRef, String operation) {
+        if (isTiered(tableRef)) {
+            throw new UnsupportedOperationException(String.format(
+                    "%s is not supported on the tiered table %s", operation, tableRef.getQualifiedName()));
+        }
+    }
+
+    private KeyValueService tierFor(TableReference tableRef) {
+        return isTiered(tableRef) ? cold : hot;
+    }
+
+    private static Value newer(Value first, Value second) {
+        return first.getTimestamp() >= second.getTimestamp() ? first : second;
+    }
+
+    private static Map.Entry<Cell, Value> newerEntry(Map.Entry<Cell, Value> first, Map.Entry<Cell, Value> second) {
+        return first.getValue().getTimestamp() >= second.getValue().getTimestamp() ? first : second;
+    }
+
+    private static SortedMap<byte[], RowColumnRangeIterator> sortedByRow(Map<byte[], RowColumnRangeIterator> ranges) {
+        SortedMap<byte[], RowColumnRangeIterator> sorted = Maps.newTreeMap(UnsignedBytes.lexicographicalComparator());
+        sorted.putAll(ranges);
+        return sorted;
+    }
+
+    private static RowColumnRangeIterator nullToEmpty(RowColumnRangeIterator range) {
+        return range == null ? new LocalRowColumnRangeIterator(Collections.emptyIterator()) : range;
+    }
+
+    private static <T> ClosableIterator<RowResult<T>> mergeRanges(
+            ClosableIterator<RowResult<T>> hotRange,
+            ClosableIterator<RowResult<T>> coldRange,
+            boolean reverse,
+            BinaryOperator<T> mergeFunction) {
+        Comparator<byte[]> rowComparator = reverse
+                ? UnsignedBytes.lexicographicalComparator().reversed()
+                : UnsignedBytes.lexicographicalComparator();
+        Iterator<RowResult<T>> merged = new MergingIterator<RowResult<T>, byte[]>(
+                hotRange,
+                coldRange,
+                RowResult::getRowName,
+                rowComparator,
+                (hotRow, coldRow) -> mergeRows(hotRow, coldRow, mergeFunction));
+        return ClosableIterators.wrap(merged, () -> {
+            try {
+                hotRange.close();
+            } finally {
+                coldRange.close();
+            }
+        });
+    }
+
+    private static <T> RowResult<T> mergeRows(
+            RowResult<T> hotRow,
+            RowResult<T> coldRow,
+            BinaryOperator<T> mergeFunction) {
+        SortedMap<byte[], T> columns = Maps.newTreeMap(UnsignedBytes.lexicographicalComparator());
+        columns.putAll(coldRow.getColumns());
+        hotRow.getColumns().forEach((column, hotValue) -> columns.merge(
+                column, hotValue, (coldValue, newValue) -> mergeFunction.apply(newValue, coldValue)));
+        return RowResult.create(hotRow.getRowName(), columns);
+    }
+
+    /**
+     * Merges two iterators that are sorted by the same key, combining the elements with equal keys.
+     */
+    private static final class MergingIterator<T, K> extends AbstractIterator<T> {
+        private final PeekingIterator<? extends T> first;
+        private final PeekingIterator<? extends T> second;
+        private final Function<T, K> keyFunction;
+        private final Comparator<? super K> keyComparator;
+        private final BinaryOperator<T> combiner;
+
+        MergingIterator(
+                Iterator<? extends T> first,
+                Iterator<? extends T> second,
+                Function<T, K> keyFunction,
+                Comparator<? super K> keyComparator,
+                BinaryOperator<T> combiner) {
+            this.first = Iterators.peekingIterator(first);
+            this.second = Iterators.peekingIterator(second);
+            this.keyFunction = keyFunction;
+            this.keyComparator = keyComparator;
+            this.combiner = combiner;
+        }
+
+        @Override
+        protected T computeNext() {
+            if (!first.hasNext()) {
+                return second.hasNext() ? second.next() : endOfData();
+            }
+            if (!second.hasNext()) {
+                return first.next();
+            }
+            int comparison = keyComparator.compare(keyFunction.apply(first.peek()), keyFunction.apply(second.peek()));
+            if (comparison < 0) {
+                return first.next();
+            } else if (comparison > 0) {
+                return second.next();
+            }
+            return combiner.apply(first.next(), second.next());
+        }
+    }
+}
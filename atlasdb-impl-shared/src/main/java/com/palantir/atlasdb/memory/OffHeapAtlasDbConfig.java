@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.memory;
+
+import java.util.Optional;
+
+import org.immutables.value.Value;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import com.google.auto.service.AutoService;
+import com.palantir.atlasdb.spi.KeyValueServiceConfig;
+
+/**
+ * Configures an {@link com.palantir.atlasdb.keyvalue.impl.OffHeapKeyValueService}, which keeps its data in memory
+ * like the {@link InMemoryAtlasDbConfig in-memory} key value service, but off the Java heap.
+ */
+@JsonTypeName(OffHeapAtlasDbConfig.TYPE)
+@AutoService(KeyValueServiceConfig.class)
+public final class OffHeapAtlasDbConfig implements KeyValueServiceConfig {
+    public static final String TYPE = "offheap";
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || (other != null && this.getClass() == other.getClass());
+    }
+
+    @Override
+    @Value.Default
+    public int concurrentGetRangesThreadPoolSize() {
+        return 64;
+    }
+
+    @Override
+    public int hashCode() {
+        return OffHeapAtlasDbConfig.class.hashCode();
+    }
+
+    @Override
+    @JsonIgnore
+    public Optional<String> namespace() {
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.schema;
+
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+
+/**
+ * A binary hash tree over the hashes of consecutive ranges of a table, so that two copies of a table can be compared
+ * by their roots, and the ranges in which they differ found by descending only into the subtrees that differ.
+ * <p>
+ * Each inner node hashes the concatenation of its two children; a node without a sibling is carried up unchanged.
+ */
+final class HashTree {
+    // levels.get(0) holds the leaves, and the last level holds the root
+    private final List<List<HashCode>> levels;
+
+    private HashTree(List<List<HashCode>> levels) {
+        this.levels = levels;
+    }
+
+    static HashTree create(List<HashCode> leaves) {
+        Preconditions.checkArgument(!leaves.isEmpty(), "A hash tree needs at least one leaf");
+        List<List<HashCode>> levels = Lists.newArrayList();
+        List<HashCode> level = ImmutableList.copyOf(leaves);
+        levels.add(level);
+        while (level.size() > 1) {
+            level = getParents(level);
+            levels.add(level);
+        }
+        return new HashTree(levels);
+    }
+
+    private static List<HashCode> getParents(List<HashCode> children) {
+        ImmutableList.Builder<HashCode> parents = ImmutableList.builder();
+        for (int i = 0; i < children.size(); i += 2) {
+            if (i + 1 < children.size()) {
+                parents.add(Hashing.sha256().newHasher()
+                        .putBytes(children.get(i).asBytes())
+                        .putBytes(children.get(i + 1).asBytes())
+                        .hash());
+            } else {
+                parents.add(children.get(i));
+            }
+        }
+        return parents.build();
+    }
+
+    HashCode getRoot() {
+        return levels.get(levels.size() - 1).get(0);
+    }
+
+    int getLeafCount() {
+        return levels.get(0).size();
+    }
+
+    /**
+     * Returns the indices of the leaves whose hashes differ from those of the given tree, in order.
+     */
+    List<Integer> getDifferingLeaves(HashTree other) {
+        Preconditions.checkArgument(getLeafCount() == other.getLeafCount(),
+                "Cannot compare hash trees with %s and %s leaves", getLeafCount(), other.getLeafCount());
+        List<Integer> differingLeaves = Lists.newArrayList();
+        addDifferingLeaves(other, levels.size() - 1, 0, differingLeaves);
+        return differingLeaves;
+    }
+
+    private void addDifferingLeaves(HashTree other, int level, int index, List<Integer> differingLeaves) {
+        if (levels.get(level).get(index).equals(other.levels.get(level).get(index))) {
+            return;
+        }
+        if (level == 0) {
+            differingLeaves.add(index);
+            return;
+        }
+        int childLevelSize = levels.get(level - 1).size();
+        for (int child = 2 * index; child < Math.min(2 * index + 2, childLevelSize); child++) {
+            addDifferingLeaves(other, level - 1, child, differingLeaves);
+        }
+    }
+}
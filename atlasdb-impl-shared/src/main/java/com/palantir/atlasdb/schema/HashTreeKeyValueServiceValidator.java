@@ -0,0 +1,383 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.schema;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.primitives.UnsignedBytes;
+import com.google.common.util.concurrent.Futures;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RangeRequests;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.schema.KeyValueServiceMigrator.KvsMigrationMessageLevel;
+import com.palantir.atlasdb.schema.KeyValueServiceMigrator.KvsMigrationMessageProcessor;
+import com.palantir.atlasdb.transaction.api.TransactionManager;
+import com.palantir.common.base.BatchingVisitableView;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.remoting3.tracing.Tracers;
+
+/**
+ * Validates a migration by comparing hash trees of the tables on both sides, rather than every row.
+ * <p>
+ * Each table is split into ranges in the same way as the migration splits it. The rows of every range are streamed
+ * from both sides in batches, in parallel, and each side reduces them to a hash of their cells and values, so memory
+ * use is bounded by the batch size rather than the size of the range. Those hashes are the leaves of a
+ * {@link HashTree} per side. Only if the roots differ are the ranges whose hashes differ read again, row by row, to
+ * find the exact rows that differ.
+ * <p>
+ * The migration writes every value at the same timestamp, so timestamps are not compared; values are read through
+ * transactions, as of the latest committed state of either side.
+ */
+public class HashTreeKeyValueServiceValidator {
+    private static final Comparator<byte[]> ROW_COMPARATOR = UnsignedBytes.lexicographicalComparator();
+
+    private final TransactionManager validationFromTransactionManager;
+    private final TransactionManager validationToTransactionManager;
+    private final KeyValueService validationFromKvs;
+
+    private final int threads;
+    private final int partitions;
+    private final int defaultBatchSize;
+
+    // Tables that exist on the legacy KVS and should not be migrated.
+    private final Set<TableReference> unmigratableTables;
+
+    private final Map<TableReference, Integer> readBatchSizeOverrides;
+
+    private final KvsMigrationMessageProcessor messageProcessor;
+
+    public HashTreeKeyValueServiceValidator(TransactionManager validationFromTransactionManager,
+                                            TransactionManager validationToTransactionManager,
+                                            KeyValueService validationFromKvs,
+                                            int threads,
+                                            int partitions,
+                                            int defaultBatchSize,
+                                            Map<TableReference, Integer> readBatchSizeOverrides,
+                                            KvsMigrationMessageProcessor messageProcessor,
+                                            Set<TableReference> unmigratableTables) {
+        this.validationFromTransactionManager = validationFromTransactionManager;
+        this.validationToTransactionManager = validationToTransactionManager;
+        this.validationFromKvs = validationFromKvs;
+        this.threads = threads;
+        this.partitions = partitions;
+        this.defaultBatchSize = defaultBatchSize;
+        this.readBatchSizeOverrides = readBatchSizeOverrides;
+        this.messageProcessor = messageProcessor;
+        this.unmigratableTables = unmigratableTables;
+    }
+
+    private int getBatchSize(TableReference table) {
+        Integer batchSize = readBatchSizeOverrides.get(table);
+        return batchSize != null ? batchSize : defaultBatchSize;
+    }
+
+    public void validate(boolean logOnly) {
+        try {
+            List<MismatchedRowRange> mismatches = findMismatches();
+            if (!mismatches.isEmpty()) {
+                throw new IllegalStateException("Tables differ between the source and destination in "
+                        + mismatches.size() + " row ranges: " + mismatches);
+            }
+        } catch (Throwable t) {
+            KeyValueServiceMigrators.processMessage(messageProcessor,
+                    "Validation failed.", t, KvsMigrationMessageLevel.ERROR);
+            if (!logOnly) {
+                Throwables.throwUncheckedException(t);
+            }
+        }
+    }
+
+    /**
+     * Returns the ranges of rows that differ between the source and the destination, across all validatable tables.
+     */
+    public List<MismatchedRowRange> findMismatches() {
+        Set<TableReference> tables = KeyValueServiceValidators.getValidatableTableNames(
+                validationFromKvs, unmigratableTables);
+        ExecutorService executor = Tracers.wrap(PTExecutors.newFixedThreadPool(threads));
+        try {
+            Map<TableReference, TableValidation> validations = Maps.newHashMap();
+            for (TableReference table : tables) {
+                validations.put(table, startValidation(table, executor));
+            }
+            List<MismatchedRowRange> mismatches = Lists.newArrayList();
+            for (Map.Entry<TableReference, TableValidation> e : validations.entrySet()) {
+                try {
+                    mismatches.addAll(e.getValue().getMismatches(executor));
+                } catch (RuntimeException ex) {
+                    throw Throwables.rewrapAndThrowUncheckedException("Exception while validating " + e.getKey(), ex);
+                }
+            }
+            return mismatches;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private TableValidation startValidation(TableReference table, ExecutorService executor) {
+        List<byte[]> boundaries = TableMigrator.getRangeBoundaries(
+                KeyValueServiceMigrators.getPartitioners(validationFromKvs, table, messageProcessor),
+                partitions);
+        int batchSize = getBatchSize(table);
+        List<RangeRequest> ranges = Lists.newArrayListWithCapacity(boundaries.size() - 1);
+        List<Future<HashCode>> fromHashes = Lists.newArrayListWithCapacity(boundaries.size() - 1);
+        List<Future<HashCode>> toHashes = Lists.newArrayListWithCapacity(boundaries.size() - 1);
+        for (int i = 0; i < boundaries.size() - 1; i++) {
+            RangeRequest range = RangeRequest.builder()
+                    .startRowInclusive(boundaries.get(i))
+                    .endRowExclusive(boundaries.get(i + 1))
+                    .batchHint(batchSize)
+                    .build();
+            ranges.add(range);
+            fromHashes.add(executor.submit(
+                    () -> hashRange(validationFromTransactionManager, table, range, batchSize)));
+            toHashes.add(executor.submit(
+                    () -> hashRange(validationToTransactionManager, table, range, batchSize)));
+        }
+        return new TableValidation(table, batchSize, ranges, fromHashes, toHashes);
+    }
+
+    private final class TableValidation {
+        private final TableReference table;
+        private final int batchSize;
+        private final List<RangeRequest> ranges;
+        private final List<Future<HashCode>> fromHashes;
+        private final List<Future<HashCode>> toHashes;
+
+        TableValidation(TableReference table,
+                        int batchSize,
+                        List<RangeRequest> ranges,
+                        List<Future<HashCode>> fromHashes,
+                        List<Future<HashCode>> toHashes) {
+            this.table = table;
+            this.batchSize = batchSize;
+            this.ranges = ranges;
+            this.fromHashes = fromHashes;
+            this.toHashes = toHashes;
+        }
+
+        List<MismatchedRowRange> getMismatches(ExecutorService executor) {
+            HashTree fromTree = HashTree.create(Lists.transform(fromHashes, Futures::getUnchecked));
+            HashTree toTree = HashTree.create(Lists.transform(toHashes, Futures::getUnchecked));
+            if (fromTree.getRoot().equals(toTree.getRoot())) {
+                KeyValueServiceMigrators.processMessage(messageProcessor,
+                        "Validated " + table, KvsMigrationMessageLevel.INFO);
+                return ImmutableList.of();
+            }
+
+            List<Integer> differingRanges = fromTree.getDifferingLeaves(toTree);
+            KeyValueServiceMigrators.processMessage(messageProcessor,
+                    "Table " + table + " differs in " + differingRanges.size() + " of " + ranges.size()
+                            + " ranges; finding the rows that differ",
+                    KvsMigrationMessageLevel.WARN);
+            List<Future<List<MismatchedRowRange>>> futures = Lists.newArrayList();
+            for (int rangeId : differingRanges) {
+                futures.add(executor.submit(() -> findMismatchedRows(table, ranges.get(rangeId), batchSize)));
+            }
+            List<MismatchedRowRange> mismatches = Lists.newArrayList();
+            for (Future<List<MismatchedRowRange>> future : futures) {
+                mismatches.addAll(Futures.getUnchecked(future));
+            }
+            for (MismatchedRowRange mismatch : mismatches) {
+                KeyValueServiceMigrators.processMessage(messageProcessor,
+                        "Mismatch in " + mismatch, KvsMigrationMessageLevel.ERROR);
+            }
+            return mismatches;
+        }
+    }
+
+    private static HashCode hashRange(TransactionManager txManager,
+                                      TableReference table,
+                                      RangeRequest range,
+                                      int batchSize) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        byte[] start = range.getStartInclusive();
+        while (start != null) {
+            List<RowResult<byte[]>> rows = readRows(txManager, table, range, start, batchSize);
+            for (RowResult<byte[]> row : rows) {
+                putRow(hasher, row);
+            }
+            start = rows.size() < batchSize ? null : getNextRowName(Iterables.getLast(rows).getRowName());
+        }
+        return hasher.hash();
+    }
+
+    private static void putRow(Hasher hasher, RowResult<byte[]> row) {
+        for (Map.Entry<byte[], byte[]> e : row.getColumns().entrySet()) {
+            putBytes(hasher, row.getRowName());
+            putBytes(hasher, e.getKey());
+            putBytes(hasher, e.getValue());
+        }
+    }
+
+    private static void putBytes(Hasher hasher, byte[] bytes) {
+        hasher.putInt(bytes.length).putBytes(bytes);
+    }
+
+    /**
+     * Reads the given range from both sides a batch at a time, and merges the rows of each batch in order to find
+     * the runs of rows that are missing from one side or differ between the two.
+     */
+    private List<MismatchedRowRange> findMismatchedRows(TableReference table, RangeRequest range, int batchSize) {
+        MismatchCollector collector = new MismatchCollector(table);
+        byte[] start = range.getStartInclusive();
+        while (start != null) {
+            List<RowResult<byte[]>> fromRows = readRows(validationFromTransactionManager, table, range, start,
+                    batchSize);
+            List<RowResult<byte[]>> toRows = readRows(validationToTransactionManager, table, range, start,
+                    batchSize);
+
+            // Only the rows up to the last row of a full batch are known to have been read from both sides.
+            byte[] batchEnd = null;
+            if (fromRows.size() >= batchSize) {
+                batchEnd = Iterables.getLast(fromRows).getRowName();
+            }
+            if (toRows.size() >= batchSize) {
+                byte[] lastToRow = Iterables.getLast(toRows).getRowName();
+                batchEnd = batchEnd == null || ROW_COMPARATOR.compare(lastToRow, batchEnd) < 0 ? lastToRow : batchEnd;
+            }
+
+            compareRows(fromRows, toRows, batchEnd, collector);
+            start = batchEnd == null ? null : getNextRowName(batchEnd);
+        }
+        return collector.finish();
+    }
+
+    private static void compareRows(List<RowResult<byte[]>> fromRows,
+                                    List<RowResult<byte[]>> toRows,
+                                    byte[] batchEnd,
+                                    MismatchCollector collector) {
+        int fromIndex = 0;
+        int toIndex = 0;
+        while (true) {
+            RowResult<byte[]> fromRow = getRowUpTo(fromRows, fromIndex, batchEnd);
+            RowResult<byte[]> toRow = getRowUpTo(toRows, toIndex, batchEnd);
+            if (fromRow == null && toRow == null) {
+                return;
+            }
+            int cmp = fromRow == null ? 1 : toRow == null ? -1 : ROW_COMPARATOR.compare(
+                    fromRow.getRowName(), toRow.getRowName());
+            if (cmp < 0) {
+                collector.mismatch(fromRow.getRowName());
+                fromIndex++;
+            } else if (cmp > 0) {
+                collector.mismatch(toRow.getRowName());
+                toIndex++;
+            } else {
+                if (columnsEqual(fromRow.getColumns(), toRow.getColumns())) {
+                    collector.match();
+                } else {
+                    collector.mismatch(fromRow.getRowName());
+                }
+                fromIndex++;
+                toIndex++;
+            }
+        }
+    }
+
+    private static RowResult<byte[]> getRowUpTo(List<RowResult<byte[]>> rows, int index, byte[] batchEnd) {
+        if (index >= rows.size()) {
+            return null;
+        }
+        RowResult<byte[]> row = rows.get(index);
+        if (batchEnd != null && ROW_COMPARATOR.compare(row.getRowName(), batchEnd) > 0) {
+            return null;
+        }
+        return row;
+    }
+
+    private static boolean columnsEqual(SortedMap<byte[], byte[]> fromColumns, SortedMap<byte[], byte[]> toColumns) {
+        if (fromColumns.size() != toColumns.size()) {
+            return false;
+        }
+        Iterator<Map.Entry<byte[], byte[]>> toEntries = toColumns.entrySet().iterator();
+        for (Map.Entry<byte[], byte[]> fromEntry : fromColumns.entrySet()) {
+            Map.Entry<byte[], byte[]> toEntry = toEntries.next();
+            if (!Arrays.equals(fromEntry.getKey(), toEntry.getKey())
+                    || !Arrays.equals(fromEntry.getValue(), toEntry.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<RowResult<byte[]>> readRows(TransactionManager txManager,
+                                                    TableReference table,
+                                                    RangeRequest range,
+                                                    byte[] start,
+                                                    int batchSize) {
+        RangeRequest.Builder builder = range.getBuilder().startRowInclusive(start);
+        if (builder.isInvalidRange()) {
+            return ImmutableList.of();
+        }
+        RangeRequest rangeToUse = builder.build();
+        // read only, but need to use a write tx in case the source table has SweepStrategy.THOROUGH
+        return txManager.runTaskWithRetry(tx ->
+                BatchingVisitableView.of(tx.getRange(table, rangeToUse)).limit(batchSize).immutableCopy());
+    }
+
+    private static byte[] getNextRowName(byte[] row) {
+        return RangeRequests.isLastRowName(row) ? null : RangeRequests.nextLexicographicName(row);
+    }
+
+    private static final class MismatchCollector {
+        private final TableReference table;
+        private final List<MismatchedRowRange> mismatches = Lists.newArrayList();
+        private byte[] firstMismatchedRow = null;
+        private byte[] lastMismatchedRow = null;
+
+        MismatchCollector(TableReference table) {
+            this.table = table;
+        }
+
+        void mismatch(byte[] row) {
+            if (firstMismatchedRow == null) {
+                firstMismatchedRow = row;
+            }
+            lastMismatchedRow = row;
+        }
+
+        void match() {
+            if (firstMismatchedRow != null) {
+                mismatches.add(new MismatchedRowRange(table, firstMismatchedRow, lastMismatchedRow));
+                firstMismatchedRow = null;
+                lastMismatchedRow = null;
+            }
+        }
+
+        List<MismatchedRowRange> finish() {
+            match();
+            return mismatches;
+        }
+    }
+}
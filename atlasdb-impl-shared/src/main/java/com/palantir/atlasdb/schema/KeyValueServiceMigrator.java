@@ -19,20 +19,20 @@ package com.palantir.atlasdb.schema;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Supplier;
-import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.Namespace;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
-import com.palantir.atlasdb.table.description.RowNamePartitioner;
-import com.palantir.atlasdb.table.description.TableMetadata;
 import com.palantir.atlasdb.transaction.api.TransactionManager;
 import com.palantir.common.base.Throwables;
 import com.palantir.common.concurrent.PTExecutors;
@@ -41,7 +41,7 @@ import com.palantir.remoting3.tracing.Tracers;
 public class KeyValueServiceMigrator {
     private final TableReference checkpointTable;
     private static final String CHECKPOINT_TABLE_NAME = "tmp_migrate_progress";
-    private static final int PARTITIONS = 256;
+    public static final int DEFAULT_PARTITIONS = 256;
 
     private final TransactionManager fromTransactionManager;
     private final TransactionManager toTransactionManager;
@@ -50,7 +50,9 @@ public class KeyValueServiceMigrator {
     private final Supplier<Long> migrationTimestampSupplier;
 
     private final int threads;
+    private final int partitions;
     private final int defaultBatchSize;
+    private final MigrationThroughput throughput;
 
     // Tables that exist on the legacy KVS and should not be migrated.
     // TODO(tgordeeva): hacky, clean this up when we have table specific migration
@@ -83,6 +85,41 @@ public class KeyValueServiceMigrator {
                                    KvsMigrationMessageProcessor messageProcessor,
                                    TaskProgress taskProgress,
                                    Set<TableReference> unmigratableTables) {
+        this(checkpointNamespace,
+                fromTransactionManager,
+                toTransactionManager,
+                fromKvs,
+                toKvs,
+                migrationTimestampSupplier,
+                threads,
+                DEFAULT_PARTITIONS,
+                defaultBatchSize,
+                readBatchSizeOverrides,
+                messageProcessor,
+                taskProgress,
+                unmigratableTables,
+                MigrationThroughput.unlimited());
+    }
+
+    /**
+     * @param threads the number of ranges copied concurrently, across all tables
+     * @param partitions the minimum number of ranges each table is split into; rounded up to a power of two
+     * @param throughput counts what the migration writes, and limits how fast it writes it
+     */
+    public KeyValueServiceMigrator(Namespace checkpointNamespace,
+                                   TransactionManager fromTransactionManager,
+                                   TransactionManager toTransactionManager,
+                                   KeyValueService fromKvs,
+                                   KeyValueService toKvs,
+                                   Supplier<Long> migrationTimestampSupplier,
+                                   int threads,
+                                   int partitions,
+                                   int defaultBatchSize,
+                                   Map<TableReference, Integer> readBatchSizeOverrides,
+                                   KvsMigrationMessageProcessor messageProcessor,
+                                   TaskProgress taskProgress,
+                                   Set<TableReference> unmigratableTables,
+                                   MigrationThroughput throughput) {
         this.checkpointTable = TableReference.create(checkpointNamespace, CHECKPOINT_TABLE_NAME);
         this.fromTransactionManager = fromTransactionManager;
         this.toTransactionManager = toTransactionManager;
@@ -90,7 +127,9 @@ public class KeyValueServiceMigrator {
         this.toKvs = toKvs;
         this.migrationTimestampSupplier = migrationTimestampSupplier;
         this.threads = threads;
+        this.partitions = partitions;
         this.defaultBatchSize = defaultBatchSize;
+        this.throughput = throughput;
         this.readBatchSizeOverrides = readBatchSizeOverrides;
         this.messageProcessor = messageProcessor;
         this.taskProgress = taskProgress;
@@ -180,6 +219,9 @@ public class KeyValueServiceMigrator {
                 new GeneralTaskCheckpointer(checkpointTable, toKvs, txManager);
 
         ExecutorService executor = Tracers.wrap(PTExecutors.newFixedThreadPool(threads));
+        // Tables are migrated concurrently so that workers don't idle while the last ranges of a table finish.
+        // Their threads only wait on the ranges they hand to the executor above, which bounds the actual work.
+        ExecutorService tableExecutor = Tracers.wrap(PTExecutors.newFixedThreadPool(threads));
         try {
             migrateTables(
                     tables,
@@ -188,12 +230,14 @@ public class KeyValueServiceMigrator {
                     toKvs,
                     migrationTimestampSupplier.get(),
                     executor,
+                    tableExecutor,
                     checkpointer);
-            processMessage("Data migration complete.", KvsMigrationMessageLevel.INFO);
+            processMessage("Data migration complete. " + describeThroughput(), KvsMigrationMessageLevel.INFO);
         } catch (Throwable t) {
             processMessage("Migration failed.", t, KvsMigrationMessageLevel.ERROR);
             Throwables.throwUncheckedException(t);
         } finally {
+            tableExecutor.shutdownNow();
             executor.shutdown();
             executor.awaitTermination(10000L, TimeUnit.MILLISECONDS);
         }
@@ -205,38 +249,40 @@ public class KeyValueServiceMigrator {
                                KeyValueService writeKvs,
                                long migrationTimestamp,
                                ExecutorService executor,
-                               GeneralTaskCheckpointer checkpointer) {
+                               ExecutorService tableExecutor,
+                               GeneralTaskCheckpointer checkpointer) throws InterruptedException {
         processMessage("Migrating tables at migrationTimestamp " + migrationTimestamp,
                 KvsMigrationMessageLevel.INFO);
+        List<Future<?>> futures = Lists.newArrayList();
         for (TableReference table : tables) {
             KvsRangeMigrator rangeMigrator =
                     new KvsRangeMigratorBuilder().srcTable(table).readBatchSize(getBatchSize(table)).readTxManager(
                             readTxManager).txManager(txManager).writeKvs(writeKvs).migrationTimestamp(
-                            migrationTimestamp).checkpointer(checkpointer).build();
+                            migrationTimestamp).checkpointer(checkpointer).throughput(throughput).build();
             TableMigratorBuilder builder =
-                    new TableMigratorBuilder().srcTable(table).partitions(PARTITIONS).partitioners(
-                            getPartitioners(fromKvs, table)).readBatchSize(
+                    new TableMigratorBuilder().srcTable(table).partitions(partitions).partitioners(
+                            KeyValueServiceMigrators.getPartitioners(fromKvs, table, messageProcessor)).readBatchSize(
                             getBatchSize(table)).executor(executor).checkpointer(checkpointer).progress(
                             taskProgress).rangeMigrator(rangeMigrator);
             TableMigrator migrator = builder.build();
-            migrator.migrate();
+            futures.add(tableExecutor.submit(() -> {
+                migrator.migrate();
+                processMessage("Migrated table " + table + ". " + describeThroughput(),
+                        KvsMigrationMessageLevel.INFO);
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                Throwables.throwUncheckedException(e.getCause());
+            }
         }
     }
 
-    private List<RowNamePartitioner> getPartitioners(KeyValueService kvs, TableReference table) {
-        try {
-            byte[] metadata = kvs.getMetadataForTable(table);
-            TableMetadata tableMeta = TableMetadata.BYTES_HYDRATOR.hydrateFromBytes(metadata);
-            return tableMeta.getRowMetadata().getPartitionersForRow();
-        } catch (RuntimeException e) {
-            processMessage(
-                    "Could not resolve partitioners from table metadata for "
-                            + table
-                            + " this may result in a small decrease in performance migrating this table.",
-                    e,
-                    KvsMigrationMessageLevel.WARN);
-            return ImmutableList.of();
-        }
+    private String describeThroughput() {
+        return String.format("Wrote %d cells, %d bytes so far, at %.0f bytes per second.",
+                throughput.getCellsWritten(), throughput.getBytesWritten(), throughput.getBytesPerSecond());
     }
 
     private int getBatchSize(TableReference table) {
@@ -18,14 +18,18 @@ package com.palantir.atlasdb.schema;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.util.List;
 import java.util.Set;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.schema.KeyValueServiceMigrator.KvsMigrationMessageLevel;
 import com.palantir.atlasdb.schema.KeyValueServiceMigrator.KvsMigrationMessageProcessor;
+import com.palantir.atlasdb.table.description.RowNamePartitioner;
+import com.palantir.atlasdb.table.description.TableMetadata;
 
 public final class KeyValueServiceMigrators {
     private KeyValueServiceMigrators() {
@@ -51,6 +55,29 @@ public final class KeyValueServiceMigrators {
         return tableNames;
     }
 
+    /**
+     * The partitioners of the rows of the given table, or none if they can't be resolved from its metadata.
+     */
+    public static List<RowNamePartitioner> getPartitioners(
+            KeyValueService kvs,
+            TableReference table,
+            KvsMigrationMessageProcessor messageProcessor) {
+        try {
+            byte[] metadata = kvs.getMetadataForTable(table);
+            TableMetadata tableMeta = TableMetadata.BYTES_HYDRATOR.hydrateFromBytes(metadata);
+            return tableMeta.getRowMetadata().getPartitionersForRow();
+        } catch (RuntimeException e) {
+            processMessage(
+                    messageProcessor,
+                    "Could not resolve partitioners from table metadata for "
+                            + table
+                            + " this may result in a small decrease in performance migrating this table.",
+                    e,
+                    KvsMigrationMessageLevel.WARN);
+            return ImmutableList.of();
+        }
+    }
+
     public static void processMessage(
             KvsMigrationMessageProcessor messageProcessor,
             String string,
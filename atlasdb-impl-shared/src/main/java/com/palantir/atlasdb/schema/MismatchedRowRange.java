@@ -0,0 +1,74 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.schema;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+
+/**
+ * An inclusive range of rows of a table whose contents differ between the source and the destination of a
+ * migration. Every row in the range is missing from one side or has different cells or values on the two sides.
+ */
+public final class MismatchedRowRange {
+    private final TableReference table;
+    private final byte[] firstRow;
+    private final byte[] lastRow;
+
+    public MismatchedRowRange(TableReference table, byte[] firstRow, byte[] lastRow) {
+        this.table = table;
+        this.firstRow = firstRow;
+        this.lastRow = lastRow;
+    }
+
+    public TableReference getTable() {
+        return table;
+    }
+
+    public byte[] getFirstRow() {
+        return firstRow;
+    }
+
+    public byte[] getLastRow() {
+        return lastRow;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (other == null || getClass() != other.getClass()) {
+            return false;
+        }
+        MismatchedRowRange that = (MismatchedRowRange) other;
+        return table.equals(that.table)
+                && Arrays.equals(firstRow, that.firstRow)
+                && Arrays.equals(lastRow, that.lastRow);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(table, Arrays.hashCode(firstRow), Arrays.hashCode(lastRow));
+    }
+
+    @Override
+    public String toString() {
+        return table + " rows [" + PtBytes.encodeHexString(firstRow) + ", " + PtBytes.encodeHexString(lastRow) + "]";
+    }
+}
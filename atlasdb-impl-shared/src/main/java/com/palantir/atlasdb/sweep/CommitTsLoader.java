@@ -15,9 +15,13 @@
  */
 package com.palantir.atlasdb.sweep;
 
+import java.util.Map;
+import java.util.Set;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Maps;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
 import com.palantir.atlasdb.transaction.api.TransactionFailedRetriableException;
 import com.palantir.atlasdb.transaction.impl.TransactionConstants;
@@ -44,10 +48,42 @@ public final class CommitTsLoader {
         if (!startTssToWarmingCache.isEmpty()) {
             // Ideally TransactionService should work with primitive collections to avoid GC overhead..
             cache.putAll(transactionService.get(TDecorators.wrap(startTssToWarmingCache)));
+            rollBackUncommitted(transactionService, startTssToWarmingCache, cache);
         }
         return new CommitTsLoader(cache, transactionService);
     }
 
+    private static void rollBackUncommitted(
+            TransactionService transactionService,
+            TLongSet startTss,
+            TLongLongMap commitTsByStartTs) {
+        Map<Long, Long> rollbacks = Maps.newHashMap();
+        startTss.forEach(startTs -> {
+            if (!commitTsByStartTs.containsKey(startTs)) {
+                rollbacks.put(startTs, TransactionConstants.FAILED_COMMIT_TS);
+            }
+            return true;
+        });
+        if (rollbacks.isEmpty()) {
+            return;
+        }
+
+        // Roll back these transactions (note that rolling back arbitrary transactions
+        // can never cause correctness issues, only liveness issues)
+        Set<Long> alreadyExisting = transactionService.putUnlessExists(rollbacks);
+        for (long startTs : rollbacks.keySet()) {
+            if (!alreadyExisting.contains(startTs)) {
+                commitTsByStartTs.put(startTs, TransactionConstants.FAILED_COMMIT_TS);
+            }
+        }
+        if (!alreadyExisting.isEmpty()) {
+            log.warn("This isn't a bug but it should be very infrequent. Could not roll back {} transactions;"
+                    + " either they were already rolled back (by a different transaction), or they committed"
+                    + " successfully before we could roll them back.", alreadyExisting.size());
+            commitTsByStartTs.putAll(transactionService.get(alreadyExisting));
+        }
+    }
+
     public long load(long startTs) {
         if (!commitTsByStartTs.containsKey(startTs)) {
             long commitTs = loadCacheMissAndPossiblyRollBack(startTs);
@@ -66,7 +102,6 @@ public final class CommitTsLoader {
         // Roll back this transaction (note that rolling back arbitrary transactions
         // can never cause correctness issues, only liveness issues)
         try {
-            // TODO(carrino): use the batched version of putUnlessExists when it is available.
             transactionService.putUnlessExists(startTs, TransactionConstants.FAILED_COMMIT_TS);
         } catch (KeyAlreadyExistsException e) {
             String msg = "Could not roll back transaction with start timestamp " + startTs + "; either"
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableSortedMap;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.impl.Cells;
+
+/**
+ * A transaction's local writes to a single table. Deletes are stored as empty values.
+ * <p>
+ * Until the writes are first read, they are appended to a pair of arrays, so a transaction that only writes
+ * allocates nothing per cell and sorts its writes once, when they are committed. The first read sorts the appended
+ * writes, with later writes to a cell replacing earlier ones, and moves them into a {@link ConcurrentSkipListMap}.
+ * From then on writes go straight into that map, so readers see a live view of the transaction's writes.
+ * <p>
+ * So that a transaction which rewrites the same cells many times before reading them does not grow the arrays
+ * without bound, once they hold at least {@value #COLLAPSE_THRESHOLD} writes and are full, the appended writes are
+ * sorted and collapsed to the latest write per cell before the arrays are grown. The arrays are only grown if that
+ * frees less than half of them.
+ */
+final class LocalWriteBuffer {
+    private static final int INITIAL_CAPACITY = 16;
+    @VisibleForTesting
+    static final int COLLAPSE_THRESHOLD = 1024;
+
+    @GuardedBy("this")
+    private Cell[] appendedCells = new Cell[INITIAL_CAPACITY];
+    @GuardedBy("this")
+    private byte[][] appendedValues = new byte[INITIAL_CAPACITY][];
+    @GuardedBy("this")
+    private int numAppended = 0;
+    @GuardedBy("this")
+    private SortedMap<Cell, byte[]> sortedAppendedWrites = null;
+
+    private volatile ConcurrentNavigableMap<Cell, byte[]> liveWrites = null;
+
+    /**
+     * Adds the given writes, where a null value is stored as a delete.
+     *
+     * @return the approximate number of bytes added. Until the writes are first read, a cell that is written more
+     * than once is counted each time.
+     */
+    long putAll(Map<Cell, byte[]> values) {
+        if (liveWrites == null) {
+            synchronized (this) {
+                if (liveWrites == null) {
+                    return append(values);
+                }
+            }
+        }
+        long bytesAdded = 0;
+        for (Map.Entry<Cell, byte[]> e : values.entrySet()) {
+            byte[] value = MoreObjects.firstNonNull(e.getValue(), PtBytes.EMPTY_BYTE_ARRAY);
+            if (liveWrites.put(e.getKey(), value) == null) {
+                bytesAdded += value.length + Cells.getApproxSizeOfCell(e.getKey());
+            }
+        }
+        return bytesAdded;
+    }
+
+    /**
+     * Returns a live, sorted view of the writes, which reflects writes made after this call.
+     */
+    ConcurrentNavigableMap<Cell, byte[]> getLiveWrites() {
+        ConcurrentNavigableMap<Cell, byte[]> writes = liveWrites;
+        if (writes != null) {
+            return writes;
+        }
+        synchronized (this) {
+            if (liveWrites == null) {
+                // built in linear time, since the source is sorted
+                liveWrites = new ConcurrentSkipListMap<>(getSortedAppendedWrites());
+                appendedCells = null;
+                appendedValues = null;
+                numAppended = 0;
+                sortedAppendedWrites = null;
+            }
+            return liveWrites;
+        }
+    }
+
+    /**
+     * Returns the writes in cell order. Unlike {@link #getLiveWrites()}, this does not need to build a skip list if
+     * the writes have not been read yet, but the returned map may not reflect later writes; it is meant for when the
+     * transaction is committing and no more writes can happen.
+     */
+    SortedMap<Cell, byte[]> getSortedWrites() {
+        ConcurrentNavigableMap<Cell, byte[]> writes = liveWrites;
+        if (writes != null) {
+            return writes;
+        }
+        synchronized (this) {
+            if (liveWrites != null) {
+                return liveWrites;
+            }
+            return getSortedAppendedWrites();
+        }
+    }
+
+    boolean isEmpty() {
+        ConcurrentNavigableMap<Cell, byte[]> writes = liveWrites;
+        if (writes != null) {
+            return writes.isEmpty();
+        }
+        synchronized (this) {
+            return liveWrites == null ? numAppended == 0 : liveWrites.isEmpty();
+        }
+    }
+
+    @VisibleForTesting
+    synchronized int getAppendedCapacity() {
+        return appendedCells == null ? 0 : appendedCells.length;
+    }
+
+    @GuardedBy("this")
+    private long append(Map<Cell, byte[]> values) {
+        int required = numAppended + values.size();
+        if (required > appendedCells.length) {
+            if (numAppended >= COLLAPSE_THRESHOLD) {
+                collapseAppendedWrites();
+                required = numAppended + values.size();
+            }
+            if (required > appendedCells.length / 2) {
+                int newCapacity = Math.max(required, appendedCells.length * 2);
+                appendedCells = Arrays.copyOf(appendedCells, newCapacity);
+                appendedValues = Arrays.copyOf(appendedValues, newCapacity);
+            }
+        }
+        long bytesAdded = 0;
+        for (Map.Entry<Cell, byte[]> e : values.entrySet()) {
+            byte[] value = MoreObjects.firstNonNull(e.getValue(), PtBytes.EMPTY_BYTE_ARRAY);
+            appendedCells[numAppended] = e.getKey();
+            appendedValues[numAppended] = value;
+            numAppended++;
+            bytesAdded += value.length + Cells.getApproxSizeOfCell(e.getKey());
+        }
+        sortedAppendedWrites = null;
+        return bytesAdded;
+    }
+
+    /**
+     * Replaces the appended writes with the latest write to each cell, in cell order.
+     */
+    @GuardedBy("this")
+    private void collapseAppendedWrites() {
+        int numCollapsed = 0;
+        for (Map.Entry<Cell, byte[]> e : getSortedAppendedWrites().entrySet()) {
+            appendedCells[numCollapsed] = e.getKey();
+            appendedValues[numCollapsed] = e.getValue();
+            numCollapsed++;
+        }
+        Arrays.fill(appendedCells, numCollapsed, numAppended, null);
+        Arrays.fill(appendedValues, numCollapsed, numAppended, null);
+        numAppended = numCollapsed;
+    }
+
+    @GuardedBy("this")
+    private SortedMap<Cell, byte[]> getSortedAppendedWrites() {
+        if (sortedAppendedWrites == null) {
+            int[] order = sortedOrder(appendedCells, numAppended);
+            ImmutableSortedMap.Builder<Cell, byte[]> builder = ImmutableSortedMap.naturalOrder();
+            for (int i = 0; i < order.length; i++) {
+                Cell cell = appendedCells[order[i]];
+                // the sort is stable, so the last of a run of equal cells is the latest write to that cell
+                boolean overwritten = i + 1 < order.length && cell.compareTo(appendedCells[order[i + 1]]) == 0;
+                if (!overwritten) {
+                    builder.put(cell, appendedValues[order[i]]);
+                }
+            }
+            sortedAppendedWrites = builder.build();
+        }
+        return sortedAppendedWrites;
+    }
+
+    /**
+     * Returns the indices of the first {@code size} cells in cell order, keeping equal cells in the order in which
+     * they were appended.
+     */
+    private static int[] sortedOrder(Cell[] cells, int size) {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        int[] scratch = new int[size];
+        for (int width = 1; width < size; width *= 2) {
+            for (int low = 0; low < size - width; low += 2 * width) {
+                merge(cells, order, scratch, low, low + width, Math.min(low + 2 * width, size));
+            }
+        }
+        return order;
+    }
+
+    private static void merge(Cell[] cells, int[] order, int[] scratch, int low, int mid, int high) {
+        System.arraycopy(order, low, scratch, low, high - low);
+        int left = low;
+        int right = mid;
+        for (int i = low; i < high; i++) {
+            if (right >= high || (left < mid && cells[scratch[left]].compareTo(cells[scratch[right]]) <= 0)) {
+                order[i] = scratch[left];
+                left++;
+            } else {
+                order[i] = scratch[right];
+                right++;
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+import com.google.common.base.Supplier;
+import com.palantir.atlasdb.cache.TimestampCache;
+import com.palantir.atlasdb.cleaner.NoOpCleaner;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
+import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
+import com.palantir.atlasdb.transaction.api.ConstraintCheckable;
+import com.palantir.atlasdb.transaction.api.TransactionFailedRetriableException;
+import com.palantir.atlasdb.transaction.api.TransactionReadSentinelBehavior;
+import com.palantir.atlasdb.transaction.service.TransactionService;
+import com.palantir.lock.v2.TimelockService;
+
+/**
+ * A transaction that can only read, and which holds no locks while doing so.
+ * <p>
+ * Without a lock on the immutable timestamp, nothing stops sweep from passing our start timestamp. Tables that are
+ * swept conservatively are still safe to read, since sweep leaves a sentinel behind that we throw on, but tables
+ * that are swept thoroughly are not, so we refuse to read them. Likewise nothing stops the unreadable timestamp
+ * from passing our start timestamp, so on commit we check that we have not been open for longer than the
+ * transaction read timeout and, if we have read anything, that the unreadable timestamp has not passed our start
+ * timestamp, as a transaction holding the immutable timestamp lock would check through its lock.
+ * <p>
+ * Since there are no writes, committing never acquires locks or checks for conflicts.
+ */
+final class ReadOnlySnapshotTransaction extends SnapshotTransaction {
+    private static final String READ_ONLY_MESSAGE = "This is a read only transaction.";
+
+    private final Supplier<Long> unreadableTimestamp;
+    private volatile boolean hasRead = false;
+
+    ReadOnlySnapshotTransaction(KeyValueService keyValueService,
+                                TimelockService timelockService,
+                                TransactionService transactionService,
+                                Supplier<Long> startTimestamp,
+                                ConflictDetectionManager conflictDetectionManager,
+                                SweepStrategyManager sweepStrategyManager,
+                                long immutableTimestamp,
+                                Supplier<Long> unreadableTimestamp,
+                                AtlasDbConstraintCheckingMode constraintCheckingMode,
+                                Long transactionReadTimeoutMillis,
+                                boolean allowHiddenTableAccess,
+                                TimestampCache timestampValidationReadCache,
+                                long lockAcquireTimeoutMs,
+                                ExecutorService getRangesExecutor,
+                                int defaultGetRangesConcurrency) {
+        super(keyValueService,
+                timelockService,
+                transactionService,
+                NoOpCleaner.INSTANCE,
+                startTimestamp,
+                conflictDetectionManager,
+                sweepStrategyManager,
+                immutableTimestamp,
+                Optional.empty(),
+                AdvisoryLockPreCommitCheck.NO_OP,
+                constraintCheckingMode,
+                transactionReadTimeoutMillis,
+                TransactionReadSentinelBehavior.THROW_EXCEPTION,
+                allowHiddenTableAccess,
+                timestampValidationReadCache,
+                lockAcquireTimeoutMs,
+                getRangesExecutor,
+                defaultGetRangesConcurrency);
+        this.unreadableTimestamp = unreadableTimestamp;
+    }
+
+    @Override
+    protected void checkGetPreconditions(TableReference tableRef) {
+        super.checkGetPreconditions(tableRef);
+        if (sweepStrategyManager.get().get(tableRef) == SweepStrategy.THOROUGH) {
+            throw new IllegalStateException(
+                    "Cannot read from a table with a thorough sweep strategy in a read only transaction.");
+        }
+        hasRead = true;
+    }
+
+    @Override
+    protected void checkPutPreconditions(TableReference tableRef) {
+        throw new IllegalArgumentException(READ_ONLY_MESSAGE);
+    }
+
+    @Override
+    public void useTable(TableReference tableRef, ConstraintCheckable table) {
+        // there is nothing to check constraints of, since we never write
+    }
+
+    @Override
+    protected void throwIfReadsNoLongerValid() {
+        throwIfReadTimedOut();
+        // the unreadable timestamp only increases, so if it has not passed our start timestamp by now, every earlier
+        // read saw data that had not been swept or scrubbed
+        if (hasRead && getStartTimestamp() < unreadableTimestamp.get()) {
+            throw new TransactionFailedRetriableException("The unreadable timestamp has passed the start timestamp"
+                    + " of this read only transaction, so its reads may have missed swept or scrubbed values.");
+        }
+    }
+}
@@ -23,6 +23,7 @@ import java.util.NavigableMap;
 import java.util.Optional;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
@@ -34,6 +35,7 @@ import org.slf4j.LoggerFactory;
 
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Functions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
@@ -48,6 +50,8 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.Sets;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
 import com.google.common.primitives.UnsignedBytes;
 import com.palantir.atlasdb.cache.TimestampCache;
 import com.palantir.atlasdb.cleaner.Cleaner;
@@ -88,12 +92,21 @@ import com.palantir.util.Pair;
  * If every table was marked as Serializable then we wouldn't need to also do write write conflict checking.
  * However, it is very common that we will be running in a mixed mode so this implementation does the standard
  * write/write conflict checking as well as preventing read/write conflicts to attain serializability.
+ * <p>
+ * With compact read sets, values of {@link #READ_DIGEST_LENGTH} bytes or more are tracked by their 128-bit digest
+ * rather than copied, and reads of cells this transaction has already written are not tracked at all, since those
+ * cells are never re-validated. Values shorter than a digest are kept as they are, so a stored value can never be
+ * mistaken for a digest.
  */
 public class SerializableTransaction extends SnapshotTransaction {
     private static final Logger log = LoggerFactory.getLogger(SerializableTransaction.class);
 
     private static final int BATCH_SIZE = 1000;
 
+    @VisibleForTesting
+    static final int READ_DIGEST_LENGTH = 16;
+    private static final HashFunction READ_DIGEST_FUNCTION = Hashing.murmur3_128();
+
     final ConcurrentMap<TableReference, ConcurrentNavigableMap<Cell, byte[]>> readsByTable = Maps.newConcurrentMap();
     final ConcurrentMap<TableReference, ConcurrentMap<RangeRequest, byte[]>> rangeEndByTable = Maps.newConcurrentMap();
     final ConcurrentMap<TableReference, ConcurrentMap<byte[], ConcurrentMap<BatchColumnRangeSelection, byte[]>>>
@@ -101,6 +114,7 @@ public class SerializableTransaction extends SnapshotTransaction {
     final ConcurrentMap<TableReference, Set<Cell>> cellsRead = Maps.newConcurrentMap();
     final ConcurrentMap<TableReference, Set<RowRead>> rowsRead = Maps.newConcurrentMap();
     private final MetricRegistry metricRegistry = AtlasDbMetrics.getMetricRegistry();
+    private final boolean compactReadSets;
 
     public SerializableTransaction(KeyValueService keyValueService,
                                    TimelockService timelockService,
@@ -120,6 +134,46 @@ public class SerializableTransaction extends SnapshotTransaction {
                                    long lockAcquireTimeoutMs,
                                    ExecutorService getRangesExecutor,
                                    int defaultGetRangesConcurrency) {
+        this(keyValueService,
+             timelockService,
+             transactionService,
+             cleaner,
+             startTimeStamp,
+             conflictDetectionManager,
+             sweepStrategyManager,
+             immutableTimestamp,
+             immutableTsLock,
+             advisoryLockCheck,
+             constraintCheckingMode,
+             transactionTimeoutMillis,
+             readSentinelBehavior,
+             allowHiddenTableAccess,
+             timestampCache,
+             lockAcquireTimeoutMs,
+             getRangesExecutor,
+             defaultGetRangesConcurrency,
+             false);
+    }
+
+    public SerializableTransaction(KeyValueService keyValueService,
+                                   TimelockService timelockService,
+                                   TransactionService transactionService,
+                                   Cleaner cleaner,
+                                   Supplier<Long> startTimeStamp,
+                                   ConflictDetectionManager conflictDetectionManager,
+                                   SweepStrategyManager sweepStrategyManager,
+                                   long immutableTimestamp,
+                                   Optional<LockToken> immutableTsLock,
+                                   AdvisoryLockPreCommitCheck advisoryLockCheck,
+                                   AtlasDbConstraintCheckingMode constraintCheckingMode,
+                                   Long transactionTimeoutMillis,
+                                   TransactionReadSentinelBehavior readSentinelBehavior,
+                                   boolean allowHiddenTableAccess,
+                                   TimestampCache timestampCache,
+                                   long lockAcquireTimeoutMs,
+                                   ExecutorService getRangesExecutor,
+                                   int defaultGetRangesConcurrency,
+                                   boolean compactReadSets) {
         super(keyValueService,
               timelockService,
               transactionService,
@@ -138,6 +192,7 @@ public class SerializableTransaction extends SnapshotTransaction {
               lockAcquireTimeoutMs,
               getRangesExecutor,
               defaultGetRangesConcurrency);
+        this.compactReadSets = compactReadSets;
     }
 
     @Override
@@ -150,6 +205,18 @@ public class SerializableTransaction extends SnapshotTransaction {
         return ret;
     }
 
+    @Override
+    @Idempotent
+    public CompletableFuture<SortedMap<byte[], RowResult<byte[]>>> getRowsAsync(TableReference tableRef,
+            Iterable<byte[]> rows,
+            ColumnSelection columnSelection) {
+        List<byte[]> rowsRead = ImmutableList.copyOf(rows);
+        return registerAsyncRead(super.getRowsAsync(tableRef, rowsRead, columnSelection).thenApply(ret -> {
+            markRowsRead(tableRef, rowsRead, columnSelection, ret.values());
+            return ret;
+        }));
+    }
+
     @Override
     public Map<byte[], BatchingVisitable<Map.Entry<Cell, byte[]>>> getRowsColumnRange(
             TableReference tableRef,
@@ -186,6 +253,15 @@ public class SerializableTransaction extends SnapshotTransaction {
         return ret;
     }
 
+    @Override
+    @Idempotent
+    public CompletableFuture<Map<Cell, byte[]>> getAsync(TableReference tableRef, Set<Cell> cells) {
+        return registerAsyncRead(super.getAsync(tableRef, cells).thenApply(ret -> {
+            markCellsRead(tableRef, cells, ret);
+            return ret;
+        }));
+    }
+
     @Override
     @Idempotent
     public BatchingVisitable<RowResult<byte[]>> getRange(TableReference tableRef, RangeRequest rangeRequest) {
@@ -332,13 +408,13 @@ public class SerializableTransaction extends SnapshotTransaction {
         if (!isSerializableTable(table)) {
             return;
         }
-        getReadsForTable(table).putAll(transformGetsForTesting(result));
+        getReadsForTable(table).putAll(toReadSet(table, transformGetsForTesting(result)));
         Set<Cell> cellsForTable = cellsRead.get(table);
         if (cellsForTable == null) {
             cellsRead.putIfAbsent(table, Sets.newConcurrentHashSet());
             cellsForTable = cellsRead.get(table);
         }
-        cellsForTable.addAll(searched);
+        cellsForTable.addAll(withoutWrites(table, searched));
     }
 
     private void markRangeRead(TableReference table, RangeRequest range, List<RowResult<byte[]>> result) {
@@ -349,7 +425,7 @@ public class SerializableTransaction extends SnapshotTransaction {
         for (RowResult<byte[]> row : result) {
             Map<Cell, byte[]> map = Maps2.fromEntries(row.getCells());
             map = transformGetsForTesting(map);
-            reads.putAll(map);
+            reads.putAll(toReadSet(table, map));
         }
         setRangeEnd(table, range, Iterables.getLast(result).getRowName());
     }
@@ -365,10 +441,41 @@ public class SerializableTransaction extends SnapshotTransaction {
         ConcurrentNavigableMap<Cell, byte[]> reads = getReadsForTable(table);
         Map<Cell, byte[]> map = Maps2.fromEntries(result);
         map = transformGetsForTesting(map);
-        reads.putAll(map);
+        reads.putAll(toReadSet(table, map));
         setColumnRangeEnd(table, row, range, Iterables.getLast(result).getKey().getColumnName());
     }
 
+    /**
+     * Returns the values to track for the given reads. With compact read sets these are digests where that saves
+     * space, and reads of cells that this transaction has written are dropped.
+     */
+    private Map<Cell, byte[]> toReadSet(TableReference table, Map<Cell, byte[]> reads) {
+        if (!compactReadSets) {
+            return reads;
+        }
+        Map<Cell, byte[]> writes = getWritesForTable(table);
+        Map<Cell, byte[]> readsWithoutWrites = writes == null
+                ? reads
+                : Maps.filterKeys(reads, Predicates.not(Predicates.in(writes.keySet())));
+        return Maps.transformValues(readsWithoutWrites, this::toReadSetValue);
+    }
+
+    private Set<Cell> withoutWrites(TableReference table, Set<Cell> cells) {
+        Map<Cell, byte[]> writes = compactReadSets ? getWritesForTable(table) : null;
+        return writes == null ? cells : Sets.difference(cells, writes.keySet());
+    }
+
+    /**
+     * Returns the value that the read set holds for a cell with the given value, so that values read at commit time
+     * can be compared with the read set.
+     */
+    private byte[] toReadSetValue(byte[] value) {
+        if (!compactReadSets || value.length < READ_DIGEST_LENGTH) {
+            return value;
+        }
+        return READ_DIGEST_FUNCTION.hashBytes(value).asBytes();
+    }
+
     static class RowRead {
         final ImmutableList<byte[]> rows;
         final ColumnSelection cols;
@@ -391,7 +498,7 @@ public class SerializableTransaction extends SnapshotTransaction {
         for (RowResult<byte[]> row : result) {
             Map<Cell, byte[]> map = Maps2.fromEntries(row.getCells());
             map = transformGetsForTesting(map);
-            reads.putAll(map);
+            reads.putAll(toReadSet(table, map));
         }
         Set<RowRead> rowReads = rowsRead.get(table);
         if (rowReads == null) {
@@ -427,18 +534,21 @@ public class SerializableTransaction extends SnapshotTransaction {
     @Override
     protected void throwIfReadWriteConflictForSerializable(long commitTimestamp) {
         Transaction ro = getReadOnlyTransaction(commitTimestamp);
-        verifyRanges(ro);
-        verifyColumnRanges(ro);
-        verifyCells(ro);
-        verifyRows(ro);
+        List<Runnable> checks = Lists.newArrayList();
+        addRangeChecks(ro, checks);
+        addColumnRangeChecks(ro, checks);
+        addCellChecks(ro, checks);
+        addRowChecks(ro, checks);
+        runConflictChecks(checks);
     }
 
-    private void verifyRows(Transaction ro) {
+    private void addRowChecks(Transaction ro, List<Runnable> checks) {
         for (Map.Entry<TableReference, Set<RowRead>> tableAndRowsEntry : rowsRead.entrySet()) {
             TableReference table = tableAndRowsEntry.getKey();
             Set<RowRead> rows = tableAndRowsEntry.getValue();
 
             ConcurrentNavigableMap<Cell, byte[]> readsForTable = getReadsForTable(table);
+            Map<Cell, byte[]> writes = getWritesForTable(table);
             Multimap<ColumnSelection, byte[]> rowsReadByColumns = Multimaps.newSortedSetMultimap(
                     Maps.newHashMap(),
                     () -> Sets.newTreeSet(UnsignedBytes.lexicographicalComparator()));
@@ -446,7 +556,9 @@ public class SerializableTransaction extends SnapshotTransaction {
                 rowsReadByColumns.putAll(r.cols, r.rows);
             }
             for (ColumnSelection cols : rowsReadByColumns.keySet()) {
-                verifyColumns(ro, table, readsForTable, rowsReadByColumns, cols);
+                for (List<byte[]> batch : Iterables.partition(rowsReadByColumns.get(cols), BATCH_SIZE)) {
+                    checks.add(() -> verifyColumns(ro, table, readsForTable, writes, batch, cols));
+                }
             }
 
         }
@@ -456,50 +568,49 @@ public class SerializableTransaction extends SnapshotTransaction {
             Transaction ro,
             TableReference table,
             ConcurrentNavigableMap<Cell, byte[]> readsForTable,
-            Multimap<ColumnSelection, byte[]> rowsReadByColumns,
+            Map<Cell, byte[]> writes,
+            List<byte[]> batch,
             ColumnSelection columns) {
-        for (List<byte[]> batch : Iterables.partition(rowsReadByColumns.get(columns), BATCH_SIZE)) {
-            SortedMap<byte[], RowResult<byte[]>> currentRows = ro.getRows(table, batch, columns);
-            for (byte[] row : batch) {
-                RowResult<byte[]> currentRow = currentRows.get(row);
-                Map<Cell, byte[]> orignalReads = readsForTable
-                        .tailMap(Cells.createSmallestCellForRow(row), true)
-                        .headMap(Cells.createLargestCellForRow(row), true);
-
-                // We want to filter out all our reads to just the set that matches our column selection.
-                orignalReads = Maps.filterKeys(orignalReads, input -> columns.contains(input.getColumnName()));
-
-                if (writesByTable.get(table) != null) {
-                    // We don't want to verify any reads that we wrote to cause
-                    // we will just read our own values.
-                    // NB: We filter our write set out here because our normal SI
-                    // checking handles this case to ensure the value hasn't changed.
-                    orignalReads = Maps.filterKeys(
-                            orignalReads,
-                            Predicates.not(Predicates.in(writesByTable.get(table).keySet())));
-                }
+        SortedMap<byte[], RowResult<byte[]>> currentRows = ro.getRows(table, batch, columns);
+        for (byte[] row : batch) {
+            RowResult<byte[]> currentRow = currentRows.get(row);
+            Map<Cell, byte[]> orignalReads = readsForTable
+                    .tailMap(Cells.createSmallestCellForRow(row), true)
+                    .headMap(Cells.createLargestCellForRow(row), true);
+
+            // We want to filter out all our reads to just the set that matches our column selection.
+            orignalReads = Maps.filterKeys(orignalReads, input -> columns.contains(input.getColumnName()));
+
+            if (writes != null) {
+                // We don't want to verify any reads that we wrote to cause
+                // we will just read our own values.
+                // NB: We filter our write set out here because our normal SI
+                // checking handles this case to ensure the value hasn't changed.
+                orignalReads = Maps.filterKeys(
+                        orignalReads,
+                        Predicates.not(Predicates.in(writes.keySet())));
+            }
 
-                if (currentRow == null && orignalReads.isEmpty()) {
-                    continue;
-                }
+            if (currentRow == null && orignalReads.isEmpty()) {
+                continue;
+            }
 
-                if (currentRow == null) {
-                    handleTransactionConflict(table);
-                }
+            if (currentRow == null) {
+                handleTransactionConflict(table);
+            }
 
-                Map<Cell, byte[]> currentCells = Maps2.fromEntries(currentRow.getCells());
-                if (writesByTable.get(table) != null) {
-                    // We don't want to verify any reads that we wrote to cause
-                    // we will just read our own values.
-                    // NB: We filter our write set out here because our normal SI
-                    // checking handles this case to ensure the value hasn't changed.
-                    currentCells = Maps.filterKeys(
-                            currentCells,
-                            Predicates.not(Predicates.in(writesByTable.get(table).keySet())));
-                }
-                if (!areMapsEqual(orignalReads, currentCells)) {
-                    handleTransactionConflict(table);
-                }
+            Map<Cell, byte[]> currentCells = Maps2.fromEntries(currentRow.getCells());
+            if (writes != null) {
+                // We don't want to verify any reads that we wrote to cause
+                // we will just read our own values.
+                // NB: We filter our write set out here because our normal SI
+                // checking handles this case to ensure the value hasn't changed.
+                currentCells = Maps.filterKeys(
+                        currentCells,
+                        Predicates.not(Predicates.in(writes.keySet())));
+            }
+            if (!areMapsEqual(orignalReads, Maps.transformValues(currentCells, this::toReadSetValue))) {
+                handleTransactionConflict(table);
             }
         }
     }
@@ -519,31 +630,37 @@ public class SerializableTransaction extends SnapshotTransaction {
         return true;
     }
 
-    private void verifyCells(Transaction readOnlyTransaction) {
+    private void addCellChecks(Transaction readOnlyTransaction, List<Runnable> checks) {
         for (Entry<TableReference, Set<Cell>> tableAndCellsEntry : cellsRead.entrySet()) {
             TableReference table = tableAndCellsEntry.getKey();
             Set<Cell> cells = tableAndCellsEntry.getValue();
 
             final ConcurrentNavigableMap<Cell, byte[]> readsForTable = getReadsForTable(table);
+            Map<Cell, byte[]> writes = getWritesForTable(table);
             for (Iterable<Cell> batch : Iterables.partition(cells, BATCH_SIZE)) {
                 // We don't want to verify any reads that we wrote to cause we will just read our own values.
                 // NB: If the value has changed between read and write, our normal SI checking handles this case
-                Iterable<Cell> batchWithoutWrites = writesByTable.get(table) != null
-                        ? Iterables.filter(batch, Predicates.not(Predicates.in(writesByTable.get(table).keySet())))
+                Iterable<Cell> batchWithoutWrites = writes != null
+                        ? Iterables.filter(batch, Predicates.not(Predicates.in(writes.keySet())))
                         : batch;
                 ImmutableSet<Cell> batchWithoutWritesSet = ImmutableSet.copyOf(batchWithoutWrites);
-                Map<Cell, byte[]> currentBatch = readOnlyTransaction.get(table, batchWithoutWritesSet);
-                ImmutableMap<Cell, byte[]> originalReads = Maps.toMap(
-                        Sets.intersection(batchWithoutWritesSet, readsForTable.keySet()),
-                        Functions.forMap(readsForTable));
-                if (!areMapsEqual(currentBatch, originalReads)) {
-                    handleTransactionConflict(table);
+                if (batchWithoutWritesSet.isEmpty()) {
+                    continue;
                 }
+                checks.add(() -> {
+                    Map<Cell, byte[]> currentBatch = readOnlyTransaction.get(table, batchWithoutWritesSet);
+                    ImmutableMap<Cell, byte[]> originalReads = Maps.toMap(
+                            Sets.intersection(batchWithoutWritesSet, readsForTable.keySet()),
+                            Functions.forMap(readsForTable));
+                    if (!areMapsEqual(Maps.transformValues(currentBatch, this::toReadSetValue), originalReads)) {
+                        handleTransactionConflict(table);
+                    }
+                });
             }
         }
     }
 
-    private void verifyRanges(Transaction readOnlyTransaction) {
+    private void addRangeChecks(Transaction readOnlyTransaction, List<Runnable> checks) {
         // verify each set of reads to ensure they are the same.
         for (Entry<TableReference, ConcurrentMap<RangeRequest, byte[]>> tableAndRange : rangeEndByTable.entrySet()) {
             TableReference table = tableAndRange.getKey();
@@ -559,19 +676,24 @@ public class SerializableTransaction extends SnapshotTransaction {
                             .build();
                 }
 
-                ConcurrentNavigableMap<Cell, byte[]> writes = writesByTable.get(table);
-                BatchingVisitableView<RowResult<byte[]>> bv = BatchingVisitableView.of(
-                        readOnlyTransaction.getRange(table, range));
-                NavigableMap<Cell, ByteBuffer> readsInRange = Maps.transformValues(
-                        getReadsInRange(table, range),
-                        ByteBuffer::wrap);
-                if (!bv.transformBatch(input -> filterWritesFromRows(input, writes)).isEqual(readsInRange.entrySet())) {
-                    handleTransactionConflict(table);
-                }
+                RangeRequest rangeToVerify = range;
+                checks.add(() -> verifyRange(readOnlyTransaction, table, rangeToVerify));
             }
         }
     }
 
+    private void verifyRange(Transaction readOnlyTransaction, TableReference table, RangeRequest range) {
+        Map<Cell, byte[]> writes = getWritesForTable(table);
+        BatchingVisitableView<RowResult<byte[]>> bv = BatchingVisitableView.of(
+                readOnlyTransaction.getRange(table, range));
+        NavigableMap<Cell, ByteBuffer> readsInRange = Maps.transformValues(
+                getReadsInRange(table, range),
+                ByteBuffer::wrap);
+        if (!bv.transformBatch(input -> filterWritesFromRows(input, writes)).isEqual(readsInRange.entrySet())) {
+            handleTransactionConflict(table);
+        }
+    }
+
     private NavigableMap<Cell, byte[]> getReadsInColumnRange(TableReference table,
                                                              byte[] row,
                                                              BatchColumnRangeSelection range) {
@@ -590,14 +712,14 @@ public class SerializableTransaction extends SnapshotTransaction {
                 reads = reads.headMap(endCell, false);
             }
         }
-        ConcurrentNavigableMap<Cell, byte[]> writes = writesByTable.get(table);
+        Map<Cell, byte[]> writes = getWritesForTable(table);
         if (writes != null) {
             reads = Maps.filterKeys(reads, Predicates.not(Predicates.in(writes.keySet())));
         }
         return reads;
     }
 
-    private void verifyColumnRanges(Transaction readOnlyTransaction) {
+    private void addColumnRangeChecks(Transaction readOnlyTransaction, List<Runnable> checks) {
         // verify each set of reads to ensure they are the same.
         for (Entry<TableReference,
                 ConcurrentMap<byte[], ConcurrentMap<BatchColumnRangeSelection, byte[]>>> tableAndRange :
@@ -605,7 +727,6 @@ public class SerializableTransaction extends SnapshotTransaction {
             TableReference table = tableAndRange.getKey();
             Map<byte[], ConcurrentMap<BatchColumnRangeSelection, byte[]>> columnRangeEnds = tableAndRange.getValue();
 
-            Map<Cell, byte[]> writes = writesByTable.get(table);
             Map<BatchColumnRangeSelection, List<byte[]>> rangesToRows = Maps.newHashMap();
             for (Entry<byte[], ConcurrentMap<BatchColumnRangeSelection, byte[]>> rowAndRangeEnds :
                     columnRangeEnds.entrySet()) {
@@ -621,30 +742,33 @@ public class SerializableTransaction extends SnapshotTransaction {
                                 RangeRequests.getNextStartRow(false, rangeEnd),
                                 range.getBatchHint());
                     }
-                    if (rangesToRows.get(range) != null) {
-                        rangesToRows.get(range).add(row);
-                    } else {
-                        rangesToRows.put(range, ImmutableList.of(row));
-                    }
+                    rangesToRows.computeIfAbsent(range, unused -> Lists.newArrayList()).add(row);
                 }
             }
             for (Entry<BatchColumnRangeSelection, List<byte[]>> e : rangesToRows.entrySet()) {
-                BatchColumnRangeSelection range = e.getKey();
-                List<byte[]> rows = e.getValue();
-                Map<byte[], BatchingVisitable<Map.Entry<Cell, byte[]>>> result =
-                        readOnlyTransaction.getRowsColumnRange(table, rows, range);
-                for (Entry<byte[], BatchingVisitable<Map.Entry<Cell, byte[]>>> res : result.entrySet()) {
-                    byte[] row = res.getKey();
-                    BatchingVisitableView<Entry<Cell, byte[]>> bv = BatchingVisitableView.of(res.getValue());
-                    NavigableMap<Cell, ByteBuffer> readsInRange = Maps.transformValues(
-                            getReadsInColumnRange(table, row, range),
-                            input -> ByteBuffer.wrap(input));
-                    boolean isEqual = bv.transformBatch(input -> filterWritesFromCells(input, writes))
-                            .isEqual(readsInRange.entrySet());
-                    if (!isEqual) {
-                        handleTransactionConflict(table);
-                    }
-                }
+                checks.add(() -> verifyColumnRange(readOnlyTransaction, table, e.getValue(), e.getKey()));
+            }
+        }
+    }
+
+    private void verifyColumnRange(
+            Transaction readOnlyTransaction,
+            TableReference table,
+            List<byte[]> rows,
+            BatchColumnRangeSelection range) {
+        Map<Cell, byte[]> writes = getWritesForTable(table);
+        Map<byte[], BatchingVisitable<Map.Entry<Cell, byte[]>>> result =
+                readOnlyTransaction.getRowsColumnRange(table, rows, range);
+        for (Entry<byte[], BatchingVisitable<Map.Entry<Cell, byte[]>>> res : result.entrySet()) {
+            byte[] row = res.getKey();
+            BatchingVisitableView<Entry<Cell, byte[]>> bv = BatchingVisitableView.of(res.getValue());
+            NavigableMap<Cell, ByteBuffer> readsInRange = Maps.transformValues(
+                    getReadsInColumnRange(table, row, range),
+                    input -> ByteBuffer.wrap(input));
+            boolean isEqual = bv.transformBatch(input -> filterWritesFromCells(input, writes))
+                    .isEqual(readsInRange.entrySet());
+            if (!isEqual) {
+                handleTransactionConflict(table);
             }
         }
     }
@@ -657,7 +781,8 @@ public class SerializableTransaction extends SnapshotTransaction {
             // NB: We filter our write set out here because our normal SI
             // checking handles this case to ensure the value hasn't changed.
             if (writes == null || !writes.containsKey(cell.getKey())) {
-                cellsWithoutWrites.add(Maps.immutableEntry(cell.getKey(), ByteBuffer.wrap(cell.getValue())));
+                cellsWithoutWrites.add(Maps.immutableEntry(
+                        cell.getKey(), ByteBuffer.wrap(toReadSetValue(cell.getValue()))));
             }
         }
         return cellsWithoutWrites;
@@ -682,7 +807,7 @@ public class SerializableTransaction extends SnapshotTransaction {
         if (range.getEndExclusive().length != 0) {
             reads = reads.headMap(Cells.createSmallestCellForRow(range.getEndExclusive()), false);
         }
-        Map<Cell, byte[]> writes = writesByTable.get(table);
+        Map<Cell, byte[]> writes = getWritesForTable(table);
         if (writes != null) {
             reads = Maps.filterKeys(reads, Predicates.not(Predicates.in(writes.keySet())));
         }
@@ -24,15 +24,22 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentNavigableMap;
-import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.BiFunction;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -51,7 +58,6 @@ import com.codahale.metrics.Timer;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Functions;
-import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
@@ -82,6 +88,7 @@ import com.palantir.atlasdb.cache.TimestampCache;
 import com.palantir.atlasdb.cleaner.Cleaner;
 import com.palantir.atlasdb.cleaner.NoOpCleaner;
 import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.AsyncKeyValueService;
 import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
@@ -95,6 +102,7 @@ import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.keyvalue.impl.Cells;
+import com.palantir.atlasdb.keyvalue.impl.ExecutorBackedAsyncKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.LocalRowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.impl.RowResults;
 import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
@@ -122,9 +130,12 @@ import com.palantir.common.base.BatchingVisitables;
 import com.palantir.common.base.ClosableIterator;
 import com.palantir.common.base.ClosableIterators;
 import com.palantir.common.base.ForwardingClosableIterator;
+import com.palantir.common.base.Throwables;
 import com.palantir.common.collect.IterableUtils;
 import com.palantir.common.collect.IteratorUtils;
 import com.palantir.common.collect.MapEntries;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.common.streams.MoreStreams;
 import com.palantir.lock.AtlasCellLockDescriptor;
 import com.palantir.lock.AtlasRowLockDescriptor;
@@ -137,6 +148,7 @@ import com.palantir.lock.v2.WaitForLocksRequest;
 import com.palantir.lock.v2.WaitForLocksResponse;
 import com.palantir.logsafe.SafeArg;
 import com.palantir.logsafe.UnsafeArg;
+import com.palantir.remoting3.tracing.Tracers;
 import com.palantir.util.AssertUtils;
 import com.palantir.util.paging.TokenBackedBasicResultsPage;
 
@@ -161,6 +173,13 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
     private static final Logger constraintLogger = LoggerFactory.getLogger("dualschema.constraints");
 
     private static final int BATCH_SIZE_GET_FIRST_PAGE = 1000;
+    @VisibleForTesting
+    static final int CONFLICT_CHECK_BATCH_SIZE = 1000;
+    private static final int MAX_CONFLICT_CHECK_THREADS = 16;
+
+    private static final ExecutorService conflictCheckExecutor = Tracers.wrap(PTExecutors.newThreadPoolExecutor(
+            0, MAX_CONFLICT_CHECK_THREADS, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+            new NamedThreadFactory("conflict-checks", true)));
 
     private enum State {
         UNCOMMITTED,
@@ -184,8 +203,7 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
     private final AdvisoryLockPreCommitCheck advisoryLockCheck;
     protected final long timeCreated = System.currentTimeMillis();
 
-    protected final ConcurrentMap<TableReference, ConcurrentNavigableMap<Cell, byte[]>> writesByTable =
-            Maps.newConcurrentMap();
+    protected final ConcurrentMap<TableReference, LocalWriteBuffer> writesByTable = Maps.newConcurrentMap();
     protected final ConflictDetectionManager conflictDetectionManager;
     private final AtomicLong byteCount = new AtomicLong();
 
@@ -206,6 +224,8 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
     protected final ExecutorService getRangesExecutor;
     protected final int defaultGetRangesConcurrency;
 
+    private final Set<CompletableFuture<?>> pendingAsyncReads = ConcurrentHashMap.newKeySet();
+
     private final MetricRegistry metricRegistry = AtlasDbMetrics.getMetricRegistry();
     private final Timer.Context transactionTimerContext = getTimer("transactionMillis").time();
 
@@ -336,13 +356,21 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
     }
 
     protected void checkGetPreconditions(TableReference tableRef) {
+        throwIfReadTimedOut();
+        Preconditions.checkArgument(allowHiddenTableAccess || !AtlasDbConstants.hiddenTables.contains(tableRef));
+        Preconditions.checkState(state.get() == State.UNCOMMITTED || state.get() == State.COMMITTING,
+                "Transaction must be uncommitted.");
+    }
+
+    protected void checkPutPreconditions(TableReference tableRef) {
+        Preconditions.checkArgument(!AtlasDbConstants.hiddenTables.contains(tableRef));
+    }
+
+    protected final void throwIfReadTimedOut() {
         if (transactionReadTimeoutMillis != null
                 && System.currentTimeMillis() - timeCreated > transactionReadTimeoutMillis) {
             throw new TransactionFailedRetriableException("Transaction timed out.");
         }
-        Preconditions.checkArgument(allowHiddenTableAccess || !AtlasDbConstants.hiddenTables.contains(tableRef));
-        Preconditions.checkState(state.get() == State.UNCOMMITTED || state.get() == State.COMMITTING,
-                "Transaction must be uncommitted.");
     }
 
     @Override
@@ -353,20 +381,9 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         if (Iterables.isEmpty(rows)) {
             return AbstractTransaction.EMPTY_SORTED_ROWS;
         }
-        Map<Cell, byte[]> result = Maps.newHashMap();
-        Map<Cell, Value> rawResults = Maps.newHashMap(
-                keyValueService.getRows(tableRef, rows, columnSelection, getStartTimestamp()));
-        SortedMap<Cell, byte[]> writes = writesByTable.get(tableRef);
-        if (writes != null) {
-            for (byte[] row : rows) {
-                extractLocalWritesForRow(result, writes, row);
-            }
-        }
-
-        // We don't need to do work postFiltering if we have a write locally.
-        rawResults.keySet().removeAll(result.keySet());
-
-        SortedMap<byte[], RowResult<byte[]>> results = filterRowResults(tableRef, rawResults, result);
+        Map<Cell, Value> rawResults = keyValueService.getRows(tableRef, rows, columnSelection, getStartTimestamp());
+        SortedMap<byte[], RowResult<byte[]>> results =
+                filterRowResults(tableRef, rawResults, getLocalWritesForRows(tableRef, rows));
         long getRowsMillis = TimeUnit.NANOSECONDS.toMillis(timer.stop());
         if (perfLogger.isDebugEnabled()) {
             perfLogger.debug("getRows({}, {} rows) found {} rows, took {} ms",
@@ -376,6 +393,35 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         return results;
     }
 
+    /**
+     * Reads the rows through {@link #getAsyncKeyValueService()}, and post-filters them on the get ranges executor once
+     * the read has returned. Local writes are taken when this method is called.
+     */
+    @Override
+    public CompletableFuture<SortedMap<byte[], RowResult<byte[]>>> getRowsAsync(TableReference tableRef,
+            Iterable<byte[]> rows,
+            ColumnSelection columnSelection) {
+        Timer.Context timer = getTimer("getRowsAsync").time();
+        checkGetPreconditions(tableRef);
+        if (Iterables.isEmpty(rows)) {
+            timer.stop();
+            return CompletableFuture.completedFuture(AbstractTransaction.EMPTY_SORTED_ROWS);
+        }
+        List<byte[]> rowsToRead = ImmutableList.copyOf(rows);
+        Map<Cell, byte[]> localWrites = getLocalWritesForRows(tableRef, rowsToRead);
+        long startTs = getStartTimestamp();
+        CompletableFuture<SortedMap<byte[], RowResult<byte[]>>> results = getAsyncKeyValueService()
+                .getRowsAsync(tableRef, rowsToRead, columnSelection, startTs)
+                .thenApplyAsync(rawResults -> {
+                    SortedMap<byte[], RowResult<byte[]>> filtered =
+                            filterRowResults(tableRef, rawResults, localWrites);
+                    validateExternalAndCommitLocksIfNecessary(tableRef);
+                    return filtered;
+                }, getRangesExecutor);
+        results.whenComplete((ignored, error) -> timer.stop());
+        return registerAsyncRead(results);
+    }
+
     @Override
     public Map<byte[], BatchingVisitable<Map.Entry<Cell, byte[]>>> getRowsColumnRange(
             TableReference tableRef,
@@ -549,11 +595,31 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
     private SortedMap<byte[], RowResult<byte[]>> filterRowResults(TableReference tableRef,
                                                                   Map<Cell, Value> rawResults,
                                                                   Map<Cell, byte[]> result) {
-        getWithPostFiltering(tableRef, rawResults, result, Value.GET_VALUE);
+        // We don't need to do work postFiltering if we have a write locally.
+        Map<Cell, Value> toPostFilter = rawResults;
+        if (!result.isEmpty()) {
+            toPostFilter = Maps.newHashMap(rawResults);
+            toPostFilter.keySet().removeAll(result.keySet());
+        }
+        getWithPostFiltering(tableRef, toPostFilter, result, Value.GET_VALUE);
         Map<Cell, byte[]> filterDeletedValues = Maps.filterValues(result, Predicates.not(Value.IS_EMPTY));
         return RowResults.viewOfSortedMap(Cells.breakCellsUpByRow(filterDeletedValues));
     }
 
+    /**
+     * Returns the local writes for the given rows, including empty values written as deletes.
+     */
+    private Map<Cell, byte[]> getLocalWritesForRows(TableReference tableRef, Iterable<byte[]> rows) {
+        Map<Cell, byte[]> result = Maps.newHashMap();
+        LocalWriteBuffer writes = writesByTable.get(tableRef);
+        if (writes != null) {
+            for (byte[] row : rows) {
+                extractLocalWritesForRow(result, writes.getLiveWrites(), row);
+            }
+        }
+        return result;
+    }
+
     /**
      * This will add any local writes for this row to the result map.
      * <p>
@@ -581,15 +647,7 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
             return ImmutableMap.of();
         }
 
-        Map<Cell, byte[]> result = Maps.newHashMap();
-        SortedMap<Cell, byte[]> writes = writesByTable.get(tableRef);
-        if (writes != null) {
-            for (Cell cell : cells) {
-                if (writes.containsKey(cell)) {
-                    result.put(cell, writes.get(cell));
-                }
-            }
-        }
+        Map<Cell, byte[]> result = getLocalWrites(tableRef, cells);
 
         // We don't need to read any cells that were written locally.
         result.putAll(getFromKeyValueService(tableRef, Sets.difference(cells, result.keySet())));
@@ -603,6 +661,83 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         return Maps.filterValues(result, Predicates.not(Value.IS_EMPTY));
     }
 
+    /**
+     * Reads the cells through {@link #getAsyncKeyValueService()}, and post-filters them on the get ranges executor
+     * once the read has returned. Local writes are taken when this method is called.
+     */
+    @Override
+    public CompletableFuture<Map<Cell, byte[]>> getAsync(TableReference tableRef, Set<Cell> cells) {
+        Timer.Context timer = getTimer("getAsync").time();
+        checkGetPreconditions(tableRef);
+        if (cells.isEmpty()) {
+            timer.stop();
+            return CompletableFuture.completedFuture(ImmutableMap.of());
+        }
+        Map<Cell, byte[]> localWrites = getLocalWrites(tableRef, cells);
+        Map<Cell, Long> toRead = Cells.constantValueMap(
+                ImmutableSet.copyOf(Sets.difference(cells, localWrites.keySet())),
+                getStartTimestamp());
+        CompletableFuture<Map<Cell, byte[]>> result = getAsyncKeyValueService()
+                .getAsync(tableRef, toRead)
+                .thenApplyAsync(rawResults -> {
+                    Map<Cell, byte[]> filtered = localWrites;
+                    getWithPostFiltering(tableRef, rawResults, filtered, Value.GET_VALUE);
+                    validateExternalAndCommitLocksIfNecessary(tableRef);
+                    return Maps.filterValues(filtered, Predicates.not(Value.IS_EMPTY));
+                }, getRangesExecutor);
+        result.whenComplete((ignored, error) -> timer.stop());
+        return registerAsyncRead(result);
+    }
+
+    /**
+     * The key value service itself if it can read without blocking, and otherwise one that reads from it on the get
+     * ranges executor. Only the outermost key value service is checked, so a non-blocking store wrapped in decorators
+     * that do not implement {@link AsyncKeyValueService}, such as the ones {@code TransactionManagers} adds, is read
+     * on the get ranges executor. Post-filtering may read the transactions table and check locks, so it must not run
+     * on the threads completing the returned futures.
+     */
+    private AsyncKeyValueService getAsyncKeyValueService() {
+        if (keyValueService instanceof AsyncKeyValueService) {
+            return (AsyncKeyValueService) keyValueService;
+        }
+        return ExecutorBackedAsyncKeyValueService.create(keyValueService, getRangesExecutor);
+    }
+
+    /**
+     * Tracks the read until it completes, so that {@link #commit} does not run ahead of a read whose results must
+     * still be accounted for.
+     */
+    protected final <T> CompletableFuture<T> registerAsyncRead(CompletableFuture<T> read) {
+        pendingAsyncReads.add(read);
+        read.whenComplete((ignored, error) -> pendingAsyncReads.remove(read));
+        return read;
+    }
+
+    private void awaitPendingAsyncReads() {
+        for (CompletableFuture<?> read : ImmutableList.copyOf(pendingAsyncReads)) {
+            try {
+                read.join();
+            } catch (RuntimeException e) {
+                // the failure is reported to whoever issued the read
+            }
+        }
+    }
+
+    private Map<Cell, byte[]> getLocalWrites(TableReference tableRef, Set<Cell> cells) {
+        Map<Cell, byte[]> result = Maps.newHashMap();
+        LocalWriteBuffer writeBuffer = writesByTable.get(tableRef);
+        if (writeBuffer != null) {
+            Map<Cell, byte[]> writes = writeBuffer.getLiveWrites();
+            for (Cell cell : cells) {
+                byte[] value = writes.get(cell);
+                if (value != null) {
+                    result.put(cell, value);
+                }
+            }
+        }
+        return result;
+    }
+
     @Override
     public Map<Cell, byte[]> getIgnoringLocalWrites(TableReference tableRef, Set<Cell> cells) {
         checkGetPreconditions(tableRef);
@@ -920,10 +1055,14 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
     }
 
     private ConcurrentNavigableMap<Cell, byte[]> getLocalWrites(TableReference tableRef) {
-        ConcurrentNavigableMap<Cell, byte[]> writes = writesByTable.get(tableRef);
+        return getWriteBuffer(tableRef).getLiveWrites();
+    }
+
+    private LocalWriteBuffer getWriteBuffer(TableReference tableRef) {
+        LocalWriteBuffer writes = writesByTable.get(tableRef);
         if (writes == null) {
-            writes = new ConcurrentSkipListMap<Cell, byte[]>();
-            ConcurrentNavigableMap<Cell, byte[]> previous = writesByTable.putIfAbsent(tableRef, writes);
+            writes = new LocalWriteBuffer();
+            LocalWriteBuffer previous = writesByTable.putIfAbsent(tableRef, writes);
             if (previous != null) {
                 writes = previous;
             }
@@ -931,6 +1070,16 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         return writes;
     }
 
+    /**
+     * Returns this transaction's writes to the given table in cell order, including deletes as empty values, or null
+     * if it has not written to the table. This is meant for use while committing, when no more writes can happen.
+     */
+    @Nullable
+    protected final SortedMap<Cell, byte[]> getWritesForTable(TableReference tableRef) {
+        LocalWriteBuffer writes = writesByTable.get(tableRef);
+        return writes == null ? null : writes.getSortedWrites();
+    }
+
     /**
      * This includes deleted writes as zero length byte arrays, be sure to strip them out.
      */
@@ -1134,7 +1283,7 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
     }
 
     private void put(TableReference tableRef, Map<Cell, byte[]> values, long ttlDuration, TimeUnit ttlUnit) {
-        Preconditions.checkArgument(!AtlasDbConstants.hiddenTables.contains(tableRef));
+        checkPutPreconditions(tableRef);
 
         if (values.isEmpty()) {
             return;
@@ -1150,9 +1299,7 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
             // We need to check the status after incrementing writers to ensure that we fail if we are committing.
             Preconditions.checkState(state.get() == State.UNCOMMITTED, "Transaction must be uncommitted.");
 
-            ConcurrentNavigableMap<Cell, byte[]> writes = getLocalWrites(tableRef);
-
-            putWritesAndLogIfTooLarge(valuesToWrite, writes);
+            putWritesAndLogIfTooLarge(valuesToWrite, getWriteBuffer(tableRef));
         } finally {
             numWriters.decrementAndGet();
         }
@@ -1181,22 +1328,16 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         return expiringValues;
     }
 
-    private void putWritesAndLogIfTooLarge(Map<Cell, byte[]> values, SortedMap<Cell, byte[]> writes) {
-        for (Map.Entry<Cell, byte[]> e : values.entrySet()) {
-            byte[] val = MoreObjects.firstNonNull(e.getValue(), PtBytes.EMPTY_BYTE_ARRAY);
-            Cell cell = e.getKey();
-            if (writes.put(cell, val) == null) {
-                long toAdd = val.length + Cells.getApproxSizeOfCell(cell);
-                long newVal = byteCount.addAndGet(toAdd);
-                if (newVal >= TransactionConstants.WARN_LEVEL_FOR_QUEUED_BYTES
-                        && newVal - toAdd < TransactionConstants.WARN_LEVEL_FOR_QUEUED_BYTES) {
-                    log.warn("A single transaction has put quite a few bytes: {}. "
-                            + "Enable debug logging for more information", newVal);
-                    if (log.isDebugEnabled()) {
-                        log.debug("This exception and stack trace are provided for debugging purposes.",
-                                new RuntimeException());
-                    }
-                }
+    private void putWritesAndLogIfTooLarge(Map<Cell, byte[]> values, LocalWriteBuffer writes) {
+        long toAdd = writes.putAll(values);
+        long newVal = byteCount.addAndGet(toAdd);
+        if (newVal >= TransactionConstants.WARN_LEVEL_FOR_QUEUED_BYTES
+                && newVal - toAdd < TransactionConstants.WARN_LEVEL_FOR_QUEUED_BYTES) {
+            log.warn("A single transaction has put quite a few bytes: {}. "
+                    + "Enable debug logging for more information", newVal);
+            if (log.isDebugEnabled()) {
+                log.debug("This exception and stack trace are provided for debugging purposes.",
+                        new RuntimeException());
             }
         }
     }
@@ -1261,11 +1402,14 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
 
         boolean success = false;
         try {
+            // Reads recorded by an asynchronous read must be in place before we check for conflicts.
+            awaitPendingAsyncReads();
             if (numWriters.get() > 0) {
                 // After we set state to committing we need to make sure no one is still writing.
                 throw new IllegalStateException("Cannot commit while other threads are still calling put.");
             }
 
+            throwIfReadsNoLongerValid();
             checkConstraints();
             commitWrites(transactionService);
             if (perfLogger.isDebugEnabled()) {
@@ -1284,7 +1428,7 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
     private void checkConstraints() {
         List<String> violations = Lists.newArrayList();
         for (Map.Entry<TableReference, ConstraintCheckable> entry : constraintsByTableName.entrySet()) {
-            SortedMap<Cell, byte[]> sortedMap = writesByTable.get(entry.getKey());
+            SortedMap<Cell, byte[]> sortedMap = getWritesForTable(entry.getKey());
             if (sortedMap != null) {
                 violations.addAll(entry.getValue().findConstraintFailures(sortedMap, this, constraintCheckingMode));
             }
@@ -1312,7 +1456,9 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
             throwIfConflictOnCommit(commitLocksToken, transactionService);
             long millisCheckingForConflicts = TimeUnit.NANOSECONDS.toMillis(conflictsTimer.stop());
             Timer.Context writesTimer = getTimer("commitWrite").time();
-            keyValueService.multiPut(writesByTable, getStartTimestamp());
+            keyValueService.multiPut(
+                    Maps.transformValues(writesByTable, LocalWriteBuffer::getSortedWrites),
+                    getStartTimestamp());
             long millisForWrites = TimeUnit.NANOSECONDS.toMillis(writesTimer.stop());
 
             // Now that all writes are done, get the commit timestamp
@@ -1369,10 +1515,14 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         // This is for overriding to get serializable transactions
     }
 
+    protected void throwIfReadsNoLongerValid() {
+        // This is for overriding by transactions that hold no locks while reading
+    }
+
     private boolean hasWrites() {
         boolean hasWrites = false;
-        for (SortedMap<?, ?> map : writesByTable.values()) {
-            if (!map.isEmpty()) {
+        for (LocalWriteBuffer writes : writesByTable.values()) {
+            if (!writes.isEmpty()) {
                 hasWrites = true;
                 break;
             }
@@ -1432,14 +1582,133 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
      */
     protected void throwIfConflictOnCommit(LockToken commitLocksToken, TransactionService transactionService)
             throws TransactionConflictException {
-        for (Entry<TableReference, ConcurrentNavigableMap<Cell, byte[]>> write : writesByTable.entrySet()) {
-            ConflictHandler conflictHandler = getConflictHandlerForTable(write.getKey());
+        Map<TableReference, Map<Cell, byte[]>> writesToCheck = new LinkedHashMap<>();
+        for (Entry<TableReference, LocalWriteBuffer> write : writesByTable.entrySet()) {
+            SortedMap<Cell, byte[]> writes = write.getValue().getSortedWrites();
+            if (!writes.isEmpty() && getConflictHandlerForTable(write.getKey()) != ConflictHandler.IGNORE_ALL) {
+                writesToCheck.put(write.getKey(), writes);
+            }
+        }
+        if (writesToCheck.isEmpty()) {
+            return;
+        }
+        getHistogram("commitCheckingForConflictsTables").update(writesToCheck.size());
+
+        Timer.Context latestTimestampsTimer = getTimer("commitCheckingForConflictsLatestTimestamps").time();
+        Map<TableReference, Map<Cell, Long>> latestTimestamps = getLatestTimestampsForConflictCheck(writesToCheck);
+        latestTimestampsTimer.stop();
+
+        // One lookup for every table, rather than one per table.
+        Set<Long> theirStartTimestamps = Sets.newHashSet();
+        latestTimestamps.values().forEach(timestamps -> theirStartTimestamps.addAll(timestamps.values()));
+        Timer.Context commitTimestampsTimer = getTimer("commitCheckingForConflictsCommitTimestamps").time();
+        Map<Long, Long> commitTimestamps = getCommitTimestamps(null, theirStartTimestamps, false);
+        commitTimestampsTimer.stop();
+
+        for (Entry<TableReference, Map<Cell, byte[]>> write : writesToCheck.entrySet()) {
+            TableReference tableRef = write.getKey();
             throwIfWriteAlreadyCommitted(
-                    write.getKey(),
+                    tableRef,
                     write.getValue(),
-                    conflictHandler,
+                    getConflictHandlerForTable(tableRef),
                     commitLocksToken,
-                    transactionService);
+                    transactionService,
+                    latestTimestamps.get(tableRef),
+                    commitTimestamps);
+        }
+    }
+
+    /**
+     * Loads the latest timestamps of the cells written to each table. The cells are split into batches of at most
+     * {@link #CONFLICT_CHECK_BATCH_SIZE}, which are loaded in parallel by {@link #runConflictChecks}.
+     */
+    private Map<TableReference, Map<Cell, Long>> getLatestTimestampsForConflictCheck(
+            Map<TableReference, Map<Cell, byte[]>> writesToCheck) {
+        List<Pair<TableReference, Map<Cell, Long>>> batches = Lists.newArrayList();
+        for (Entry<TableReference, Map<Cell, byte[]>> write : writesToCheck.entrySet()) {
+            for (List<Cell> batch : Iterables.partition(write.getValue().keySet(), CONFLICT_CHECK_BATCH_SIZE)) {
+                batches.add(Pair.of(write.getKey(), Maps.asMap(ImmutableSet.copyOf(batch),
+                        Functions.constant(Long.MAX_VALUE))));
+            }
+        }
+
+        Map<TableReference, Map<Cell, Long>> result = Maps.newHashMap();
+        if (batches.size() == 1) {
+            Pair<TableReference, Map<Cell, Long>> batch = Iterables.getOnlyElement(batches);
+            result.put(batch.getLeft(), keyValueService.getLatestTimestamps(batch.getLeft(), batch.getRight()));
+            return result;
+        }
+
+        AtomicReferenceArray<Map<Cell, Long>> latestTimestamps = new AtomicReferenceArray<>(batches.size());
+        List<Runnable> loads = Lists.newArrayListWithCapacity(batches.size());
+        for (int i = 0; i < batches.size(); i++) {
+            int index = i;
+            Pair<TableReference, Map<Cell, Long>> batch = batches.get(i);
+            loads.add(() -> latestTimestamps.set(
+                    index, keyValueService.getLatestTimestamps(batch.getLeft(), batch.getRight())));
+        }
+        runConflictChecks(loads);
+        for (int i = 0; i < batches.size(); i++) {
+            result.computeIfAbsent(batches.get(i).getLeft(), tableRef -> Maps.newHashMap())
+                    .putAll(latestTimestamps.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Runs the given conflict checks, which each verify or load one batch of cells, in parallel.
+     * <p>
+     * The committing thread works through the checks itself, helped by up to {@link #MAX_CONFLICT_CHECK_THREADS}
+     * threads from a dedicated executor that no other work runs on. The executor has no queue, so if it has no free
+     * threads the committing thread runs the remaining checks alone; it never waits for a check that has not
+     * started, so checks cannot deadlock behind other work, including reads on the get ranges executor.
+     */
+    static void runConflictChecks(List<Runnable> checks) {
+        if (checks.size() <= 1) {
+            checks.forEach(Runnable::run);
+            return;
+        }
+        Queue<Runnable> remaining = new ConcurrentLinkedQueue<>(checks);
+        int numHelpers = Math.min(checks.size() - 1, MAX_CONFLICT_CHECK_THREADS);
+        List<CompletableFuture<Void>> helpers = Lists.newArrayListWithCapacity(numHelpers);
+        for (int i = 0; i < numHelpers; i++) {
+            try {
+                helpers.add(CompletableFuture.runAsync(() -> runRemainingChecks(remaining), conflictCheckExecutor));
+            } catch (RejectedExecutionException e) {
+                break;
+            }
+        }
+
+        Throwable failure = null;
+        try {
+            runRemainingChecks(remaining);
+        } catch (RuntimeException | Error e) {
+            failure = e;
+        }
+        for (CompletableFuture<Void> helper : helpers) {
+            try {
+                helper.join();
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            }
+        }
+        if (failure != null) {
+            throw Throwables.throwUncheckedException(failure);
+        }
+    }
+
+    private static void runRemainingChecks(Queue<Runnable> remaining) {
+        Runnable check;
+        while ((check = remaining.poll()) != null) {
+            try {
+                check.run();
+            } catch (RuntimeException | Error e) {
+                // no point running the other checks once one has failed
+                remaining.clear();
+                throw e;
+            }
         }
     }
 
@@ -1452,9 +1721,36 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         if (writes.isEmpty() || conflictHandler == ConflictHandler.IGNORE_ALL) {
             return;
         }
+        Map<Cell, Long> latestTimestamps = keyValueService.getLatestTimestamps(tableRef,
+                Maps.asMap(writes.keySet(), Functions.constant(Long.MAX_VALUE)));
+        throwIfWriteAlreadyCommitted(
+                tableRef,
+                writes,
+                conflictHandler,
+                commitLocksToken,
+                transactionService,
+                latestTimestamps,
+                getCommitTimestamps(tableRef, latestTimestamps.values(), false));
+    }
+
+    private void throwIfWriteAlreadyCommitted(TableReference tableRef,
+                                              Map<Cell, byte[]> writes,
+                                              ConflictHandler conflictHandler,
+                                              LockToken commitLocksToken,
+                                              TransactionService transactionService,
+                                              Map<Cell, Long> latestTimestamps,
+                                              Map<Long, Long> commitTimestamps)
+            throws TransactionConflictException {
         Set<CellConflict> spanningWrites = Sets.newHashSet();
         Set<CellConflict> dominatingWrites = Sets.newHashSet();
-        Map<Cell, Long> keysToLoad = Maps.asMap(writes.keySet(), Functions.constant(Long.MAX_VALUE));
+        Map<Cell, Long> keysToLoad = detectWriteAlreadyCommitted(
+                tableRef,
+                Maps.asMap(writes.keySet(), Functions.constant(Long.MAX_VALUE)),
+                latestTimestamps,
+                commitTimestamps,
+                spanningWrites,
+                dominatingWrites,
+                transactionService);
         while (!keysToLoad.isEmpty()) {
             keysToLoad = detectWriteAlreadyCommittedInternal(
                     tableRef,
@@ -1557,6 +1853,27 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                                                                   TransactionService transactionService) {
         Map<Cell, Long> rawResults = keyValueService.getLatestTimestamps(tableRef, keysToLoad);
         Map<Long, Long> commitTimestamps = getCommitTimestamps(tableRef, rawResults.values(), false);
+        return detectWriteAlreadyCommitted(
+                tableRef,
+                keysToLoad,
+                rawResults,
+                commitTimestamps,
+                spanningWrites,
+                dominatingWrites,
+                transactionService);
+    }
+
+    /**
+     * Classifies the latest writes to the given keys, which have already been loaded, and returns the set of keys
+     * that need to be reloaded.
+     */
+    private Map<Cell, Long> detectWriteAlreadyCommitted(TableReference tableRef,
+                                                        Map<Cell, Long> keysToLoad,
+                                                        Map<Cell, Long> rawResults,
+                                                        Map<Long, Long> commitTimestamps,
+                                                        @Output Set<CellConflict> spanningWrites,
+                                                        @Output Set<CellConflict> dominatingWrites,
+                                                        TransactionService transactionService) {
         Map<Cell, Long> keysToDelete = Maps.newHashMapWithExpectedSize(0);
 
         for (Map.Entry<Cell, Long> e : rawResults.entrySet()) {
@@ -1698,7 +2015,7 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
             }
             ConflictHandler conflictHandler = getConflictHandlerForTable(tableRef);
             if (conflictHandler == ConflictHandler.RETRY_ON_WRITE_WRITE_CELL) {
-                for (Cell cell : getLocalWrites(tableRef).keySet()) {
+                for (Cell cell : getWritesForTable(tableRef).keySet()) {
                     result.add(
                             AtlasCellLockDescriptor.of(
                                     tableRef.getQualifiedName(),
@@ -1707,7 +2024,7 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                 }
             } else if (conflictHandler != ConflictHandler.IGNORE_ALL) {
                 Cell lastCell = null;
-                for (Cell cell : getLocalWrites(tableRef).keySet()) {
+                for (Cell cell : getWritesForTable(tableRef).keySet()) {
                     if (lastCell == null || !Arrays.equals(lastCell.getRowName(), cell.getRowName())) {
                         result.add(
                                 AtlasRowLockDescriptor.of(tableRef.getQualifiedName(), cell.getRowName()));
@@ -1780,8 +2097,9 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         Map<Long, Long> result = Maps.newHashMap();
         Set<Long> gets = Sets.newHashSet();
         for (long startTs : startTimestamps) {
-            Long cached = timestampValidationReadCache.getCommitTimestampIfPresent(startTs);
-            if (cached != null) {
+            long cached = timestampValidationReadCache.getCommitTimestampOrDefault(
+                    startTs, TimestampCache.NO_COMMIT_TIMESTAMP);
+            if (cached != TimestampCache.NO_COMMIT_TIMESTAMP) {
                 result.put(startTs, cached);
             } else {
                 gets.add(startTs);
@@ -1919,9 +2237,9 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         Multimap<Cell, TableReference> cellToTableName = HashMultimap.create();
         State actualState = state.get();
         if (expectedState == actualState) {
-            for (Entry<TableReference, ConcurrentNavigableMap<Cell, byte[]>> entry : writesByTable.entrySet()) {
+            for (Entry<TableReference, LocalWriteBuffer> entry : writesByTable.entrySet()) {
                 TableReference table = entry.getKey();
-                Set<Cell> cells = entry.getValue().keySet();
+                Set<Cell> cells = entry.getValue().getSortedWrites().keySet();
                 for (Cell c : cells) {
                     cellToTableName.put(c, table);
                 }
@@ -1937,9 +2255,9 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         Multimap<TableReference, Cell> tableRefToCells = HashMultimap.create();
         State actualState = state.get();
         if (expectedState == actualState) {
-            for (Entry<TableReference, ConcurrentNavigableMap<Cell, byte[]>> entry : writesByTable.entrySet()) {
+            for (Entry<TableReference, LocalWriteBuffer> entry : writesByTable.entrySet()) {
                 TableReference table = entry.getKey();
-                Set<Cell> cells = entry.getValue().keySet();
+                Set<Cell> cells = entry.getValue().getSortedWrites().keySet();
                 tableRefToCells.putAll(table, cells);
             }
         } else {
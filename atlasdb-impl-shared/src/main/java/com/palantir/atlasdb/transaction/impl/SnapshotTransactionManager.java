@@ -32,7 +32,6 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.palantir.atlasdb.cleaner.Cleaner;
-import com.palantir.atlasdb.cleaner.NoOpCleaner;
 import com.palantir.atlasdb.keyvalue.api.ClusterAvailabilityStatus;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.monitoring.TimestampTracker;
@@ -52,6 +51,7 @@ import com.palantir.lock.LockService;
 import com.palantir.lock.v2.LockImmutableTimestampRequest;
 import com.palantir.lock.v2.LockImmutableTimestampResponse;
 import com.palantir.lock.v2.LockToken;
+import com.palantir.lock.v2.StartTransactionsResponse;
 import com.palantir.lock.v2.TimelockService;
 import com.palantir.timestamp.TimestampService;
 
@@ -134,13 +134,15 @@ import com.palantir.timestamp.TimestampService;
     }
 
     public RawTransaction setupRunTaskWithLocksThrowOnConflict(Iterable<LockRefreshToken> lockTokens) {
-        LockImmutableTimestampResponse immutableTsResponse = timelockService.lockImmutableTimestamp(
-                LockImmutableTimestampRequest.create());
+        StartTransactionsResponse startResponse = timelockService.startTransactions(
+                LockImmutableTimestampRequest.create(), 1);
+        LockImmutableTimestampResponse immutableTsResponse = startResponse.getImmutableTimestamp();
         try {
             LockToken immutableTsLock = immutableTsResponse.getLock();
             long immutableTs = immutableTsResponse.getImmutableTimestamp();
             recordImmutableTimestamp(immutableTs);
-            Supplier<Long> startTimestampSupplier = getStartTimestampSupplier();
+            Supplier<Long> startTimestampSupplier = getStartTimestampSupplier(
+                    startResponse.getStartTimestamps().getLowerBound());
 
             AdvisoryLockPreCommitCheck advisoryLockCheck =
                     AdvisoryLockPreCommitCheck.forLockServiceLocks(lockTokens, getLockService());
@@ -202,26 +204,23 @@ import com.palantir.timestamp.TimestampService;
     public <T, E extends Exception> T runTaskReadOnly(TransactionTask<T, E> task) throws E {
         checkOpen();
         long immutableTs = getApproximateImmutableTimestamp();
-        SnapshotTransaction transaction = new SnapshotTransaction(
+        SnapshotTransaction transaction = new ReadOnlySnapshotTransaction(
                 keyValueService,
                 timelockService,
                 transactionService,
-                NoOpCleaner.INSTANCE,
                 getStartTimestampSupplier(),
                 conflictDetectionManager,
                 sweepStrategyManager,
                 immutableTs,
-                Optional.empty(),
-                AdvisoryLockPreCommitCheck.NO_OP,
+                cleaner::getUnreadableTimestamp,
                 constraintModeSupplier.get(),
                 cleaner.getTransactionReadTimeoutMillis(),
-                TransactionReadSentinelBehavior.THROW_EXCEPTION,
                 allowHiddenTableAccess,
                 timestampValidationReadCache,
                 lockAcquireTimeoutMs.get(),
                 getRangesExecutor,
                 defaultGetRangesConcurrency);
-        return runTaskThrowOnConflict(task, new ReadTransaction(transaction, sweepStrategyManager));
+        return runTaskThrowOnConflict(task, transaction);
     }
 
     /**
@@ -281,6 +280,13 @@ import com.palantir.timestamp.TimestampService;
         });
     }
 
+    private Supplier<Long> getStartTimestampSupplier(long startTimestamp) {
+        return Suppliers.memoize(() -> {
+            cleaner.punch(startTimestamp);
+            return startTimestamp;
+        });
+    }
+
     @Override
     public LockService getLockService() {
         return lockService;
@@ -23,6 +23,7 @@ import com.palantir.lock.v2.LockImmutableTimestampResponse;
 import com.palantir.lock.v2.LockRequest;
 import com.palantir.lock.v2.LockResponse;
 import com.palantir.lock.v2.LockToken;
+import com.palantir.lock.v2.StartTransactionsResponse;
 import com.palantir.lock.v2.TimelockService;
 import com.palantir.lock.v2.WaitForLocksRequest;
 import com.palantir.lock.v2.WaitForLocksResponse;
@@ -58,6 +59,11 @@ public class TimestampDecoratingTimelockService implements TimelockService {
         return delegate.lockImmutableTimestamp(request);
     }
 
+    @Override
+    public StartTransactionsResponse startTransactions(LockImmutableTimestampRequest request, int numTransactions) {
+        return delegate.startTransactions(request, numTransactions);
+    }
+
     @Override
     public long getImmutableTimestamp() {
         return delegate.getImmutableTimestamp();
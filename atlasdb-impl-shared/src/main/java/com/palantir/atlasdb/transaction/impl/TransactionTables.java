@@ -15,24 +15,38 @@
  */
 package com.palantir.atlasdb.transaction.impl;
 
+import java.util.Set;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
 
 public final class TransactionTables {
+    private static final Set<TableReference> ALL_TABLES = ImmutableSet.of(
+            TransactionConstants.TRANSACTION_TABLE,
+            TransactionConstants.TRANSACTIONS2_TABLE,
+            TransactionConstants.TRANSACTIONS_CUTOVER_TABLE);
+
     private TransactionTables() {
         // Utility class
     }
 
     public static void createTables(KeyValueService keyValueService) {
-        keyValueService.createTable(
+        keyValueService.createTables(ImmutableMap.of(
                 TransactionConstants.TRANSACTION_TABLE,
-                TransactionConstants.TRANSACTION_TABLE_METADATA.persistToBytes());
+                TransactionConstants.TRANSACTION_TABLE_METADATA.persistToBytes(),
+                TransactionConstants.TRANSACTIONS2_TABLE,
+                TransactionConstants.TRANSACTIONS2_TABLE_METADATA.persistToBytes(),
+                TransactionConstants.TRANSACTIONS_CUTOVER_TABLE,
+                TransactionConstants.TRANSACTIONS_CUTOVER_TABLE_METADATA.persistToBytes()));
     }
 
     public static void deleteTables(KeyValueService keyValueService) {
-        keyValueService.dropTable(TransactionConstants.TRANSACTION_TABLE);
+        keyValueService.dropTables(ALL_TABLES);
     }
 
     public static void truncateTables(KeyValueService keyValueService) {
-        keyValueService.truncateTable(TransactionConstants.TRANSACTION_TABLE);
+        keyValueService.truncateTables(ALL_TABLES);
     }
 }
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import javax.annotation.CheckForNull;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+
+/**
+ * A {@link TransactionService} that coalesces concurrent requests from all threads into batched calls against the
+ * delegate.
+ * <p>
+ * If read batching is enabled, reads are merged into a single multiget: start timestamps are de-duplicated and each
+ * caller is handed back only its own results. Reads that are on their own at least as large as a batch bypass the
+ * batcher. Otherwise reads are passed straight through.
+ * <p>
+ * If group commit is enabled, single {@link #putUnlessExists(long, long)} calls from concurrent committers are
+ * merged into one {@link TransactionService#putUnlessExists(Map)} call, and each committer whose start timestamp
+ * already had a value gets its own {@link KeyAlreadyExistsException}. Otherwise writes are passed straight through.
+ */
+public final class BatchingTransactionService implements TransactionService, AutoCloseable {
+    private final TransactionService delegate;
+    private final Optional<RequestBatcher<Set<Long>, Map<Long, Long>>> readBatcher;
+    private final Optional<RequestBatcher<Map.Entry<Long, Long>, Boolean>> writeBatcher;
+
+    private BatchingTransactionService(
+            TransactionService delegate,
+            Optional<RequestBatcher<Set<Long>, Map<Long, Long>>> readBatcher,
+            Optional<RequestBatcher<Map.Entry<Long, Long>, Boolean>> writeBatcher) {
+        this.delegate = delegate;
+        this.readBatcher = readBatcher;
+        this.writeBatcher = writeBatcher;
+    }
+
+    public static BatchingTransactionService create(
+            TransactionService delegate,
+            long batchWindowMicros,
+            int maxBatchSize) {
+        return create(delegate, batchWindowMicros, maxBatchSize, true, false);
+    }
+
+    public static BatchingTransactionService create(
+            TransactionService delegate,
+            long batchWindowMicros,
+            int maxBatchSize,
+            boolean batchReads,
+            boolean groupCommit) {
+        Optional<RequestBatcher<Set<Long>, Map<Long, Long>>> readBatcher = batchReads
+                ? Optional.of(RequestBatcher.<Set<Long>, Map<Long, Long>>create(
+                        "read",
+                        batch -> getBatch(delegate, batch),
+                        batchWindowMicros,
+                        maxBatchSize))
+                : Optional.empty();
+        Optional<RequestBatcher<Map.Entry<Long, Long>, Boolean>> writeBatcher = groupCommit
+                ? Optional.of(RequestBatcher.<Map.Entry<Long, Long>, Boolean>create(
+                        "write",
+                        batch -> putUnlessExistsBatch(delegate, batch),
+                        batchWindowMicros,
+                        maxBatchSize))
+                : Optional.empty();
+        return new BatchingTransactionService(delegate, readBatcher, writeBatcher);
+    }
+
+    @CheckForNull
+    @Override
+    public Long get(long startTimestamp) {
+        if (!readBatcher.isPresent()) {
+            return delegate.get(startTimestamp);
+        }
+        return readBatcher.get().submit(ImmutableSet.of(startTimestamp), 1).get(startTimestamp);
+    }
+
+    @Override
+    public Map<Long, Long> get(Iterable<Long> startTimestamps) {
+        Set<Long> distinctStartTimestamps = ImmutableSet.copyOf(startTimestamps);
+        if (distinctStartTimestamps.isEmpty()) {
+            return Maps.newHashMap();
+        }
+        if (!readBatcher.isPresent() || distinctStartTimestamps.size() >= readBatcher.get().getMaxBatchWeight()) {
+            return delegate.get(distinctStartTimestamps);
+        }
+        return readBatcher.get().submit(distinctStartTimestamps, distinctStartTimestamps.size());
+    }
+
+    @Override
+    public void putUnlessExists(long startTimestamp, long commitTimestamp) throws KeyAlreadyExistsException {
+        if (!writeBatcher.isPresent()) {
+            delegate.putUnlessExists(startTimestamp, commitTimestamp);
+            return;
+        }
+        boolean written = writeBatcher.get().submit(Maps.immutableEntry(startTimestamp, commitTimestamp), 1);
+        if (!written) {
+            throw new KeyAlreadyExistsException("Start timestamp " + startTimestamp + " already has a value.");
+        }
+    }
+
+    @Override
+    public Set<Long> putUnlessExists(Map<Long, Long> startTimestampToCommitTimestamp) {
+        return delegate.putUnlessExists(startTimestampToCommitTimestamp);
+    }
+
+    @Override
+    public void close() {
+        readBatcher.ifPresent(RequestBatcher::close);
+        writeBatcher.ifPresent(RequestBatcher::close);
+    }
+
+    private static List<Map<Long, Long>> getBatch(TransactionService delegate, List<Set<Long>> batch) {
+        Set<Long> startTimestamps = Sets.newHashSet();
+        batch.forEach(startTimestamps::addAll);
+        Map<Long, Long> commitTimestamps = delegate.get(startTimestamps);
+
+        List<Map<Long, Long>> results = Lists.newArrayListWithCapacity(batch.size());
+        for (Set<Long> request : batch) {
+            Map<Long, Long> result = Maps.newHashMapWithExpectedSize(request.size());
+            for (Long startTimestamp : request) {
+                Long commitTimestamp = commitTimestamps.get(startTimestamp);
+                if (commitTimestamp != null) {
+                    result.put(startTimestamp, commitTimestamp);
+                }
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    private static List<Boolean> putUnlessExistsBatch(
+            TransactionService delegate,
+            List<Map.Entry<Long, Long>> batch) {
+        // Two writers may race for the same start timestamp (e.g. a committer and a transaction rolling it back).
+        // Only the first of them goes in the batched write; the others are written afterwards, one at a time.
+        Map<Long, Long> firstWrites = Maps.newHashMap();
+        for (Map.Entry<Long, Long> write : batch) {
+            firstWrites.putIfAbsent(write.getKey(), write.getValue());
+        }
+        Set<Long> alreadyExisting = delegate.putUnlessExists(firstWrites);
+
+        List<Boolean> results = Lists.newArrayListWithCapacity(batch.size());
+        Set<Long> seen = Sets.newHashSet();
+        for (Map.Entry<Long, Long> write : batch) {
+            long startTimestamp = write.getKey();
+            if (seen.add(startTimestamp)) {
+                results.add(!alreadyExisting.contains(startTimestamp));
+            } else {
+                results.add(putUnlessExistsIndividually(delegate, startTimestamp, write.getValue()));
+            }
+        }
+        return results;
+    }
+
+    private static boolean putUnlessExistsIndividually(
+            TransactionService delegate,
+            long startTimestamp,
+            long commitTimestamp) {
+        try {
+            delegate.putUnlessExists(startTimestamp, commitTimestamp);
+            return true;
+        } catch (KeyAlreadyExistsException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.CheckForNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.ptobject.EncodingUtils;
+import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+
+/**
+ * Stores transactions in {@link TransactionConstants#TRANSACTIONS2_TABLE}.
+ * <p>
+ * Start timestamps are grouped into buckets of {@link #BUCKET_SIZE} consecutive timestamps, and each bucket is
+ * spread over {@link #ROWS_PER_BUCKET} rows by the low bits of the start timestamp, so that concurrent commits,
+ * which have consecutive start timestamps, do not all contend on one row (and so one Cassandra partition). The row
+ * name is the bucket number followed by the var-long encoded low bits, the column name is the var-long encoded
+ * offset of the start timestamp within its row, and the value is the signed var-long encoded difference between
+ * the commit and start timestamps, or -1 for a transaction that was rolled back. Commit timestamps are close to
+ * their start timestamps, so each transaction takes a few bytes rather than a row of its own as in
+ * {@link SimpleTransactionService}, and a batch of neighbouring start timestamps is read with a single call.
+ */
+public final class BucketedTransactionService implements TransactionService {
+    @VisibleForTesting
+    static final long BUCKET_SIZE = 16_384L;
+
+    @VisibleForTesting
+    static final int ROWS_PER_BUCKET = 16;
+
+    private static final int ROW_BITS = Integer.numberOfTrailingZeros(ROWS_PER_BUCKET);
+
+    // The maximum key-value store timestamp (exclusive) at which data is stored in the transactions table.
+    // All entries in the transactions table are stored with timestamp 0.
+    private static final long MAX_TIMESTAMP = 1L;
+
+    private static final long FAILED_COMMIT_DELTA = -1L;
+
+    private final KeyValueService keyValueService;
+
+    public BucketedTransactionService(KeyValueService keyValueService) {
+        this.keyValueService = keyValueService;
+    }
+
+    @CheckForNull
+    @Override
+    public Long get(long startTimestamp) {
+        return get(ImmutableSet.of(startTimestamp)).get(startTimestamp);
+    }
+
+    @Override
+    public Map<Long, Long> get(Iterable<Long> startTimestamps) {
+        Set<Long> requested = ImmutableSet.copyOf(startTimestamps);
+        if (requested.isEmpty()) {
+            return Maps.newHashMap();
+        }
+
+        // Every row is read with the same column selection, so with more than one row we may get back cells
+        // we did not ask for; those are dropped below.
+        Set<Long> rowIndexes = Sets.newHashSet();
+        Set<Long> offsets = Sets.newHashSet();
+        for (long startTimestamp : requested) {
+            rowIndexes.add(getRowIndex(startTimestamp));
+            offsets.add(getOffset(startTimestamp));
+        }
+        List<byte[]> rows = Lists.newArrayListWithCapacity(rowIndexes.size());
+        for (long rowIndex : rowIndexes) {
+            rows.add(getRow(rowIndex));
+        }
+        List<byte[]> columns = Lists.newArrayListWithCapacity(offsets.size());
+        for (long offset : offsets) {
+            columns.add(EncodingUtils.encodeVarLong(offset));
+        }
+
+        Map<Cell, Value> rawResults = keyValueService.getRows(
+                TransactionConstants.TRANSACTIONS2_TABLE,
+                rows,
+                ColumnSelection.create(columns),
+                MAX_TIMESTAMP);
+        Map<Long, Long> result = Maps.newHashMapWithExpectedSize(requested.size());
+        for (Map.Entry<Cell, Value> entry : rawResults.entrySet()) {
+            long startTimestamp = getStartTimestamp(entry.getKey());
+            if (requested.contains(startTimestamp)) {
+                result.put(startTimestamp, decodeCommitTimestamp(startTimestamp, entry.getValue().getContents()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void putUnlessExists(long startTimestamp, long commitTimestamp) throws KeyAlreadyExistsException {
+        keyValueService.putUnlessExists(TransactionConstants.TRANSACTIONS2_TABLE,
+                ImmutableMap.of(getTransactionCell(startTimestamp),
+                        encodeCommitTimestamp(startTimestamp, commitTimestamp)));
+    }
+
+    /**
+     * Writes the whole batch with a single {@link KeyValueService#putUnlessExists} call, retrying the start
+     * timestamps that were not attempted in the same way as {@link SimpleTransactionService#putUnlessExists(Map)}.
+     */
+    @Override
+    public Set<Long> putUnlessExists(Map<Long, Long> startTimestampToCommitTimestamp) {
+        Set<Long> alreadyExisting = Sets.newHashSet();
+        Map<Long, Long> remaining = startTimestampToCommitTimestamp;
+        while (!remaining.isEmpty()) {
+            Map<Cell, byte[]> values = Maps.newHashMapWithExpectedSize(remaining.size());
+            for (Map.Entry<Long, Long> entry : remaining.entrySet()) {
+                values.put(getTransactionCell(entry.getKey()), encodeCommitTimestamp(entry.getKey(), entry.getValue()));
+            }
+            try {
+                keyValueService.putUnlessExists(TransactionConstants.TRANSACTIONS2_TABLE, values);
+                return alreadyExisting;
+            } catch (KeyAlreadyExistsException e) {
+                Map<Long, Long> stored = get(remaining.keySet());
+                Map<Long, Long> unwritten = Maps.newHashMap();
+                for (Map.Entry<Long, Long> entry : remaining.entrySet()) {
+                    Long storedCommitTimestamp = stored.get(entry.getKey());
+                    if (storedCommitTimestamp == null) {
+                        unwritten.put(entry.getKey(), entry.getValue());
+                    } else if (!storedCommitTimestamp.equals(entry.getValue())) {
+                        alreadyExisting.add(entry.getKey());
+                    }
+                }
+                if (unwritten.size() == remaining.size()) {
+                    alreadyExisting.addAll(TransactionService.super.putUnlessExists(unwritten));
+                    return alreadyExisting;
+                }
+                remaining = unwritten;
+            }
+        }
+        return alreadyExisting;
+    }
+
+    @VisibleForTesting
+    static Cell getTransactionCell(long startTimestamp) {
+        return Cell.create(getRow(getRowIndex(startTimestamp)), EncodingUtils.encodeVarLong(getOffset(startTimestamp)));
+    }
+
+    /**
+     * Returns the start timestamp of a cell of {@link TransactionConstants#TRANSACTIONS2_TABLE}.
+     */
+    public static long getStartTimestamp(Cell cell) {
+        byte[] rowName = cell.getRowName();
+        long bucket = Long.MIN_VALUE ^ PtBytes.toLong(rowName);
+        long lowBits = EncodingUtils.decodeVarLong(rowName, PtBytes.SIZEOF_LONG);
+        return bucket * BUCKET_SIZE + (EncodingUtils.decodeVarLong(cell.getColumnName()) << ROW_BITS) + lowBits;
+    }
+
+    @VisibleForTesting
+    static byte[] encodeCommitTimestamp(long startTimestamp, long commitTimestamp) {
+        if (commitTimestamp == TransactionConstants.FAILED_COMMIT_TS) {
+            return EncodingUtils.encodeSignedVarLong(FAILED_COMMIT_DELTA);
+        }
+        Preconditions.checkArgument(commitTimestamp >= startTimestamp,
+                "Commit timestamp %s is before start timestamp %s", commitTimestamp, startTimestamp);
+        return EncodingUtils.encodeSignedVarLong(commitTimestamp - startTimestamp);
+    }
+
+    /**
+     * Returns the commit timestamp stored in {@link TransactionConstants#TRANSACTIONS2_TABLE} for the given start
+     * timestamp, or {@link TransactionConstants#FAILED_COMMIT_TS} if it was rolled back.
+     */
+    public static long decodeCommitTimestamp(long startTimestamp, byte[] value) {
+        long delta = EncodingUtils.decodeSignedVarLong(value);
+        return delta == FAILED_COMMIT_DELTA ? TransactionConstants.FAILED_COMMIT_TS : startTimestamp + delta;
+    }
+
+    /**
+     * Identifies the row of a start timestamp: its bucket, with the low bits of the start timestamp appended.
+     */
+    private static long getRowIndex(long startTimestamp) {
+        Preconditions.checkArgument(startTimestamp >= 0, "Start timestamp %s is negative", startTimestamp);
+        long bucket = startTimestamp / BUCKET_SIZE;
+        return (bucket << ROW_BITS) | (startTimestamp & (ROWS_PER_BUCKET - 1));
+    }
+
+    private static long getOffset(long startTimestamp) {
+        return (startTimestamp % BUCKET_SIZE) >> ROW_BITS;
+    }
+
+    private static byte[] getRow(long rowIndex) {
+        long bucket = rowIndex >>> ROW_BITS;
+        long lowBits = rowIndex & (ROWS_PER_BUCKET - 1);
+        // the bucket is encoded as for ValueType.FIXED_LONG, so that rows sort in bucket order
+        return EncodingUtils.add(PtBytes.toBytes(Long.MIN_VALUE ^ bucket), EncodingUtils.encodeVarLong(lowBits));
+    }
+}
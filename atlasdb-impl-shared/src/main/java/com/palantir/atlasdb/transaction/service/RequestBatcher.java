@@ -0,0 +1,200 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.palantir.atlasdb.util.AtlasDbMetrics;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
+
+/**
+ * Coalesces requests submitted by many threads into batches that are processed by a single background thread.
+ * <p>
+ * The background thread takes the first queued request, then keeps collecting requests until either the batch
+ * window has elapsed or the total weight of the batch reaches the maximum batch weight. The batch is then handed to
+ * the batch function, which must return one result per request, in order. If the batch function throws, every
+ * request in the batch fails with that exception.
+ */
+final class RequestBatcher<T, R> implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(RequestBatcher.class);
+
+    private final String name;
+    private final Function<List<T>, List<R>> batchFunction;
+    private final long batchWindowNanos;
+    private final int maxBatchWeight;
+    private final BlockingQueue<Request<T, R>> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService executor;
+
+    private final Histogram batchSize;
+    private final Timer queueingDelay;
+
+    private RequestBatcher(
+            String name,
+            Function<List<T>, List<R>> batchFunction,
+            long batchWindowMicros,
+            int maxBatchWeight) {
+        Preconditions.checkArgument(batchWindowMicros >= 0, "Batch window must be non-negative");
+        Preconditions.checkArgument(maxBatchWeight > 0, "Batch size must be positive");
+        this.name = name;
+        this.batchFunction = batchFunction;
+        this.batchWindowNanos = TimeUnit.MICROSECONDS.toNanos(batchWindowMicros);
+        this.maxBatchWeight = maxBatchWeight;
+        MetricRegistry metricRegistry = AtlasDbMetrics.getMetricRegistry();
+        this.batchSize = metricRegistry.histogram(
+                MetricRegistry.name(BatchingTransactionService.class, name, "batchSize"));
+        this.queueingDelay = metricRegistry.timer(
+                MetricRegistry.name(BatchingTransactionService.class, name, "queueingDelay"));
+        this.executor = PTExecutors.newSingleThreadExecutor(
+                new NamedThreadFactory("transaction-service-" + name + "-batcher", true /* daemon */));
+    }
+
+    static <T, R> RequestBatcher<T, R> create(
+            String name,
+            Function<List<T>, List<R>> batchFunction,
+            long batchWindowMicros,
+            int maxBatchWeight) {
+        RequestBatcher<T, R> batcher = new RequestBatcher<>(name, batchFunction, batchWindowMicros, maxBatchWeight);
+        batcher.executor.execute(batcher::processBatches);
+        return batcher;
+    }
+
+    int getMaxBatchWeight() {
+        return maxBatchWeight;
+    }
+
+    /**
+     * Queues the given request and blocks until the batch containing it has been processed.
+     */
+    R submit(T argument, int weight) {
+        Preconditions.checkState(!executor.isShutdown(), "The transaction service %s batcher has been shut down.",
+                name);
+        Request<T, R> request = new Request<>(argument, weight);
+        queue.add(request);
+        if (executor.isShutdown() && queue.remove(request)) {
+            request.result.completeExceptionally(shutDownException());
+        }
+        try {
+            return request.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        } catch (ExecutionException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        Request<T, R> request;
+        while ((request = queue.poll()) != null) {
+            request.result.completeExceptionally(shutDownException());
+        }
+    }
+
+    private IllegalStateException shutDownException() {
+        return new IllegalStateException("The transaction service " + name + " batcher has been shut down.");
+    }
+
+    private void processBatches() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                processBatch(collectBatch());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable t) {
+                log.warn("Unexpected exception while batching transaction service requests", t);
+            }
+        }
+    }
+
+    private List<Request<T, R>> collectBatch() throws InterruptedException {
+        Request<T, R> first = queue.take();
+        List<Request<T, R>> batch = Lists.newArrayList(first);
+        int weight = first.weight;
+        long deadline = System.nanoTime() + batchWindowNanos;
+        while (weight < maxBatchWeight) {
+            Request<T, R> next;
+            try {
+                next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                // still serve the requests we have already taken off the queue
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+            weight += next.weight;
+        }
+        return batch;
+    }
+
+    private void processBatch(List<Request<T, R>> batch) {
+        long now = System.nanoTime();
+        List<T> arguments = Lists.newArrayListWithCapacity(batch.size());
+        int weight = 0;
+        for (Request<T, R> request : batch) {
+            arguments.add(request.argument);
+            weight += request.weight;
+            queueingDelay.update(now - request.enqueuedNanos, TimeUnit.NANOSECONDS);
+        }
+        batchSize.update(weight);
+
+        List<R> results;
+        try {
+            results = batchFunction.apply(arguments);
+            Preconditions.checkState(results.size() == batch.size(),
+                    "Expected %s results for the batch but got %s", batch.size(), results.size());
+        } catch (Throwable t) {
+            batch.forEach(request -> request.result.completeExceptionally(t));
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).result.complete(results.get(i));
+        }
+    }
+
+    private static final class Request<T, R> {
+        private final T argument;
+        private final int weight;
+        private final long enqueuedNanos = System.nanoTime();
+        private final CompletableFuture<R> result = new CompletableFuture<>();
+
+        Request(T argument, int weight) {
+            this.argument = argument;
+            this.weight = weight;
+        }
+    }
+}
@@ -16,10 +16,13 @@
 package com.palantir.atlasdb.transaction.service;
 
 import java.util.Map;
+import java.util.Set;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.transaction.impl.TransactionConstants;
@@ -82,6 +85,46 @@ public final class SimpleTransactionService implements TransactionService {
                 ImmutableMap.of(key, value));
     }
 
+    /**
+     * Writes the whole batch with a single {@link KeyValueService#putUnlessExists} call. Key value services may
+     * give up on a batch part way through, so if that call fails we read the batch back to find out which start
+     * timestamps we set, which were set by someone else and which were never attempted, and retry the latter.
+     */
+    @Override
+    public Set<Long> putUnlessExists(Map<Long, Long> startTimestampToCommitTimestamp) {
+        Set<Long> alreadyExisting = Sets.newHashSet();
+        Map<Long, Long> remaining = startTimestampToCommitTimestamp;
+        while (!remaining.isEmpty()) {
+            Map<Cell, byte[]> values = Maps.newHashMapWithExpectedSize(remaining.size());
+            for (Map.Entry<Long, Long> entry : remaining.entrySet()) {
+                values.put(getTransactionCell(entry.getKey()),
+                        TransactionConstants.getValueForTimestamp(entry.getValue()));
+            }
+            try {
+                keyValueService.putUnlessExists(TransactionConstants.TRANSACTION_TABLE, values);
+                return alreadyExisting;
+            } catch (KeyAlreadyExistsException e) {
+                Map<Long, Long> stored = get(remaining.keySet());
+                Map<Long, Long> unwritten = Maps.newHashMap();
+                for (Map.Entry<Long, Long> entry : remaining.entrySet()) {
+                    Long storedCommitTimestamp = stored.get(entry.getKey());
+                    if (storedCommitTimestamp == null) {
+                        unwritten.put(entry.getKey(), entry.getValue());
+                    } else if (!storedCommitTimestamp.equals(entry.getValue())) {
+                        alreadyExisting.add(entry.getKey());
+                    }
+                }
+                if (unwritten.size() == remaining.size()) {
+                    // the exception did not come from any key in this batch, so make progress one key at a time
+                    alreadyExisting.addAll(TransactionService.super.putUnlessExists(unwritten));
+                    return alreadyExisting;
+                }
+                remaining = unwritten;
+            }
+        }
+        return alreadyExisting;
+    }
+
     private Cell getTransactionCell(long startTimestamp) {
         return Cell.create(
                 TransactionConstants.getValueForTimestamp(startTimestamp),
@@ -26,4 +26,12 @@ public final class TransactionServices {
             KeyValueService keyValueService) {
         return new SimpleTransactionService(keyValueService);
     }
+
+    /**
+     * Creates a transaction service that switches to the bucketed transactions table format from the cutover
+     * timestamp stored in the key value service, if there is one.
+     */
+    public static TransactionService createVersionedTransactionService(KeyValueService keyValueService) {
+        return VersionedTransactionService.create(keyValueService);
+    }
 }
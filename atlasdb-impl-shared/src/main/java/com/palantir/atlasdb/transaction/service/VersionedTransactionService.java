@@ -0,0 +1,241 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.CheckForNull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.timestamp.TimestampService;
+
+/**
+ * Reads and writes transactions in {@link SimpleTransactionService} format for start timestamps below the cutover
+ * timestamp, and in {@link BucketedTransactionService} format from the cutover timestamp onwards.
+ * <p>
+ * The cutover timestamp is stored in {@link TransactionConstants#TRANSACTIONS_CUTOVER_TABLE} and is set once with
+ * {@link #installCutover(KeyValueService, TimestampService, long)}; it can never be changed afterwards. Until it is
+ * set, every transaction is stored in the old format, and the cutover table is re-read at most once every
+ * {@link #CUTOVER_REFRESH_INTERVAL_MILLIS}. A client that has not yet seen the cutover will keep writing the old
+ * format, so the cutover is only installed if it is far enough ahead of the fresh timestamp that every client has
+ * picked it up before it is reached.
+ */
+public final class VersionedTransactionService implements TransactionService {
+    private static final Logger log = LoggerFactory.getLogger(VersionedTransactionService.class);
+
+    @VisibleForTesting
+    static final long CUTOVER_REFRESH_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    // The cutover must be further ahead of the fresh timestamp than the timestamps handed out over this long
+    private static final long CUTOVER_MARGIN_MILLIS = 2 * CUTOVER_REFRESH_INTERVAL_MILLIS;
+    private static final long MIN_CUTOVER_MARGIN = 1_000_000L;
+    private static final long CUTOVER_RATE_SAMPLE_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
+    private static final long NO_CUTOVER = Long.MAX_VALUE;
+    private static final Cell CUTOVER_CELL = Cell.create(
+            TransactionConstants.TRANSACTIONS_CUTOVER_ROW,
+            TransactionConstants.COMMIT_TS_COLUMN);
+    private static final long MAX_TIMESTAMP = 1L;
+
+    private final KeyValueService keyValueService;
+    private final TransactionService oldFormat;
+    private final TransactionService newFormat;
+
+    private volatile long cutoverTimestamp = NO_CUTOVER;
+    private volatile long lastCutoverCheckMillis = 0L;
+
+    @VisibleForTesting
+    VersionedTransactionService(
+            KeyValueService keyValueService,
+            TransactionService oldFormat,
+            TransactionService newFormat) {
+        this.keyValueService = keyValueService;
+        this.oldFormat = oldFormat;
+        this.newFormat = newFormat;
+    }
+
+    public static VersionedTransactionService create(KeyValueService keyValueService) {
+        return new VersionedTransactionService(
+                keyValueService,
+                new SimpleTransactionService(keyValueService),
+                new BucketedTransactionService(keyValueService));
+    }
+
+    /**
+     * Sets the start timestamp from which transactions are stored in the new format, unless a cutover has already
+     * been set.
+     *
+     * @return the cutover timestamp now in force, which is the existing one if a cutover had already been set
+     * @throws IllegalArgumentException if the cutover timestamp is below {@link #getMinimumSafeCutover}
+     */
+    public static long installCutover(
+            KeyValueService keyValueService,
+            TimestampService timestampService,
+            long cutoverTimestamp) {
+        return installCutover(keyValueService, timestampService, cutoverTimestamp, CUTOVER_RATE_SAMPLE_MILLIS);
+    }
+
+    @VisibleForTesting
+    static long installCutover(
+            KeyValueService keyValueService,
+            TimestampService timestampService,
+            long cutoverTimestamp,
+            long sampleMillis) {
+        long minimumCutover = getMinimumSafeCutover(timestampService, sampleMillis);
+        Preconditions.checkArgument(cutoverTimestamp >= minimumCutover,
+                "Cutover timestamp %s is too close to the fresh timestamp: clients that have not yet seen the cutover"
+                        + " could still commit transactions at or after it. It must be at least %s.",
+                cutoverTimestamp, minimumCutover);
+        return writeCutover(keyValueService, cutoverTimestamp);
+    }
+
+    /**
+     * Returns the lowest cutover timestamp that is safe to install: the fresh timestamp, plus the number of
+     * timestamps handed out over twice the cutover refresh interval at the rate observed over a short sample.
+     */
+    public static long getMinimumSafeCutover(TimestampService timestampService) {
+        return getMinimumSafeCutover(timestampService, CUTOVER_RATE_SAMPLE_MILLIS);
+    }
+
+    private static long getMinimumSafeCutover(TimestampService timestampService, long sampleMillis) {
+        long first = timestampService.getFreshTimestamp();
+        Uninterruptibles.sleepUninterruptibly(sampleMillis, TimeUnit.MILLISECONDS);
+        long last = timestampService.getFreshTimestamp();
+        double timestampsPerMilli = (double) (last - first) / Math.max(sampleMillis, 1L);
+        long margin = (long) Math.min(timestampsPerMilli * CUTOVER_MARGIN_MILLIS, Long.MAX_VALUE / 2);
+        return last + Math.max(margin, MIN_CUTOVER_MARGIN);
+    }
+
+    @VisibleForTesting
+    static long writeCutover(KeyValueService keyValueService, long cutoverTimestamp) {
+        Preconditions.checkArgument(cutoverTimestamp >= 0 && cutoverTimestamp != NO_CUTOVER,
+                "Invalid cutover timestamp %s", cutoverTimestamp);
+        try {
+            keyValueService.putUnlessExists(TransactionConstants.TRANSACTIONS_CUTOVER_TABLE,
+                    ImmutableMap.of(CUTOVER_CELL, TransactionConstants.getValueForTimestamp(cutoverTimestamp)));
+            log.info("Transactions with start timestamps from {} onwards will be stored in {}.",
+                    cutoverTimestamp, TransactionConstants.TRANSACTIONS2_TABLE);
+            return cutoverTimestamp;
+        } catch (KeyAlreadyExistsException e) {
+            long existingCutover = readCutover(keyValueService);
+            log.info("A transactions table cutover had already been set at {}.", existingCutover);
+            return existingCutover;
+        }
+    }
+
+    @CheckForNull
+    @Override
+    public Long get(long startTimestamp) {
+        return serviceFor(startTimestamp, getCutoverTimestamp()).get(startTimestamp);
+    }
+
+    @Override
+    public Map<Long, Long> get(Iterable<Long> startTimestamps) {
+        long cutover = getCutoverTimestamp();
+        List<Long> oldTimestamps = Lists.newArrayList();
+        List<Long> newTimestamps = Lists.newArrayList();
+        for (Long startTimestamp : startTimestamps) {
+            if (startTimestamp < cutover) {
+                oldTimestamps.add(startTimestamp);
+            } else {
+                newTimestamps.add(startTimestamp);
+            }
+        }
+        if (newTimestamps.isEmpty()) {
+            return oldFormat.get(oldTimestamps);
+        }
+        if (oldTimestamps.isEmpty()) {
+            return newFormat.get(newTimestamps);
+        }
+        Map<Long, Long> result = Maps.newHashMap(oldFormat.get(oldTimestamps));
+        result.putAll(newFormat.get(newTimestamps));
+        return result;
+    }
+
+    @Override
+    public void putUnlessExists(long startTimestamp, long commitTimestamp) throws KeyAlreadyExistsException {
+        serviceFor(startTimestamp, getCutoverTimestamp()).putUnlessExists(startTimestamp, commitTimestamp);
+    }
+
+    @Override
+    public Set<Long> putUnlessExists(Map<Long, Long> startTimestampToCommitTimestamp) {
+        long cutover = getCutoverTimestamp();
+        Map<Long, Long> oldWrites = Maps.newHashMap();
+        Map<Long, Long> newWrites = Maps.newHashMap();
+        for (Map.Entry<Long, Long> entry : startTimestampToCommitTimestamp.entrySet()) {
+            if (entry.getKey() < cutover) {
+                oldWrites.put(entry.getKey(), entry.getValue());
+            } else {
+                newWrites.put(entry.getKey(), entry.getValue());
+            }
+        }
+        Set<Long> alreadyExisting = Sets.newHashSet();
+        if (!oldWrites.isEmpty()) {
+            alreadyExisting.addAll(oldFormat.putUnlessExists(oldWrites));
+        }
+        if (!newWrites.isEmpty()) {
+            alreadyExisting.addAll(newFormat.putUnlessExists(newWrites));
+        }
+        return alreadyExisting;
+    }
+
+    private TransactionService serviceFor(long startTimestamp, long cutover) {
+        return startTimestamp < cutover ? oldFormat : newFormat;
+    }
+
+    private long getCutoverTimestamp() {
+        long cutover = cutoverTimestamp;
+        if (cutover != NO_CUTOVER) {
+            return cutover;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastCutoverCheckMillis < CUTOVER_REFRESH_INTERVAL_MILLIS) {
+            return NO_CUTOVER;
+        }
+        lastCutoverCheckMillis = now;
+        cutover = readCutover(keyValueService);
+        if (cutover != NO_CUTOVER) {
+            log.info("Transactions with start timestamps from {} onwards are stored in {}.",
+                    cutover, TransactionConstants.TRANSACTIONS2_TABLE);
+            cutoverTimestamp = cutover;
+        }
+        return cutover;
+    }
+
+    private static long readCutover(KeyValueService keyValueService) {
+        Map<Cell, Value> result = keyValueService.get(TransactionConstants.TRANSACTIONS_CUTOVER_TABLE,
+                ImmutableMap.of(CUTOVER_CELL, MAX_TIMESTAMP));
+        Value value = result.get(CUTOVER_CELL);
+        return value == null ? NO_CUTOVER : TransactionConstants.getTimestampForValue(value.getContents());
+    }
+}
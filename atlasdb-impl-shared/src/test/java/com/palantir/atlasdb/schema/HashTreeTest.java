@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.schema;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+
+public class HashTreeTest {
+    private static final List<HashCode> LEAVES = hashes(0, 1, 2, 3, 4);
+
+    @Test
+    public void treesWithTheSameLeavesHaveTheSameRoot() {
+        HashTree tree = HashTree.create(LEAVES);
+        HashTree otherTree = HashTree.create(LEAVES);
+
+        assertThat(tree.getRoot()).isEqualTo(otherTree.getRoot());
+        assertThat(tree.getDifferingLeaves(otherTree)).isEmpty();
+    }
+
+    @Test
+    public void findsEveryDifferingLeaf() {
+        HashTree tree = HashTree.create(LEAVES);
+        HashTree otherTree = HashTree.create(hashes(0, 10, 2, 3, 14));
+
+        assertThat(tree.getRoot()).isNotEqualTo(otherTree.getRoot());
+        assertThat(tree.getDifferingLeaves(otherTree)).containsExactly(1, 4);
+    }
+
+    @Test
+    public void rootOfASingleLeafIsTheLeaf() {
+        HashTree tree = HashTree.create(hashes(7));
+
+        assertThat(tree.getRoot()).isEqualTo(hashes(7).get(0));
+        assertThat(tree.getDifferingLeaves(HashTree.create(hashes(8)))).containsExactly(0);
+    }
+
+    @Test
+    public void cannotCompareTreesWithDifferentNumbersOfLeaves() {
+        HashTree tree = HashTree.create(LEAVES);
+
+        assertThatThrownBy(() -> tree.getDifferingLeaves(HashTree.create(hashes(0, 1))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void needsAtLeastOneLeaf() {
+        assertThatThrownBy(() -> HashTree.create(ImmutableList.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<HashCode> hashes(int... values) {
+        return IntStream.of(values)
+                .mapToObj(value -> Hashing.sha256().hashInt(value))
+                .collect(Collectors.toList());
+    }
+}
@@ -16,8 +16,11 @@
 package com.palantir.atlasdb.sweep;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Matchers.anyMap;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -25,6 +28,8 @@ import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.Test;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
 import com.palantir.atlasdb.transaction.service.TransactionService;
 
@@ -32,6 +37,7 @@ import gnu.trove.set.hash.TLongHashSet;
 
 public class CommitTsLoaderTest {
     private static final Long VALID_START_TIMESTAMP = 100L;
+    private static final Long OTHER_START_TIMESTAMP = 150L;
     private static final Long VALID_COMMIT_TIMESTAMP = 200L;
     private static final Long ROLLBACK_TIMESTAMP = -1L;
     private static final Long NO_TIMESTAMP = null;
@@ -81,6 +87,21 @@ public class CommitTsLoaderTest {
         verify(mockTransactionService).putUnlessExists(VALID_START_TIMESTAMP, ROLLBACK_TIMESTAMP);
     }
 
+    @Test
+    public void createShouldRollBackUncommittedTransactionsInOneBatch() throws Exception {
+        when(mockTransactionService.get(anyCollection()))
+                .thenReturn(ImmutableMap.of(VALID_START_TIMESTAMP, VALID_COMMIT_TIMESTAMP));
+        when(mockTransactionService.putUnlessExists(anyMap())).thenReturn(ImmutableSet.of());
+
+        CommitTsLoader warmLoader = CommitTsLoader.create(mockTransactionService,
+                new TLongHashSet(new long[] {VALID_START_TIMESTAMP, OTHER_START_TIMESTAMP}));
+
+        assertThat(warmLoader.load(VALID_START_TIMESTAMP)).isEqualTo(VALID_COMMIT_TIMESTAMP);
+        assertThat(warmLoader.load(OTHER_START_TIMESTAMP)).isEqualTo(ROLLBACK_TIMESTAMP);
+        verify(mockTransactionService).putUnlessExists(ImmutableMap.of(OTHER_START_TIMESTAMP, ROLLBACK_TIMESTAMP));
+        verify(mockTransactionService, never()).get(OTHER_START_TIMESTAMP);
+    }
+
     @Test(expected = NullPointerException.class)
     public void loadShouldThrowIfANullIsToBeReturned() throws Exception {
         doAnswer((invocation) -> NO_TIMESTAMP)
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+
+public class LocalWriteBufferTest {
+    private static final Cell CELL_1 = cell("row1", "col1");
+    private static final Cell CELL_2 = cell("row1", "col2");
+    private static final Cell CELL_3 = cell("row2", "col1");
+    private static final byte[] VALUE_1 = PtBytes.toBytes("value1");
+    private static final byte[] VALUE_2 = PtBytes.toBytes("value2");
+
+    private final LocalWriteBuffer buffer = new LocalWriteBuffer();
+
+    @Test
+    public void sortsAppendedWritesByCell() {
+        List<Cell> cells = Lists.newArrayList();
+        for (int i = 0; i < 100; i++) {
+            cells.add(cell("row" + i, "col"));
+        }
+        Collections.shuffle(cells);
+        for (Cell cell : cells) {
+            buffer.putAll(ImmutableMap.of(cell, VALUE_1));
+        }
+
+        Collections.sort(cells);
+        assertThat(buffer.getSortedWrites().keySet()).containsExactlyElementsOf(cells);
+    }
+
+    @Test
+    public void laterWritesToACellReplaceEarlierOnes() {
+        buffer.putAll(ImmutableMap.of(CELL_2, VALUE_1, CELL_1, VALUE_1));
+        buffer.putAll(ImmutableMap.of(CELL_2, VALUE_2));
+        buffer.putAll(ImmutableMap.of(CELL_3, VALUE_1));
+
+        SortedMap<Cell, byte[]> writes = buffer.getSortedWrites();
+        assertThat(writes.keySet()).containsExactly(CELL_1, CELL_2, CELL_3);
+        assertThat(writes.get(CELL_2)).isEqualTo(VALUE_2);
+        assertThat(buffer.getLiveWrites().get(CELL_2)).isEqualTo(VALUE_2);
+    }
+
+    @Test
+    public void storesNullValuesAsDeletes() {
+        Map<Cell, byte[]> values = Collections.singletonMap(CELL_1, null);
+        buffer.putAll(values);
+
+        assertThat(buffer.getSortedWrites().get(CELL_1)).isEqualTo(PtBytes.EMPTY_BYTE_ARRAY);
+    }
+
+    @Test
+    public void liveWritesReflectLaterWrites() {
+        buffer.putAll(ImmutableMap.of(CELL_1, VALUE_1));
+        SortedMap<Cell, byte[]> liveWrites = buffer.getLiveWrites();
+
+        buffer.putAll(ImmutableMap.of(CELL_1, VALUE_2, CELL_3, VALUE_1));
+
+        assertThat(liveWrites.keySet()).containsExactly(CELL_1, CELL_3);
+        assertThat(liveWrites.get(CELL_1)).isEqualTo(VALUE_2);
+        assertThat(buffer.getSortedWrites()).isSameAs(liveWrites);
+    }
+
+    @Test
+    public void sortedWritesReflectWritesSincePreviousSort() {
+        buffer.putAll(ImmutableMap.of(CELL_1, VALUE_1));
+        assertThat(buffer.getSortedWrites().keySet()).containsExactly(CELL_1);
+
+        buffer.putAll(ImmutableMap.of(CELL_3, VALUE_1));
+        assertThat(buffer.getSortedWrites().keySet()).containsExactly(CELL_1, CELL_3);
+    }
+
+    @Test
+    public void collapsesRewritesOfTheSameCellsInsteadOfGrowing() {
+        int numWrites = 100 * LocalWriteBuffer.COLLAPSE_THRESHOLD;
+        for (int i = 0; i < numWrites; i++) {
+            buffer.putAll(ImmutableMap.of(cell("row" + (i % 10), "col"), PtBytes.toBytes(i)));
+        }
+
+        assertThat(buffer.getAppendedCapacity()).isLessThanOrEqualTo(2 * LocalWriteBuffer.COLLAPSE_THRESHOLD);
+        SortedMap<Cell, byte[]> writes = buffer.getSortedWrites();
+        assertThat(writes).hasSize(10);
+        assertThat(writes.get(cell("row9", "col"))).isEqualTo(PtBytes.toBytes(numWrites - 1));
+    }
+
+    @Test
+    public void growsWhenCollapsingDoesNotFreeEnoughSpace() {
+        int numCells = 4 * LocalWriteBuffer.COLLAPSE_THRESHOLD;
+        for (int i = 0; i < numCells; i++) {
+            buffer.putAll(ImmutableMap.of(cell("row" + i, "col"), VALUE_1));
+        }
+
+        assertThat(buffer.getSortedWrites()).hasSize(numCells);
+    }
+
+    @Test
+    public void countsBytesOfNewCellsOnceWritesAreLive() {
+        assertThat(buffer.isEmpty()).isTrue();
+        long appendedBytes = buffer.putAll(ImmutableMap.of(CELL_1, VALUE_1));
+        assertThat(appendedBytes).isGreaterThan(VALUE_1.length);
+        assertThat(buffer.isEmpty()).isFalse();
+
+        buffer.getLiveWrites();
+        assertThat(buffer.putAll(ImmutableMap.of(CELL_1, VALUE_2))).isEqualTo(0L);
+        assertThat(buffer.putAll(ImmutableMap.of(CELL_2, VALUE_2))).isEqualTo(appendedBytes);
+    }
+
+    private static Cell cell(String row, String column) {
+        return Cell.create(PtBytes.toBytes(row), PtBytes.toBytes(column));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+
+public class BatchingTransactionServiceTest {
+    private static final long LONG_WINDOW_MICROS = TimeUnit.MILLISECONDS.toMicros(200);
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private BatchingTransactionService batchingService;
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        if (batchingService != null) {
+            batchingService.close();
+        }
+    }
+
+    @Test
+    public void readsCommitTimestampsWrittenThroughTheDelegate() {
+        KeyValueService kvs = new InMemoryKeyValueService(false);
+        kvs.createTable(TransactionConstants.TRANSACTION_TABLE, TransactionConstants.TRANSACTION_TABLE_METADATA
+                .persistToBytes());
+        batchingService = BatchingTransactionService.create(new SimpleTransactionService(kvs), 0, 10);
+
+        batchingService.putUnlessExists(1L, 2L);
+        batchingService.putUnlessExists(3L, 4L);
+
+        assertThat(batchingService.get(1L)).isEqualTo(2L);
+        assertThat(batchingService.get(5L)).isNull();
+        assertThat(batchingService.get(ImmutableList.of(1L, 3L, 5L))).isEqualTo(ImmutableMap.of(1L, 2L, 3L, 4L));
+    }
+
+    @Test
+    public void coalescesConcurrentReadsIntoOneDelegateCall() throws Exception {
+        TransactionService delegate = mock(TransactionService.class);
+        when(delegate.get(any())).thenReturn(ImmutableMap.of(1L, 10L, 2L, 20L));
+        batchingService = BatchingTransactionService.create(delegate, LONG_WINDOW_MICROS, 3);
+
+        List<Future<Long>> futures = Lists.newArrayList();
+        for (long startTs = 1; startTs <= 3; startTs++) {
+            long ts = startTs;
+            futures.add(executor.submit(() -> batchingService.get(ts)));
+        }
+
+        assertThat(futures.get(0).get()).isEqualTo(10L);
+        assertThat(futures.get(1).get()).isEqualTo(20L);
+        assertThat(futures.get(2).get()).isNull();
+        verify(delegate, times(1)).get(any());
+    }
+
+    @Test
+    public void largeReadsBypassTheBatcher() {
+        TransactionService delegate = mock(TransactionService.class);
+        Map<Long, Long> expected = ImmutableMap.of(1L, 10L);
+        when(delegate.get(any())).thenReturn(expected);
+        batchingService = BatchingTransactionService.create(delegate, LONG_WINDOW_MICROS, 2);
+
+        assertThat(batchingService.get(ImmutableList.of(1L, 2L))).isEqualTo(expected);
+    }
+
+    @Test
+    public void propagatesDelegateFailuresToAllCallers() {
+        TransactionService delegate = mock(TransactionService.class);
+        when(delegate.get(any())).thenThrow(new IllegalStateException("boom"));
+        batchingService = BatchingTransactionService.create(delegate, 0, 10);
+
+        assertThatThrownBy(() -> batchingService.get(1L)).hasMessageContaining("boom");
+    }
+
+    @Test
+    public void groupCommitReportsExistingKeysPerTransaction() throws Exception {
+        KeyValueService kvs = new InMemoryKeyValueService(false);
+        kvs.createTable(TransactionConstants.TRANSACTION_TABLE, TransactionConstants.TRANSACTION_TABLE_METADATA
+                .persistToBytes());
+        TransactionService simpleService = new SimpleTransactionService(kvs);
+        simpleService.putUnlessExists(1L, TransactionConstants.FAILED_COMMIT_TS);
+        batchingService = BatchingTransactionService.create(simpleService, LONG_WINDOW_MICROS, 2, false, true);
+
+        Future<?> rolledBack = executor.submit(() -> batchingService.putUnlessExists(1L, 2L));
+        Future<?> committed = executor.submit(() -> batchingService.putUnlessExists(3L, 4L));
+
+        committed.get();
+        assertThatThrownBy(rolledBack::get).hasCauseInstanceOf(KeyAlreadyExistsException.class);
+        assertThat(simpleService.get(ImmutableList.of(1L, 3L)))
+                .isEqualTo(ImmutableMap.of(1L, TransactionConstants.FAILED_COMMIT_TS, 3L, 4L));
+    }
+
+    @Test
+    public void cannotReadAfterClose() {
+        batchingService = BatchingTransactionService.create(mock(TransactionService.class), 0, 10);
+        batchingService.close();
+
+        assertThatThrownBy(() -> batchingService.get(1L)).isInstanceOf(IllegalStateException.class);
+    }
+}
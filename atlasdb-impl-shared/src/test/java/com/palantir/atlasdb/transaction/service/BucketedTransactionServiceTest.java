@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.atlasdb.transaction.impl.TransactionTables;
+
+public class BucketedTransactionServiceTest {
+    private static final long BUCKET_SIZE = BucketedTransactionService.BUCKET_SIZE;
+
+    private KeyValueService kvs;
+    private TransactionService transactionService;
+
+    @Before
+    public void setUp() {
+        kvs = spy(new InMemoryKeyValueService(false));
+        TransactionTables.createTables(kvs);
+        transactionService = new BucketedTransactionService(kvs);
+    }
+
+    @Test
+    public void readsBackCommittedAndRolledBackTransactions() {
+        transactionService.putUnlessExists(1L, 5L);
+        transactionService.putUnlessExists(2L, TransactionConstants.FAILED_COMMIT_TS);
+        transactionService.putUnlessExists(3L, 3L);
+
+        assertThat(transactionService.get(1L)).isEqualTo(5L);
+        assertThat(transactionService.get(2L)).isEqualTo(TransactionConstants.FAILED_COMMIT_TS);
+        assertThat(transactionService.get(3L)).isEqualTo(3L);
+        assertThat(transactionService.get(4L)).isNull();
+    }
+
+    @Test
+    public void spreadsConsecutiveStartTimestampsAcrossTheRowsOfABucket() {
+        assertThat(BucketedTransactionService.getTransactionCell(0L).getRowName())
+                .isNotEqualTo(BucketedTransactionService.getTransactionCell(1L).getRowName());
+        assertThat(BucketedTransactionService.getTransactionCell(0L).getRowName())
+                .isEqualTo(BucketedTransactionService.getTransactionCell(
+                        BUCKET_SIZE - BucketedTransactionService.ROWS_PER_BUCKET).getRowName());
+        assertThat(BucketedTransactionService.getTransactionCell(0L).getRowName())
+                .isNotEqualTo(BucketedTransactionService.getTransactionCell(BUCKET_SIZE).getRowName());
+    }
+
+    @Test
+    public void decodesTheStartTimestampOfACell() {
+        for (long startTimestamp : ImmutableList.of(0L, 1L, 17L, BUCKET_SIZE - 1, BUCKET_SIZE + 3, 123_456_789L)) {
+            assertThat(BucketedTransactionService.getStartTimestamp(
+                    BucketedTransactionService.getTransactionCell(startTimestamp))).isEqualTo(startTimestamp);
+        }
+    }
+
+    @Test
+    public void encodesSmallCommitDeltasCompactly() {
+        long startTimestamp = 123_456_789_000L;
+
+        assertThat(BucketedTransactionService.encodeCommitTimestamp(startTimestamp, startTimestamp + 10)).hasSize(1);
+        assertThat(BucketedTransactionService.encodeCommitTimestamp(startTimestamp,
+                TransactionConstants.FAILED_COMMIT_TS)).hasSize(1);
+        assertThat(BucketedTransactionService.decodeCommitTimestamp(startTimestamp,
+                BucketedTransactionService.encodeCommitTimestamp(startTimestamp, startTimestamp + 1_000_000L)))
+                .isEqualTo(startTimestamp + 1_000_000L);
+    }
+
+    @Test
+    public void batchedReadsWithinABucketAreOneCall() {
+        transactionService.putUnlessExists(ImmutableMap.of(10L, 11L, 12L, 20L, 14L, 15L));
+
+        assertThat(transactionService.get(ImmutableList.of(10L, 12L, 13L, 14L)))
+                .isEqualTo(ImmutableMap.of(10L, 11L, 12L, 20L, 14L, 15L));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Iterable<byte[]>> rows = ArgumentCaptor.forClass(Iterable.class);
+        verify(kvs, times(1)).getRows(eq(TransactionConstants.TRANSACTIONS2_TABLE), rows.capture(), any(), anyLong());
+        assertThat(rows.getValue()).hasSize(4);
+    }
+
+    @Test
+    public void batchedReadsAcrossBucketsOnlyReturnRequestedTimestamps() {
+        transactionService.putUnlessExists(ImmutableMap.of(1L, 2L, BUCKET_SIZE + 1, BUCKET_SIZE + 2,
+                BUCKET_SIZE + 5, BUCKET_SIZE + 6));
+
+        assertThat(transactionService.get(ImmutableList.of(5L, BUCKET_SIZE + 1)))
+                .isEqualTo(ImmutableMap.of(BUCKET_SIZE + 1, BUCKET_SIZE + 2));
+    }
+
+    @Test
+    public void putUnlessExistsFailsIfAlreadyCommitted() {
+        transactionService.putUnlessExists(1L, 2L);
+
+        assertThatThrownBy(() -> transactionService.putUnlessExists(1L, 3L))
+                .isInstanceOf(KeyAlreadyExistsException.class);
+        assertThat(transactionService.get(1L)).isEqualTo(2L);
+    }
+
+    @Test
+    public void batchedPutUnlessExistsReportsOnlyKeysThatAlreadyExisted() {
+        transactionService.putUnlessExists(2L, 3L);
+
+        assertThat(transactionService.putUnlessExists(ImmutableMap.of(1L, 5L, 2L, 5L, 3L, 5L))).containsExactly(2L);
+        assertThat(transactionService.get(ImmutableList.of(1L, 2L, 3L)))
+                .isEqualTo(ImmutableMap.of(1L, 5L, 2L, 3L, 3L, 5L));
+    }
+
+    @Test
+    public void cannotCommitBeforeStarting() {
+        assertThatThrownBy(() -> transactionService.putUnlessExists(5L, 4L))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+
+public class SimpleTransactionServiceTest {
+    private TransactionService transactionService;
+
+    @Before
+    public void setUp() {
+        KeyValueService kvs = new InMemoryKeyValueService(false);
+        kvs.createTable(TransactionConstants.TRANSACTION_TABLE, TransactionConstants.TRANSACTION_TABLE_METADATA
+                .persistToBytes());
+        transactionService = new SimpleTransactionService(kvs);
+    }
+
+    @Test
+    public void batchedPutUnlessExistsWritesEverythingIfNothingExists() {
+        Set<Long> alreadyExisting = transactionService.putUnlessExists(ImmutableMap.of(1L, 2L, 3L, 4L));
+
+        assertThat(alreadyExisting).isEmpty();
+        assertThat(transactionService.get(ImmutableList.of(1L, 3L))).isEqualTo(ImmutableMap.of(1L, 2L, 3L, 4L));
+    }
+
+    @Test
+    public void batchedPutUnlessExistsReportsOnlyKeysThatAlreadyExisted() {
+        transactionService.putUnlessExists(2L, 3L);
+
+        Set<Long> alreadyExisting = transactionService.putUnlessExists(
+                ImmutableMap.of(1L, 5L, 2L, 5L, 3L, 5L, 4L, 5L));
+
+        assertThat(alreadyExisting).containsExactly(2L);
+        assertThat(transactionService.get(ImmutableList.of(1L, 2L, 3L, 4L)))
+                .isEqualTo(ImmutableMap.of(1L, 5L, 2L, 3L, 3L, 5L, 4L, 5L));
+    }
+}
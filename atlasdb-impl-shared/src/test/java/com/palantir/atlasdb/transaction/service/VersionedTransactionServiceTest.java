@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.transaction.impl.TransactionTables;
+import com.palantir.timestamp.TimestampService;
+
+public class VersionedTransactionServiceTest {
+    private static final long CUTOVER = 100L;
+
+    private KeyValueService kvs;
+    private TransactionService oldFormat;
+    private TransactionService newFormat;
+
+    @Before
+    public void setUp() {
+        kvs = new InMemoryKeyValueService(false);
+        TransactionTables.createTables(kvs);
+        oldFormat = new SimpleTransactionService(kvs);
+        newFormat = new BucketedTransactionService(kvs);
+    }
+
+    @Test
+    public void usesOnlyTheOldFormatWithoutACutover() {
+        TransactionService versioned = VersionedTransactionService.create(kvs);
+        versioned.putUnlessExists(CUTOVER + 1, CUTOVER + 2);
+
+        assertThat(oldFormat.get(CUTOVER + 1)).isEqualTo(CUTOVER + 2);
+        assertThat(newFormat.get(CUTOVER + 1)).isNull();
+    }
+
+    @Test
+    public void routesByStartTimestampAfterTheCutover() {
+        VersionedTransactionService.writeCutover(kvs, CUTOVER);
+        TransactionService versioned = VersionedTransactionService.create(kvs);
+
+        versioned.putUnlessExists(ImmutableMap.of(CUTOVER - 1, CUTOVER + 5, CUTOVER, CUTOVER + 5));
+
+        assertThat(oldFormat.get(CUTOVER - 1)).isEqualTo(CUTOVER + 5);
+        assertThat(oldFormat.get(CUTOVER)).isNull();
+        assertThat(newFormat.get(CUTOVER)).isEqualTo(CUTOVER + 5);
+        assertThat(versioned.get(ImmutableList.of(CUTOVER - 1, CUTOVER, CUTOVER + 1)))
+                .isEqualTo(ImmutableMap.of(CUTOVER - 1, CUTOVER + 5, CUTOVER, CUTOVER + 5));
+    }
+
+    @Test
+    public void cutoverCannotBeMoved() {
+        assertThat(VersionedTransactionService.writeCutover(kvs, CUTOVER)).isEqualTo(CUTOVER);
+        assertThat(VersionedTransactionService.writeCutover(kvs, CUTOVER * 2)).isEqualTo(CUTOVER);
+    }
+
+    @Test
+    public void refusesToInstallACutoverThatClientsMayNotHaveSeenInTime() {
+        TimestampService timestampService = mock(TimestampService.class);
+        // 100 timestamps a millisecond
+        when(timestampService.getFreshTimestamp()).thenReturn(1_000L, 1_100L);
+
+        long margin = 100 * 2 * VersionedTransactionService.CUTOVER_REFRESH_INTERVAL_MILLIS;
+        assertThatThrownBy(() -> VersionedTransactionService.installCutover(kvs, timestampService, 1_100L + margin, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(VersionedTransactionService.create(kvs).get(CUTOVER)).isNull();
+    }
+
+    @Test
+    public void installsACutoverFarEnoughAhead() {
+        TimestampService timestampService = mock(TimestampService.class);
+        when(timestampService.getFreshTimestamp()).thenReturn(1_000L, 1_100L);
+
+        long cutover = 1_100L + 100 * 2 * VersionedTransactionService.CUTOVER_REFRESH_INTERVAL_MILLIS + 1;
+        assertThat(VersionedTransactionService.installCutover(kvs, timestampService, cutover, 1)).isEqualTo(cutover);
+    }
+
+    @Test
+    public void doesNotRereadAMissingCutoverWithinTheRefreshInterval() {
+        TransactionService versioned = VersionedTransactionService.create(kvs);
+        assertThat(versioned.get(CUTOVER)).isNull();
+
+        VersionedTransactionService.writeCutover(kvs, CUTOVER);
+        versioned.putUnlessExists(CUTOVER, CUTOVER + 1);
+
+        assertThat(oldFormat.get(CUTOVER)).isEqualTo(CUTOVER + 1);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.lsm;
+
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.auto.service.AutoService;
+import com.google.common.base.Preconditions;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.config.LeaderConfig;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.impl.SimpleKvsTimestampBoundStore;
+import com.palantir.atlasdb.spi.AtlasDbFactory;
+import com.palantir.atlasdb.spi.KeyValueServiceConfig;
+import com.palantir.atlasdb.versions.AtlasDbVersion;
+import com.palantir.timestamp.PersistentTimestampServiceImpl;
+import com.palantir.timestamp.TimestampService;
+
+@AutoService(AtlasDbFactory.class)
+public class LsmAtlasDbFactory implements AtlasDbFactory {
+    private static final Logger log = LoggerFactory.getLogger(LsmAtlasDbFactory.class);
+
+    @Override
+    public String getType() {
+        return LsmKeyValueServiceConfig.TYPE;
+    }
+
+    /**
+     * Creates an LsmKeyValueService.
+     *
+     * @param config Configuration file.
+     * @param leaderConfig unused.
+     * @param unused unused.
+     * @param initializeAsync unused. Async initialization has not been implemented and is not propagated.
+     * @return The requested KeyValueService instance
+     */
+    @Override
+    public KeyValueService createRawKeyValueService(
+            KeyValueServiceConfig config,
+            Optional<LeaderConfig> leaderConfig,
+            Optional<String> unused,
+            boolean initializeAsync) {
+        if (initializeAsync) {
+            log.warn("Asynchronous initialization not implemented, will initialize synchronousy.");
+        }
+
+        AtlasDbVersion.ensureVersionReported();
+        return LsmKeyValueService.create((LsmKeyValueServiceConfig) config);
+    }
+
+    @Override
+    public TimestampService createTimestampService(
+            KeyValueService rawKvs,
+            Optional<TableReference> timestampTable,
+            boolean initializeAsync) {
+        if (initializeAsync) {
+            log.warn("Asynchronous initialization not implemented, will initialize synchronousy.");
+        }
+
+        Preconditions.checkArgument(!timestampTable.isPresent()
+                        || timestampTable.get().equals(AtlasDbConstants.TIMESTAMP_TABLE),
+                "Unexpected timestamp table %s: the LSM key value service only supports the default timestamp table",
+                timestampTable.map(TableReference::getQualifiedName).orElse("unknown table"));
+
+        AtlasDbVersion.ensureVersionReported();
+        return PersistentTimestampServiceImpl.create(SimpleKvsTimestampBoundStore.create(rawKvs));
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.lsm;
+
+import javax.annotation.Nullable;
+
+/**
+ * A version of a cell together with its contents, or a tombstone recording that the version was deleted.
+ */
+final class LsmEntry {
+    private final VersionKey key;
+    @Nullable
+    private final byte[] contents;
+
+    private LsmEntry(VersionKey key, @Nullable byte[] contents) {
+        this.key = key;
+        this.contents = contents;
+    }
+
+    static LsmEntry value(VersionKey key, byte[] contents) {
+        return new LsmEntry(key, contents);
+    }
+
+    static LsmEntry tombstone(VersionKey key) {
+        return new LsmEntry(key, null);
+    }
+
+    VersionKey getKey() {
+        return key;
+    }
+
+    boolean isTombstone() {
+        return contents == null;
+    }
+
+    /**
+     * Returns the contents of this version. Must not be called on a tombstone.
+     */
+    byte[] getContents() {
+        if (contents == null) {
+            throw new IllegalStateException("A tombstone has no contents: " + key);
+        }
+        return contents;
+    }
+
+    /**
+     * Returns the approximate number of bytes this entry takes up when stored.
+     */
+    int getSizeInBytes() {
+        return key.getRow().length + key.getColumn().length + Long.BYTES + (contents == null ? 0 : contents.length);
+    }
+}
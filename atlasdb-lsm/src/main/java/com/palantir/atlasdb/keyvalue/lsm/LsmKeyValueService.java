@@ -0,0 +1,580 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.lsm;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.apache.commons.lang3.ArrayUtils;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.PeekingIterator;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.UnsignedBytes;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
+import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweeping;
+import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweepingRequest;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.CheckAndSetException;
+import com.palantir.atlasdb.keyvalue.api.CheckAndSetRequest;
+import com.palantir.atlasdb.keyvalue.api.ClusterAvailabilityStatus;
+import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.impl.AbstractKeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.GetCandidateCellsForSweepingShim;
+import com.palantir.atlasdb.keyvalue.impl.KeyValueServices;
+import com.palantir.atlasdb.keyvalue.impl.LocalRowColumnRangeIterator;
+import com.palantir.common.annotation.Output;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.ClosableIterators;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.remoting3.tracing.Tracers;
+import com.palantir.util.paging.TokenBackedBasicResultsPage;
+
+/**
+ * Durable, single-node key-value store that keeps each table in a log-structured merge tree on the local file system.
+ * <p>
+ * Each table is stored in a subdirectory of the data directory named after the table, holding the table's metadata,
+ * its write-ahead log and its segments; see {@link LsmTable} for how these are written, read and compacted. Tables
+ * found in the data directory are opened when the key value service is created.
+ * <p>
+ * Writes to a version that already exists overwrite it. Ranges can only be read in increasing order of row.
+ */
+@ThreadSafe
+public class LsmKeyValueService extends AbstractKeyValueService {
+    private static final String METADATA_FILE_NAME = "metadata";
+    private static final Pattern TABLE_DIRECTORY_NAME = Pattern.compile("[A-Za-z0-9_.\\-]+");
+
+    private final Path dataDirectory;
+    private final LsmKeyValueServiceConfig config;
+    private final ExecutorService flushExecutor;
+    private final ExecutorService compactionExecutor;
+    private final ConcurrentMap<TableReference, LsmTable> tables = Maps.newConcurrentMap();
+    private final ConcurrentMap<TableReference, byte[]> tableMetadata = Maps.newConcurrentMap();
+
+    private LsmKeyValueService(LsmKeyValueServiceConfig config, ExecutorService executor) {
+        super(executor);
+        this.dataDirectory = config.dataDirectory().toPath();
+        this.config = config;
+        this.flushExecutor = PTExecutors.newFixedThreadPool(1, PTExecutors.newNamedThreadFactory(true));
+        this.compactionExecutor = PTExecutors.newFixedThreadPool(1, PTExecutors.newNamedThreadFactory(true));
+    }
+
+    public static LsmKeyValueService create(LsmKeyValueServiceConfig config) {
+        return create(config, Tracers.wrap(PTExecutors.newFixedThreadPool(
+                config.concurrentGetRangesThreadPoolSize(), PTExecutors.newNamedThreadFactory(true))));
+    }
+
+    public static LsmKeyValueService create(LsmKeyValueServiceConfig config, ExecutorService executor) {
+        LsmKeyValueService kvs = new LsmKeyValueService(config, executor);
+        kvs.openExistingTables();
+        return kvs;
+    }
+
+    private void openExistingTables() {
+        try {
+            Files.createDirectories(dataDirectory);
+            try (DirectoryStream<Path> directories = Files.newDirectoryStream(dataDirectory)) {
+                for (Path directory : directories) {
+                    Path metadataFile = directory.resolve(METADATA_FILE_NAME);
+                    if (Files.isDirectory(directory) && Files.exists(metadataFile)) {
+                        TableReference tableRef = TableReference.createUnsafe(directory.getFileName().toString());
+                        tableMetadata.put(tableRef, Files.readAllBytes(metadataFile));
+                        tables.put(tableRef, LsmTable.open(directory, config, flushExecutor, compactionExecutor));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw Throwables.rewrapAndThrowUncheckedException("Could not open the tables in " + dataDirectory, e);
+        }
+    }
+
+    @Override
+    public Map<Cell, Value> getRows(TableReference tableRef, Iterable<byte[]> rows,
+                                    ColumnSelection columnSelection, long timestamp) {
+        Map<Cell, Value> result = Maps.newHashMap();
+        LsmTable table = getTable(tableRef);
+
+        for (byte[] row : rows) {
+            PeekingIterator<LsmEntry> entries = table.scan(VersionKey.startOfRow(row), VersionKey.endOfRow(row));
+            while (entries.hasNext()) {
+                LsmEntry entry = entries.peek();
+                byte[] col = entry.getKey().getColumn();
+                Iterator<LsmEntry> cellIter = takeCell(entries, entry);
+                if (columnSelection.contains(col)) {
+                    getLatestVersionOfCell(row, col, cellIter, timestamp, result);
+                }
+                Iterators.size(cellIter);
+            }
+        }
+
+        return result;
+    }
+
+    private static void getLatestVersionOfCell(byte[] row, byte[] col, Iterator<LsmEntry> cellIter, long timestamp,
+                                               @Output Map<Cell, Value> result) {
+        LsmEntry lastEntry = null;
+        while (cellIter.hasNext()) {
+            LsmEntry curEntry = cellIter.next();
+            if (curEntry.getKey().getTimestamp() >= timestamp) {
+                break;
+            }
+            lastEntry = curEntry;
+        }
+        if (lastEntry != null) {
+            result.put(Cell.create(row, col), toValue(lastEntry));
+        }
+    }
+
+    @Override
+    public Map<Cell, Value> get(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+        LsmTable table = getTable(tableRef);
+        Map<Cell, Value> result = Maps.newHashMap();
+        for (Map.Entry<Cell, Long> e : timestampByCell.entrySet()) {
+            Cell cell = e.getKey();
+            Iterator<LsmEntry> versions = table.scanCell(cell,
+                    VersionKey.of(cell, Long.MIN_VALUE), VersionKey.of(cell, e.getValue()));
+            if (versions.hasNext()) {
+                result.put(cell, toValue(Iterators.getLast(versions)));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<RangeRequest, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>> getFirstBatchForRanges(
+            TableReference tableRef,
+            Iterable<RangeRequest> rangeRequests,
+            long timestamp) {
+        return KeyValueServices.getFirstBatchForRangesUsingGetRange(this, tableRef, rangeRequests, timestamp);
+    }
+
+    @Override
+    public ClosableIterator<RowResult<Value>> getRange(
+            TableReference tableRef,
+            final RangeRequest range,
+            final long timestamp) {
+        return getRangeInternal(tableRef, range, entries -> {
+            LsmEntry lastEntry = null;
+            while (entries.hasNext()) {
+                LsmEntry entry = entries.next();
+                if (entry.getKey().getTimestamp() >= timestamp) {
+                    break;
+                }
+                lastEntry = entry;
+            }
+            return lastEntry != null ? toValue(lastEntry) : null;
+        });
+    }
+
+    @Override
+    public ClosableIterator<RowResult<Set<Long>>> getRangeOfTimestamps(
+            TableReference tableRef,
+            final RangeRequest range,
+            final long timestamp) {
+        return getRangeInternal(tableRef, range, entries -> {
+            Set<Long> timestamps = Sets.newTreeSet();
+            while (entries.hasNext()) {
+                LsmEntry entry = entries.next();
+                if (entry.getKey().getTimestamp() >= timestamp) {
+                    break;
+                }
+                timestamps.add(entry.getKey().getTimestamp());
+            }
+            return !timestamps.isEmpty() ? timestamps : null;
+        });
+    }
+
+    @Override
+    public ClosableIterator<List<CandidateCellForSweeping>> getCandidateCellsForSweeping(TableReference tableRef,
+            CandidateCellForSweepingRequest request) {
+        return new GetCandidateCellsForSweepingShim(this).getCandidateCellsForSweeping(tableRef, request);
+    }
+
+    private <T> ClosableIterator<RowResult<T>> getRangeInternal(TableReference tableRef,
+                                                                final RangeRequest range,
+                                                                final ResultProducer<T> resultProducer) {
+        if (range.isReverse()) {
+            throw new UnsupportedOperationException("The LSM key value service does not support reverse ranges");
+        }
+        VersionKey start = VersionKey.startOfRow(range.getStartInclusive());
+        VersionKey end = range.getEndExclusive().length != 0 ? VersionKey.startOfRow(range.getEndExclusive()) : null;
+        final PeekingIterator<LsmEntry> it = getTable(tableRef).scan(start, end);
+        return ClosableIterators.wrap(new AbstractIterator<RowResult<T>>() {
+            @Override
+            protected RowResult<T> computeNext() {
+                while (true) {
+                    if (!it.hasNext()) {
+                        return endOfData();
+                    }
+                    ImmutableSortedMap.Builder<byte[], T> result = ImmutableSortedMap.orderedBy(
+                            UnsignedBytes.lexicographicalComparator());
+                    LsmEntry entry = it.peek();
+                    byte[] row = entry.getKey().getRow();
+                    collectValueForTimestamp(entry.getKey().getColumn(), takeCell(it, entry), result, range,
+                            resultProducer);
+
+                    while (it.hasNext() && it.peek().getKey().matchesRow(row)) {
+                        entry = it.peek();
+                        collectValueForTimestamp(entry.getKey().getColumn(), takeCell(it, entry), result, range,
+                                resultProducer);
+                    }
+                    SortedMap<byte[], T> columns = result.build();
+                    if (!columns.isEmpty()) {
+                        return RowResult.create(row, columns);
+                    }
+                }
+            }
+        });
+    }
+
+    private static Iterator<LsmEntry> takeCell(final PeekingIterator<LsmEntry> it, final LsmEntry entry) {
+        return new AbstractIterator<LsmEntry>() {
+            @Override
+            protected LsmEntry computeNext() {
+                if (it.hasNext() && it.peek().getKey().matchesCell(entry.getKey())) {
+                    return it.next();
+                }
+                return endOfData();
+            }
+        };
+    }
+
+    @Override
+    public Map<byte[], RowColumnRangeIterator> getRowsColumnRange(TableReference tableRef,
+                                                                  Iterable<byte[]> rows,
+                                                                  BatchColumnRangeSelection batchColumnRangeSelection,
+                                                                  long timestamp) {
+        Map<byte[], RowColumnRangeIterator> result = Maps.newHashMap();
+        LsmTable table = getTable(tableRef);
+
+        ColumnRangeSelection columnRangeSelection = new ColumnRangeSelection(
+                batchColumnRangeSelection.getStartCol(),
+                batchColumnRangeSelection.getEndCol());
+        for (byte[] row : rows) {
+            result.put(row, getColumnRangeForSingleRow(table, row, columnRangeSelection, timestamp));
+        }
+
+        return result;
+    }
+
+    @Override
+    public RowColumnRangeIterator getRowsColumnRange(TableReference tableRef,
+                                                     Iterable<byte[]> rows,
+                                                     ColumnRangeSelection columnRangeSelection,
+                                                     int cellBatchHint,
+                                                     long timestamp) {
+        LsmTable table = getTable(tableRef);
+        Iterator<RowColumnRangeIterator> rowColumnRanges =
+                Iterators.transform(rows.iterator(),
+                        row -> getColumnRangeForSingleRow(table, row, columnRangeSelection, timestamp));
+        return new LocalRowColumnRangeIterator(Iterators.concat(rowColumnRanges));
+    }
+
+    private RowColumnRangeIterator getColumnRangeForSingleRow(LsmTable table,
+                                                              byte[] row,
+                                                              ColumnRangeSelection columnRangeSelection,
+                                                              long timestamp) {
+        VersionKey rowBegin = columnRangeSelection.getStartCol().length > 0
+                ? new VersionKey(row, columnRangeSelection.getStartCol(), Long.MIN_VALUE)
+                : VersionKey.startOfRow(row);
+        VersionKey rowEnd = columnRangeSelection.getEndCol().length > 0
+                ? new VersionKey(row, columnRangeSelection.getEndCol(), Long.MIN_VALUE)
+                : VersionKey.endOfRow(row);
+        PeekingIterator<LsmEntry> entries = table.scan(rowBegin, rowEnd);
+        Map<Cell, Value> rowResults = new LinkedHashMap<>();
+        while (entries.hasNext()) {
+            LsmEntry entry = entries.peek();
+            getLatestVersionOfCell(row, entry.getKey().getColumn(), takeCell(entries, entry), timestamp, rowResults);
+        }
+        return new LocalRowColumnRangeIterator(rowResults.entrySet().iterator());
+    }
+
+    private interface ResultProducer<T> {
+        @Nullable T apply(Iterator<LsmEntry> timestampValues);
+    }
+
+    private static <T> void collectValueForTimestamp(byte[] col,
+                                                     Iterator<LsmEntry> timestampValues,
+                                                     @Output ImmutableSortedMap.Builder<byte[], T> results,
+                                                     RangeRequest range,
+                                                     ResultProducer<T> resultProducer) {
+        T result = null;
+        if (range.containsColumn(col)) {
+            result = resultProducer.apply(timestampValues);
+        }
+
+        // exhaust remaining entries
+        Iterators.size(timestampValues);
+        if (result != null) {
+            results.put(col, result);
+        }
+    }
+
+    @Override
+    public void put(TableReference tableRef, Map<Cell, byte[]> values, long timestamp) {
+        putInternal(tableRef, KeyValueServices.toConstantTimestampValues(values.entrySet(), timestamp));
+    }
+
+    @Override
+    public void putWithTimestamps(TableReference tableRef, Multimap<Cell, Value> values) {
+        putInternal(tableRef, values.entries());
+    }
+
+    private void putInternal(TableReference tableRef, Collection<Map.Entry<Cell, Value>> values) {
+        List<LsmEntry> entries = Lists.newArrayListWithCapacity(values.size());
+        for (Map.Entry<Cell, Value> e : values) {
+            entries.add(LsmEntry.value(VersionKey.of(e.getKey(), e.getValue().getTimestamp()),
+                    e.getValue().getContents()));
+        }
+        getTable(tableRef).write(entries);
+    }
+
+    @Override
+    public void putUnlessExists(TableReference tableRef, Map<Cell, byte[]> values)
+            throws KeyAlreadyExistsException {
+        LsmTable table = getTable(tableRef);
+        List<LsmEntry> entries = Lists.newArrayListWithCapacity(values.size());
+        for (Map.Entry<Cell, byte[]> e : values.entrySet()) {
+            entries.add(LsmEntry.value(VersionKey.of(e.getKey(), AtlasDbConstants.TRANSACTION_TS), e.getValue()));
+        }
+        synchronized (table) {
+            table.awaitFlushCapacity();
+            for (LsmEntry entry : entries) {
+                if (table.get(entry.getKey()) != null) {
+                    throw new KeyAlreadyExistsException("We already have a value for this timestamp",
+                            ImmutableList.of(entry.getKey().toCell()));
+                }
+            }
+            table.write(entries);
+        }
+    }
+
+    @Override
+    public void checkAndSet(CheckAndSetRequest request) throws CheckAndSetException {
+        TableReference tableRef = request.table();
+        LsmTable table = getTable(tableRef);
+        Cell cell = request.cell();
+        Optional<byte[]> oldValue = request.oldValue();
+        VersionKey key = VersionKey.of(cell, AtlasDbConstants.TRANSACTION_TS);
+        synchronized (table) {
+            table.awaitFlushCapacity();
+            byte[] existing = table.get(key);
+            boolean matches = oldValue.isPresent()
+                    ? existing != null && Arrays.equals(existing, oldValue.get())
+                    : existing == null;
+            if (!matches) {
+                List<byte[]> actuals = existing == null ? ImmutableList.of() : ImmutableList.of(existing);
+                throw new CheckAndSetException(cell, tableRef, oldValue.orElse(null), actuals);
+            }
+            table.write(ImmutableList.of(LsmEntry.value(key, request.newValue())));
+        }
+    }
+
+    @Override
+    public void delete(TableReference tableRef, Multimap<Cell, Long> keys) {
+        List<LsmEntry> tombstones = Lists.newArrayListWithCapacity(keys.size());
+        for (Map.Entry<Cell, Long> e : keys.entries()) {
+            tombstones.add(LsmEntry.tombstone(VersionKey.of(e.getKey(), e.getValue())));
+        }
+        getTable(tableRef).write(tombstones);
+    }
+
+    @Override
+    public Multimap<Cell, Long> getAllTimestamps(TableReference tableRef, Set<Cell> cells, long ts) {
+        Multimap<Cell, Long> multimap = HashMultimap.create();
+        LsmTable table = getTable(tableRef);
+        for (Cell cell : cells) {
+            Iterator<LsmEntry> versions = table.scanCell(cell,
+                    VersionKey.of(cell, Long.MIN_VALUE), VersionKey.of(cell, ts));
+            while (versions.hasNext()) {
+                multimap.put(cell, versions.next().getKey().getTimestamp());
+            }
+        }
+        return multimap;
+    }
+
+    @Override
+    public void dropTable(TableReference tableRef) {
+        synchronized (tables) {
+            LsmTable table = tables.remove(tableRef);
+            tableMetadata.remove(tableRef);
+            if (table == null) {
+                return;
+            }
+            table.drop();
+            Path directory = getTableDirectory(tableRef);
+            try {
+                Files.deleteIfExists(directory.resolve(METADATA_FILE_NAME));
+                Files.deleteIfExists(directory);
+            } catch (IOException e) {
+                throw Throwables.rewrapAndThrowUncheckedException("Could not delete " + directory, e);
+            }
+        }
+    }
+
+    @Override
+    public void truncateTable(TableReference tableRef) {
+        LsmTable table = tables.get(tableRef);
+        if (table != null) {
+            table.truncate();
+        } else {
+            throw new IllegalStateException(
+                    String.format("Truncate called on a table (%s) that did not exist", tableRef));
+        }
+    }
+
+    @Override
+    public void createTable(TableReference tableRef, byte[] metadata) {
+        synchronized (tables) {
+            if (!tables.containsKey(tableRef)) {
+                Path directory = getTableDirectory(tableRef);
+                writeMetadata(directory, metadata);
+                tables.put(tableRef, LsmTable.open(directory, config, flushExecutor, compactionExecutor));
+            }
+            putMetadataForTable(tableRef, metadata);
+        }
+    }
+
+    @Override
+    public void putMetadataForTable(TableReference tableRef, byte[] metadata) {
+        synchronized (tables) {
+            if (!tables.containsKey(tableRef)) {
+                throw new IllegalArgumentException("No such table " + tableRef);
+            }
+            writeMetadata(getTableDirectory(tableRef), metadata);
+            tableMetadata.put(tableRef, metadata);
+        }
+    }
+
+    private static void writeMetadata(Path directory, byte[] metadata) {
+        try {
+            Files.createDirectories(directory);
+            Path tempFile = directory.resolve(METADATA_FILE_NAME + LsmTable.TEMP_FILE_SUFFIX);
+            Files.write(tempFile, metadata);
+            Files.move(tempFile, directory.resolve(METADATA_FILE_NAME),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw Throwables.rewrapAndThrowUncheckedException("Could not write the metadata in " + directory, e);
+        }
+    }
+
+    @Override
+    public byte[] getMetadataForTable(TableReference tableRef) {
+        if (!tables.containsKey(tableRef)) {
+            return AtlasDbConstants.EMPTY_TABLE_METADATA;
+        }
+        byte[] ret = tableMetadata.get(tableRef);
+        return ret == null ? ArrayUtils.EMPTY_BYTE_ARRAY : ret;
+    }
+
+    @Override
+    public Set<TableReference> getAllTableNames() {
+        return ImmutableSet.copyOf(tables.keySet());
+    }
+
+    private LsmTable getTable(TableReference tableRef) {
+        LsmTable table = tables.get(tableRef);
+        if (table == null) {
+            throw new IllegalArgumentException("table " + tableRef.getQualifiedName() + " does not exist");
+        }
+        return table;
+    }
+
+    private Path getTableDirectory(TableReference tableRef) {
+        String name = tableRef.getQualifiedName();
+        Preconditions.checkArgument(TABLE_DIRECTORY_NAME.matcher(name).matches()
+                        && !name.equals(".") && !name.equals(".."),
+                "Table name %s cannot be used as a directory name", name);
+        return dataDirectory.resolve(name);
+    }
+
+    @Override
+    public void addGarbageCollectionSentinelValues(TableReference tableRef, Iterable<Cell> cells) {
+        List<LsmEntry> sentinels = Lists.newArrayList();
+        for (Cell cell : cells) {
+            sentinels.add(LsmEntry.value(VersionKey.of(cell, Value.INVALID_VALUE_TIMESTAMP),
+                    ArrayUtils.EMPTY_BYTE_ARRAY));
+        }
+        getTable(tableRef).write(sentinels);
+    }
+
+    /**
+     * Flushes the memtable of the table and merges all of its segments, dropping deleted versions.
+     */
+    @Override
+    public void compactInternally(TableReference tableRef) {
+        LsmTable table = getTable(tableRef);
+        table.flush();
+        table.compact();
+    }
+
+    @Override
+    public ClusterAvailabilityStatus getClusterAvailabilityStatus() {
+        return ClusterAvailabilityStatus.ALL_AVAILABLE;
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        synchronized (tables) {
+            tables.values().forEach(LsmTable::close);
+            tables.clear();
+            tableMetadata.clear();
+        }
+        flushExecutor.shutdownNow();
+        compactionExecutor.shutdownNow();
+    }
+
+    private static Value toValue(LsmEntry entry) {
+        return Value.create(entry.getContents(), entry.getKey().getTimestamp());
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.lsm;
+
+import java.io.File;
+import java.util.Optional;
+
+import org.immutables.value.Value;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.google.auto.service.AutoService;
+import com.google.common.base.Preconditions;
+import com.palantir.atlasdb.spi.KeyValueServiceConfig;
+
+@AutoService(KeyValueServiceConfig.class)
+@JsonDeserialize(as = ImmutableLsmKeyValueServiceConfig.class)
+@JsonSerialize(as = ImmutableLsmKeyValueServiceConfig.class)
+@JsonTypeName(LsmKeyValueServiceConfig.TYPE)
+@Value.Immutable
+public abstract class LsmKeyValueServiceConfig implements KeyValueServiceConfig {
+    public static final String TYPE = "lsm";
+
+    @Override
+    @JsonIgnore
+    @Value.Derived
+    public Optional<String> namespace() {
+        return Optional.empty();
+    }
+
+    @Override
+    public final String type() {
+        return TYPE;
+    }
+
+    /**
+     * The directory that the tables are stored in. Each table is stored in a subdirectory of its own.
+     */
+    public abstract File dataDirectory();
+
+    /**
+     * The approximate number of bytes written to a table after which its memtable is flushed to a new segment.
+     * Writes of up to this many bytes per table are held on the heap, and replayed from the log after a crash.
+     */
+    @Value.Default
+    public long memtableFlushThresholdBytes() {
+        return 64 * 1024 * 1024;
+    }
+
+    /**
+     * Whether each write is forced to disk before it returns. Turning this off makes writes faster, but writes made
+     * shortly before the machine (rather than the process) crashes may then be lost.
+     */
+    @Value.Default
+    public boolean syncWrites() {
+        return true;
+    }
+
+    /**
+     * The number of segments a table may have before they are merged in the background.
+     */
+    @Value.Default
+    public int maxSegmentsBeforeCompaction() {
+        return 8;
+    }
+
+    @Override
+    @Value.Default
+    public int concurrentGetRangesThreadPoolSize() {
+        return 64;
+    }
+
+    @Value.Check
+    void check() {
+        Preconditions.checkArgument(memtableFlushThresholdBytes() > 0,
+                "memtableFlushThresholdBytes must be positive");
+        Preconditions.checkArgument(maxSegmentsBeforeCompaction() > 0,
+                "maxSegmentsBeforeCompaction must be positive");
+    }
+}
@@ -0,0 +1,579 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.lsm;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.PeekingIterator;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.common.base.Throwables;
+
+/**
+ * The versions of a single table, stored as a log-structured merge tree in a directory of its own.
+ * <p>
+ * Writes are appended to a {@link WriteAheadLog} and then applied to a sorted in-memory memtable. Once the memtable
+ * holds more than the flush threshold, it is frozen and replaced by a new memtable and log, and a background thread
+ * writes it out as a new {@link Segment} and deletes its log. Writers only wait for flushes if
+ * {@value #MAX_FLUSHING_MEMTABLES} frozen memtables are already waiting to be written. Reads merge the memtables with
+ * every segment, newest first, so that the latest write or tombstone of a version wins. Point reads skip the segments
+ * whose bloom filters rule out the cell being read.
+ * <p>
+ * Once there are more segments than the configured maximum, they are merged in the background into a single run of
+ * segments. As the merge covers every segment of the table, tombstones, and the versions they hide, are dropped.
+ * Every other version is kept, including the sentinels that sweep leaves behind, since only sweep knows which
+ * versions are no longer needed.
+ * <p>
+ * Each memtable, its log and the segment it is flushed to share a generation number, which orders segments from
+ * oldest to newest. A compaction writes its output at the generation of the newest segment it merged, with a higher
+ * part number, so that its output is older than anything flushed while it ran. If we crash before a memtable has been
+ * flushed, its log is replayed into a segment when the table is next opened.
+ */
+@ThreadSafe
+final class LsmTable implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(LsmTable.class);
+
+    static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final long MAX_SEGMENT_SIZE_BYTES = 1024 * 1024 * 1024;
+    private static final int MAX_FLUSHING_MEMTABLES = 2;
+
+    private static final Pattern SEGMENT_FILE_NAME = Pattern.compile("segment-(\\d+)-(\\d+)\\.sst");
+    private static final Pattern LOG_FILE_NAME = Pattern.compile("wal-(\\d+)\\.log");
+    private static final Comparator<Segment> NEWEST_FIRST = Comparator.comparingLong(Segment::getGeneration)
+            .thenComparingInt(Segment::getPart)
+            .reversed();
+    /**
+     * Marks a version as deleted in the memtable. Compared by identity.
+     */
+    private static final byte[] TOMBSTONE = new byte[0];
+
+    private final Path directory;
+    private final LsmKeyValueServiceConfig options;
+    private final Executor flushExecutor;
+    private final Executor compactionExecutor;
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean(false);
+    private final Object flushLock = new Object();
+    private final Object compactionLock = new Object();
+
+    private volatile State state;
+    @GuardedBy("this")
+    private long nextGeneration;
+    @GuardedBy("this")
+    private boolean closed = false;
+    @GuardedBy("this")
+    private RuntimeException flushFailure = null;
+
+    private LsmTable(Path directory, LsmKeyValueServiceConfig options, Executor flushExecutor,
+                     Executor compactionExecutor, List<Segment> segments, long generation) throws IOException {
+        this.directory = directory;
+        this.options = options;
+        this.flushExecutor = flushExecutor;
+        this.compactionExecutor = compactionExecutor;
+        this.nextGeneration = generation + 1;
+        this.state = new State(newMemtable(generation), ImmutableList.of(), ImmutableList.copyOf(segments));
+    }
+
+    /**
+     * Opens the table in the given directory, creating the directory if needed. Logs left behind by a crash are
+     * replayed into segments, and partly written segments are deleted.
+     */
+    static LsmTable open(Path directory, LsmKeyValueServiceConfig options, Executor flushExecutor,
+                         Executor compactionExecutor) {
+        try {
+            Files.createDirectories(directory);
+            List<Segment> segments = Lists.newArrayList();
+            List<Long> logGenerations = Lists.newArrayList();
+            long maxGeneration = -1;
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) {
+                    String fileName = file.getFileName().toString();
+                    Matcher segmentName = SEGMENT_FILE_NAME.matcher(fileName);
+                    Matcher logName = LOG_FILE_NAME.matcher(fileName);
+                    if (fileName.endsWith(TEMP_FILE_SUFFIX)) {
+                        Files.delete(file);
+                    } else if (segmentName.matches()) {
+                        long generation = Long.parseLong(segmentName.group(1));
+                        segments.add(Segment.open(file, generation, Integer.parseInt(segmentName.group(2))));
+                        maxGeneration = Math.max(maxGeneration, generation);
+                    } else if (logName.matches()) {
+                        long generation = Long.parseLong(logName.group(1));
+                        logGenerations.add(generation);
+                        maxGeneration = Math.max(maxGeneration, generation);
+                    }
+                }
+            }
+            for (long generation : logGenerations) {
+                Path logPath = directory.resolve(logFileName(generation));
+                if (segments.stream().noneMatch(segment -> segment.getGeneration() == generation)) {
+                    replay(logPath, generation, segments);
+                }
+                Files.delete(logPath);
+            }
+            segments.sort(NEWEST_FIRST);
+            return new LsmTable(directory, options, flushExecutor, compactionExecutor, segments, maxGeneration + 1);
+        } catch (IOException e) {
+            throw Throwables.rewrapAndThrowUncheckedException("Could not open the table in " + directory, e);
+        }
+    }
+
+    private static void replay(Path logPath, long generation, List<Segment> segments) throws IOException {
+        NavigableMap<VersionKey, LsmEntry> entries = Maps.newTreeMap();
+        for (LsmEntry entry : WriteAheadLog.replay(logPath)) {
+            entries.put(entry.getKey(), entry);
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+        log.info("Replaying {} entries from {} into a new segment", entries.size(), logPath);
+        Path segmentPath = logPath.resolveSibling(segmentFileName(generation, 0));
+        try (Segment.Writer writer = new Segment.Writer(segmentPath, entries.size())) {
+            for (LsmEntry entry : entries.values()) {
+                writer.append(entry);
+            }
+            segments.add(writer.finish(generation, 0));
+        }
+    }
+
+    /**
+     * Returns the entries with keys at or after the first key and before the second, in key order. Versions that
+     * have been deleted are left out.
+     */
+    PeekingIterator<LsmEntry> scan(VersionKey fromInclusive, @Nullable VersionKey toExclusive) {
+        return scan(fromInclusive, toExclusive, null);
+    }
+
+    /**
+     * Returns the versions of the given cell with keys at or after the first key and before the second, in key order.
+     * Unlike {@link #scan(VersionKey, VersionKey)}, this skips the segments that cannot hold the cell.
+     */
+    PeekingIterator<LsmEntry> scanCell(Cell cell, VersionKey fromInclusive, @Nullable VersionKey toExclusive) {
+        return scan(fromInclusive, toExclusive, cell);
+    }
+
+    private PeekingIterator<LsmEntry> scan(VersionKey fromInclusive, @Nullable VersionKey toExclusive,
+                                           @Nullable Cell cell) {
+        State current = state;
+        List<Iterator<LsmEntry>> sources = Lists.newArrayListWithCapacity(
+                current.flushing.size() + current.segments.size() + 1);
+        sources.add(current.memtable.scan(fromInclusive, toExclusive));
+        for (Memtable memtable : current.flushing) {
+            sources.add(memtable.scan(fromInclusive, toExclusive));
+        }
+        for (Segment segment : current.segments) {
+            if (cell == null || segment.mightContain(cell)) {
+                sources.add(segment.scan(fromInclusive, toExclusive));
+            }
+        }
+        return Iterators.peekingIterator(Iterators.filter(new MergingIterator(sources), entry -> !entry.isTombstone()));
+    }
+
+    /**
+     * Returns the contents of the given version, or null if there is no such version.
+     */
+    @Nullable
+    byte[] get(VersionKey key) {
+        Iterator<LsmEntry> entries = scanCell(key.toCell(), key, null);
+        if (entries.hasNext()) {
+            LsmEntry entry = entries.next();
+            if (entry.getKey().equals(key)) {
+                return entry.getContents();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Durably writes the given entries, which may be tombstones, replacing any versions with the same keys.
+     */
+    synchronized void write(List<LsmEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        awaitFlushCapacity();
+        Memtable memtable = state.memtable;
+        try {
+            memtable.log.append(entries);
+        } catch (IOException e) {
+            throw Throwables.rewrapAndThrowUncheckedException("Could not write to the log in " + directory, e);
+        }
+        for (LsmEntry entry : entries) {
+            memtable.entries.put(entry.getKey(), entry.isTombstone() ? TOMBSTONE : entry.getContents());
+            memtable.sizeInBytes += entry.getSizeInBytes();
+        }
+        if (memtable.sizeInBytes >= options.memtableFlushThresholdBytes()) {
+            freezeMemtable();
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Waits until a write would not have to wait for memtables to be flushed. Callers that check the table before
+     * writing to it while holding its lock should call this first, as a write that has to wait releases the lock.
+     */
+    synchronized void awaitFlushCapacity() {
+        while (true) {
+            checkOpen();
+            if (state.flushing.size() < MAX_FLUSHING_MEMTABLES) {
+                return;
+            }
+            if (flushFailure != null) {
+                RuntimeException failure = flushFailure;
+                flushFailure = null;
+                scheduleFlush();
+                throw new IllegalStateException("Could not flush the memtables in " + directory, failure);
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw Throwables.rewrapAndThrowUncheckedException(
+                        "Interrupted while waiting for the memtables in " + directory + " to be flushed", e);
+            }
+        }
+    }
+
+    /**
+     * Writes the memtable, and any memtables waiting to be flushed, out to new segments.
+     */
+    void flush() {
+        synchronized (this) {
+            checkOpen();
+            if (!state.memtable.entries.isEmpty()) {
+                freezeMemtable();
+            }
+        }
+        flushFrozenMemtables();
+    }
+
+    @GuardedBy("this")
+    private void freezeMemtable() {
+        State current = state;
+        try {
+            state = new State(newMemtable(nextGeneration++), ImmutableList.<Memtable>builder()
+                    .add(current.memtable)
+                    .addAll(current.flushing)
+                    .build(), current.segments);
+        } catch (IOException e) {
+            throw Throwables.rewrapAndThrowUncheckedException("Could not start a new log in " + directory, e);
+        }
+    }
+
+    private void scheduleFlush() {
+        flushExecutor.execute(() -> {
+            try {
+                flushFrozenMemtables();
+            } catch (RuntimeException e) {
+                log.warn("Background flush of {} failed", directory, e);
+                synchronized (this) {
+                    flushFailure = e;
+                    notifyAll();
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes each frozen memtable out to a new segment, oldest first, without blocking writers while we do so.
+     */
+    private void flushFrozenMemtables() {
+        synchronized (flushLock) {
+            while (true) {
+                Memtable memtable;
+                synchronized (this) {
+                    if (closed || state.flushing.isEmpty()) {
+                        return;
+                    }
+                    memtable = Iterables.getLast(state.flushing);
+                }
+                Path segmentPath = directory.resolve(segmentFileName(memtable.generation, 0));
+                try (Segment.Writer writer = new Segment.Writer(segmentPath, memtable.entries.size())) {
+                    for (Map.Entry<VersionKey, byte[]> entry : memtable.entries.entrySet()) {
+                        writer.append(toEntry(entry));
+                    }
+                    installFlushed(memtable, writer.finish(memtable.generation, 0));
+                    memtable.log.close();
+                    Files.delete(directory.resolve(logFileName(memtable.generation)));
+                } catch (IOException e) {
+                    throw Throwables.rewrapAndThrowUncheckedException(
+                            "Could not flush the memtable in " + directory, e);
+                }
+                maybeScheduleCompaction();
+            }
+        }
+    }
+
+    private synchronized void installFlushed(Memtable memtable, Segment segment) {
+        State current = state;
+        state = new State(current.memtable,
+                ImmutableList.copyOf(Iterables.filter(current.flushing, frozen -> frozen != memtable)),
+                ImmutableList.<Segment>builder()
+                        .add(segment)
+                        .addAll(current.segments)
+                        .build());
+        flushFailure = null;
+        notifyAll();
+    }
+
+    private void maybeScheduleCompaction() {
+        if (state.segments.size() > options.maxSegmentsBeforeCompaction()
+                && compactionScheduled.compareAndSet(false, true)) {
+            compactionExecutor.execute(() -> {
+                try {
+                    compact();
+                } catch (RuntimeException e) {
+                    log.warn("Background compaction of {} failed", directory, e);
+                } finally {
+                    compactionScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Merges every segment of the table into a new run of segments, dropping tombstones and the versions they hide.
+     * If the table is flushed while we merge, the new segments are simply newer than the merged ones. If it is
+     * truncated or closed, the merged segments are thrown away.
+     */
+    void compact() {
+        synchronized (compactionLock) {
+            compactSegments(state.segments);
+        }
+    }
+
+    @GuardedBy("compactionLock")
+    private void compactSegments(List<Segment> inputs) {
+        if (inputs.isEmpty()) {
+            return;
+        }
+        long generation = inputs.get(0).getGeneration();
+        int part = inputs.get(0).getPart();
+        long remainingEntries = inputs.stream().mapToLong(Segment::getEntryCount).sum();
+        long inputBytes = inputs.stream().mapToLong(Segment::getSizeInBytes).sum();
+        long entriesPerOutput = inputBytes <= MAX_SEGMENT_SIZE_BYTES
+                ? remainingEntries
+                : (long) Math.ceil((double) remainingEntries * MAX_SEGMENT_SIZE_BYTES / inputBytes);
+
+        List<Segment> outputs = Lists.newArrayList();
+        try {
+            Iterator<LsmEntry> merged = Iterators.filter(
+                    new MergingIterator(Lists.transform(inputs, Segment::scanAll)),
+                    entry -> !entry.isTombstone());
+            while (merged.hasNext()) {
+                part++;
+                Path segmentPath = directory.resolve(segmentFileName(generation, part));
+                long expectedEntries = Math.min(remainingEntries, entriesPerOutput);
+                try (Segment.Writer writer = new Segment.Writer(segmentPath, expectedEntries)) {
+                    while (merged.hasNext() && writer.getSizeInBytes() < MAX_SEGMENT_SIZE_BYTES) {
+                        writer.append(merged.next());
+                    }
+                    Segment output = writer.finish(generation, part);
+                    remainingEntries = Math.max(0, remainingEntries - output.getEntryCount());
+                    outputs.add(0, output);
+                }
+            }
+            if (install(inputs, outputs)) {
+                deleteSegments(inputs);
+            } else {
+                deleteSegments(outputs);
+            }
+        } catch (IOException e) {
+            throw Throwables.rewrapAndThrowUncheckedException("Could not compact the segments in " + directory, e);
+        }
+    }
+
+    private synchronized boolean install(List<Segment> inputs, List<Segment> outputs) {
+        List<Segment> segments = state.segments;
+        int firstInput = segments.size() - inputs.size();
+        if (closed || firstInput < 0 || !segments.subList(firstInput, segments.size()).equals(inputs)) {
+            return false;
+        }
+        state = new State(state.memtable, state.flushing, ImmutableList.<Segment>builder()
+                .addAll(segments.subList(0, firstInput))
+                .addAll(outputs)
+                .build());
+        return true;
+    }
+
+    /**
+     * Deletes every version in the table.
+     */
+    void truncate() {
+        synchronized (flushLock) {
+            synchronized (this) {
+                checkOpen();
+                try {
+                    closeLogs();
+                    deleteFiles();
+                    state = new State(newMemtable(nextGeneration++), ImmutableList.of(), ImmutableList.of());
+                    notifyAll();
+                } catch (IOException e) {
+                    throw Throwables.rewrapAndThrowUncheckedException(
+                            "Could not truncate the table in " + directory, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes the table and deletes its files, once any running compaction has finished.
+     */
+    void drop() {
+        synchronized (compactionLock) {
+            close();
+            try {
+                deleteFiles();
+            } catch (IOException e) {
+                throw Throwables.rewrapAndThrowUncheckedException("Could not drop the table in " + directory, e);
+            }
+        }
+    }
+
+    /**
+     * Closes the table, once any running flush has finished. Memtables that have not been flushed yet are replayed
+     * from their logs when the table is next opened.
+     */
+    @Override
+    public void close() {
+        synchronized (flushLock) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                notifyAll();
+                try {
+                    closeLogs();
+                } catch (IOException e) {
+                    throw Throwables.rewrapAndThrowUncheckedException("Could not close the logs in " + directory, e);
+                }
+            }
+        }
+    }
+
+    @GuardedBy("this")
+    private void closeLogs() throws IOException {
+        state.memtable.log.close();
+        for (Memtable memtable : state.flushing) {
+            memtable.log.close();
+        }
+    }
+
+    @GuardedBy("this")
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The table in " + directory + " has been closed");
+        }
+    }
+
+    private Memtable newMemtable(long generation) throws IOException {
+        return new Memtable(generation, WriteAheadLog.create(directory.resolve(logFileName(generation)),
+                options.syncWrites(), WriteAheadLog.DEFAULT_REGION_SIZE_BYTES));
+    }
+
+    private void deleteFiles() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                if (SEGMENT_FILE_NAME.matcher(fileName).matches() || LOG_FILE_NAME.matcher(fileName).matches()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private static void deleteSegments(List<Segment> segments) throws IOException {
+        for (Segment segment : segments) {
+            Files.deleteIfExists(segment.getPath());
+        }
+    }
+
+    private static LsmEntry toEntry(Map.Entry<VersionKey, byte[]> entry) {
+        return entry.getValue() == TOMBSTONE
+                ? LsmEntry.tombstone(entry.getKey())
+                : LsmEntry.value(entry.getKey(), entry.getValue());
+    }
+
+    private static String segmentFileName(long generation, int part) {
+        return "segment-" + generation + "-" + part + ".sst";
+    }
+
+    private static String logFileName(long generation) {
+        return "wal-" + generation + ".log";
+    }
+
+    /**
+     * The memtable that writes go to, the frozen memtables waiting to be flushed, and the segments of the table, each
+     * newest first.
+     */
+    private static final class State {
+        private final Memtable memtable;
+        private final List<Memtable> flushing;
+        private final List<Segment> segments;
+
+        State(Memtable memtable, List<Memtable> flushing, List<Segment> segments) {
+            this.memtable = memtable;
+            this.flushing = flushing;
+            this.segments = segments;
+        }
+    }
+
+    /**
+     * The versions written since the last flush, and the log they were written to. Compared by identity.
+     */
+    private static final class Memtable {
+        private final long generation;
+        private final ConcurrentSkipListMap<VersionKey, byte[]> entries = new ConcurrentSkipListMap<>();
+        private final WriteAheadLog log;
+        private long sizeInBytes = 0;
+
+        Memtable(long generation, WriteAheadLog log) {
+            this.generation = generation;
+            this.log = log;
+        }
+
+        Iterator<LsmEntry> scan(VersionKey fromInclusive, @Nullable VersionKey toExclusive) {
+            NavigableMap<VersionKey, byte[]> range = toExclusive == null
+                    ? entries.tailMap(fromInclusive, true)
+                    : entries.subMap(fromInclusive, true, toExclusive, false);
+            return Iterators.transform(range.entrySet().iterator(), LsmTable::toEntry);
+        }
+    }
+}
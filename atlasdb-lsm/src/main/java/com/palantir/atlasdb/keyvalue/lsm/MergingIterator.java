@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.lsm;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+
+/**
+ * Merges sorted iterators of entries into a single sorted iterator.
+ * <p>
+ * The sources are given newest first. Where several sources hold an entry with the same key, only the entry of the
+ * newest source is returned, so that a newer write or tombstone hides the older versions it replaced.
+ */
+final class MergingIterator extends AbstractIterator<LsmEntry> {
+    private final PriorityQueue<Source> sources;
+
+    MergingIterator(List<Iterator<LsmEntry>> newestFirst) {
+        this.sources = new PriorityQueue<>(Math.max(1, newestFirst.size()),
+                Comparator.comparing((Source source) -> source.entries.peek().getKey())
+                        .thenComparingInt(source -> source.priority));
+        for (int i = 0; i < newestFirst.size(); i++) {
+            Source source = new Source(Iterators.peekingIterator(newestFirst.get(i)), i);
+            if (source.entries.hasNext()) {
+                sources.add(source);
+            }
+        }
+    }
+
+    @Override
+    protected LsmEntry computeNext() {
+        Source newest = sources.poll();
+        if (newest == null) {
+            return endOfData();
+        }
+        LsmEntry entry = newest.entries.next();
+        while (!sources.isEmpty() && sources.peek().entries.peek().getKey().equals(entry.getKey())) {
+            Source shadowed = sources.poll();
+            shadowed.entries.next();
+            requeue(shadowed);
+        }
+        requeue(newest);
+        return entry;
+    }
+
+    private void requeue(Source source) {
+        if (source.entries.hasNext()) {
+            sources.add(source);
+        }
+    }
+
+    private static final class Source {
+        private final PeekingIterator<LsmEntry> entries;
+        private final int priority;
+
+        Source(PeekingIterator<LsmEntry> entries, int priority) {
+            this.entries = entries;
+            this.priority = priority;
+        }
+    }
+}
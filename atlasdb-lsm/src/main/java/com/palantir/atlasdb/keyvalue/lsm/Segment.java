@@ -0,0 +1,339 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.lsm;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Lists;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import com.google.common.io.CountingOutputStream;
+import com.google.common.primitives.Ints;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+
+/**
+ * An immutable, sorted file of entries, read through a read-only memory mapping.
+ * <p>
+ * A segment holds its entries in key order, followed by a sparse index with the key and offset of every
+ * {@value #INDEX_INTERVAL}th entry, a bloom filter over the cells of its entries, and a fixed-size footer giving the
+ * offsets of the index and bloom filter. Only the index and bloom filter are kept on the heap; entries are decoded
+ * from the mapping as they are read.
+ */
+final class Segment {
+    static final int INDEX_INTERVAL = 32;
+
+    private static final long MAGIC = 0x41746c61734c534dL;
+    private static final int FOOTER_SIZE = 4 * Long.BYTES;
+    private static final int TOMBSTONE_LENGTH = -1;
+    private static final int WRITE_BUFFER_SIZE_BYTES = 64 * 1024;
+    private static final double BLOOM_FILTER_FALSE_POSITIVE_RATE = 0.01;
+    private static final Funnel<Cell> CELL_FUNNEL = (cell, sink) -> sink
+            .putInt(cell.getRowName().length)
+            .putBytes(cell.getRowName())
+            .putBytes(cell.getColumnName());
+
+    private final Path path;
+    private final long generation;
+    private final int part;
+    private final ByteBuffer entries;
+    private final long entryCount;
+    private final VersionKey[] indexKeys;
+    private final int[] indexOffsets;
+    private final BloomFilter<Cell> bloomFilter;
+
+    private Segment(Path path, long generation, int part, ByteBuffer entries, long entryCount,
+                    VersionKey[] indexKeys, int[] indexOffsets, BloomFilter<Cell> bloomFilter) {
+        this.path = path;
+        this.generation = generation;
+        this.part = part;
+        this.entries = entries;
+        this.entryCount = entryCount;
+        this.indexKeys = indexKeys;
+        this.indexOffsets = indexOffsets;
+        this.bloomFilter = bloomFilter;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    int getPart() {
+        return part;
+    }
+
+    long getEntryCount() {
+        return entryCount;
+    }
+
+    long getSizeInBytes() {
+        return entries.capacity();
+    }
+
+    /**
+     * Returns false if the segment definitely holds no versions of the given cell.
+     */
+    boolean mightContain(Cell cell) {
+        return bloomFilter.mightContain(cell);
+    }
+
+    /**
+     * Returns the entries of this segment with keys at or after the first key and before the second, in key order.
+     */
+    Iterator<LsmEntry> scan(VersionKey fromInclusive, @Nullable VersionKey toExclusive) {
+        if (indexKeys.length == 0) {
+            return Collections.emptyIterator();
+        }
+        int indexPosition = Arrays.binarySearch(indexKeys, fromInclusive);
+        if (indexPosition < 0) {
+            indexPosition = Math.max(0, -indexPosition - 2);
+        }
+        ByteBuffer buffer = entries.duplicate();
+        buffer.position(indexOffsets[indexPosition]);
+        return new AbstractIterator<LsmEntry>() {
+            @Override
+            protected LsmEntry computeNext() {
+                while (buffer.hasRemaining()) {
+                    LsmEntry entry = readEntry(buffer);
+                    if (toExclusive != null && entry.getKey().compareTo(toExclusive) >= 0) {
+                        return endOfData();
+                    }
+                    if (entry.getKey().compareTo(fromInclusive) >= 0) {
+                        return entry;
+                    }
+                }
+                return endOfData();
+            }
+        };
+    }
+
+    /**
+     * Returns every entry of this segment, in key order.
+     */
+    Iterator<LsmEntry> scanAll() {
+        ByteBuffer buffer = entries.duplicate();
+        return new AbstractIterator<LsmEntry>() {
+            @Override
+            protected LsmEntry computeNext() {
+                return buffer.hasRemaining() ? readEntry(buffer) : endOfData();
+            }
+        };
+    }
+
+    /**
+     * Maps the segment at the given path, reading its index and bloom filter onto the heap.
+     */
+    static Segment open(Path path, long generation, int part) throws IOException {
+        ByteBuffer file;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE || channel.size() < FOOTER_SIZE) {
+                throw new IOException("Segment " + path + " has an invalid size of " + channel.size() + " bytes");
+            }
+            file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int footerOffset = file.capacity() - FOOTER_SIZE;
+        long indexOffset = file.getLong(footerOffset);
+        long bloomFilterOffset = file.getLong(footerOffset + Long.BYTES);
+        long entryCount = file.getLong(footerOffset + 2 * Long.BYTES);
+        if (file.getLong(footerOffset + 3 * Long.BYTES) != MAGIC
+                || indexOffset < 0 || indexOffset > bloomFilterOffset || bloomFilterOffset > footerOffset) {
+            throw new IOException("Segment " + path + " is corrupt");
+        }
+
+        ByteBuffer index = file.duplicate();
+        index.position((int) indexOffset).limit((int) bloomFilterOffset);
+        int indexSize = index.getInt();
+        VersionKey[] indexKeys = new VersionKey[indexSize];
+        int[] indexOffsets = new int[indexSize];
+        for (int i = 0; i < indexSize; i++) {
+            indexOffsets[i] = index.getInt();
+            indexKeys[i] = readEntry(index).getKey();
+        }
+
+        ByteBuffer bloomFilterBytes = file.duplicate();
+        bloomFilterBytes.position((int) bloomFilterOffset).limit(footerOffset);
+        BloomFilter<Cell> bloomFilter = BloomFilter.readFrom(new ByteBufferInputStream(bloomFilterBytes), CELL_FUNNEL);
+
+        ByteBuffer entries = file.duplicate();
+        entries.position(0).limit((int) indexOffset);
+        return new Segment(path, generation, part, entries.slice(), entryCount, indexKeys, indexOffsets, bloomFilter);
+    }
+
+    /**
+     * Forces the entries of the given directory to disk, so that a file moved into it survives a crash of the machine
+     * before we delete anything it replaces.
+     */
+    static void syncDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    private static LsmEntry readEntry(ByteBuffer buffer) {
+        byte[] row = new byte[buffer.getInt()];
+        byte[] col = new byte[buffer.getInt()];
+        long timestamp = buffer.getLong();
+        int contentsLength = buffer.getInt();
+        buffer.get(row).get(col);
+        VersionKey key = new VersionKey(row, col, timestamp);
+        if (contentsLength == TOMBSTONE_LENGTH) {
+            return LsmEntry.tombstone(key);
+        }
+        byte[] contents = new byte[contentsLength];
+        buffer.get(contents);
+        return LsmEntry.value(key, contents);
+    }
+
+    /**
+     * Writes a new segment to a temporary file, which is only moved to its final path once it has been completely
+     * written and forced to disk. The move itself is forced to disk before the segment is opened.
+     */
+    static final class Writer implements AutoCloseable {
+        private final Path path;
+        private final Path tempPath;
+        private final FileChannel channel;
+        private final CountingOutputStream counter;
+        private final DataOutputStream out;
+        private final BloomFilter<Cell> bloomFilter;
+        private final List<VersionKey> indexKeys = Lists.newArrayList();
+        private final List<Integer> indexOffsets = Lists.newArrayList();
+        private long entryCount = 0;
+        private VersionKey lastKey;
+        private boolean finished = false;
+
+        Writer(Path path, long expectedEntries) throws IOException {
+            this.path = path;
+            this.tempPath = path.resolveSibling(path.getFileName() + LsmTable.TEMP_FILE_SUFFIX);
+            this.channel = FileChannel.open(tempPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            this.counter = new CountingOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), WRITE_BUFFER_SIZE_BYTES));
+            this.out = new DataOutputStream(counter);
+            this.bloomFilter = BloomFilter.create(CELL_FUNNEL,
+                    Ints.saturatedCast(Math.max(1, expectedEntries)),
+                    BLOOM_FILTER_FALSE_POSITIVE_RATE);
+        }
+
+        long getSizeInBytes() {
+            return counter.getCount();
+        }
+
+        /**
+         * Appends an entry, whose key must be larger than the key of every entry appended before it.
+         */
+        void append(LsmEntry entry) throws IOException {
+            VersionKey key = entry.getKey();
+            Preconditions.checkArgument(lastKey == null || key.compareTo(lastKey) > 0,
+                    "Entries must be appended in key order, but %s came after %s", key, lastKey);
+            if (entryCount % INDEX_INTERVAL == 0) {
+                indexKeys.add(key);
+                indexOffsets.add(Ints.checkedCast(counter.getCount()));
+            }
+            writeKey(key, entry.isTombstone() ? TOMBSTONE_LENGTH : entry.getContents().length);
+            if (!entry.isTombstone()) {
+                out.write(entry.getContents());
+            }
+            bloomFilter.put(key.toCell());
+            lastKey = key;
+            entryCount++;
+        }
+
+        /**
+         * Finishes writing the segment, and opens it for reading.
+         */
+        Segment finish(long generation, int part) throws IOException {
+            long indexOffset = counter.getCount();
+            out.writeInt(indexKeys.size());
+            for (int i = 0; i < indexKeys.size(); i++) {
+                out.writeInt(indexOffsets.get(i));
+                writeKey(indexKeys.get(i), 0);
+            }
+            long bloomFilterOffset = counter.getCount();
+            bloomFilter.writeTo(out);
+            out.writeLong(indexOffset);
+            out.writeLong(bloomFilterOffset);
+            out.writeLong(entryCount);
+            out.writeLong(MAGIC);
+            out.flush();
+            channel.force(true);
+            out.close();
+            Files.move(tempPath, path, StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory(path.getParent());
+            finished = true;
+            return open(path, generation, part);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                out.close();
+                Files.deleteIfExists(tempPath);
+            }
+        }
+
+        private void writeKey(VersionKey key, int contentsLength) throws IOException {
+            out.writeInt(key.getRow().length);
+            out.writeInt(key.getColumn().length);
+            out.writeLong(key.getTimestamp());
+            out.writeInt(contentsLength);
+            out.write(key.getRow());
+            out.write(key.getColumn());
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int read = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, read);
+            return read;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.lsm;
+
+import java.util.Arrays;
+
+import com.google.common.io.BaseEncoding;
+import com.google.common.primitives.Bytes;
+import com.google.common.primitives.Longs;
+import com.google.common.primitives.UnsignedBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+
+/**
+ * A version of a cell: its row name, column name and timestamp. Keys sort by row, then column, then timestamp.
+ */
+final class VersionKey implements Comparable<VersionKey> {
+    private static final byte[] EMPTY = new byte[0];
+
+    private final byte[] row;
+    private final byte[] col;
+    private final long ts;
+
+    VersionKey(byte[] row, byte[] col, long ts) {
+        this.row = row;
+        this.col = col;
+        this.ts = ts;
+    }
+
+    static VersionKey of(Cell cell, long ts) {
+        return new VersionKey(cell.getRowName(), cell.getColumnName(), ts);
+    }
+
+    /**
+     * Returns the smallest key of the given row.
+     */
+    static VersionKey startOfRow(byte[] row) {
+        return new VersionKey(row, EMPTY, Long.MIN_VALUE);
+    }
+
+    /**
+     * Returns the smallest key that is larger than every key of the given row.
+     */
+    static VersionKey endOfRow(byte[] row) {
+        return startOfRow(Bytes.concat(row, new byte[] {0}));
+    }
+
+    byte[] getRow() {
+        return row;
+    }
+
+    byte[] getColumn() {
+        return col;
+    }
+
+    long getTimestamp() {
+        return ts;
+    }
+
+    Cell toCell() {
+        return Cell.create(row, col);
+    }
+
+    boolean matchesRow(byte[] otherRow) {
+        return Arrays.equals(row, otherRow);
+    }
+
+    boolean matchesCell(VersionKey other) {
+        return Arrays.equals(row, other.row) && Arrays.equals(col, other.col);
+    }
+
+    @Override
+    public int compareTo(VersionKey other) {
+        int comparison = UnsignedBytes.lexicographicalComparator().compare(row, other.row);
+        if (comparison != 0) {
+            return comparison;
+        }
+        comparison = UnsignedBytes.lexicographicalComparator().compare(col, other.col);
+        if (comparison != 0) {
+            return comparison;
+        }
+        return Longs.compare(ts, other.ts);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (other == null || getClass() != other.getClass()) {
+            return false;
+        }
+        VersionKey that = (VersionKey) other;
+        return ts == that.ts && Arrays.equals(row, that.row) && Arrays.equals(col, that.col);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Arrays.hashCode(row) + Arrays.hashCode(col)) + Longs.hashCode(ts);
+    }
+
+    @Override
+    public String toString() {
+        return "VersionKey [row=" + BaseEncoding.base16().lowerCase().encode(row)
+                + ", col=" + BaseEncoding.base16().lowerCase().encode(col)
+                + ", ts=" + ts + "]";
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.lsm;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.google.common.collect.Lists;
+
+/**
+ * An append-only log of the entries written to a table since its memtable was last flushed to a segment.
+ * <p>
+ * The log is written through memory-mapped regions of the file, so that an append is a copy into memory rather than
+ * a system call. Each entry is written as a record made up of the length and CRC32 checksum of its payload, then the
+ * payload itself. A record that does not fit into the rest of the current region is written to the start of a new
+ * one, and the rest of the current region is marked as skipped. When writes are synchronous, each append forces the
+ * region to disk before returning.
+ * <p>
+ * The file is zero-filled past the last record, and the first record with a length of zero or a checksum that does
+ * not match ends the log when it is replayed. A write that was torn by a crash is therefore dropped, along with
+ * everything after it.
+ */
+@NotThreadSafe
+final class WriteAheadLog implements Closeable {
+    static final int DEFAULT_REGION_SIZE_BYTES = 16 * 1024 * 1024;
+
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int SKIP_MARKER = -1;
+    private static final int TOMBSTONE_LENGTH = -1;
+
+    private final FileChannel channel;
+    private final boolean syncWrites;
+    private final int regionSizeBytes;
+    private MappedByteBuffer region;
+    private long regionStart;
+
+    private WriteAheadLog(FileChannel channel, boolean syncWrites, int regionSizeBytes) {
+        this.channel = channel;
+        this.syncWrites = syncWrites;
+        this.regionSizeBytes = regionSizeBytes;
+    }
+
+    /**
+     * Creates a new, empty log at the given path.
+     */
+    static WriteAheadLog create(Path path, boolean syncWrites, int regionSizeBytes) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new WriteAheadLog(channel, syncWrites, regionSizeBytes);
+    }
+
+    void append(List<LsmEntry> entries) throws IOException {
+        for (LsmEntry entry : entries) {
+            byte[] payload = encode(entry);
+            ensureCapacity(RECORD_HEADER_SIZE + payload.length);
+            region.putInt(payload.length);
+            region.putInt(checksum(payload));
+            region.put(payload);
+        }
+        if (syncWrites && region != null) {
+            region.force();
+        }
+    }
+
+    /**
+     * Makes sure that the current region has room for a record of the given size, and for a skip marker after it.
+     */
+    private void ensureCapacity(int recordSize) throws IOException {
+        if (region != null && region.remaining() >= recordSize + RECORD_HEADER_SIZE) {
+            return;
+        }
+        long nextRegionStart = 0;
+        if (region != null) {
+            region.putInt(SKIP_MARKER);
+            region.putInt(region.remaining() - Integer.BYTES);
+            region.force();
+            nextRegionStart = regionStart + region.capacity();
+        }
+        regionStart = nextRegionStart;
+        region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart,
+                Math.max(regionSizeBytes, recordSize + RECORD_HEADER_SIZE));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (region != null) {
+            region.force();
+        }
+        channel.close();
+    }
+
+    /**
+     * Reads back every intact record of the log at the given path, in the order that they were appended.
+     */
+    static List<LsmEntry> replay(Path path) throws IOException {
+        List<LsmEntry> entries = Lists.newArrayList();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Write ahead log " + path + " is too large to replay");
+            }
+            ByteBuffer log = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (log.remaining() >= RECORD_HEADER_SIZE) {
+                int length = log.getInt();
+                int checksum = log.getInt();
+                if (length == SKIP_MARKER) {
+                    if (checksum < 0 || checksum > log.remaining()) {
+                        break;
+                    }
+                    log.position(log.position() + checksum);
+                    continue;
+                }
+                if (length <= 0 || length > log.remaining()) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                log.get(payload);
+                if (checksum(payload) != checksum) {
+                    break;
+                }
+                entries.add(decode(payload));
+            }
+        }
+        return entries;
+    }
+
+    private static byte[] encode(LsmEntry entry) {
+        VersionKey key = entry.getKey();
+        int contentsLength = entry.isTombstone() ? 0 : entry.getContents().length;
+        ByteBuffer payload = ByteBuffer.allocate(3 * Integer.BYTES + Long.BYTES
+                + key.getRow().length + key.getColumn().length + contentsLength);
+        payload.putInt(key.getRow().length)
+                .putInt(key.getColumn().length)
+                .putLong(key.getTimestamp())
+                .putInt(entry.isTombstone() ? TOMBSTONE_LENGTH : contentsLength)
+                .put(key.getRow())
+                .put(key.getColumn());
+        if (!entry.isTombstone()) {
+            payload.put(entry.getContents());
+        }
+        return payload.array();
+    }
+
+    private static LsmEntry decode(byte[] bytes) {
+        ByteBuffer payload = ByteBuffer.wrap(bytes);
+        byte[] row = new byte[payload.getInt()];
+        byte[] col = new byte[payload.getInt()];
+        long timestamp = payload.getLong();
+        int contentsLength = payload.getInt();
+        payload.get(row).get(col);
+        VersionKey key = new VersionKey(row, col, timestamp);
+        if (contentsLength == TOMBSTONE_LENGTH) {
+            return LsmEntry.tombstone(key);
+        }
+        byte[] contents = new byte[contentsLength];
+        payload.get(contents);
+        return LsmEntry.value(key, contents);
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.lsm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.impl.AbstractKeyValueServiceTest;
+
+public class LsmKeyValueServiceTest extends AbstractKeyValueServiceTest {
+    @ClassRule
+    public static final TemporaryFolder TEMPORARY_FOLDER = new TemporaryFolder();
+
+    private static final long SMALL_FLUSH_THRESHOLD_BYTES = 4 * 1024;
+    private static final Cell SENTINEL_CELL = Cell.create(PtBytes.toBytes("sentinel"), column0);
+
+    @Override
+    protected KeyValueService getKeyValueService() {
+        return LsmKeyValueService.create(configFor(newFolder()));
+    }
+
+    @Override
+    protected boolean reverseRangesSupported() {
+        return false;
+    }
+
+    @Test
+    public void recoversUnflushedWritesFromTheLog() {
+        File dataDirectory = newFolder();
+        LsmKeyValueService kvs = LsmKeyValueService.create(configFor(dataDirectory));
+        kvs.createTable(TEST_TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        kvs.put(TEST_TABLE, ImmutableMap.of(TEST_CELL, value00), TEST_TIMESTAMP);
+        kvs.delete(TEST_TABLE, ImmutableMultimap.of(TEST_CELL, TEST_TIMESTAMP));
+        kvs.put(TEST_TABLE, ImmutableMap.of(TEST_CELL, value01), TEST_TIMESTAMP + 1);
+        kvs.close();
+
+        LsmKeyValueService reopened = LsmKeyValueService.create(configFor(dataDirectory));
+        assertThat(reopened.getAllTableNames()).containsExactly(TEST_TABLE);
+        assertThat(reopened.getMetadataForTable(TEST_TABLE)).isEqualTo(AtlasDbConstants.GENERIC_TABLE_METADATA);
+        assertThat(reopened.getAllTimestamps(TEST_TABLE, ImmutableSet.of(TEST_CELL), Long.MAX_VALUE).values())
+                .containsExactly(TEST_TIMESTAMP + 1);
+        assertThat(getLatest(reopened, TEST_CELL).getContents()).isEqualTo(value01);
+        reopened.close();
+    }
+
+    @Test
+    public void recoversMemtablesThatWereWaitingToBeFlushed() {
+        File dataDirectory = newFolder();
+        LsmKeyValueService kvs = LsmKeyValueService.create(configFor(dataDirectory));
+        kvs.createTable(TEST_TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        for (int i = 0; i < 1000; i++) {
+            Cell cell = Cell.create(PtBytes.toBytes("row" + i), column0);
+            kvs.put(TEST_TABLE, ImmutableMap.of(cell, value00), TEST_TIMESTAMP);
+        }
+        kvs.close();
+
+        LsmKeyValueService reopened = LsmKeyValueService.create(configFor(dataDirectory));
+        for (int i = 0; i < 1000; i++) {
+            Cell cell = Cell.create(PtBytes.toBytes("row" + i), column0);
+            assertThat(getLatest(reopened, cell).getContents()).isEqualTo(value00);
+        }
+        reopened.close();
+    }
+
+    @Test
+    public void compactionDropsDeletedVersionsButKeepsSentinels() {
+        File dataDirectory = newFolder();
+        LsmKeyValueService kvs = LsmKeyValueService.create(configFor(dataDirectory));
+        kvs.createTable(TEST_TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        for (int i = 0; i < 1000; i++) {
+            Cell cell = Cell.create(PtBytes.toBytes("row" + i), column0);
+            kvs.put(TEST_TABLE, ImmutableMap.of(cell, value00), TEST_TIMESTAMP);
+            kvs.delete(TEST_TABLE, ImmutableMultimap.of(cell, TEST_TIMESTAMP));
+            kvs.put(TEST_TABLE, ImmutableMap.of(cell, value01), TEST_TIMESTAMP + 1);
+        }
+        kvs.addGarbageCollectionSentinelValues(TEST_TABLE, ImmutableSet.of(SENTINEL_CELL));
+        kvs.compactInternally(TEST_TABLE);
+        kvs.close();
+
+        LsmKeyValueService reopened = LsmKeyValueService.create(configFor(dataDirectory));
+        Cell lastCell = Cell.create(PtBytes.toBytes("row999"), column0);
+        assertThat(reopened.getAllTimestamps(TEST_TABLE, ImmutableSet.of(lastCell), Long.MAX_VALUE).values())
+                .containsExactly(TEST_TIMESTAMP + 1);
+        assertThat(reopened.getAllTimestamps(TEST_TABLE, ImmutableSet.of(SENTINEL_CELL), Long.MAX_VALUE).values())
+                .containsExactly(Value.INVALID_VALUE_TIMESTAMP);
+        assertThat(getLatest(reopened, lastCell).getContents()).isEqualTo(value01);
+        reopened.close();
+    }
+
+    private static Value getLatest(KeyValueService kvs, Cell cell) {
+        Map<Cell, Value> result = kvs.get(TEST_TABLE, ImmutableMap.of(cell, Long.MAX_VALUE));
+        return result.get(cell);
+    }
+
+    private static LsmKeyValueServiceConfig configFor(File dataDirectory) {
+        return ImmutableLsmKeyValueServiceConfig.builder()
+                .dataDirectory(dataDirectory)
+                .memtableFlushThresholdBytes(SMALL_FLUSH_THRESHOLD_BYTES)
+                .maxSegmentsBeforeCompaction(2)
+                .syncWrites(false)
+                .build();
+    }
+
+    private static File newFolder() {
+        try {
+            return TEMPORARY_FOLDER.newFolder();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -37,6 +37,10 @@ public final class DockerizedDatabase implements Closeable {
     private static final String DOCKER_LOGS_DIR = "container-logs";
 
     public static DockerizedDatabase start(KeyValueServiceInstrumentation type) {
+        if (type.isEmbedded()) {
+            return new DockerizedDatabase(null, new DockerizedDatabaseUri(type,
+                    InetSocketAddress.createUnresolved("localhost", type.getKeyValueServicePort())));
+        }
         DockerComposeRule docker = DockerComposeRule.builder()
                 .file(getDockerComposeFileAbsolutePath(type.getDockerComposeResourceFileName()))
                 .waitingForHostNetworkedPort(type.getKeyValueServicePort(), toBeOpen())
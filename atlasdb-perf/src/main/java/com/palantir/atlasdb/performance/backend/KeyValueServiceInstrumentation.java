@@ -36,6 +36,7 @@ public abstract class KeyValueServiceInstrumentation {
     static {
         addNewBackendType(new CassandraKeyValueServiceInstrumentation());
         addNewBackendType(new PostgresKeyValueServiceInstrumentation());
+        addNewBackendType(new OffHeapKeyValueServiceInstrumentation());
     }
 
     KeyValueServiceInstrumentation(int kvsPort, String dockerComposeFileName) {
@@ -51,6 +52,14 @@ public abstract class KeyValueServiceInstrumentation {
         return kvsPort;
     }
 
+    /**
+     * Whether the key value service runs inside the benchmarking process, in which case there is no docker
+     * container to start, and the docker compose file name is null.
+     */
+    public boolean isEmbedded() {
+        return dockerComposeFileName == null;
+    }
+
     public abstract KeyValueServiceConfig getKeyValueServiceConfig(InetSocketAddress addr);
     public abstract boolean canConnect(InetSocketAddress addr);
 
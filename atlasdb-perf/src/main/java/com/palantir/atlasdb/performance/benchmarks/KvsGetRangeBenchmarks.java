@@ -19,6 +19,7 @@ package com.palantir.atlasdb.performance.benchmarks;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
@@ -30,6 +31,7 @@ import org.openjdk.jmh.annotations.Threads;
 import org.openjdk.jmh.annotations.Warmup;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.primitives.Ints;
@@ -37,6 +39,7 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.performance.benchmarks.table.ConsecutiveNarrowTable;
+import com.palantir.atlasdb.performance.benchmarks.table.WideRowsTable;
 import com.palantir.common.base.ClosableIterator;
 import com.palantir.util.paging.TokenBackedBasicResultsPage;
 
@@ -85,6 +88,18 @@ public class KvsGetRangeBenchmarks {
         return results;
     }
 
+    private Object getRangeOfColumnsInner(WideRowsTable table, List<byte[]> columns) {
+        RangeRequest request = RangeRequest.builder().retainColumns(columns).batchHint(1000).build();
+        ClosableIterator<RowResult<Value>> result =
+                table.getKvs().getRange(table.getTableRef(), request, Long.MAX_VALUE);
+        ArrayList<RowResult<Value>> list = Lists.newArrayList(result);
+        result.close();
+        Preconditions.checkState(list.size() == WideRowsTable.NUM_ROWS, "List size %s != %s",
+                WideRowsTable.NUM_ROWS, list.size());
+        list.forEach(rowResult -> Preconditions.checkState(rowResult.getColumns().size() == columns.size(),
+                "Row has %s columns, but %s were requested", rowResult.getColumns().size(), columns.size()));
+        return list;
+    }
 
     @Benchmark
     @Threads(1)
@@ -136,4 +151,23 @@ public class KvsGetRangeBenchmarks {
         return getMultiRangeInner(table);
     }
 
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 5, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 30, timeUnit = TimeUnit.SECONDS)
+    public Object getRangeOfOneColumnOfWideRows(WideRowsTable table) {
+        return getRangeOfColumnsInner(table, ImmutableList.of(WideRowsTable.getColumn(0)));
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 5, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 30, timeUnit = TimeUnit.SECONDS)
+    public Object getRangeOfThreeColumnsOfWideRows(WideRowsTable table) {
+        return getRangeOfColumnsInner(table, ImmutableList.of(
+                WideRowsTable.getColumn(0),
+                WideRowsTable.getColumn(7),
+                WideRowsTable.getColumn(15)));
+    }
+
 }
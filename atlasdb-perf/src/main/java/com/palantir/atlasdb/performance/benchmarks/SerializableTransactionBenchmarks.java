@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Ints;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.performance.benchmarks.table.SerializableNarrowTable;
+import com.palantir.atlasdb.performance.benchmarks.table.Tables;
+import com.palantir.common.base.BatchingVisitables;
+
+/**
+ * Compares the cost of read-write conflict checking for serializable transactions with full and compact read sets.
+ * Each transaction writes, so that its reads are verified when it commits.
+ */
+@State(Scope.Benchmark)
+public class SerializableTransactionBenchmarks {
+
+    private static final int READ_SIZE = 1000;
+
+    private Map<Cell, byte[]> readCellsAndRangeThenWriteInner(SerializableNarrowTable table) {
+        return table.getTransactionManager().runTaskThrowOnConflict(txn -> {
+            Set<Cell> request = table.getCellsRequest(READ_SIZE);
+            Map<Cell, byte[]> result = txn.get(table.getTableRef(), request);
+            Preconditions.checkState(result.size() == READ_SIZE,
+                    "expected %s cells, found %s cells", READ_SIZE, result.size());
+
+            RangeRequest rangeRequest = Iterables.getOnlyElement(table.getRangeRequests(1, READ_SIZE, false));
+            List<RowResult<byte[]>> rows = BatchingVisitables.copyToList(
+                    txn.getRange(table.getTableRef(), rangeRequest));
+            Preconditions.checkState(rows.size() == READ_SIZE,
+                    "Expected %s rows, found %s rows", READ_SIZE, rows.size());
+
+            Cell cellOutsideReads = Cell.create(
+                    Ints.toByteArray(table.getNumRows()), Tables.COLUMN_NAME_IN_BYTES.array());
+            byte[] value = PtBytes.toBytes(table.getRandom().nextInt());
+            txn.put(table.getTableRef(), ImmutableMap.of(cellOutsideReads, value));
+            return result;
+        });
+    }
+
+    private Map<Cell, byte[]> readModifyWriteCellsInner(SerializableNarrowTable table) {
+        return table.getTransactionManager().runTaskThrowOnConflict(txn -> {
+            Set<Cell> request = table.getCellsRequest(READ_SIZE);
+            Map<Cell, byte[]> result = txn.get(table.getTableRef(), request);
+            Preconditions.checkState(result.size() == READ_SIZE,
+                    "expected %s cells, found %s cells", READ_SIZE, result.size());
+            txn.put(table.getTableRef(), Maps.transformValues(result, value -> {
+                byte[] modified = value.clone();
+                modified[0]++;
+                return modified;
+            }));
+            return result;
+        });
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 2, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    public Object readCellsAndRangeThenWrite(SerializableNarrowTable.FullReadSetsTable table) {
+        return readCellsAndRangeThenWriteInner(table);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 2, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    public Object readCellsAndRangeThenWriteCompact(SerializableNarrowTable.CompactReadSetsTable table) {
+        return readCellsAndRangeThenWriteInner(table);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 2, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    public Object readModifyWriteCells(SerializableNarrowTable.FullReadSetsTable table) {
+        return readModifyWriteCellsInner(table);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 2, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    public Object readModifyWriteCellsCompact(SerializableNarrowTable.CompactReadSetsTable table) {
+        return readModifyWriteCellsInner(table);
+    }
+
+}
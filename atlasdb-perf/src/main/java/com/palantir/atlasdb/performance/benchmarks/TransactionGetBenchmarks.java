@@ -35,6 +35,7 @@ import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.performance.benchmarks.table.ConsecutiveNarrowTable;
+import com.palantir.atlasdb.transaction.api.TransactionTask;
 import com.palantir.common.base.BatchingVisitable;
 import com.palantir.common.base.BatchingVisitables;
 
@@ -44,7 +45,11 @@ public class TransactionGetBenchmarks {
     private static final int RANGES_SINGLE_REQUEST_SIZE = 1;
 
     private Map<Cell, byte[]> getSingleCellInner(ConsecutiveNarrowTable table) {
-        return table.getTransactionManager().runTaskThrowOnConflict(txn -> {
+        return table.getTransactionManager().runTaskThrowOnConflict(getSingleCellTask(table));
+    }
+
+    private TransactionTask<Map<Cell, byte[]>, RuntimeException> getSingleCellTask(ConsecutiveNarrowTable table) {
+        return txn -> {
             Set<Cell> request = table.getCellsRequest(1);
             Map<Cell, byte[]> result = txn.get(table.getTableRef(), request);
             byte[] rowName = Iterables.getOnlyElement(result.entrySet()).getKey().getRowName();
@@ -53,18 +58,22 @@ public class TransactionGetBenchmarks {
             Preconditions.checkState(rowNumber == expectRowNumber,
                     "Start Row %s, row number %s", expectRowNumber, rowNumber);
             return result;
-        });
+        };
     }
 
     private Map<Cell, byte[]> getCellsInner(ConsecutiveNarrowTable table) {
+        return table.getTransactionManager().runTaskThrowOnConflict(getCellsTask(table));
+    }
+
+    private TransactionTask<Map<Cell, byte[]>, RuntimeException> getCellsTask(ConsecutiveNarrowTable table) {
         final int getCellsSize = 1000;
-        return table.getTransactionManager().runTaskThrowOnConflict(txn -> {
+        return txn -> {
             Set<Cell> request = table.getCellsRequest(getCellsSize);
             Map<Cell, byte[]> result = txn.get(table.getTableRef(), request);
             Preconditions.checkState(result.size() == getCellsSize,
                     "expected %s cells, found %s cells", getCellsSize, result.size());
             return result;
-        });
+        };
     }
 
     private List<RowResult<byte[]>> getSingleRowWithRangeQueryInner(final ConsecutiveNarrowTable table) {
@@ -82,15 +91,19 @@ public class TransactionGetBenchmarks {
     }
 
     private List<RowResult<byte[]>> getRangeInner(ConsecutiveNarrowTable table) {
+        return table.getTransactionManager().runTaskThrowOnConflict(getRangeTask(table));
+    }
+
+    private TransactionTask<List<RowResult<byte[]>>, RuntimeException> getRangeTask(ConsecutiveNarrowTable table) {
         final int rangeRequestSize = 1000;
-        return table.getTransactionManager().runTaskThrowOnConflict(txn -> {
+        return txn -> {
             RangeRequest request = Iterables.getOnlyElement(table.getRangeRequests(1, rangeRequestSize, false));
             List<RowResult<byte[]>> results = BatchingVisitables.copyToList(txn.getRange(
                     table.getTableRef(), request));
             Preconditions.checkState(results.size() == rangeRequestSize,
                     "Expected %s rows, found %s rows", rangeRequestSize, results.size());
             return results;
-        });
+        };
     }
 
     private Iterable<BatchingVisitable<RowResult<byte[]>>> getRangesInner(ConsecutiveNarrowTable table) {
@@ -124,6 +137,14 @@ public class TransactionGetBenchmarks {
         return getCellsInner(table);
     }
 
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public Object getCellsReadOnly(ConsecutiveNarrowTable.CleanNarrowTable table) {
+        return table.getTransactionManager().runTaskReadOnly(getCellsTask(table));
+    }
+
 
     @Benchmark
     @Threads(1)
@@ -158,6 +179,14 @@ public class TransactionGetBenchmarks {
         return getRangeInner(table);
     }
 
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 2, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    public Object getRangeReadOnly(ConsecutiveNarrowTable.CleanNarrowTable table) {
+        return table.getTransactionManager().runTaskReadOnly(getRangeTask(table));
+    }
+
 
     @Benchmark
     @Threads(1)
@@ -175,6 +204,14 @@ public class TransactionGetBenchmarks {
         return getSingleCellInner(table);
     }
 
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public Object getSingleCellReadOnly(ConsecutiveNarrowTable.CleanNarrowTable table) {
+        return table.getTransactionManager().runTaskReadOnly(getSingleCellTask(table));
+    }
+
 
     @Benchmark
     @Threads(1)
@@ -41,7 +41,9 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.performance.backend.AtlasDbServicesConnector;
 import com.palantir.atlasdb.performance.benchmarks.Benchmarks;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
 import com.palantir.atlasdb.services.AtlasDbServices;
+import com.palantir.atlasdb.transaction.api.ConflictHandler;
 import com.palantir.atlasdb.transaction.api.TransactionManager;
 
 /**
@@ -78,6 +80,10 @@ public abstract class ConsecutiveNarrowTable {
         return services.getTransactionManager();
     }
 
+    protected AtlasDbServices getServices() {
+        return services;
+    }
+
     public KeyValueService getKvs() {
         return services.getKeyValueService();
     }
@@ -92,12 +98,17 @@ public abstract class ConsecutiveNarrowTable {
 
     protected abstract void setupData();
 
+    protected ConflictHandler getConflictHandler() {
+        return ConflictHandler.IGNORE_ALL;
+    }
+
     @Setup(Level.Trial)
     public void setup(AtlasDbServicesConnector conn) {
         this.connector = conn;
         services = conn.connect();
         if (!services.getKeyValueService().getAllTableNames().contains(getTableRef())) {
-            Benchmarks.createTable(getKvs(), getTableRef(), Tables.ROW_COMPONENT, Tables.COLUMN_NAME);
+            Benchmarks.createTable(getKvs(), getTableRef(), Tables.ROW_COMPONENT, Tables.COLUMN_NAME,
+                    SweepStrategy.NOTHING, getConflictHandler());
             setupData();
         }
     }
@@ -212,7 +223,7 @@ public abstract class ConsecutiveNarrowTable {
         return requests;
     }
 
-    private static void storeDataInTable(ConsecutiveNarrowTable table, int numOverwrites) {
+    protected static void storeDataInTable(ConsecutiveNarrowTable table, int numOverwrites) {
         IntStream.range(0, numOverwrites + 1).forEach(
                 $ -> table.getTransactionManager().runTaskThrowOnConflict(
                         txn -> {
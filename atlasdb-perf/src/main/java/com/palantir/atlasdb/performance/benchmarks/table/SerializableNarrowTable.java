@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks.table;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.common.base.Suppliers;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.cleaner.NoOpCleaner;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.monitoring.TimestampTrackerImpl;
+import com.palantir.atlasdb.services.AtlasDbServices;
+import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
+import com.palantir.atlasdb.transaction.api.ConflictHandler;
+import com.palantir.atlasdb.transaction.api.TransactionManager;
+import com.palantir.atlasdb.transaction.impl.ConflictDetectionManagers;
+import com.palantir.atlasdb.transaction.impl.SerializableTransactionManager;
+import com.palantir.atlasdb.transaction.impl.SweepStrategyManagers;
+
+/**
+ * State class for a table with the {@link ConflictHandler#SERIALIZABLE} conflict handler, whose transactions are
+ * run by a transaction manager that either does or does not use compact read sets.
+ */
+@State(Scope.Benchmark)
+public abstract class SerializableNarrowTable extends ConsecutiveNarrowTable {
+
+    private static final int NUM_ROWS = 10_000;
+    private static final int GET_RANGES_THREAD_POOL_SIZE = 16;
+    private static final int DEFAULT_GET_RANGES_CONCURRENCY = 4;
+
+    private SerializableTransactionManager transactionManager;
+
+    protected abstract boolean useCompactReadSets();
+
+    @Override
+    public TransactionManager getTransactionManager() {
+        if (transactionManager == null) {
+            AtlasDbServices services = getServices();
+            transactionManager = new SerializableTransactionManager(
+                    services.getKeyValueService(),
+                    services.getTimelockService(),
+                    services.getLockService(),
+                    services.getTransactionService(),
+                    Suppliers.ofInstance(AtlasDbConstraintCheckingMode.NO_CONSTRAINT_CHECKING),
+                    ConflictDetectionManagers.createWithoutWarmingCache(services.getKeyValueService()),
+                    SweepStrategyManagers.createDefault(services.getKeyValueService()),
+                    NoOpCleaner.INSTANCE,
+                    TimestampTrackerImpl.createNoOpTracker(),
+                    () -> AtlasDbConstants.DEFAULT_TIMESTAMP_CACHE_SIZE,
+                    false,
+                    () -> AtlasDbConstants.DEFAULT_TRANSACTION_LOCK_ACQUIRE_TIMEOUT_MS,
+                    GET_RANGES_THREAD_POOL_SIZE,
+                    DEFAULT_GET_RANGES_CONCURRENCY,
+                    this::useCompactReadSets);
+        }
+        return transactionManager;
+    }
+
+    @Override
+    public TableReference getTableRef() {
+        return TableReference.createFromFullyQualifiedName("performance.persistent_table_serializable");
+    }
+
+    @Override
+    public int getNumRows() {
+        return NUM_ROWS;
+    }
+
+    @Override
+    protected ConflictHandler getConflictHandler() {
+        return ConflictHandler.SERIALIZABLE;
+    }
+
+    @Override
+    protected void setupData() {
+        storeDataInTable(this, 0);
+    }
+
+    @State(Scope.Benchmark)
+    public static class FullReadSetsTable extends SerializableNarrowTable {
+        @Override
+        protected boolean useCompactReadSets() {
+            return false;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class CompactReadSetsTable extends SerializableNarrowTable {
+        @Override
+        protected boolean useCompactReadSets() {
+            return true;
+        }
+    }
+}
@@ -66,7 +66,7 @@ public class AtlasDbPerfCli {
     @Arguments(description = "The performance benchmarks to run. Leave blank to run all performance benchmarks.")
     private Set<String> tests;
 
-    @Option(name = {"-b", "--backend"}, description = "Backing KVS stores to use. (e.g. POSTGRES or CASSANDRA)"
+    @Option(name = {"-b", "--backend"}, description = "Backing KVS stores to use. (e.g. POSTGRES, CASSANDRA or OFFHEAP)"
             + " Defaults to all backends if not specified.")
     private Set<String> backends;
 
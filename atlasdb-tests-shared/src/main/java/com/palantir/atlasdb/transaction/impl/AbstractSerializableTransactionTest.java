@@ -31,9 +31,11 @@ import java.util.concurrent.Future;
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.google.common.base.Strings;
 import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
@@ -44,6 +46,7 @@ import com.palantir.atlasdb.cleaner.NoOpCleaner;
 import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
@@ -106,7 +109,8 @@ public abstract class AbstractSerializableTransactionTest extends AbstractTransa
                 timestampCache,
                 AtlasDbConstants.DEFAULT_TRANSACTION_LOCK_ACQUIRE_TIMEOUT_MS,
                 AbstractTransactionTest.GET_RANGES_EXECUTOR,
-                AbstractTransactionTest.DEFAULT_GET_RANGES_CONCURRENCY) {
+                AbstractTransactionTest.DEFAULT_GET_RANGES_CONCURRENCY,
+                useCompactReadSets()) {
             @Override
             protected Map<Cell, byte[]> transformGetsForTesting(Map<Cell, byte[]> map) {
                 return Maps.transformValues(map, input -> input.clone());
@@ -114,6 +118,10 @@ public abstract class AbstractSerializableTransactionTest extends AbstractTransa
         };
     }
 
+    protected boolean useCompactReadSets() {
+        return false;
+    }
+
     @Test
     public void testReadOnlySerializableTransactionsIgnoreReadWriteConflicts() {
         Transaction t0 = startTransaction();
@@ -131,6 +139,78 @@ public abstract class AbstractSerializableTransactionTest extends AbstractTransa
         t1.commit();
     }
 
+    @Test
+    public void testAsyncReadsAreCheckedForConflicts() {
+        Transaction t0 = startTransaction();
+        put(t0, "row1", "col1", "100");
+        t0.commit();
+
+        Transaction t1 = startTransaction();
+        Cell cell = Cell.create(PtBytes.toBytes("row1"), PtBytes.toBytes("col1"));
+        t1.getAsync(TEST_TABLE, ImmutableSet.of(cell));
+        put(t1, "row2", "col1", "100");
+
+        Transaction t2 = startTransaction();
+        put(t2, "row1", "col1", "101");
+        t2.commit();
+
+        try {
+            t1.commit();
+            fail();
+        } catch (TransactionSerializableConflictException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testChangedLongValuesAreReadWriteConflicts() {
+        String longValue = Strings.repeat("100", 20);
+        Transaction t0 = startTransaction();
+        put(t0, "row1", "col1", longValue);
+        put(t0, "row2", "col1", longValue);
+        put(t0, "row3", "col1", longValue);
+        t0.commit();
+
+        Transaction t1 = startTransaction();
+        get(t1, "row1", "col1");
+        t1.getRows(TEST_TABLE, ImmutableList.of(PtBytes.toBytes("row2")), ColumnSelection.all());
+        BatchingVisitables.copyToList(t1.getRange(TEST_TABLE, RangeRequest.builder().build()));
+        put(t1, "row4", "col1", longValue);
+
+        Transaction t2 = startTransaction();
+        put(t2, "row2", "col1", Strings.repeat("101", 20));
+        t2.commit();
+
+        try {
+            t1.commit();
+            fail();
+        } catch (TransactionSerializableConflictException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRewrittenLongValuesAreNotReadWriteConflicts() {
+        String longValue = Strings.repeat("100", 20);
+        Transaction t0 = startTransaction();
+        put(t0, "row1", "col1", longValue);
+        put(t0, "row2", "col1", longValue);
+        t0.commit();
+
+        Transaction t1 = startTransaction();
+        get(t1, "row1", "col1");
+        t1.getRows(TEST_TABLE, ImmutableList.of(PtBytes.toBytes("row2")), ColumnSelection.all());
+        BatchingVisitables.copyToList(t1.getRange(TEST_TABLE, RangeRequest.builder().build()));
+        put(t1, "row3", "col1", longValue);
+
+        Transaction t2 = startTransaction();
+        put(t2, "row1", "col1", longValue);
+        put(t2, "row2", "col1", longValue);
+        t2.commit();
+
+        t1.commit();
+    }
+
     @Test
     public void testClassicWriteSkew() {
         Transaction t0 = startTransaction();
@@ -28,6 +28,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.SortedMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -855,6 +856,33 @@ public abstract class AbstractTransactionTest extends TransactionTestSetup {
         assertEquals("v3", get(t, "row2", "col1"));
     }
 
+    @Test
+    public void testAsyncReadsSeeCommittedValuesAndLocalWrites() throws Exception {
+        Transaction t = startTransaction();
+        put(t, "row1", "col1", "v1");
+        put(t, "row2", "col1", "v2");
+        t.commit();
+
+        t = startTransaction();
+        put(t, "row1", "col2", "v3");
+        delete(t, "row2", "col1");
+        Cell row1col1 = Cell.create(PtBytes.toBytes("row1"), PtBytes.toBytes("col1"));
+        Cell row1col2 = Cell.create(PtBytes.toBytes("row1"), PtBytes.toBytes("col2"));
+        Cell row2col1 = Cell.create(PtBytes.toBytes("row2"), PtBytes.toBytes("col1"));
+
+        Map<Cell, byte[]> cells = t.getAsync(TEST_TABLE, ImmutableSet.of(row1col1, row1col2, row2col1)).get();
+        assertEquals(ImmutableSet.of(row1col1, row1col2), cells.keySet());
+        assertEquals("v1", new String(cells.get(row1col1)));
+        assertEquals("v3", new String(cells.get(row1col2)));
+
+        SortedMap<byte[], RowResult<byte[]>> rows = t.getRowsAsync(TEST_TABLE,
+                ImmutableList.of(PtBytes.toBytes("row1"), PtBytes.toBytes("row2")),
+                ColumnSelection.all()).get();
+        assertEquals(1, rows.size());
+        assertEquals(2, rows.get(PtBytes.toBytes("row1")).getColumns().size());
+        t.commit();
+    }
+
     @Test
     public void testReadMyWritesRange() {
         Transaction t = startTransaction();
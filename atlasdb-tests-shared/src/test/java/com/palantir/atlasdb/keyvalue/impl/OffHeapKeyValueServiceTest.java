@@ -0,0 +1,148 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.keyvalue.api.CheckAndSetException;
+import com.palantir.atlasdb.keyvalue.api.CheckAndSetRequest;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.util.AtlasDbMetrics;
+
+public class OffHeapKeyValueServiceTest extends AbstractKeyValueServiceTest {
+    private static final int SLAB_SIZE_BYTES = 1024;
+
+    @Override
+    protected KeyValueService getKeyValueService() {
+        return new OffHeapKeyValueService(false);
+    }
+
+    @Test
+    public void accountsForLiveAndAllocatedBytes() {
+        OffHeapKeyValueService kvs = new OffHeapKeyValueService(false, MoreExecutors.newDirectExecutorService(),
+                SLAB_SIZE_BYTES);
+        kvs.createTable(TEST_TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        assertThat(kvs.getAllocatedBytes()).isEqualTo(0L);
+
+        kvs.put(TEST_TABLE, ImmutableMap.of(TEST_CELL, value00), TEST_TIMESTAMP);
+        long recordBytes = kvs.getLiveBytes();
+        assertThat(recordBytes).isGreaterThan(value00.length + row0.length + column0.length);
+        assertThat(kvs.getAllocatedBytes()).isEqualTo(SLAB_SIZE_BYTES);
+
+        kvs.put(TEST_TABLE, ImmutableMap.of(TEST_CELL, value01), TEST_TIMESTAMP + 1);
+        assertThat(kvs.getLiveBytes()).isEqualTo(2 * recordBytes);
+
+        kvs.delete(TEST_TABLE, ImmutableMultimap.of(TEST_CELL, TEST_TIMESTAMP));
+        assertThat(kvs.getLiveBytes()).isEqualTo(recordBytes);
+        assertThat(kvs.getAllocatedBytes()).isEqualTo(SLAB_SIZE_BYTES);
+
+        kvs.put(TEST_TABLE, ImmutableMap.of(TEST_CELL, new byte[2 * SLAB_SIZE_BYTES]), TEST_TIMESTAMP + 2);
+        assertThat(kvs.getAllocatedBytes()).isGreaterThan(3L * SLAB_SIZE_BYTES);
+
+        kvs.truncateTable(TEST_TABLE);
+        assertThat(kvs.getLiveBytes()).isEqualTo(0L);
+        assertThat(kvs.getAllocatedBytes()).isEqualTo(0L);
+        kvs.close();
+    }
+
+    @Test
+    public void compactsOnceMostVersionsAreDead() {
+        OffHeapKeyValueService kvs = createWithSmallSlabs();
+        for (long ts = TEST_TIMESTAMP; ts < TEST_TIMESTAMP + 1000; ts++) {
+            kvs.put(TEST_TABLE, ImmutableMap.of(TEST_CELL, value00), ts);
+            kvs.delete(TEST_TABLE, ImmutableMultimap.of(TEST_CELL, ts - 1));
+        }
+
+        assertThat(kvs.getAllocatedBytes()).isLessThanOrEqualTo(4L * SLAB_SIZE_BYTES);
+        assertThat(kvs.get(TEST_TABLE, ImmutableMap.of(TEST_CELL, TEST_TIMESTAMP + 1000)).get(TEST_CELL).getContents())
+                .isEqualTo(value00);
+        kvs.close();
+    }
+
+    @Test
+    public void compactInternallyReleasesDeadVersions() {
+        OffHeapKeyValueService kvs = createWithSmallSlabs();
+        kvs.put(TEST_TABLE, ImmutableMap.of(TEST_CELL, value00), TEST_TIMESTAMP);
+        kvs.put(TEST_TABLE, ImmutableMap.of(TEST_CELL, new byte[2 * SLAB_SIZE_BYTES]), TEST_TIMESTAMP + 1);
+        kvs.delete(TEST_TABLE, ImmutableMultimap.of(TEST_CELL, TEST_TIMESTAMP + 1));
+        long liveBytes = kvs.getLiveBytes();
+
+        kvs.compactInternally(TEST_TABLE);
+
+        assertThat(kvs.getLiveBytes()).isEqualTo(liveBytes);
+        assertThat(kvs.getAllocatedBytes()).isEqualTo(SLAB_SIZE_BYTES);
+        assertThat(kvs.get(TEST_TABLE, ImmutableMap.of(TEST_CELL, TEST_TIMESTAMP + 1)).get(TEST_CELL).getContents())
+                .isEqualTo(value00);
+        kvs.close();
+    }
+
+    @Test
+    public void failedCheckAndSetDoesNotWriteToSlabs() {
+        OffHeapKeyValueService kvs = createWithSmallSlabs();
+        kvs.checkAndSet(CheckAndSetRequest.newCell(TEST_TABLE, TEST_CELL, value00));
+        long allocatedBytes = kvs.getAllocatedBytes();
+        long liveBytes = kvs.getLiveBytes();
+
+        assertThatThrownBy(() -> kvs.checkAndSet(CheckAndSetRequest.newCell(TEST_TABLE, TEST_CELL, value01)))
+                .isInstanceOf(CheckAndSetException.class);
+        assertThatThrownBy(() -> kvs.checkAndSet(
+                CheckAndSetRequest.singleCell(TEST_TABLE, TEST_CELL, value01, new byte[2 * SLAB_SIZE_BYTES])))
+                .isInstanceOf(CheckAndSetException.class);
+
+        assertThat(kvs.getAllocatedBytes()).isEqualTo(allocatedBytes);
+        assertThat(kvs.getLiveBytes()).isEqualTo(liveBytes);
+        kvs.close();
+    }
+
+    @Test
+    public void reportsTheMetricsOfEachInstanceUntilItIsClosed() {
+        MetricRegistry metricRegistry = AtlasDbMetrics.getMetricRegistry();
+        OffHeapKeyValueService firstKvs = createWithSmallSlabs();
+        OffHeapKeyValueService secondKvs = createWithSmallSlabs();
+        secondKvs.put(TEST_TABLE, ImmutableMap.of(TEST_CELL, value00), TEST_TIMESTAMP);
+
+        assertThat(firstKvs.getMetricName("liveBytes")).isNotEqualTo(secondKvs.getMetricName("liveBytes"));
+        assertThat(metricRegistry.getGauges().get(firstKvs.getMetricName("liveBytes")).getValue()).isEqualTo(0L);
+        assertThat(metricRegistry.getGauges().get(secondKvs.getMetricName("liveBytes")).getValue())
+                .isEqualTo(secondKvs.getLiveBytes());
+        assertThat(metricRegistry.getGauges().get(secondKvs.getMetricName("allocatedBytes")).getValue())
+                .isEqualTo((long) SLAB_SIZE_BYTES);
+
+        firstKvs.close();
+        secondKvs.close();
+
+        assertThat(metricRegistry.getGauges().keySet()).doesNotContain(
+                firstKvs.getMetricName("liveBytes"),
+                firstKvs.getMetricName("allocatedBytes"),
+                secondKvs.getMetricName("liveBytes"),
+                secondKvs.getMetricName("allocatedBytes"));
+    }
+
+    private static OffHeapKeyValueService createWithSmallSlabs() {
+        OffHeapKeyValueService kvs = new OffHeapKeyValueService(false, MoreExecutors.newDirectExecutorService(),
+                SLAB_SIZE_BYTES);
+        kvs.createTable(TEST_TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        return kvs;
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
+import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweeping;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.CheckAndSetRequest;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.ImmutableCandidateCellForSweepingRequest;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.common.base.ClosableIterator;
+
+public class TieredKeyValueServiceTest {
+    private static final TableReference TIERED_TABLE = TableReference.createFromFullyQualifiedName("test.tiered");
+    private static final TableReference OTHER_TABLE = TableReference.createFromFullyQualifiedName("test.other");
+    private static final byte[] ROW = PtBytes.toBytes("row");
+    private static final Cell OLD_CELL = Cell.create(ROW, PtBytes.toBytes("old"));
+    private static final Cell NEW_CELL = Cell.create(ROW, PtBytes.toBytes("new"));
+    private static final long OLD_TS = 10L;
+    private static final long NEWER_TS = 20L;
+    private static final long DEMOTION_TS = 25L;
+    private static final long NEWEST_TS = 30L;
+    private static final long READ_TS = 40L;
+
+    private final KeyValueService hot = new InMemoryKeyValueService(false);
+    private final KeyValueService cold = new InMemoryKeyValueService(false);
+    private final AtomicLong demotionTimestamp = new AtomicLong(DEMOTION_TS);
+    private TieredKeyValueService kvs;
+
+    @Before
+    public void setUp() {
+        kvs = TieredKeyValueService.create(hot, cold, ImmutableSet.of(TIERED_TABLE), demotionTimestamp::get,
+                TimeUnit.HOURS.toMillis(1));
+        kvs.createTables(ImmutableMap.of(
+                TIERED_TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA,
+                OTHER_TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA));
+    }
+
+    @After
+    public void tearDown() {
+        kvs.close();
+    }
+
+    @Test
+    public void createsOnlyTieredTablesInTheColdTier() {
+        assertThat(hot.getAllTableNames()).contains(TIERED_TABLE, OTHER_TABLE);
+        assertThat(cold.getAllTableNames()).containsExactly(TIERED_TABLE);
+    }
+
+    @Test
+    public void writesToTheHotTier() {
+        kvs.put(TIERED_TABLE, ImmutableMap.of(NEW_CELL, value("newest")), NEWEST_TS);
+
+        assertThat(hot.get(TIERED_TABLE, ImmutableMap.of(NEW_CELL, READ_TS))).containsKey(NEW_CELL);
+        assertThat(cold.get(TIERED_TABLE, ImmutableMap.of(NEW_CELL, READ_TS))).isEmpty();
+    }
+
+    @Test
+    public void demotesVersionsWrittenBeforeTheDemotionTimestamp() {
+        kvs.put(TIERED_TABLE, ImmutableMap.of(NEW_CELL, value("old")), OLD_TS);
+        kvs.put(TIERED_TABLE, ImmutableMap.of(NEW_CELL, value("newer")), NEWER_TS);
+        kvs.put(TIERED_TABLE, ImmutableMap.of(NEW_CELL, value("newest")), NEWEST_TS);
+
+        kvs.demoteOldVersions();
+
+        assertThat(hot.getAllTimestamps(TIERED_TABLE, ImmutableSet.of(NEW_CELL), READ_TS).get(NEW_CELL))
+                .containsExactly(NEWEST_TS);
+        assertThat(cold.getAllTimestamps(TIERED_TABLE, ImmutableSet.of(NEW_CELL), READ_TS).get(NEW_CELL))
+                .containsExactlyInAnyOrder(OLD_TS, NEWER_TS);
+        assertThat(kvs.getAllTimestamps(TIERED_TABLE, ImmutableSet.of(NEW_CELL), READ_TS).get(NEW_CELL))
+                .containsExactlyInAnyOrder(OLD_TS, NEWER_TS, NEWEST_TS);
+    }
+
+    @Test
+    public void readsTheNewestVersionAcrossTiers() {
+        kvs.put(TIERED_TABLE, ImmutableMap.of(NEW_CELL, value("newer")), NEWER_TS);
+        kvs.put(TIERED_TABLE, ImmutableMap.of(NEW_CELL, value("newest")), NEWEST_TS);
+        kvs.demoteOldVersions();
+
+        assertThat(getValue(NEW_CELL, READ_TS)).isEqualTo(value("newest"));
+        assertThat(getValue(NEW_CELL, NEWEST_TS)).isEqualTo(value("newer"));
+        assertThat(getValue(NEW_CELL, NEWER_TS)).isNull();
+    }
+
+    @Test
+    public void mergesRangesAcrossTiers() {
+        kvs.put(TIERED_TABLE, ImmutableMap.of(OLD_CELL, value("old")), OLD_TS);
+        kvs.demoteOldVersions();
+        kvs.put(TIERED_TABLE, ImmutableMap.of(NEW_CELL, value("newest")), NEWEST_TS);
+
+        try (ClosableIterator<RowResult<Value>> range = kvs.getRange(TIERED_TABLE, RangeRequest.all(), READ_TS)) {
+            RowResult<Value> row = Iterators.getOnlyElement(range);
+            assertThat(row.getCellSet()).containsExactlyInAnyOrder(OLD_CELL, NEW_CELL);
+        }
+        Map<Cell, Value> rows = kvs.getRows(TIERED_TABLE, ImmutableList.of(ROW), ColumnSelection.all(), READ_TS);
+        assertThat(rows).containsOnlyKeys(OLD_CELL, NEW_CELL);
+    }
+
+    @Test
+    public void mergesColumnRangesAcrossTiers() {
+        kvs.put(TIERED_TABLE, ImmutableMap.of(OLD_CELL, value("old")), OLD_TS);
+        kvs.demoteOldVersions();
+        kvs.put(TIERED_TABLE, ImmutableMap.of(NEW_CELL, value("newest")), NEWEST_TS);
+
+        Map<byte[], RowColumnRangeIterator> ranges = kvs.getRowsColumnRange(TIERED_TABLE, ImmutableList.of(ROW),
+                BatchColumnRangeSelection.create(PtBytes.EMPTY_BYTE_ARRAY, PtBytes.EMPTY_BYTE_ARRAY, 10), READ_TS);
+        RowColumnRangeIterator columns = Iterators.getOnlyElement(ranges.values().iterator());
+        assertThat(columns.next().getKey()).isEqualTo(NEW_CELL);
+        assertThat(columns.next().getKey()).isEqualTo(OLD_CELL);
+        assertThat(columns.hasNext()).isFalse();
+    }
+
+    @Test
+    public void doesNotDemoteTablesThatAreNotTiered() {
+        kvs.put(OTHER_TABLE, ImmutableMap.of(OLD_CELL, value("old")), OLD_TS);
+
+        kvs.demoteOldVersions();
+
+        assertThat(hot.get(OTHER_TABLE, ImmutableMap.of(OLD_CELL, READ_TS))).containsKey(OLD_CELL);
+        assertThat(kvs.get(OTHER_TABLE, ImmutableMap.of(OLD_CELL, READ_TS))).containsKey(OLD_CELL);
+    }
+
+    @Test
+    public void deletesFromBothTiers() {
+        kvs.put(TIERED_TABLE, ImmutableMap.of(NEW_CELL, value("newer")), NEWER_TS);
+        kvs.demoteOldVersions();
+        kvs.put(TIERED_TABLE, ImmutableMap.of(NEW_CELL, value("newest")), NEWEST_TS);
+
+        kvs.delete(TIERED_TABLE, ImmutableMultimap.of(NEW_CELL, NEWER_TS, NEW_CELL, NEWEST_TS));
+
+        assertThat(getValue(NEW_CELL, READ_TS)).isNull();
+    }
+
+    @Test
+    public void sweepCandidatesIncludeDemotedVersions() {
+        kvs.put(TIERED_TABLE, ImmutableMap.of(NEW_CELL, value("old")), OLD_TS);
+        kvs.put(TIERED_TABLE, ImmutableMap.of(NEW_CELL, value("newer")), NEWER_TS);
+        kvs.demoteOldVersions();
+        kvs.put(TIERED_TABLE, ImmutableMap.of(NEW_CELL, value("")), NEWEST_TS);
+
+        try (ClosableIterator<List<CandidateCellForSweeping>> candidates = kvs.getCandidateCellsForSweeping(
+                TIERED_TABLE,
+                ImmutableCandidateCellForSweepingRequest.builder()
+                        .startRowInclusive(PtBytes.EMPTY_BYTE_ARRAY)
+                        .sweepTimestamp(READ_TS)
+                        .shouldCheckIfLatestValueIsEmpty(true)
+                        .timestampsToIgnore(new long[0])
+                        .build())) {
+            CandidateCellForSweeping candidate = Iterators.getOnlyElement(Iterators.concat(
+                    Iterators.transform(candidates, List::iterator)));
+            assertThat(candidate.cell()).isEqualTo(NEW_CELL);
+            assertThat(candidate.sortedTimestamps()).containsExactly(OLD_TS, NEWER_TS, NEWEST_TS);
+            assertThat(candidate.isLatestValueEmpty()).isTrue();
+        }
+    }
+
+    @Test
+    public void rejectsCheckAndSetOnTieredTables() {
+        assertThatThrownBy(() -> kvs.putUnlessExists(TIERED_TABLE, ImmutableMap.of(NEW_CELL, value("new"))))
+                .isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> kvs.checkAndSet(CheckAndSetRequest.newCell(TIERED_TABLE, NEW_CELL, value("new"))))
+                .isInstanceOf(UnsupportedOperationException.class);
+
+        kvs.putUnlessExists(OTHER_TABLE, ImmutableMap.of(NEW_CELL, value("new")));
+        assertThat(kvs.get(OTHER_TABLE, ImmutableMap.of(NEW_CELL, READ_TS))).containsKey(NEW_CELL);
+    }
+
+    @Test
+    public void cannotTierAtomicTables() {
+        assertThatThrownBy(() -> TieredKeyValueService.create(hot, cold,
+                ImmutableSet.of(TransactionConstants.TRANSACTION_TABLE), demotionTimestamp::get,
+                TimeUnit.HOURS.toMillis(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private byte[] getValue(Cell cell, long timestamp) {
+        Map<Cell, Value> result = kvs.get(TIERED_TABLE, ImmutableMap.of(cell, timestamp));
+        return result.containsKey(cell) ? result.get(cell).getContents() : null;
+    }
+
+    private static byte[] value(String contents) {
+        return PtBytes.toBytes(contents);
+    }
+}
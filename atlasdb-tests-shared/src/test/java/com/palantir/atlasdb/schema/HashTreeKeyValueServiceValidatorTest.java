@@ -0,0 +1,138 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.schema;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.palantir.atlasdb.AtlasDbTestCase;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.Namespace;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.table.description.TableDefinition;
+import com.palantir.atlasdb.table.description.ValueType;
+import com.palantir.atlasdb.transaction.api.TransactionManager;
+import com.palantir.atlasdb.transaction.impl.ConflictDetectionManagers;
+import com.palantir.atlasdb.transaction.impl.SweepStrategyManagers;
+import com.palantir.atlasdb.transaction.impl.TestTransactionManagerImpl;
+
+public class HashTreeKeyValueServiceValidatorTest extends AtlasDbTestCase {
+    private static final TableReference TABLE = TableReference.create(Namespace.create("test"), "table");
+    private static final byte[] COLUMN = PtBytes.toBytes("c");
+    private static final int PARTITIONS = 4;
+    private static final int BATCH_SIZE = 2;
+
+    private TransactionManager toTxManager;
+
+    @SuppressWarnings({"checkstyle:Indentation", "checkstyle:RightCurly"}) // Table/IndexDefinition syntax
+    @Before
+    public void setUpDestination() {
+        TableDefinition definition = new TableDefinition() {{
+                rowName();
+                rowComponent("r", ValueType.BLOB);
+            columns();
+                column("c", "c", ValueType.BLOB);
+        }};
+        InMemoryKeyValueService toKvs = new InMemoryKeyValueService(false);
+        toTxManager = new TestTransactionManagerImpl(
+                toKvs,
+                timestampService,
+                lockClient,
+                lockService,
+                transactionService,
+                ConflictDetectionManagers.createWithNoConflictDetection(),
+                SweepStrategyManagers.completelyConservative(toKvs));
+        keyValueService.createTable(TABLE, definition.toTableMetadata().persistToBytes());
+        toKvs.createTable(TABLE, definition.toTableMetadata().persistToBytes());
+
+        Map<Cell, byte[]> values = Maps.newHashMap();
+        for (int i = 0; i < 10; i++) {
+            values.put(cell("row" + i), PtBytes.toBytes("value" + i));
+        }
+        write(txManager, values);
+        write(toTxManager, values);
+    }
+
+    @Test
+    public void findsNoMismatchesInIdenticalTables() {
+        assertThat(createValidator().findMismatches()).isEmpty();
+    }
+
+    @Test
+    public void findsExactRangesOfMismatchedRows() {
+        write(toTxManager, ImmutableMap.of(
+                cell("row3"), PtBytes.toBytes("changed"),
+                cell("row4"), PtBytes.toBytes("changed"),
+                cell("row7a"), PtBytes.toBytes("extra")));
+
+        assertThat(createValidator().findMismatches()).containsExactly(
+                new MismatchedRowRange(TABLE, PtBytes.toBytes("row3"), PtBytes.toBytes("row4")),
+                new MismatchedRowRange(TABLE, PtBytes.toBytes("row7a"), PtBytes.toBytes("row7a")));
+    }
+
+    @Test
+    public void findsRowsMissingFromTheDestination() {
+        toTxManager.runTaskWithRetry(tx -> {
+            tx.delete(TABLE, ImmutableSet.of(cell("row9")));
+            return null;
+        });
+
+        assertThat(createValidator().findMismatches()).containsExactly(
+                new MismatchedRowRange(TABLE, PtBytes.toBytes("row9"), PtBytes.toBytes("row9")));
+    }
+
+    @Test
+    public void validateThrowsOnMismatchesUnlessOnlyLogging() {
+        write(toTxManager, ImmutableMap.of(cell("row0"), PtBytes.toBytes("changed")));
+
+        createValidator().validate(true);
+        assertThatThrownBy(() -> createValidator().validate(false)).isInstanceOf(IllegalStateException.class);
+    }
+
+    private HashTreeKeyValueServiceValidator createValidator() {
+        return new HashTreeKeyValueServiceValidator(
+                txManager,
+                toTxManager,
+                keyValueService,
+                2,
+                PARTITIONS,
+                BATCH_SIZE,
+                ImmutableMap.of(),
+                (message, level) -> { },
+                ImmutableSet.of());
+    }
+
+    private static void write(TransactionManager transactionManager, Map<Cell, byte[]> values) {
+        transactionManager.runTaskWithRetry(tx -> {
+            tx.put(TABLE, values);
+            return null;
+        });
+    }
+
+    private static Cell cell(String row) {
+        return Cell.create(PtBytes.toBytes(row), COLUMN);
+    }
+}
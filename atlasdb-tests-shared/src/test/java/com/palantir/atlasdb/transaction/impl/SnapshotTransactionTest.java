@@ -27,6 +27,7 @@ import static org.junit.Assert.fail;
 
 import java.math.BigInteger;
 import java.util.Collection;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -35,6 +36,7 @@ import java.util.Random;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
@@ -43,6 +45,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.mutable.MutableInt;
@@ -56,6 +59,7 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import com.google.common.base.Joiner;
+import com.google.common.base.Suppliers;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -63,21 +67,27 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.AtlasDbTestCase;
 import com.palantir.atlasdb.cache.TimestampCache;
 import com.palantir.atlasdb.cleaner.NoOpCleaner;
 import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.AsyncKeyValueService;
 import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.impl.ExecutorBackedAsyncKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.ForwardingKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.TrackingKeyValueService;
 import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.CachePriority;
@@ -163,6 +173,57 @@ public class SnapshotTransactionTest extends AtlasDbTestCase {
             return delegate;
         }
     }
+
+    private static class AsyncCountingKeyValueService extends ForwardingKeyValueService
+            implements AsyncKeyValueService {
+        private final KeyValueService delegate;
+        private final AsyncKeyValueService asyncDelegate;
+        private final AtomicInteger asyncReads = new AtomicInteger();
+
+        AsyncCountingKeyValueService(KeyValueService delegate) {
+            this.delegate = delegate;
+            this.asyncDelegate = ExecutorBackedAsyncKeyValueService.create(delegate, MoreExecutors.directExecutor());
+        }
+
+        @Override
+        protected KeyValueService delegate() {
+            return delegate;
+        }
+
+        @Override
+        public CompletableFuture<Map<Cell, Value>> getAsync(TableReference tableRef,
+                Map<Cell, Long> timestampByCell) {
+            asyncReads.incrementAndGet();
+            return asyncDelegate.getAsync(tableRef, timestampByCell);
+        }
+
+        @Override
+        public CompletableFuture<Map<Cell, Value>> getRowsAsync(TableReference tableRef, Iterable<byte[]> rows,
+                ColumnSelection columnSelection, long timestamp) {
+            asyncReads.incrementAndGet();
+            return asyncDelegate.getRowsAsync(tableRef, rows, columnSelection, timestamp);
+        }
+
+        @Override
+        public CompletableFuture<Map<byte[], RowColumnRangeIterator>> getRowsColumnRangeAsync(
+                TableReference tableRef, Iterable<byte[]> rows, BatchColumnRangeSelection batchColumnRangeSelection,
+                long timestamp) {
+            asyncReads.incrementAndGet();
+            return asyncDelegate.getRowsColumnRangeAsync(tableRef, rows, batchColumnRangeSelection, timestamp);
+        }
+
+        @Override
+        public CompletableFuture<Void> putAsync(TableReference tableRef, Map<Cell, byte[]> values, long timestamp) {
+            return asyncDelegate.putAsync(tableRef, values, timestamp);
+        }
+
+        @Override
+        public CompletableFuture<Void> multiPutAsync(Map<TableReference, ? extends Map<Cell, byte[]>> valuesByTable,
+                long timestamp) {
+            return asyncDelegate.multiPutAsync(valuesByTable, timestamp);
+        }
+    }
+
     static final TableReference TABLE = TableReference.createFromFullyQualifiedName("default.table");
     static final TableReference TABLE1 = TableReference.createFromFullyQualifiedName("default.table1");
     static final TableReference TABLE2 = TableReference.createFromFullyQualifiedName("default.table2");
@@ -562,6 +623,106 @@ public class SnapshotTransactionTest extends AtlasDbTestCase {
         }
     }
 
+    @Test
+    public void readsFromThoroughlySweptTableShouldFailInReadOnlyTransactions() throws Exception {
+        keyValueService.createTable(
+                TABLE_SWEPT_THOROUGH,
+                getTableMetadataForSweepStrategy(SweepStrategy.THOROUGH).persistToBytes());
+        for (Pair<String, LockAwareTransactionTask<Void, Exception>> task : getThoroughTableReadTasks()) {
+            try {
+                txManager.runTaskReadOnly(t -> task.getRight().execute(t, ImmutableList.of()));
+                Assert.fail("Expected read to fail in a read only transaction, but it succeeded for: "
+                        + task.getLeft());
+            } catch (IllegalStateException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void readOnlyTransactionShouldFailToCommitAfterReadTimeout() throws Exception {
+        long startTs = timestampService.getFreshTimestamp();
+        SnapshotTransaction snapshot = createReadOnlyTransaction(startTs, 0L, 1L);
+        Thread.sleep(10);
+        try {
+            snapshot.commit();
+            fail();
+        } catch (TransactionFailedRetriableException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void readOnlyTransactionShouldFailToCommitIfUnreadableTimestampPassedItsStart() {
+        long startTs = timestampService.getFreshTimestamp();
+        SnapshotTransaction snapshot = createReadOnlyTransaction(startTs, startTs + 1, null);
+        snapshot.get(TABLE, ImmutableSet.of(Cell.create(PtBytes.toBytes("row"), PtBytes.toBytes("column"))));
+        try {
+            snapshot.commit();
+            fail();
+        } catch (TransactionFailedRetriableException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void readOnlyTransactionWithoutReadsIgnoresUnreadableTimestamp() {
+        long startTs = timestampService.getFreshTimestamp();
+        createReadOnlyTransaction(startTs, startTs + 1, null).commit();
+    }
+
+    @Test
+    public void asyncReadsGoThroughAnAsyncKeyValueService() throws Exception {
+        Cell cell = Cell.create(PtBytes.toBytes("row"), PtBytes.toBytes("column"));
+        byte[] value = PtBytes.toBytes("value");
+        txManager.runTaskWithRetry((TxTask) t -> {
+            t.put(TABLE, ImmutableMap.of(cell, value));
+            return null;
+        });
+
+        AsyncCountingKeyValueService asyncKvs = new AsyncCountingKeyValueService(keyValueService);
+        SnapshotTransaction snapshot = new SnapshotTransaction(
+                asyncKvs,
+                new LegacyTimelockService(timestampService, lockService, lockClient),
+                transactionService,
+                NoOpCleaner.INSTANCE,
+                timestampService.getFreshTimestamp(),
+                TestConflictDetectionManagers.createWithStaticConflictDetection(
+                        ImmutableMap.of(TABLE, ConflictHandler.RETRY_ON_WRITE_WRITE)),
+                AtlasDbConstraintCheckingMode.NO_CONSTRAINT_CHECKING,
+                TransactionReadSentinelBehavior.THROW_EXCEPTION,
+                timestampCache,
+                getRangesExecutor,
+                defaultGetRangesConcurrency);
+
+        assertTrue(Arrays.equals(value, snapshot.getAsync(TABLE, ImmutableSet.of(cell)).get().get(cell)));
+        assertTrue(Arrays.equals(value, snapshot.getRowsAsync(TABLE, ImmutableSet.of(cell.getRowName()),
+                ColumnSelection.all()).get().get(cell.getRowName()).getColumns().get(cell.getColumnName())));
+        assertEquals(2, asyncKvs.asyncReads.get());
+    }
+
+    private SnapshotTransaction createReadOnlyTransaction(
+            long startTs,
+            long unreadableTs,
+            Long transactionReadTimeoutMillis) {
+        return new ReadOnlySnapshotTransaction(
+                keyValueService,
+                new LegacyTimelockService(timestampService, lockService, lockClient),
+                transactionService,
+                Suppliers.ofInstance(startTs),
+                conflictDetectionManager,
+                sweepStrategyManager,
+                startTs,
+                Suppliers.ofInstance(unreadableTs),
+                AtlasDbConstraintCheckingMode.NO_CONSTRAINT_CHECKING,
+                transactionReadTimeoutMillis,
+                false,
+                timestampCache,
+                AtlasDbConstants.DEFAULT_TRANSACTION_LOCK_ACQUIRE_TIMEOUT_MS,
+                getRangesExecutor,
+                defaultGetRangesConcurrency);
+    }
+
     /**
      * Given Pair.of("label", task), return task label iff task succeeds.
      */
@@ -719,6 +880,35 @@ public class SnapshotTransactionTest extends AtlasDbTestCase {
         }
     }
 
+    @Test
+    public void testWriteWriteConflictsAcrossTablesAndBatchesThrow() {
+        overrideConflictHandlerForTable(TABLE, ConflictHandler.RETRY_ON_WRITE_WRITE);
+        overrideConflictHandlerForTable(TABLE1, ConflictHandler.RETRY_ON_WRITE_WRITE);
+        Map<Cell, byte[]> manyCells = Maps.newHashMap();
+        for (int i = 0; i < 2 * SnapshotTransaction.CONFLICT_CHECK_BATCH_SIZE + 1; i++) {
+            manyCells.put(Cell.create(PtBytes.toBytes("row" + i), PtBytes.toBytes("column1")), new byte[1]);
+        }
+        final Cell conflictingCell = Cell.create(PtBytes.toBytes("row1"), PtBytes.toBytes("column1"));
+
+        Transaction t1 = txManager.createNewTransaction();
+        Transaction t2 = txManager.createNewTransaction();
+        t1.put(TABLE1, ImmutableMap.of(conflictingCell, new byte[1]));
+        t2.put(TABLE, manyCells);
+        t2.put(TABLE1, manyCells);
+        t1.commit();
+        try {
+            t2.commit();
+            fail();
+        } catch (TransactionConflictException e) {
+            // good
+        }
+
+        Transaction t3 = txManager.createNewTransaction();
+        t3.put(TABLE, manyCells);
+        t3.put(TABLE1, manyCells);
+        t3.commit();
+    }
+
     @Test (expected = IllegalArgumentException.class)
     public void disallowPutOnEmptyObject() {
         final Cell cell = Cell.create(PtBytes.toBytes("row1"), PtBytes.toBytes("column1"));
@@ -812,6 +1002,9 @@ public class SnapshotTransactionTest extends AtlasDbTestCase {
      */
     private static SnapshotTransaction unwrapSnapshotTransaction(Transaction cachingTransaction) {
         Transaction unwrapped = ((CachingTransaction) cachingTransaction).delegate();
+        if (unwrapped instanceof SnapshotTransaction) {
+            return (SnapshotTransaction) unwrapped;
+        }
         return ((RawTransaction) unwrapped).delegate();
     }
 
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.lock.client;
+
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+import com.palantir.common.base.Throwables;
+import com.palantir.lock.v2.LockImmutableTimestampRequest;
+import com.palantir.lock.v2.LockImmutableTimestampResponse;
+import com.palantir.lock.v2.LockRequest;
+import com.palantir.lock.v2.LockResponse;
+import com.palantir.lock.v2.LockToken;
+import com.palantir.lock.v2.StartTransactionsResponse;
+import com.palantir.lock.v2.TimelockService;
+import com.palantir.lock.v2.WaitForLocksRequest;
+import com.palantir.lock.v2.WaitForLocksResponse;
+import com.palantir.timestamp.TimestampRange;
+
+/**
+ * Serves {@link #startTransactions} with separate {@link #lockImmutableTimestamp} and {@link #getFreshTimestamps}
+ * calls against the delegate, so that clients never call the start-transactions endpoint, which TimeLock servers
+ * from before its introduction do not serve.
+ * <p>
+ * A single transaction start asks the delegate for one timestamp with {@link #getFreshTimestamp}, so that concurrent
+ * starts are still coalesced by a request batching timestamp client.
+ */
+public class LegacyStartTransactionsTimelockService implements TimelockService {
+    private final TimelockService delegate;
+
+    public LegacyStartTransactionsTimelockService(TimelockService delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public boolean isInitialized() {
+        return delegate.isInitialized();
+    }
+
+    @Override
+    public long getFreshTimestamp() {
+        return delegate.getFreshTimestamp();
+    }
+
+    @Override
+    public TimestampRange getFreshTimestamps(int numTimestampsRequested) {
+        return delegate.getFreshTimestamps(numTimestampsRequested);
+    }
+
+    @Override
+    public LockImmutableTimestampResponse lockImmutableTimestamp(LockImmutableTimestampRequest request) {
+        return delegate.lockImmutableTimestamp(request);
+    }
+
+    @Override
+    public StartTransactionsResponse startTransactions(LockImmutableTimestampRequest request, int numTransactions) {
+        LockImmutableTimestampResponse immutableTimestamp = delegate.lockImmutableTimestamp(request);
+        try {
+            return StartTransactionsResponse.of(immutableTimestamp, getStartTimestamps(numTransactions));
+        } catch (Throwable t) {
+            delegate.unlock(ImmutableSet.of(immutableTimestamp.getLock()));
+            throw Throwables.rewrapAndThrowUncheckedException(t);
+        }
+    }
+
+    private TimestampRange getStartTimestamps(int numTransactions) {
+        if (numTransactions == 1) {
+            long startTimestamp = delegate.getFreshTimestamp();
+            return TimestampRange.createInclusiveRange(startTimestamp, startTimestamp);
+        }
+        return delegate.getFreshTimestamps(numTransactions);
+    }
+
+    @Override
+    public long getImmutableTimestamp() {
+        return delegate.getImmutableTimestamp();
+    }
+
+    @Override
+    public LockResponse lock(LockRequest request) {
+        return delegate.lock(request);
+    }
+
+    @Override
+    public WaitForLocksResponse waitForLocks(WaitForLocksRequest request) {
+        return delegate.waitForLocks(request);
+    }
+
+    @Override
+    public Set<LockToken> refreshLockLeases(Set<LockToken> tokens) {
+        return delegate.refreshLockLeases(tokens);
+    }
+
+    @Override
+    public Set<LockToken> unlock(Set<LockToken> tokens) {
+        return delegate.unlock(tokens);
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return delegate.currentTimeMillis();
+    }
+}
@@ -26,6 +26,7 @@ import com.palantir.lock.v2.LockImmutableTimestampResponse;
 import com.palantir.lock.v2.LockRequest;
 import com.palantir.lock.v2.LockResponse;
 import com.palantir.lock.v2.LockToken;
+import com.palantir.lock.v2.StartTransactionsResponse;
 import com.palantir.lock.v2.TimelockService;
 import com.palantir.lock.v2.WaitForLocksRequest;
 import com.palantir.lock.v2.WaitForLocksResponse;
@@ -76,6 +77,13 @@ public class LockRefreshingTimelockService implements AutoCloseable, TimelockSer
         return response;
     }
 
+    @Override
+    public StartTransactionsResponse startTransactions(LockImmutableTimestampRequest request, int numTransactions) {
+        StartTransactionsResponse response = delegate.startTransactions(request, numTransactions);
+        lockRefresher.registerLock(response.getImmutableTimestamp().getLock());
+        return response;
+    }
+
     @Override
     public long getImmutableTimestamp() {
         return delegate.getImmutableTimestamp();
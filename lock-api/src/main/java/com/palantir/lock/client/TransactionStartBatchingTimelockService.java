@@ -0,0 +1,246 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.lock.client;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.palantir.common.base.Throwables;
+import com.palantir.lock.v2.LockImmutableTimestampRequest;
+import com.palantir.lock.v2.LockImmutableTimestampResponse;
+import com.palantir.lock.v2.LockRequest;
+import com.palantir.lock.v2.LockResponse;
+import com.palantir.lock.v2.LockToken;
+import com.palantir.lock.v2.StartTransactionsResponse;
+import com.palantir.lock.v2.TimelockService;
+import com.palantir.lock.v2.WaitForLocksRequest;
+import com.palantir.lock.v2.WaitForLocksResponse;
+import com.palantir.timestamp.TimestampRange;
+
+/**
+ * Coalesces concurrent {@link #startTransactions} calls into a single call against the delegate.
+ * <p>
+ * Calls that arrive while a batch is in flight are queued, and the next batch is sent as soon as the previous one
+ * returns, so no latency is added when there is no contention. All transactions in a batch share the delegate's
+ * immutable timestamp lock. Each caller is handed its own token for that lock, which is understood by
+ * {@link #refreshLockLeases} and {@link #unlock}; the shared lock is released once the last of those tokens has been
+ * unlocked. The delegate should be a {@link LockRefreshingTimelockService}, so that the shared lock is kept alive
+ * for as long as any of the transactions using it is running.
+ */
+public class TransactionStartBatchingTimelockService implements TimelockService {
+    private final TimelockService delegate;
+    private final Queue<PendingStart> pendingStarts = new ConcurrentLinkedQueue<>();
+    private final Lock batchLock = new ReentrantLock();
+    private final Map<LockToken, SharedLock> sharedLocks = new ConcurrentHashMap<>();
+
+    public TransactionStartBatchingTimelockService(TimelockService delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public boolean isInitialized() {
+        return delegate.isInitialized();
+    }
+
+    @Override
+    public long getFreshTimestamp() {
+        return delegate.getFreshTimestamp();
+    }
+
+    @Override
+    public TimestampRange getFreshTimestamps(int numTimestampsRequested) {
+        return delegate.getFreshTimestamps(numTimestampsRequested);
+    }
+
+    @Override
+    public LockImmutableTimestampResponse lockImmutableTimestamp(LockImmutableTimestampRequest request) {
+        return delegate.lockImmutableTimestamp(request);
+    }
+
+    @Override
+    public StartTransactionsResponse startTransactions(LockImmutableTimestampRequest request, int numTransactions) {
+        Preconditions.checkArgument(numTransactions > 0, "Must start at least one transaction");
+        PendingStart pending = new PendingStart(request.getRequestId(), numTransactions);
+        pendingStarts.add(pending);
+        batchLock.lock();
+        try {
+            // our start may already have been served by the batch we were waiting on
+            if (!pending.result.isDone()) {
+                processBatch();
+            }
+        } finally {
+            batchLock.unlock();
+        }
+        try {
+            return Uninterruptibles.getUninterruptibly(pending.result);
+        } catch (ExecutionException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e.getCause());
+        }
+    }
+
+    @Override
+    public long getImmutableTimestamp() {
+        return delegate.getImmutableTimestamp();
+    }
+
+    @Override
+    public LockResponse lock(LockRequest request) {
+        return delegate.lock(request);
+    }
+
+    @Override
+    public WaitForLocksResponse waitForLocks(WaitForLocksRequest request) {
+        return delegate.waitForLocks(request);
+    }
+
+    @Override
+    public Set<LockToken> refreshLockLeases(Set<LockToken> tokens) {
+        Map<LockToken, LockToken> delegateTokens = Maps.newHashMapWithExpectedSize(tokens.size());
+        for (LockToken token : tokens) {
+            SharedLock sharedLock = sharedLocks.get(token);
+            delegateTokens.put(token, sharedLock == null ? token : sharedLock.token);
+        }
+        Set<LockToken> refreshed = delegate.refreshLockLeases(Sets.newHashSet(delegateTokens.values()));
+        return Sets.newHashSet(Maps.filterValues(delegateTokens, refreshed::contains).keySet());
+    }
+
+    @Override
+    public Set<LockToken> unlock(Set<LockToken> tokens) {
+        Set<LockToken> unlocked = Sets.newHashSet();
+        Set<LockToken> toUnlock = Sets.newHashSet();
+        for (LockToken token : tokens) {
+            SharedLock sharedLock = sharedLocks.remove(token);
+            if (sharedLock == null) {
+                toUnlock.add(token);
+            } else {
+                unlocked.add(token);
+                if (sharedLock.release()) {
+                    toUnlock.add(sharedLock.token);
+                }
+            }
+        }
+        if (!toUnlock.isEmpty()) {
+            Set<LockToken> unlockedByDelegate = delegate.unlock(toUnlock);
+            tokens.stream().filter(unlockedByDelegate::contains).forEach(unlocked::add);
+        }
+        return unlocked;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return delegate.currentTimeMillis();
+    }
+
+    @VisibleForTesting
+    boolean hasPendingStarts(int count) {
+        return pendingStarts.size() >= count;
+    }
+
+    private void processBatch() {
+        List<PendingStart> batch = Lists.newArrayList();
+        int numTransactions = 0;
+        PendingStart next;
+        while ((next = pendingStarts.poll()) != null) {
+            batch.add(next);
+            numTransactions += next.numTransactions;
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        StartTransactionsResponse response;
+        try {
+            response = delegate.startTransactions(LockImmutableTimestampRequest.create(), numTransactions);
+        } catch (Throwable t) {
+            batch.forEach(pendingStart -> pendingStart.result.completeExceptionally(t));
+            return;
+        }
+
+        LockImmutableTimestampResponse immutableTimestamp = response.getImmutableTimestamp();
+        SharedLock sharedLock = new SharedLock(immutableTimestamp.getLock(), batch.size());
+        long nextStartTimestamp = response.getStartTimestamps().getLowerBound();
+        long lastStartTimestamp = response.getStartTimestamps().getUpperBound();
+        for (PendingStart pendingStart : batch) {
+            TimestampRange startTimestamps;
+            try {
+                if (nextStartTimestamp <= lastStartTimestamp) {
+                    long upper = Math.min(nextStartTimestamp + pendingStart.numTransactions - 1, lastStartTimestamp);
+                    startTimestamps = TimestampRange.createInclusiveRange(nextStartTimestamp, upper);
+                    nextStartTimestamp = upper + 1;
+                } else {
+                    // we were given fewer timestamps than we asked for; later ones are still above the locked one
+                    startTimestamps = delegate.getFreshTimestamps(pendingStart.numTransactions);
+                }
+            } catch (Throwable t) {
+                if (sharedLock.release()) {
+                    delegate.unlock(Sets.newHashSet(sharedLock.token));
+                }
+                pendingStart.result.completeExceptionally(t);
+                continue;
+            }
+            LockToken token = LockToken.of(pendingStart.requestId);
+            sharedLocks.put(token, sharedLock);
+            pendingStart.result.complete(StartTransactionsResponse.of(
+                    LockImmutableTimestampResponse.of(immutableTimestamp.getImmutableTimestamp(), token),
+                    startTimestamps));
+        }
+    }
+
+    private static final class PendingStart {
+        private final UUID requestId;
+        private final int numTransactions;
+        private final CompletableFuture<StartTransactionsResponse> result = new CompletableFuture<>();
+
+        PendingStart(UUID requestId, int numTransactions) {
+            this.requestId = requestId;
+            this.numTransactions = numTransactions;
+        }
+    }
+
+    private static final class SharedLock {
+        private final LockToken token;
+        private final AtomicInteger references;
+
+        SharedLock(LockToken token, int references) {
+            this.token = token;
+            this.references = new AtomicInteger(references);
+        }
+
+        /**
+         * Returns true if this was the last reference to the lock.
+         */
+        boolean release() {
+            return references.decrementAndGet() == 0;
+        }
+    }
+}
@@ -55,6 +55,18 @@ public interface TimelockService {
     @Path("lock-immutable-timestamp")
     LockImmutableTimestampResponse lockImmutableTimestamp(LockImmutableTimestampRequest request);
 
+    /**
+     * Locks the immutable timestamp and returns a range of fresh timestamps, all greater than the locked timestamp,
+     * in a single call. This is equivalent to {@link #lockImmutableTimestamp} followed by
+     * {@link #getFreshTimestamps}, and the returned lock protects every transaction started with one of the
+     * returned timestamps. As with {@link #getFreshTimestamps}, fewer timestamps than requested may be returned.
+     */
+    @POST
+    @Path("start-transactions")
+    StartTransactionsResponse startTransactions(
+            LockImmutableTimestampRequest request,
+            @Safe @QueryParam("number") int numTransactions);
+
     @POST
     @Path("immutable-timestamp")
     long getImmutableTimestamp();
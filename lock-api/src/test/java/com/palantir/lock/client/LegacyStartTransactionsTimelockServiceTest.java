@@ -0,0 +1,82 @@
+/*
+ * Copyright 2018 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.lock.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.palantir.lock.v2.LockImmutableTimestampRequest;
+import com.palantir.lock.v2.LockImmutableTimestampResponse;
+import com.palantir.lock.v2.LockToken;
+import com.palantir.lock.v2.StartTransactionsResponse;
+import com.palantir.lock.v2.TimelockService;
+import com.palantir.timestamp.TimestampRange;
+
+public class LegacyStartTransactionsTimelockServiceTest {
+    private static final LockToken TOKEN = LockToken.of(UUID.randomUUID());
+    private static final LockImmutableTimestampResponse IMMUTABLE_TIMESTAMP =
+            LockImmutableTimestampResponse.of(10L, TOKEN);
+
+    private final TimelockService delegate = mock(TimelockService.class);
+    private final TimelockService timelock = new LegacyStartTransactionsTimelockService(delegate);
+
+    @Test
+    public void startsTransactionsWithoutCallingStartTransactionsOnDelegate() {
+        when(delegate.lockImmutableTimestamp(any())).thenReturn(IMMUTABLE_TIMESTAMP);
+        when(delegate.getFreshTimestamps(3)).thenReturn(TimestampRange.createInclusiveRange(100L, 102L));
+
+        StartTransactionsResponse response = timelock.startTransactions(LockImmutableTimestampRequest.create(), 3);
+
+        assertThat(response.getImmutableTimestamp()).isEqualTo(IMMUTABLE_TIMESTAMP);
+        assertThat(response.getStartTimestamps().getLowerBound()).isEqualTo(100L);
+        assertThat(response.getStartTimestamps().getUpperBound()).isEqualTo(102L);
+        verify(delegate, never()).startTransactions(any(), anyInt());
+    }
+
+    @Test
+    public void startsASingleTransactionWithASingleFreshTimestamp() {
+        when(delegate.lockImmutableTimestamp(any())).thenReturn(IMMUTABLE_TIMESTAMP);
+        when(delegate.getFreshTimestamp()).thenReturn(100L);
+
+        StartTransactionsResponse response = timelock.startTransactions(LockImmutableTimestampRequest.create(), 1);
+
+        assertThat(response.getStartTimestamps().getLowerBound()).isEqualTo(100L);
+        assertThat(response.getStartTimestamps().getUpperBound()).isEqualTo(100L);
+        verify(delegate, never()).getFreshTimestamps(anyInt());
+    }
+
+    @Test
+    public void unlocksImmutableTimestampIfStartTimestampsCannotBeFetched() {
+        when(delegate.lockImmutableTimestamp(any())).thenReturn(IMMUTABLE_TIMESTAMP);
+        when(delegate.getFreshTimestamp()).thenThrow(new IllegalStateException("boom"));
+
+        assertThatThrownBy(() -> timelock.startTransactions(LockImmutableTimestampRequest.create(), 1))
+                .isInstanceOf(IllegalStateException.class);
+        verify(delegate).unlock(ImmutableSet.of(TOKEN));
+    }
+}
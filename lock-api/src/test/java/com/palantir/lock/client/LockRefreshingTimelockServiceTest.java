@@ -40,6 +40,7 @@ import com.palantir.lock.v2.LockImmutableTimestampResponse;
 import com.palantir.lock.v2.LockRequest;
 import com.palantir.lock.v2.LockResponse;
 import com.palantir.lock.v2.LockToken;
+import com.palantir.lock.v2.StartTransactionsResponse;
 import com.palantir.lock.v2.TimelockService;
 import com.palantir.lock.v2.WaitForLocksRequest;
 import com.palantir.timestamp.TimestampRange;
@@ -77,6 +78,15 @@ public class LockRefreshingTimelockServiceTest {
         verify(refresher).registerLock(TOKEN_1);
     }
 
+    @Test
+    public void registersStartTransactionsLock() {
+        when(delegate.startTransactions(any(), Mockito.anyInt())).thenReturn(StartTransactionsResponse.of(
+                LockImmutableTimestampResponse.of(123L, TOKEN_1), TimestampRange.createInclusiveRange(124L, 125L)));
+        timelock.startTransactions(LockImmutableTimestampRequest.create(), 2);
+
+        verify(refresher).registerLock(TOKEN_1);
+    }
+
     @Test
     public void registersLocks() {
         LockRequest request = LockRequest.of(LOCKS, TIMEOUT);
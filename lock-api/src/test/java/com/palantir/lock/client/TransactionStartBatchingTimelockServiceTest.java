@@ -0,0 +1,172 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.lock.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.palantir.lock.v2.LockImmutableTimestampRequest;
+import com.palantir.lock.v2.LockImmutableTimestampResponse;
+import com.palantir.lock.v2.LockToken;
+import com.palantir.lock.v2.StartTransactionsResponse;
+import com.palantir.lock.v2.TimelockService;
+import com.palantir.timestamp.TimestampRange;
+
+public class TransactionStartBatchingTimelockServiceTest {
+    private static final long IMMUTABLE_TS = 10L;
+    private static final LockToken SHARED_TOKEN = LockToken.of(UUID.randomUUID());
+
+    private final TimelockService delegate = mock(TimelockService.class);
+    private final TransactionStartBatchingTimelockService timelock =
+            new TransactionStartBatchingTimelockService(delegate);
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void handsOutDistinctStartTimestampsAndTokensFromOneCall() throws Exception {
+        CountDownLatch firstCallStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstCall = new CountDownLatch(1);
+        when(delegate.startTransactions(any(), anyInt())).thenAnswer(invocation -> {
+            int numTransactions = (int) invocation.getArguments()[1];
+            if (numTransactions == 1) {
+                firstCallStarted.countDown();
+                releaseFirstCall.await();
+            }
+            return response(100L, numTransactions);
+        });
+
+        Future<StartTransactionsResponse> first = executor.submit(this::startOne);
+        firstCallStarted.await();
+        List<Future<StartTransactionsResponse>> queued = Lists.newArrayList(
+                executor.submit(this::startOne),
+                executor.submit(this::startOne));
+        while (!timelock.hasPendingStarts(2)) {
+            Thread.sleep(1);
+        }
+        releaseFirstCall.countDown();
+
+        first.get();
+        StartTransactionsResponse second = queued.get(0).get();
+        StartTransactionsResponse third = queued.get(1).get();
+        verify(delegate, times(2)).startTransactions(any(), anyInt());
+        verify(delegate).startTransactions(any(), eq(2));
+        assertThat(ImmutableSet.of(
+                second.getStartTimestamps().getLowerBound(),
+                third.getStartTimestamps().getLowerBound())).containsExactlyInAnyOrder(100L, 101L);
+        assertThat(second.getImmutableTimestamp().getLock()).isNotEqualTo(third.getImmutableTimestamp().getLock());
+        assertThat(second.getImmutableTimestamp().getImmutableTimestamp()).isEqualTo(IMMUTABLE_TS);
+    }
+
+    @Test
+    public void releasesSharedLockWhenLastTransactionUnlocks() {
+        when(delegate.startTransactions(any(), anyInt())).thenReturn(response(100L, 2));
+        TransactionStartBatchingTimelockService batching = new TransactionStartBatchingTimelockService(delegate);
+        LockToken firstToken = batching.startTransactions(LockImmutableTimestampRequest.create(), 2)
+                .getImmutableTimestamp().getLock();
+
+        when(delegate.unlock(ImmutableSet.of(SHARED_TOKEN))).thenReturn(ImmutableSet.of(SHARED_TOKEN));
+        assertThat(batching.unlock(ImmutableSet.of(firstToken))).containsExactly(firstToken);
+        verify(delegate).unlock(ImmutableSet.of(SHARED_TOKEN));
+    }
+
+    @Test
+    public void keepsSharedLockUntilAllTransactionsHaveUnlocked() throws Exception {
+        CountDownLatch firstCallStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstCall = new CountDownLatch(1);
+        LockToken firstSharedToken = LockToken.of(UUID.randomUUID());
+        when(delegate.startTransactions(any(), anyInt())).thenAnswer(invocation -> {
+            int numTransactions = (int) invocation.getArguments()[1];
+            if (numTransactions == 1) {
+                firstCallStarted.countDown();
+                releaseFirstCall.await();
+                return StartTransactionsResponse.of(LockImmutableTimestampResponse.of(IMMUTABLE_TS, firstSharedToken),
+                        TimestampRange.createInclusiveRange(99L, 99L));
+            }
+            return response(100L, numTransactions);
+        });
+        TransactionStartBatchingTimelockService batching = new TransactionStartBatchingTimelockService(delegate);
+
+        executor.submit(() -> batching.startTransactions(LockImmutableTimestampRequest.create(), 1));
+        firstCallStarted.await();
+        Future<LockToken> second = executor.submit(() -> batching.startTransactions(
+                LockImmutableTimestampRequest.create(), 1).getImmutableTimestamp().getLock());
+        Future<LockToken> third = executor.submit(() -> batching.startTransactions(
+                LockImmutableTimestampRequest.create(), 1).getImmutableTimestamp().getLock());
+        while (!batching.hasPendingStarts(2)) {
+            Thread.sleep(1);
+        }
+        releaseFirstCall.countDown();
+
+        batching.unlock(ImmutableSet.of(second.get()));
+        verify(delegate, never()).unlock(ImmutableSet.of(SHARED_TOKEN));
+
+        when(delegate.refreshLockLeases(ImmutableSet.of(SHARED_TOKEN))).thenReturn(ImmutableSet.of(SHARED_TOKEN));
+        assertThat(batching.refreshLockLeases(ImmutableSet.of(third.get()))).containsExactly(third.get());
+
+        batching.unlock(ImmutableSet.of(third.get()));
+        verify(delegate).unlock(ImmutableSet.of(SHARED_TOKEN));
+    }
+
+    @Test
+    public void propagatesFailuresToEveryCallerInTheBatch() {
+        when(delegate.startTransactions(any(), anyInt())).thenThrow(new IllegalStateException("boom"));
+
+        assertThatThrownBy(this::startOne).hasMessageContaining("boom");
+    }
+
+    @Test
+    public void passesThroughTokensItDidNotHandOut() {
+        LockToken otherToken = LockToken.of(UUID.randomUUID());
+        when(delegate.unlock(ImmutableSet.of(otherToken))).thenReturn(ImmutableSet.of(otherToken));
+
+        assertThat(timelock.unlock(ImmutableSet.of(otherToken))).containsExactly(otherToken);
+    }
+
+    private StartTransactionsResponse startOne() {
+        return timelock.startTransactions(LockImmutableTimestampRequest.create(), 1);
+    }
+
+    private static StartTransactionsResponse response(long lowerBound, int numTransactions) {
+        return StartTransactionsResponse.of(
+                LockImmutableTimestampResponse.of(IMMUTABLE_TS, SHARED_TOKEN),
+                TimestampRange.createInclusiveRange(lowerBound, lowerBound + numTransactions - 1));
+    }
+}
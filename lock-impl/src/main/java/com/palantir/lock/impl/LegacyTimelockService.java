@@ -37,6 +37,7 @@ import com.palantir.lock.v2.LockImmutableTimestampResponse;
 import com.palantir.lock.v2.LockRequest;
 import com.palantir.lock.v2.LockResponse;
 import com.palantir.lock.v2.LockToken;
+import com.palantir.lock.v2.StartTransactionsResponse;
 import com.palantir.lock.v2.TimelockService;
 import com.palantir.lock.v2.WaitForLocksRequest;
 import com.palantir.lock.v2.WaitForLocksResponse;
@@ -101,6 +102,17 @@ public class LegacyTimelockService implements TimelockService {
         }
     }
 
+    @Override
+    public StartTransactionsResponse startTransactions(LockImmutableTimestampRequest request, int numTransactions) {
+        LockImmutableTimestampResponse immutableTimestamp = lockImmutableTimestamp(request);
+        try {
+            return StartTransactionsResponse.of(immutableTimestamp, getFreshTimestamps(numTransactions));
+        } catch (Throwable e) {
+            lockService.unlock(LockTokenConverter.toLegacyToken(immutableTimestamp.getLock()));
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        }
+    }
+
     @Override
     public long getImmutableTimestamp() {
         long ts = timestampService.getFreshTimestamp();
@@ -48,6 +48,7 @@ import com.palantir.lock.v2.LockImmutableTimestampResponse;
 import com.palantir.lock.v2.LockRequest;
 import com.palantir.lock.v2.LockResponse;
 import com.palantir.lock.v2.LockToken;
+import com.palantir.lock.v2.StartTransactionsResponse;
 import com.palantir.lock.v2.WaitForLocksRequest;
 import com.palantir.timestamp.TimestampRange;
 import com.palantir.timestamp.TimestampService;
@@ -102,6 +103,25 @@ public class LegacyTimelockServiceTest {
         assertEquals(expectedResponse, timelock.lockImmutableTimestamp(LockImmutableTimestampRequest.create()));
     }
 
+    @Test
+    public void startTransactionsLocksImmutableTimestampBeforeGettingStartTimestamps() throws InterruptedException {
+        long immutableTs = 3L;
+        TimestampRange startTimestamps = TimestampRange.createInclusiveRange(6L, 8L);
+
+        LockRefreshToken expectedToken = mockImmutableTsLockResponse();
+        mockMinLockedInVersionIdResponse(immutableTs);
+        when(timestampService.getFreshTimestamps(3)).thenReturn(startTimestamps);
+
+        InOrder inOrder = Mockito.inOrder(timestampService, lockService);
+        StartTransactionsResponse response = timelock.startTransactions(LockImmutableTimestampRequest.create(), 3);
+
+        assertEquals(LockImmutableTimestampResponse.of(immutableTs, toTokenV2(expectedToken)),
+                response.getImmutableTimestamp());
+        assertEquals(startTimestamps, response.getStartTimestamps());
+        inOrder.verify(lockService).lock(Mockito.eq(LOCK_CLIENT.getClientId()), Mockito.any());
+        inOrder.verify(timestampService).getFreshTimestamps(3);
+    }
+
     @Test
     public void getImmutableTimestampDelegatesInProperOrder() throws InterruptedException {
         long immutableTs = 3L;
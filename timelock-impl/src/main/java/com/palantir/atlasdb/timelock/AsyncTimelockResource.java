@@ -34,6 +34,7 @@ import com.palantir.lock.v2.LockImmutableTimestampResponse;
 import com.palantir.lock.v2.LockRequest;
 import com.palantir.lock.v2.LockResponse;
 import com.palantir.lock.v2.LockToken;
+import com.palantir.lock.v2.StartTransactionsResponse;
 import com.palantir.lock.v2.WaitForLocksRequest;
 import com.palantir.lock.v2.WaitForLocksResponse;
 import com.palantir.logsafe.Safe;
@@ -68,6 +69,14 @@ public class AsyncTimelockResource {
         return timelock.lockImmutableTimestamp(request);
     }
 
+    @POST
+    @Path("start-transactions")
+    public StartTransactionsResponse startTransactions(
+            LockImmutableTimestampRequest request,
+            @Safe @QueryParam("number") int numTransactions) {
+        return timelock.startTransactions(request, numTransactions);
+    }
+
     @POST
     @Path("immutable-timestamp")
     public long getImmutableTimestamp() {
@@ -27,6 +27,7 @@ import com.palantir.lock.v2.LockImmutableTimestampRequest;
 import com.palantir.lock.v2.LockImmutableTimestampResponse;
 import com.palantir.lock.v2.LockRequest;
 import com.palantir.lock.v2.LockToken;
+import com.palantir.lock.v2.StartTransactionsResponse;
 import com.palantir.lock.v2.WaitForLocksRequest;
 import com.palantir.timestamp.TimestampRange;
 
@@ -66,6 +67,18 @@ public class AsyncTimelockServiceImpl implements AsyncTimelockService {
         return LockImmutableTimestampResponse.of(immutableTs, token);
     }
 
+    @Override
+    public StartTransactionsResponse startTransactions(LockImmutableTimestampRequest request, int numTransactions) {
+        // start timestamps are taken after the lock, so they are all above the locked timestamp
+        LockImmutableTimestampResponse immutableTimestamp = lockImmutableTimestamp(request);
+        try {
+            return StartTransactionsResponse.of(immutableTimestamp, getFreshTimestamps(numTransactions));
+        } catch (Throwable t) {
+            lockService.unlock(immutableTimestamp.getLock());
+            throw t;
+        }
+    }
+
     @Override
     public long getImmutableTimestamp() {
         long timestamp = timestampService.getFreshTimestamp();